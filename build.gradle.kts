@@ -1,5 +1,17 @@
 import org.jetbrains.kotlin.gradle.dsl.JvmTarget
 
+// The GraalVM build tools plugin is only resolved by the native test profile (-Pnative)
+buildscript {
+    if (hasProperty("native")) {
+        repositories {
+            gradlePluginPortal()
+        }
+        dependencies {
+            classpath(libs.graalvmNativeGradlePlugin)
+        }
+    }
+}
+
 plugins {
     alias(libs.plugins.springBoot)
     alias(libs.plugins.springDependencyManagement)
@@ -7,6 +19,7 @@ plugins {
     id("idea")
     alias(libs.plugins.kotlinSerialization)
     `java-library`
+    `java-test-fixtures`
     alias(libs.plugins.jreleaser)
     alias(libs.plugins.sonarqube)
     alias(libs.plugins.dependencycheck)
@@ -112,6 +125,7 @@ dependencies {
     implementation(libs.langchain4jSpringBootStarter)
     implementation(libs.langchain4jOpenAiSpringBootStarter)
     implementation(libs.langchain4jHttpClientJdk)
+    implementation(libs.langchain4jMcp)
 
     // LangGraph4j (Agent State Management)
     implementation(libs.langgraph4jCore)
@@ -121,6 +135,18 @@ dependencies {
     implementation(libs.springBootStarter)
     implementation(libs.springBootStarterJson)
 
+    // Metrics (exported to the log, a file or JMX, the bridge has no web server)
+    implementation(libs.micrometerCore)
+    implementation(libs.micrometerRegistryJmx)
+
+    // Tracing (OTLP JSON file export works offline)
+    implementation(libs.opentelemetryApi)
+    implementation(libs.opentelemetrySdk)
+    implementation(libs.opentelemetryExporterLoggingOtlp)
+
+    // Embedded OpenAI-compatible SSE server used to load-test the HTTP streaming path
+    testFixturesImplementation(libs.slf4jApi)
+
     testImplementation(libs.springBootStarterTest) {
         exclude(group = "org.junit.platform")
     }
@@ -130,6 +156,7 @@ dependencies {
     testRuntimeOnly(libs.junitPlatformLauncher)
     testImplementation(libs.junitJupiterApi)
     testImplementation(libs.awaitility)
+    testImplementation(libs.opentelemetrySdkTesting)
 
     // Cucumber/Gherkin BDD Testing
     testImplementation(libs.cucumberCore)
@@ -157,10 +184,177 @@ tasks.named<Jar>("jar") {
     enabled = true
 }
 
+// Stdio-to-daemon launcher spawned by IDEs: JDK only, so it starts in tens of milliseconds
+val shimJar by tasks.registering(Jar::class) {
+    archiveClassifier.set("shim")
+    from(sourceSets.main.get().output) {
+        include("net/osgiliath/acplanggraphlangchainbridge/launcher/**")
+        include("net/osgiliath/acplanggraphlangchainbridge/transport/AcpEndpoint*.class")
+    }
+    manifest {
+        attributes("Main-Class" to "net.osgiliath.acplanggraphlangchainbridge.launcher.StdioShim")
+    }
+}
+
+tasks.named("assemble") {
+    dependsOn(shimJar)
+}
+
+// Startup performance: Spring AOT processing, an AppCDS archive and a launch-to-initialize benchmark.
+// The library has no application of its own, so the test application stands in for a consuming app.
+val benchmarkApplication = "net.osgiliath.acplanggraphlangchainbridge.AcpLangGraphLangChainBridgeApplication"
+val benchmarkDir = layout.buildDirectory.dir("startup-benchmark")
+val benchmarkArgs = ((findProperty("benchmarkArgs") as String?) ?: "").split(" ").filter { it.isNotBlank() } +
+    "--spring.main.banner-mode=off"
+val javaExecutable = javaToolchains.launcherFor(java.toolchain).map { it.executablePath.asFile.absolutePath }
+
+val benchmarkTestJar by tasks.registering(Jar::class) {
+    group = "performance"
+    description = "Packages the benchmark application, AppCDS only archives classes loaded from jars"
+    archiveClassifier.set("benchmark")
+    destinationDirectory.set(benchmarkDir.map { it.dir("libs") })
+    from(sourceSets.test.get().output)
+}
+
+// jars only, in a fixed order: the AppCDS archive is only valid for the classpath it was trained on
+val benchmarkClasspath = files(tasks.jar, benchmarkTestJar, configurations.testRuntimeClasspath)
+
+val processBenchmarkAot by tasks.registering(JavaExec::class) {
+    group = "performance"
+    description = "Runs Spring AOT processing on the bridge configuration of the benchmark application"
+    classpath = benchmarkClasspath
+    mainClass.set("org.springframework.boot.SpringApplicationAotProcessor")
+    val aot = benchmarkDir.get().dir("aot")
+    args(benchmarkApplication, aot.dir("sources").asFile.path, aot.dir("resources").asFile.path,
+        aot.dir("classes").asFile.path, project.group, project.name)
+    args(benchmarkArgs)
+    outputs.dir(aot)
+    doFirst { delete(aot) }
+}
+
+val compileBenchmarkAot by tasks.registering(JavaCompile::class) {
+    group = "performance"
+    description = "Compiles the bean factory initializers generated by Spring AOT"
+    dependsOn(processBenchmarkAot)
+    source(benchmarkDir.map { it.dir("aot/sources") })
+    classpath = benchmarkClasspath + files(benchmarkDir.map { it.dir("aot/classes") })
+    destinationDirectory.set(benchmarkDir.map { it.dir("aot/compiled") })
+    javaCompiler.set(javaToolchains.compilerFor(java.toolchain))
+    options.compilerArgs.add("-parameters")
+}
+
+val benchmarkAotJar by tasks.registering(Jar::class) {
+    group = "performance"
+    description = "Packages the AOT-processed variant of the bridge configuration"
+    archiveClassifier.set("benchmark-aot")
+    destinationDirectory.set(benchmarkDir.map { it.dir("libs") })
+    from(compileBenchmarkAot)
+    from(benchmarkDir.map { it.dir("aot/resources") })
+    from(benchmarkDir.map { it.dir("aot/classes") })
+}
+
+val benchmarkAotClasspath = files(benchmarkAotJar) + benchmarkClasspath
+val cdsArchive = benchmarkDir.map { it.file("acp-bridge.jsa") }
+
+fun javaCommand(vararg jvmArgs: String, classpath: FileCollection): List<String> =
+    listOf(javaExecutable.get()) + jvmArgs + listOf("-cp", classpath.asPath, benchmarkApplication) + benchmarkArgs
+
+val trainBridgeCds by tasks.registering(JavaExec::class) {
+    group = "performance"
+    description = "Records an AppCDS archive from a training run of the AOT-processed bridge up to initialize"
+    classpath = sourceSets.testFixtures.get().runtimeClasspath
+    mainClass.set("net.osgiliath.acplanggraphlangchainbridge.testing.StartupBenchmark")
+    inputs.files(benchmarkAotClasspath)
+    outputs.file(cdsArchive)
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf("--runs", "1", "--logs", benchmarkDir.get().dir("logs").asFile.path,
+            "--variant", "training") +
+            javaCommand("-XX:ArchiveClassesAtExit=${cdsArchive.get().asFile.path}", "-Dspring.aot.enabled=true",
+                classpath = benchmarkAotClasspath) +
+            "--end"
+    })
+}
+
+tasks.register<JavaExec>("startupBenchmark") {
+    group = "performance"
+    description = "Measures launch to initialize response and first token of the bridge on the JVM, with Spring AOT, and with AOT and AppCDS"
+    dependsOn(trainBridgeCds)
+    inputs.files(benchmarkAotClasspath)
+    classpath = sourceSets.testFixtures.get().runtimeClasspath
+    mainClass.set("net.osgiliath.acplanggraphlangchainbridge.testing.StartupBenchmark")
+    argumentProviders.add(CommandLineArgumentProvider {
+        val runs = (findProperty("benchmarkRuns") as String?) ?: "5"
+        listOf("--runs", runs,
+            "--report", benchmarkDir.get().file("report.txt").asFile.path,
+            "--logs", benchmarkDir.get().dir("logs").asFile.path) +
+            listOf("--variant", "jvm") + javaCommand(classpath = benchmarkClasspath) + "--end" +
+            listOf("--variant", "aot") + javaCommand("-Dspring.aot.enabled=true",
+                classpath = benchmarkAotClasspath) + "--end" +
+            listOf("--variant", "aot+cds") + javaCommand("-Dspring.aot.enabled=true",
+                "-XX:SharedArchiveFile=${cdsArchive.get().asFile.path}", classpath = benchmarkAotClasspath) + "--end"
+    })
+}
+
+// Native image of the benchmark application, built from the AOT-processed classpath: the Spring AOT
+// resources in benchmarkAotJar carry the reachability metadata, BridgeRuntimeHints included.
+// Needs a GraalVM distribution in GRAALVM_HOME.
+val nativeBenchmarkImage = benchmarkDir.map { it.file("native/acp-bridge") }
+
+val nativeBenchmarkCompile by tasks.registering(Exec::class) {
+    group = "performance"
+    description = "Compiles the AOT-processed benchmark application to a GraalVM native image"
+    inputs.files(benchmarkAotClasspath)
+    outputs.file(nativeBenchmarkImage)
+    doFirst {
+        val graalvmHome = System.getenv("GRAALVM_HOME")
+            ?: throw GradleException("Set GRAALVM_HOME to a GraalVM distribution to build the native image")
+        mkdir(nativeBenchmarkImage.get().asFile.parentFile)
+        commandLine("$graalvmHome/bin/native-image", "--no-fallback",
+            "-cp", benchmarkAotClasspath.asPath,
+            "-o", nativeBenchmarkImage.get().asFile.path,
+            benchmarkApplication)
+    }
+}
+
+tasks.register<JavaExec>("nativeStartupBenchmark") {
+    group = "performance"
+    description = "Compares cold initialize and first-token latency of the bridge as a native image and on the JVM"
+    dependsOn(nativeBenchmarkCompile)
+    inputs.files(benchmarkAotClasspath)
+    classpath = sourceSets.testFixtures.get().runtimeClasspath
+    mainClass.set("net.osgiliath.acplanggraphlangchainbridge.testing.StartupBenchmark")
+    argumentProviders.add(CommandLineArgumentProvider {
+        val runs = (findProperty("benchmarkRuns") as String?) ?: "5"
+        listOf("--runs", runs,
+            "--report", benchmarkDir.get().file("native-report.txt").asFile.path,
+            "--logs", benchmarkDir.get().dir("logs").asFile.path) +
+            listOf("--variant", "jvm") + javaCommand(classpath = benchmarkClasspath) + "--end" +
+            listOf("--variant", "native", nativeBenchmarkImage.get().asFile.path) + benchmarkArgs + "--end"
+    })
+}
+
+// Native test profile: `./gradlew nativeTest -Pnative` runs the tests tagged "native" in a native
+// image built from the AOT-processed test context, the others rely on the JVM (Mockito, Cucumber).
+if (hasProperty("native")) {
+    apply(plugin = "org.graalvm.buildtools.native")
+
+    // a library has no application to process, only the test context is
+    tasks.named("processAot") {
+        enabled = false
+    }
+
+    tasks.named<Test>("test") {
+        useJUnitPlatform {
+            includeTags("native")
+        }
+    }
+}
+
 publishing {
     publications {
         create<MavenPublication>("mavenJava") {
             from(components["java"])
+            artifact(shimJar)
             pom {
                 name.set("acp-langraph-langchain-bridge")
                 description.set("Bridge module between ACP and LangGraph/LangChain")
@@ -2,6 +2,7 @@ package net.osgiliath.acplanggraphlangchainbridge.acp;
 
 
 import com.agentclientprotocol.model.ContentBlock;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
 
 import java.util.List;
 import java.util.Map;
@@ -29,6 +30,19 @@ public interface AcpAgentSupportBridge {
      */
     AcpSessionBridge createSession(String sessionId, String cwd, Map<String, String> mcpServers);
 
+    /**
+     * Called when a new session is requested, with the full definitions of its MCP servers.
+     *
+     * <p>The default implementation only passes the command or URL of each server to
+     * {@link #createSession(String, String, Map)}.</p>
+     *
+     * @param sessionContext the session identifier, working directory and MCP servers
+     * @return AcpSessionBridge instance representing the active session for the agent.
+     */
+    default AcpSessionBridge createSession(SessionContext sessionContext) {
+        return createSession(sessionContext.sessionId(), sessionContext.cwd(), sessionContext.mcpServers());
+    }
+
     /**
      * Interface representing an active session for an ACP agent. This session object is created for each new session request and is used to manage the state and interactions for that specific session. It provides methods for processing prompts and streaming responses back to the caller, allowing for real-time interaction with the agent during the session lifecycle.
      */
@@ -68,6 +82,24 @@ public interface AcpAgentSupportBridge {
          */
         void streamPrompt(String promptText, List<ContentBlock.ResourceLink> promtResourceLinks, TokenConsumer consumer);
 
+        /**
+         * Processes a prompt carrying embedded content with streaming token output.
+         *
+         * <p>The default implementation ignores the embedded content, for sessions written before
+         * clients could embed images and resources in prompts.</p>
+         *
+         * @param promptText         the text of the prompt to process
+         * @param promtResourceLinks a list of resource links associated with the prompt
+         * @param embeddedContent    the {@link ContentBlock.Image} and {@link ContentBlock.Resource} blocks of the prompt, sent inline by the client instead of as files
+         * @param consumer           a callback interface that will receive each token as it is generated by the model
+         */
+        default void streamPrompt(String promptText,
+                                  List<ContentBlock.ResourceLink> promtResourceLinks,
+                                  List<ContentBlock> embeddedContent,
+                                  TokenConsumer consumer) {
+            streamPrompt(promptText, promtResourceLinks, consumer);
+        }
+
         /**
          * Cancels any in-flight work associated with the current prompt.
          *
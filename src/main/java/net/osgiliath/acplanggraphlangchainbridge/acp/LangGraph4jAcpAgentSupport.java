@@ -1,14 +1,19 @@
 package net.osgiliath.acplanggraphlangchainbridge.acp;
 
 import com.agentclientprotocol.model.ContentBlock;
+import net.osgiliath.acplanggraphlangchainbridge.http.SharedHttpClient;
 import net.osgiliath.acplanggraphlangchainbridge.langgraph.LangGraph4jAdapter;
 import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import net.osgiliath.acplanggraphlangchainbridge.observability.BridgeObserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -19,6 +24,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class LangGraph4jAcpAgentSupport implements InAcpAdapter {
     private static final Logger log = LoggerFactory.getLogger(LangGraph4jAcpAgentSupport.class);
     private final LangGraph4jAdapter adapter;
+    private final SharedHttpClient sharedHttpClient;
+    private final BridgeObserver observer;
 
     /**
      * Constructor for LangGraph4jAcpAgentSupport.
@@ -26,7 +33,46 @@ public class LangGraph4jAcpAgentSupport implements InAcpAdapter {
      * @param adapter the LangGraph4jAdapter instance to use for processing prompts
      */
     public LangGraph4jAcpAgentSupport(LangGraph4jAdapter adapter) {
+        this(adapter, Optional.empty());
+    }
+
+    /**
+     * Constructor for LangGraph4jAcpAgentSupport pre-warming model connections at session creation.
+     *
+     * @param adapter          the LangGraph4jAdapter instance to use for processing prompts
+     * @param sharedHttpClient the HTTP client shared by the models, if any
+     */
+    public LangGraph4jAcpAgentSupport(LangGraph4jAdapter adapter, Optional<SharedHttpClient> sharedHttpClient) {
+        this(adapter, sharedHttpClient, BridgeObserver.NOOP);
+    }
+
+    /**
+     * Constructor for LangGraph4jAcpAgentSupport reporting sessions to the observers of the context.
+     *
+     * @param adapter          the LangGraph4jAdapter instance to use for processing prompts
+     * @param sharedHttpClient the HTTP client shared by the models, if any
+     * @param observers        the observers of the session lifecycle
+     */
+    @Autowired
+    public LangGraph4jAcpAgentSupport(LangGraph4jAdapter adapter,
+                                      Optional<SharedHttpClient> sharedHttpClient,
+                                      ObjectProvider<BridgeObserver> observers) {
+        this(adapter, sharedHttpClient, BridgeObserver.composite(observers.orderedStream().toList()));
+    }
+
+    /**
+     * Constructor for LangGraph4jAcpAgentSupport with an explicit observer.
+     *
+     * @param adapter          the LangGraph4jAdapter instance to use for processing prompts
+     * @param sharedHttpClient the HTTP client shared by the models, if any
+     * @param observer         the observer of the session lifecycle
+     */
+    public LangGraph4jAcpAgentSupport(LangGraph4jAdapter adapter,
+                                      Optional<SharedHttpClient> sharedHttpClient,
+                                      BridgeObserver observer) {
         this.adapter = adapter;
+        this.sharedHttpClient = sharedHttpClient.orElse(null);
+        this.observer = observer;
     }
 
     @Override
@@ -36,8 +82,16 @@ public class LangGraph4jAcpAgentSupport implements InAcpAdapter {
 
     @Override
     public AcpSessionBridge createSession(String sessionId, String cwd, Map<String, String> mcpServers) {
-        SessionContext sessionContext = SessionContext.of(sessionId, cwd, mcpServers);
+        return createSession(SessionContext.of(sessionId, cwd, mcpServers));
+    }
+
+    @Override
+    public AcpSessionBridge createSession(SessionContext sessionContext) {
         log.info("Creating new ACP session: {} in {}", sessionContext.sessionId(), sessionContext.cwd());
+        if (sharedHttpClient != null) {
+            sharedHttpClient.prewarm();
+        }
+        observer.sessionOpened(sessionContext);
         return new LangChain4jSession(sessionContext, adapter);
     }
 
@@ -99,5 +153,21 @@ public class LangGraph4jAcpAgentSupport implements InAcpAdapter {
                 consumer.onError(e);
             }
         }
+
+        @Override
+        public void streamPrompt(String promptText,
+                                 List<ContentBlock.ResourceLink> resourceLinks,
+                                 List<ContentBlock> embeddedContent,
+                                 TokenConsumer consumer) {
+            if (embeddedContent == null || embeddedContent.isEmpty()) {
+                streamPrompt(promptText, resourceLinks, consumer);
+                return;
+            }
+            try {
+                adapter.streamPrompt(sessionContext, promptText, resourceLinks, embeddedContent, consumer, cancelled);
+            } catch (Exception e) {
+                consumer.onError(e);
+            }
+        }
     }
 }
@@ -0,0 +1,110 @@
+package net.osgiliath.acplanggraphlangchainbridge.aot;
+
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.message.ResourceLinkContent;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment.AttachmentMetadataDTO;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment.AttachmentsMetadata;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.serializer.AcpBridgeContentSerializer;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.serializer.AcpLangChain4jStateSerializer;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import net.osgiliath.acplanggraphlangchainbridge.logging.SessionSamplingFilter;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reachability metadata of the bridge for GraalVM native images, contributed to Spring AOT
+ * processing through {@code META-INF/spring/aot.factories}.
+ *
+ * <p>The points a closed-world analysis cannot see are registered here: the objects Java
+ * serialization writes in checkpointed LangGraph4j state ({@link SessionContext}, attachment
+ * metadata, and the annotations and {@code _meta} of a {@link ResourceLinkContent} serialized as a
+ * record; {@link AcpBridgeContentSerializer} writes them as JSON), the ACP model classes, whose kotlinx-serialization
+ * serializers are looked up reflectively through their companions, and the logback turbo
+ * filter instantiated from {@code logback.xml}.</p>
+ */
+public class BridgeRuntimeHints implements RuntimeHintsRegistrar {
+
+    static final String ACP_MODEL_PACKAGE = "com.agentclientprotocol.model";
+
+    static final List<String> SERIALIZED_TYPES = List.of(
+            "com.agentclientprotocol.model.Annotations",
+            "kotlinx.serialization.json.JsonElement",
+            "kotlinx.serialization.json.JsonObject",
+            "kotlinx.serialization.json.JsonArray",
+            "kotlinx.serialization.json.JsonPrimitive",
+            "kotlinx.serialization.json.JsonLiteral",
+            "kotlinx.serialization.json.JsonNull",
+            "java.util.ArrayList",
+            "java.util.HashMap",
+            "java.util.LinkedHashMap",
+            "java.util.HashSet",
+            "java.util.ImmutableCollections$ListN",
+            "java.util.ImmutableCollections$List12",
+            "java.util.ImmutableCollections$MapN",
+            "java.util.ImmutableCollections$Map1",
+            "java.util.CollSer",
+            "java.lang.Long",
+            "java.lang.Number");
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.serialization()
+                .registerType(SessionContext.class)
+                .registerType(TypeReference.of(ResourceLinkContent.class))
+                .registerType(TypeReference.of(AttachmentsMetadata.class))
+                .registerType(TypeReference.of(AttachmentMetadataDTO.class));
+        SERIALIZED_TYPES.forEach(type -> hints.serialization().registerType(TypeReference.of(type)));
+
+        hints.reflection()
+                .registerType(AcpLangChain4jStateSerializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)
+                .registerType(AcpBridgeContentSerializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)
+                .registerType(ResourceLinkContent.class,
+                        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS)
+                .registerType(SessionSamplingFilter.class,
+                        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+        for (String type : acpModelTypes(classLoader)) {
+            hints.reflection().registerType(TypeReference.of(type),
+                    MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+
+        hints.resources().registerPattern("logback.xml");
+    }
+
+    /**
+     * Lists the classes of the ACP model, including the generated {@code $Companion} and
+     * {@code $$serializer} classes kotlinx-serialization resolves at runtime.
+     */
+    static List<String> acpModelTypes(ClassLoader classLoader) {
+        String directory = ACP_MODEL_PACKAGE.replace('.', '/') + '/';
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver(classLoader)
+                    .getResources("classpath*:" + directory + "**/*.class");
+            return Arrays.stream(resources)
+                    .map(BridgeRuntimeHints::url)
+                    .map(url -> url.substring(url.lastIndexOf(directory), url.length() - ".class".length()))
+                    .map(path -> path.replace('/', '.'))
+                    .distinct()
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list the ACP model classes", e);
+        }
+    }
+
+    private static String url(Resource resource) {
+        try {
+            return resource.getURL().toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
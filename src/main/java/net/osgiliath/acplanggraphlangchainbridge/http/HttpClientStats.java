@@ -0,0 +1,58 @@
+package net.osgiliath.acplanggraphlangchainbridge.http;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection counters of the {@link SharedHttpClient}.
+ *
+ * <p>The JDK client does not expose its connection pool, so reuse is derived: every TLS
+ * connection opens exactly one {@code SSLEngine}, hence requests that did not cause a new
+ * engine were served on an already established (pooled or multiplexed) connection.
+ * Plain {@code http://} endpoints never handshake and therefore always count as reused.</p>
+ */
+public final class HttpClientStats {
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder tlsHandshakes = new LongAdder();
+    private final LongAdder prewarms = new LongAdder();
+
+    void recordRequest() {
+        requests.increment();
+    }
+
+    void recordTlsHandshake() {
+        tlsHandshakes.increment();
+    }
+
+    void recordPrewarm() {
+        prewarms.increment();
+    }
+
+    /**
+     * @return the number of requests sent through the shared client, pre-warming included
+     */
+    public long requests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return the number of new TLS connections, each of which paid for a full handshake
+     */
+    public long tlsHandshakes() {
+        return tlsHandshakes.sum();
+    }
+
+    /**
+     * @return the number of requests served on an already established connection
+     */
+    public long reusedConnections() {
+        return Math.max(0L, requests() - tlsHandshakes());
+    }
+
+    /**
+     * @return the number of pre-warming requests sent at session creation
+     */
+    public long prewarms() {
+        return prewarms.sum();
+    }
+}
@@ -0,0 +1,389 @@
+package net.osgiliath.acplanggraphlangchainbridge.http;
+
+import dev.langchain4j.http.client.HttpClientBuilder;
+import dev.langchain4j.http.client.jdk.JdkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single JDK {@link HttpClient} shared by every LangChain4j model of the application.
+ *
+ * <p>Sharing one client lets concurrent sessions reuse pooled HTTP/1.1 connections and
+ * multiplex over HTTP/2 instead of each model opening (and TLS-handshaking) its own
+ * connections on the time-to-first-token path. The client:</p>
+ * <ul>
+ *   <li>prefers HTTP/2 and falls back to HTTP/1.1 when the server does not negotiate it,</li>
+ *   <li>runs its asynchronous work on virtual threads,</li>
+ *   <li>can pre-warm the connection to the model endpoint when a session is created.</li>
+ * </ul>
+ *
+ * <p>A model configured with its own SSL context, SSL parameters, connection timeout, executor,
+ * proxy or authenticator gets a client of its own with the same settings, shared by the models
+ * configured with the same ones. TLS handshakes are only counted for the default SSL context.</p>
+ *
+ * <p>The JDK only reads the idle connection timeout from the {@code jdk.httpclient.keepalive.timeout}
+ * system properties, which are left to the application command line; pre-warming should happen
+ * more often than that timeout to keep a connection open.</p>
+ *
+ * <p>Connection reuse versus new TLS handshakes is reported by {@link #stats()}.</p>
+ */
+public class SharedHttpClient implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SharedHttpClient.class);
+
+    private final HttpClientStats stats = new HttpClientStats();
+    private final ExecutorService executor;
+    private final SSLContext sslContext;
+    private final HttpClient client;
+    private final Map<ClientKey, HttpClient> customClients = new ConcurrentHashMap<>();
+    private final URI prewarmUri;
+    private final Duration connectTimeout;
+    private final long prewarmIntervalNanos;
+    private final AtomicLong lastPrewarmNanos = new AtomicLong();
+
+    /**
+     * Creates the shared client.
+     *
+     * @param connectTimeout  the connection timeout
+     * @param prewarmInterval the time between two pre-warmings
+     * @param prewarmUri      the endpoint to connect to at session creation, or {@code null} to disable pre-warming
+     */
+    public SharedHttpClient(Duration connectTimeout, Duration prewarmInterval, URI prewarmUri) {
+        this.connectTimeout = connectTimeout;
+        this.prewarmUri = prewarmUri;
+        this.prewarmIntervalNanos = prewarmInterval.toNanos();
+        this.lastPrewarmNanos.set(System.nanoTime() - prewarmIntervalNanos);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.sslContext = new CountingSslContext(defaultSslContext(), stats);
+        this.client = new CountingHttpClient(newBuilder().build(), stats);
+    }
+
+    /**
+     * @return the shared client
+     */
+    public HttpClient client() {
+        return client;
+    }
+
+    /**
+     * @return the connection counters of the shared client
+     */
+    public HttpClientStats stats() {
+        return stats;
+    }
+
+    /**
+     * Creates a LangChain4j {@link HttpClientBuilder} backed by the shared client.
+     *
+     * <p>Each model gets its own builder so its read timeout still applies per request. A model
+     * setting the SSL context, SSL parameters, connection timeout, executor, proxy or
+     * authenticator of the underlying JDK builder gets a client with these settings; its cookie
+     * handler, redirect policy, HTTP version and priority are ignored.</p>
+     *
+     * @return a new LangChain4j HTTP client builder
+     */
+    public HttpClientBuilder langChain4jBuilder() {
+        return JdkHttpClient.builder()
+                .httpClientBuilder(new SharedBuilder())
+                .connectTimeout(connectTimeout);
+    }
+
+    /**
+     * Opens a connection to the model endpoint ahead of the first prompt, so the TCP and TLS
+     * handshakes happen while the user is still typing.
+     *
+     * <p>The request is fire-and-forget and its outcome is ignored. Calls are throttled to
+     * one per pre-warming interval since a single warm connection serves all sessions.</p>
+     */
+    public void prewarm() {
+        if (prewarmUri == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastPrewarmNanos.get();
+        if (now - last < prewarmIntervalNanos || !lastPrewarmNanos.compareAndSet(last, now)) {
+            return;
+        }
+        stats.recordPrewarm();
+        HttpRequest request = HttpRequest.newBuilder(prewarmUri)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .timeout(connectTimeout)
+                .build();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        log.debug("Connection pre-warming to {} failed: {}", prewarmUri, error.getMessage());
+                    } else {
+                        log.debug("Pre-warmed connection to {} ({})", prewarmUri, response.version());
+                    }
+                });
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        customClients.values().forEach(HttpClient::close);
+        executor.shutdownNow();
+    }
+
+    private HttpClient.Builder newBuilder() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .sslContext(sslContext);
+    }
+
+    /**
+     * @return the client of the settings of a model, the shared client when none is set
+     */
+    private HttpClient client(ClientKey key) {
+        if (key.equals(ClientKey.DEFAULTS)) {
+            return client;
+        }
+        return customClients.computeIfAbsent(key, settings -> {
+            HttpClient.Builder builder = newBuilder();
+            if (settings.sslContext() != null) {
+                builder.sslContext(settings.sslContext());
+            }
+            if (settings.sslParameters() != null) {
+                builder.sslParameters(settings.sslParameters());
+            }
+            if (settings.connectTimeout() != null) {
+                builder.connectTimeout(settings.connectTimeout());
+            }
+            if (settings.executor() != null) {
+                builder.executor(settings.executor());
+            }
+            if (settings.proxy() != null) {
+                builder.proxy(settings.proxy());
+            }
+            if (settings.authenticator() != null) {
+                builder.authenticator(settings.authenticator());
+            }
+            log.debug("Created an HTTP client for {}", settings);
+            return new CountingHttpClient(builder.build(), stats);
+        });
+    }
+
+    private static SSLContext defaultSslContext() {
+        try {
+            return SSLContext.getDefault();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No default SSLContext available", e);
+        }
+    }
+
+    /**
+     * The connection settings a model can set on top of the shared ones, {@code null} when unset.
+     */
+    private record ClientKey(SSLContext sslContext, SSLParameters sslParameters, Duration connectTimeout,
+                             Executor executor, ProxySelector proxy, Authenticator authenticator) {
+
+        static final ClientKey DEFAULTS = new ClientKey(null, null, null, null, null, null);
+    }
+
+    /**
+     * {@link HttpClient.Builder} handed to LangChain4j: {@link #build()} returns the shared
+     * client, or the client of the connection settings set, and the other setters are no-ops.
+     */
+    private final class SharedBuilder implements HttpClient.Builder {
+
+        private SSLContext sslContext;
+        private SSLParameters sslParameters;
+        private Duration connectTimeout;
+        private Executor executor;
+        private ProxySelector proxy;
+        private Authenticator authenticator;
+
+        @Override
+        public HttpClient.Builder cookieHandler(CookieHandler cookieHandler) {
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder connectTimeout(Duration duration) {
+            // the timeout of the shared client is not a setting of its own
+            this.connectTimeout = SharedHttpClient.this.connectTimeout.equals(duration) ? null : duration;
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder sslContext(SSLContext sslContext) {
+            this.sslContext = sslContext;
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder sslParameters(SSLParameters sslParameters) {
+            this.sslParameters = sslParameters;
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder followRedirects(HttpClient.Redirect policy) {
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder version(HttpClient.Version version) {
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder priority(int priority) {
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder proxy(ProxySelector proxySelector) {
+            this.proxy = proxySelector;
+            return this;
+        }
+
+        @Override
+        public HttpClient.Builder authenticator(Authenticator authenticator) {
+            this.authenticator = authenticator;
+            return this;
+        }
+
+        @Override
+        public HttpClient build() {
+            return client(new ClientKey(sslContext, sslParameters, connectTimeout, executor, proxy, authenticator));
+        }
+    }
+
+    /**
+     * Delegating client counting the requests sent through the shared client.
+     */
+    private static final class CountingHttpClient extends HttpClient {
+
+        private final HttpClient delegate;
+        private final HttpClientStats stats;
+
+        private CountingHttpClient(HttpClient delegate, HttpClientStats stats) {
+            this.delegate = delegate;
+            this.stats = stats;
+        }
+
+        @Override
+        public Optional<CookieHandler> cookieHandler() {
+            return delegate.cookieHandler();
+        }
+
+        @Override
+        public Optional<Duration> connectTimeout() {
+            return delegate.connectTimeout();
+        }
+
+        @Override
+        public Redirect followRedirects() {
+            return delegate.followRedirects();
+        }
+
+        @Override
+        public Optional<ProxySelector> proxy() {
+            return delegate.proxy();
+        }
+
+        @Override
+        public SSLContext sslContext() {
+            return delegate.sslContext();
+        }
+
+        @Override
+        public SSLParameters sslParameters() {
+            return delegate.sslParameters();
+        }
+
+        @Override
+        public Optional<Authenticator> authenticator() {
+            return delegate.authenticator();
+        }
+
+        @Override
+        public Version version() {
+            return delegate.version();
+        }
+
+        @Override
+        public Optional<Executor> executor() {
+            return delegate.executor();
+        }
+
+        @Override
+        public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler)
+                throws IOException, InterruptedException {
+            stats.recordRequest();
+            return delegate.send(request, responseBodyHandler);
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                                HttpResponse.BodyHandler<T> responseBodyHandler) {
+            stats.recordRequest();
+            return delegate.sendAsync(request, responseBodyHandler);
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                                HttpResponse.BodyHandler<T> responseBodyHandler,
+                                                                HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+            stats.recordRequest();
+            return delegate.sendAsync(request, responseBodyHandler, pushPromiseHandler);
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public void shutdownNow() {
+            delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean awaitTermination(Duration duration) throws InterruptedException {
+            return delegate.awaitTermination(duration);
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package net.osgiliath.acplanggraphlangchainbridge.http;
+
+import dev.langchain4j.http.client.HttpClientBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Registers the {@link SharedHttpClient} and hands it to the LangChain4j OpenAI starter.
+ *
+ * <p>The starter only creates its own HTTP client builders when no bean with the same name
+ * exists, so the builders declared here replace them and make every OpenAI chat model share one
+ * tuned JDK client. As they take over the client settings of the starter, they are only
+ * declared with {@code acp.bridge.http-client.enabled=true}; a model setting its own SSL
+ * context, SSL parameters, connection timeout, executor, proxy or authenticator still gets a
+ * client with those settings.</p>
+ *
+ * <p>Pre-warming targets {@code acp.bridge.http-client.prewarm-url}, which defaults to the
+ * streaming model base URL and is disabled when neither is set, at most once every
+ * {@code acp.bridge.http-client.prewarm-interval}. How long idle connections stay in the pool is
+ * the JDK's {@code jdk.httpclient.keepalive.timeout} system property.</p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "acp.bridge.http-client", name = "enabled", havingValue = "true")
+public class SharedHttpClientConfiguration {
+
+    /**
+     * Bean name the OpenAI starter uses for the blocking chat model HTTP client builder.
+     */
+    public static final String CHAT_MODEL_HTTP_CLIENT_BUILDER = "openAiChatModelHttpClientBuilder";
+
+    /**
+     * Bean name the OpenAI starter uses for the streaming chat model HTTP client builder.
+     */
+    public static final String STREAMING_CHAT_MODEL_HTTP_CLIENT_BUILDER = "openAiStreamingChatModelHttpClientBuilder";
+
+    /**
+     * Creates the shared client.
+     *
+     * @param connectTimeout  the connection timeout
+     * @param prewarmInterval the time between two pre-warmings, which should be shorter than the
+     *                        idle connection timeout of the JDK
+     * @param prewarmUrl      the endpoint to connect to at session creation, empty to disable pre-warming
+     * @return the shared HTTP client
+     */
+    @Bean(destroyMethod = "close")
+    public SharedHttpClient sharedHttpClient(
+            @Value("${acp.bridge.http-client.connect-timeout:PT10S}") Duration connectTimeout,
+            @Value("${acp.bridge.http-client.prewarm-interval:PT150S}") Duration prewarmInterval,
+            @Value("${acp.bridge.http-client.prewarm-url:${langchain4j.open-ai.streaming-chat-model.base-url:}}") String prewarmUrl) {
+        URI prewarmUri = prewarmUrl.isBlank() ? null : URI.create(prewarmUrl);
+        return new SharedHttpClient(connectTimeout, prewarmInterval, prewarmUri);
+    }
+
+    /**
+     * @param sharedHttpClient the shared client
+     * @return the HTTP client builder of the OpenAI chat model
+     */
+    @Bean(CHAT_MODEL_HTTP_CLIENT_BUILDER)
+    public HttpClientBuilder openAiChatModelHttpClientBuilder(SharedHttpClient sharedHttpClient) {
+        return sharedHttpClient.langChain4jBuilder();
+    }
+
+    /**
+     * @param sharedHttpClient the shared client
+     * @return the HTTP client builder of the OpenAI streaming chat model
+     */
+    @Bean(STREAMING_CHAT_MODEL_HTTP_CLIENT_BUILDER)
+    public HttpClientBuilder openAiStreamingChatModelHttpClientBuilder(SharedHttpClient sharedHttpClient) {
+        return sharedHttpClient.langChain4jBuilder();
+    }
+}
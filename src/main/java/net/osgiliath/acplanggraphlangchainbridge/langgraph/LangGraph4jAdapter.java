@@ -3,24 +3,40 @@ package net.osgiliath.acplanggraphlangchainbridge.langgraph;
 import com.agentclientprotocol.model.ContentBlock;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
 import dev.langchain4j.data.message.UserMessage;
 import net.osgiliath.acplanggraphlangchainbridge.acp.AcpAgentSupportBridge;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.cache.CachedResponse;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.cache.ResponseCache;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.cache.ResponseCacheKey;
 import net.osgiliath.acplanggraphlangchainbridge.langgraph.graph.PromptGraph;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.message.EmbeddedContents;
 import net.osgiliath.acplanggraphlangchainbridge.langgraph.message.ResourceLinkContent;
 import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
 import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import net.osgiliath.acplanggraphlangchainbridge.logging.SessionMdc;
+import net.osgiliath.acplanggraphlangchainbridge.observability.ActivePrompts;
+import net.osgiliath.acplanggraphlangchainbridge.observability.BridgeObserver;
+import net.osgiliath.acplanggraphlangchainbridge.observability.PromptObservation;
+import net.osgiliath.acplanggraphlangchainbridge.observability.NodeTimingListener;
 import org.bsc.async.AsyncGenerator;
+import org.bsc.langgraph4j.CompileConfig;
+import org.bsc.langgraph4j.CompiledGraph;
 import org.bsc.langgraph4j.GraphStateException;
 import org.bsc.langgraph4j.NodeOutput;
-import org.bsc.langgraph4j.StateGraph;
 import org.bsc.langgraph4j.streaming.StreamingOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * Adapter - Bridges Koog ACP facade with LangChain4j orchestrator.
@@ -42,6 +58,21 @@ import java.util.concurrent.atomic.AtomicBoolean;
  *       {@link StreamingOutput#chunk()} to the ACP {@code TokenConsumer}, and
  *       signals completion when the graph finishes.</li>
  * </ol>
+ * <p>
+ * When a {@link ResponseCache} is configured, prompts are first looked up by their
+ * {@link ResponseCacheKey}: a hit replays the recorded chunks without running the graph,
+ * a miss records the streamed chunks and stores them once the stream completes normally.</p>
+ * <p>
+ * The graph is built and compiled by the first prompt, and the compiled graph is reused by the
+ * following ones until {@link PromptGraph#version()} changes. The lifecycle listener it is
+ * compiled with is shared too: it reports to the observation each session binds in
+ * {@link ActivePrompts}.</p>
+ * <p>
+ * Every prompt is reported to the {@link BridgeObserver}s: graph compile time (for the prompts
+ * compiling the graph), the timing of each node (through a {@link NodeTimingListener}), each
+ * streamed chunk and the outcome (completed, failed or cancelled).</p>
+ * <p>
+ * While a prompt is served, its session id is in the logging MDC under {@link SessionMdc#KEY}.</p>
  */
 @Component
 public class LangGraph4jAdapter {
@@ -49,6 +80,15 @@ public class LangGraph4jAdapter {
     private static final Logger log = LoggerFactory.getLogger(LangGraph4jAdapter.class);
 
     private final PromptGraph<AcpState<ChatMessage>> graph;
+    private final ResponseCache responseCache;
+    private final BridgeObserver observer;
+    private volatile CompiledPromptGraph compiled;
+
+    /**
+     * A compiled {@link PromptGraph#reusable()} graph and the {@link PromptGraph#version()} it was compiled from.
+     */
+    private record CompiledPromptGraph(String version, CompiledGraph<AcpState<ChatMessage>> app) {
+    }
 
     /**
      * Constructor for LangGraph4jAdapter.
@@ -57,7 +97,50 @@ public class LangGraph4jAdapter {
      */
     public LangGraph4jAdapter(
             PromptGraph<AcpState<ChatMessage>> graph) {
+        this(graph, Optional.empty());
+    }
+
+    /**
+     * Constructor for LangGraph4jAdapter with an optional response cache.
+     *
+     * @param graph         the PromptGraph instance to use for processing prompts
+     * @param responseCache the cache replaying responses of identical prompts, if enabled
+     */
+    public LangGraph4jAdapter(
+            PromptGraph<AcpState<ChatMessage>> graph,
+            Optional<ResponseCache> responseCache) {
+        this(graph, responseCache, BridgeObserver.NOOP);
+    }
+
+    /**
+     * Constructor for LangGraph4jAdapter reporting prompts to the observers of the context.
+     *
+     * @param graph         the PromptGraph instance to use for processing prompts
+     * @param responseCache the cache replaying responses of identical prompts, if enabled
+     * @param observers     the observers of the prompt lifecycle
+     */
+    @Autowired
+    public LangGraph4jAdapter(
+            PromptGraph<AcpState<ChatMessage>> graph,
+            Optional<ResponseCache> responseCache,
+            ObjectProvider<BridgeObserver> observers) {
+        this(graph, responseCache, BridgeObserver.composite(observers.orderedStream().toList()));
+    }
+
+    /**
+     * Constructor for LangGraph4jAdapter with an explicit observer.
+     *
+     * @param graph         the PromptGraph instance to use for processing prompts
+     * @param responseCache the cache replaying responses of identical prompts, if enabled
+     * @param observer      the observer of the prompt lifecycle
+     */
+    public LangGraph4jAdapter(
+            PromptGraph<AcpState<ChatMessage>> graph,
+            Optional<ResponseCache> responseCache,
+            BridgeObserver observer) {
         this.graph = graph;
+        this.responseCache = responseCache.orElse(null);
+        this.observer = observer;
     }
 
     /**
@@ -102,6 +185,82 @@ public class LangGraph4jAdapter {
         return false;
     }
 
+    /**
+     * Replays a cached response chunk by chunk, stopping early when the session is cancelled.
+     */
+    private static void replay(CachedResponse response, AcpAgentSupportBridge.TokenConsumer consumer, AtomicBoolean cancelled) {
+        for (String chunk : response.chunks()) {
+            if (cancelled.get()) {
+                break;
+            }
+            consumer.onNext(chunk);
+        }
+        consumer.onComplete();
+    }
+
+    /**
+     * Wraps the consumer so that the streamed chunks are stored in the cache once the stream completes
+     * without error or cancellation.
+     */
+    private AcpAgentSupportBridge.TokenConsumer recording(String cacheKey, AcpAgentSupportBridge.TokenConsumer consumer, AtomicBoolean cancelled) {
+        List<String> chunks = new ArrayList<>();
+        return new AcpAgentSupportBridge.TokenConsumer() {
+            @Override
+            public void onNext(String token) {
+                chunks.add(token);
+                consumer.onNext(token);
+            }
+
+            @Override
+            public void onComplete() {
+                if (!cancelled.get()) {
+                    responseCache.put(cacheKey, chunks);
+                }
+                consumer.onComplete();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                consumer.onError(error);
+            }
+        };
+    }
+
+    /**
+     * Wraps the consumer so that the streamed chunks and the prompt outcome are reported to the observation,
+     * {@code onEnd} receiving whether the prompt completed normally.
+     */
+    private static AcpAgentSupportBridge.TokenConsumer observed(AcpAgentSupportBridge.TokenConsumer consumer,
+                                                                PromptObservation observation,
+                                                                AtomicBoolean cancelled,
+                                                                Consumer<Boolean> onEnd) {
+        return new AcpAgentSupportBridge.TokenConsumer() {
+            @Override
+            public void onNext(String token) {
+                observation.chunk(token);
+                consumer.onNext(token);
+            }
+
+            @Override
+            public void onComplete() {
+                onEnd.accept(!cancelled.get());
+                if (cancelled.get()) {
+                    observation.cancelled();
+                } else {
+                    observation.completed();
+                }
+                consumer.onComplete();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                onEnd.accept(false);
+                observation.failed(error);
+                consumer.onError(error);
+            }
+        };
+    }
+
     private static void addResourceLinksToState(List<ContentBlock.ResourceLink> resourceLinks, Map<String, Object> initialState, SessionContext effectiveSessionContext) {
         // Store ResourceLinks as ResourceLinkContent in a separate state field
         // This approach avoids issues with LLM systems trying to cast mixed Content types
@@ -171,31 +330,85 @@ public class LangGraph4jAdapter {
                              List<ContentBlock.ResourceLink> resourceLinks,
                              AcpAgentSupportBridge.TokenConsumer consumer,
                              AtomicBoolean cancelled) {
+        streamPrompt(sessionContext, promptText, resourceLinks, List.of(), consumer, cancelled);
+    }
+
+    /**
+     * Variant for prompts embedding images or resources. The embedded blocks are converted by
+     * {@link EmbeddedContents} and stored in the {@link AcpState#ATTACHMENT_CONTENTS} state field,
+     * without being written to disk.
+     *
+     * @param embeddedContent the {@link ContentBlock.Image} and {@link ContentBlock.Resource}
+     *                        blocks of the prompt, other blocks are ignored
+     */
+    public void streamPrompt(SessionContext sessionContext,
+                             String promptText,
+                             List<ContentBlock.ResourceLink> resourceLinks,
+                             List<ContentBlock> embeddedContent,
+                             AcpAgentSupportBridge.TokenConsumer consumer,
+                             AtomicBoolean cancelled) {
         SessionContext effectiveSessionContext = sessionContext == null ? SessionContext.empty() : sessionContext;
-        String safePromptText = promptText == null ? "" : promptText;
-        log.debug("Adapter streaming prompt for session {} in cwd {}: {}...",
-                effectiveSessionContext.sessionId(),
-                effectiveSessionContext.cwd(),
-                safePromptText.length() > 50 ? safePromptText.substring(0, 50) : safePromptText);
+        try (var ignored = SessionMdc.put(effectiveSessionContext.sessionId())) {
+            List<Content> embeddedContents;
+            try {
+                embeddedContents = EmbeddedContents.from(embeddedContent);
+            } catch (IllegalArgumentException e) {
+                consumer.onError(e);
+                return;
+            }
+            stream(effectiveSessionContext, promptText == null ? "" : promptText, resourceLinks, embeddedContents,
+                    consumer, cancelled);
+        }
+    }
 
+    private void stream(SessionContext effectiveSessionContext,
+                        String safePromptText,
+                        List<ContentBlock.ResourceLink> resourceLinks,
+                        List<Content> embeddedContents,
+                        AcpAgentSupportBridge.TokenConsumer consumer,
+                        AtomicBoolean cancelled) {
+        if (log.isDebugEnabled()) {
+            log.debug("Adapter streaming prompt for session {} in cwd {}: {}...",
+                    effectiveSessionContext.sessionId(),
+                    effectiveSessionContext.cwd(),
+                    safePromptText.length() > 50 ? safePromptText.substring(0, 50) : safePromptText);
+        }
 
-        if (safePromptText.isBlank()) {
+        if (safePromptText.isBlank() && embeddedContents.isEmpty()) {
             consumer.onNext("Please provide a prompt.");
             consumer.onComplete();
             return;
         }
 
-        // Build the graph with a conditional edge following the official pattern.
-        final StateGraph<AcpState<ChatMessage>> workflow;
+        String sessionId = effectiveSessionContext.sessionId();
+        PromptObservation observation = observer.promptStarted(effectiveSessionContext);
+        ActivePrompts.bind(sessionId, observation);
+        AcpAgentSupportBridge.TokenConsumer observedConsumer = observed(consumer, observation, cancelled,
+                completed -> ActivePrompts.unbind(sessionId, observation, completed));
+        AcpAgentSupportBridge.TokenConsumer effectiveConsumer = observedConsumer;
+        if (responseCache != null) {
+            Optional<String> cacheKey = ResponseCacheKey.of(graph.version(), safePromptText, resourceLinks,
+                    embeddedContents, effectiveSessionContext);
+            Optional<CachedResponse> cached = cacheKey.flatMap(responseCache::get);
+            if (cached.isPresent()) {
+                log.debug("Replaying cached response for session {}", effectiveSessionContext.sessionId());
+                replay(cached.get(), observedConsumer, cancelled);
+                return;
+            }
+            if (cacheKey.isPresent()) {
+                effectiveConsumer = recording(cacheKey.get(), observedConsumer, cancelled);
+            }
+        }
+
+        final CompiledGraph<AcpState<ChatMessage>> app;
         try {
-            workflow = graph.buildGraph();
+            app = compiledGraph(observation);
         } catch (GraphStateException e) {
-            consumer.onError(e);
+            effectiveConsumer.onError(e);
             return;
         }
 
         try {
-            var app = workflow.compile();
 
             // Build initial state with the message and separate attachments
             Map<String, Object> initialState = new java.util.HashMap<>();
@@ -203,16 +416,58 @@ public class LangGraph4jAdapter {
             initialState.put(AcpState.SESSION_CONTEXT, effectiveSessionContext);
 
             addResourceLinksToState(resourceLinks, initialState, effectiveSessionContext);
+            if (!embeddedContents.isEmpty()) {
+                log.debug("Stored {} embedded content(s) in attachmentContents state field", embeddedContents.size());
+                initialState.put(AcpState.ATTACHMENT_CONTENTS, embeddedContents);
+            }
 
             // app.stream() yields StreamingOutput (token chunks) interleaved
             // with NodeOutput (state snapshots). We forward only the chunks.
             var states = app.stream(initialState);
 
-            processResponse(consumer, cancelled, states, effectiveSessionContext);
+            processResponse(effectiveConsumer, cancelled, states, effectiveSessionContext);
 
         } catch (Throwable t) {
             log.warn("Prompt streaming failed for session {}", effectiveSessionContext.sessionId(), t);
-            consumer.onError(t);
+            effectiveConsumer.onError(t);
         }
     }
+
+    /**
+     * Returns the graph of a prompt: a new one unless the {@link PromptGraph#reusable()} graph was
+     * already compiled for the current {@link PromptGraph#version()}.
+     */
+    private CompiledGraph<AcpState<ChatMessage>> compiledGraph(PromptObservation observation) throws GraphStateException {
+        if (!graph.reusable()) {
+            return compile(observation);
+        }
+        String version = graph.version();
+        CompiledPromptGraph current = compiled;
+        if (current != null && current.version().equals(version)) {
+            return current.app();
+        }
+        synchronized (this) {
+            current = compiled;
+            if (current != null && current.version().equals(version)) {
+                return current.app();
+            }
+            var app = compile(observation);
+            log.debug("Compiled prompt graph {}", version);
+            compiled = new CompiledPromptGraph(version, app);
+            return app;
+        }
+    }
+
+    private CompiledGraph<AcpState<ChatMessage>> compile(PromptObservation observation) throws GraphStateException {
+        // Build the graph with a conditional edge following the official pattern.
+        long compileStart = System.nanoTime();
+        var workflow = graph.buildGraph();
+        var app = observer == BridgeObserver.NOOP
+                ? workflow.compile()
+                : workflow.compile(CompileConfig.builder()
+                .withLifecycleListener(NodeTimingListener.forActivePrompts())
+                .build());
+        observation.graphCompiled(System.nanoTime() - compileStart);
+        return app;
+    }
 }
@@ -0,0 +1,42 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.cache;
+
+import java.util.List;
+
+/**
+ * A fully streamed response kept by the {@link ResponseCache}.
+ *
+ * <p>The response is stored as the exact sequence of chunks that was forwarded to the
+ * {@code TokenConsumer}, so a cache hit can be replayed chunk by chunk and clients keep
+ * seeing a streamed answer rather than a single block.</p>
+ *
+ * @param chunks          the streamed chunks, in emission order
+ * @param createdAtMillis the epoch millisecond at which the response was recorded, used for TTL checks
+ */
+public record CachedResponse(List<String> chunks, long createdAtMillis) {
+
+    private static final long ENTRY_OVERHEAD_BYTES = 64L;
+    private static final long CHUNK_OVERHEAD_BYTES = 40L;
+
+    /**
+     * Canonical constructor making the chunk list immutable.
+     *
+     * @param chunks          the streamed chunks, in emission order
+     * @param createdAtMillis the epoch millisecond at which the response was recorded
+     */
+    public CachedResponse {
+        chunks = List.copyOf(chunks);
+    }
+
+    /**
+     * Approximate heap footprint of this response, used for byte-bounded eviction.
+     *
+     * @return the estimated number of bytes retained by this entry
+     */
+    public long sizeInBytes() {
+        long size = ENTRY_OVERHEAD_BYTES;
+        for (String chunk : chunks) {
+            size += CHUNK_OVERHEAD_BYTES + 2L * chunk.length();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,294 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the artifacts derived from attachment contents, such as downscaled images, so an
+ * attachment sent again costs a hash instead of a decode and re-encode.
+ *
+ * <p>Artifacts are keyed by the SHA-256 of the original content and by a kind naming the
+ * derivation and its parameters (for instance {@code image:1568:png}): the same file attached
+ * from two sessions, or under two names, shares its artifacts, and a changed file gets new ones.
+ * Concurrent requests for the same missing artifact derive it once.</p>
+ *
+ * <p>The cache holds an approximate heap budget, evicting the least recently used artifact
+ * first; artifacts larger than a single-entry limit are returned but never stored. With a
+ * {@link DiskArtifactStore}, artifacts are also written to disk, and a memory miss falls back
+ * to the disk tier and promotes the artifact back into memory, so a restarted bridge does not
+ * derive them again.</p>
+ */
+public class DerivedArtifactCache {
+
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+    private static final String CONTENT_HASH_KIND = "content-hash";
+
+    private final long maxBytes;
+    private final long maxArtifactBytes;
+    private final DiskArtifactStore diskStore;
+
+    private final LinkedHashMap<String, byte[]> artifacts = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private long sizeBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Computes an artifact from original content.
+     */
+    @FunctionalInterface
+    public interface Derivation {
+
+        /**
+         * @return the derived artifact
+         * @throws IOException if the original content cannot be processed
+         */
+        byte[] derive() throws IOException;
+    }
+
+    /**
+     * Creates a derived artifact cache.
+     *
+     * @param maxBytes         the approximate heap budget of all artifacts
+     * @param maxArtifactBytes the approximate size above which an artifact is not stored
+     */
+    public DerivedArtifactCache(long maxBytes, long maxArtifactBytes) {
+        this(maxBytes, maxArtifactBytes, null);
+    }
+
+    /**
+     * Creates a derived artifact cache with an optional on-disk tier.
+     *
+     * @param maxBytes         the approximate heap budget of all artifacts
+     * @param maxArtifactBytes the approximate size above which an artifact is not stored
+     * @param diskStore        the on-disk tier, or {@code null} to keep artifacts in memory only
+     */
+    public DerivedArtifactCache(long maxBytes, long maxArtifactBytes, DiskArtifactStore diskStore) {
+        this.maxBytes = maxBytes;
+        this.maxArtifactBytes = maxArtifactBytes;
+        this.diskStore = diskStore;
+    }
+
+    /**
+     * Computes the key of original content.
+     *
+     * @param content the original content
+     * @return the hex encoded SHA-256 of {@code content}
+     */
+    public static String contentHash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Looks an artifact up, first in memory then on disk.
+     *
+     * @param contentHash the hash of the original content
+     * @param kind        the derivation and its parameters
+     * @return the artifact, if cached
+     */
+    public Optional<byte[]> get(String contentHash, String kind) {
+        byte[] artifact;
+        synchronized (this) {
+            artifact = artifacts.get(key(contentHash, kind));
+        }
+        if (artifact == null && diskStore != null) {
+            artifact = diskStore.get(contentHash, kind).orElse(null);
+            if (artifact != null) {
+                storeInMemory(key(contentHash, kind), artifact);
+            }
+        }
+        if (artifact == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(artifact);
+    }
+
+    /**
+     * Stores an artifact, unless it is larger than the single-entry limit.
+     *
+     * @param contentHash the hash of the original content
+     * @param kind        the derivation and its parameters
+     * @param artifact    the derived artifact
+     */
+    public void put(String contentHash, String kind, byte[] artifact) {
+        store(contentHash, kind, artifact);
+    }
+
+    /**
+     * Looks up the content hash last computed for a file fingerprint, so a file known unchanged
+     * finds its artifacts without being read.
+     *
+     * @param fingerprint the fingerprint of a file, from
+     *                    {@link net.osgiliath.acplanggraphlangchainbridge.workspace.FileChangeDetector}
+     * @return the hash of the content of the file, if known
+     */
+    public Optional<String> contentHashOf(String fingerprint) {
+        return get(fingerprint, CONTENT_HASH_KIND).map(hash -> new String(hash, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Records the content hash of a file fingerprint.
+     *
+     * @param fingerprint the fingerprint of a file
+     * @param contentHash the hash of the content of the file
+     */
+    public void rememberContentHash(String fingerprint, String contentHash) {
+        put(fingerprint, CONTENT_HASH_KIND, contentHash.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Returns a cached artifact, or derives and stores it. Concurrent calls for the same missing
+     * artifact wait for a single derivation.
+     *
+     * @param contentHash the hash of the original content
+     * @param kind        the derivation and its parameters
+     * @param derivation  computes the artifact on a miss
+     * @return the artifact
+     * @throws IOException if the derivation fails
+     */
+    public byte[] computeIfAbsent(String contentHash, String kind, Derivation derivation) throws IOException {
+        Optional<byte[]> cached = get(contentHash, kind);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        String key = key(contentHash, kind);
+        CompletableFuture<byte[]> mine = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            byte[] artifact = derivation.derive();
+            store(contentHash, kind, artifact);
+            mine.complete(artifact);
+            return artifact;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Drops every artifact, on disk too.
+     */
+    public void clear() {
+        synchronized (this) {
+            artifacts.clear();
+            sizeBytes = 0;
+        }
+        if (diskStore != null) {
+            diskStore.clear();
+        }
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that found no artifact
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of artifacts dropped to respect the heap budget
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of cached artifacts
+     */
+    public synchronized int size() {
+        return artifacts.size();
+    }
+
+    /**
+     * @return the approximate heap size of the cached artifacts
+     */
+    public synchronized long sizeBytes() {
+        return sizeBytes;
+    }
+
+    private void store(String contentHash, String kind, byte[] artifact) {
+        String key = key(contentHash, kind);
+        if (estimateBytes(key, artifact) > maxArtifactBytes) {
+            return;
+        }
+        storeInMemory(key, artifact);
+        if (diskStore != null) {
+            diskStore.put(contentHash, kind, artifact);
+        }
+    }
+
+    private synchronized void storeInMemory(String key, byte[] artifact) {
+        long entryBytes = estimateBytes(key, artifact);
+        if (entryBytes > maxArtifactBytes) {
+            return;
+        }
+        byte[] previous = artifacts.put(key, artifact);
+        if (previous != null) {
+            sizeBytes -= estimateBytes(key, previous);
+        }
+        sizeBytes += entryBytes;
+        Iterator<Map.Entry<String, byte[]>> eldest = artifacts.entrySet().iterator();
+        while (sizeBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, byte[]> evicted = eldest.next();
+            eldest.remove();
+            sizeBytes -= estimateBytes(evicted.getKey(), evicted.getValue());
+            evictions.increment();
+        }
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a derived artifact", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static String key(String contentHash, String kind) {
+        return kind + '\u0000' + contentHash;
+    }
+
+    private static long estimateBytes(String key, byte[] artifact) {
+        return ENTRY_OVERHEAD_BYTES + 2L * key.length() + artifact.length;
+    }
+}
@@ -0,0 +1,42 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * Registers the {@link DerivedArtifactCache} shared by the attachment pre-processing nodes.
+ *
+ * <p>The cache is kept in memory. Its on-disk tier, which lets a restarted bridge serve the
+ * artifacts derived before, is opt-in: it takes up to {@code acp.bridge.derived-cache.max-disk-bytes}
+ * (512 MiB) in the user cache directory, so it is only enabled with
+ * {@code acp.bridge.derived-cache.disk-enabled=true}.</p>
+ */
+@Configuration
+public class DerivedArtifactCacheConfiguration {
+
+    /**
+     * Creates the derived artifact cache.
+     *
+     * @param maxBytes         the approximate heap budget of all artifacts
+     * @param maxArtifactBytes the approximate size above which an artifact is not stored
+     * @param diskEnabled      whether artifacts are also stored on disk
+     * @param directory        the on-disk tier directory, empty to keep artifacts in memory only
+     * @param maxDiskBytes     the size budget of the on-disk tier
+     * @return the derived artifact cache
+     */
+    @Bean
+    public DerivedArtifactCache derivedArtifactCache(
+            @Value("${acp.bridge.derived-cache.max-bytes:67108864}") long maxBytes,
+            @Value("${acp.bridge.derived-cache.max-artifact-bytes:8388608}") long maxArtifactBytes,
+            @Value("${acp.bridge.derived-cache.disk-enabled:false}") boolean diskEnabled,
+            @Value("${acp.bridge.derived-cache.directory:${user.home}/.cache/acp-bridge/derived-artifacts}") String directory,
+            @Value("${acp.bridge.derived-cache.max-disk-bytes:536870912}") long maxDiskBytes) {
+        DiskArtifactStore diskStore = !diskEnabled || directory.isBlank()
+                ? null
+                : new DiskArtifactStore(Path.of(directory), maxDiskBytes);
+        return new DerivedArtifactCache(maxBytes, maxArtifactBytes, diskStore);
+    }
+}
@@ -0,0 +1,303 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * On-disk tier of the {@link DerivedArtifactCache}, so outlines, chunk boundaries and downscaled
+ * images survive restarts.
+ *
+ * <p>The artifacts of one original content share a file named after its hash, in a
+ * subdirectory named after the first two characters of the hash. A file holds a versioned
+ * header and a table of artifacts, each a kind, a length and the bytes; a lookup maps the file
+ * and copies out the requested artifact only. Files written by another version of the format,
+ * and files whose lengths do not fit in them, are ignored and overwritten.</p>
+ *
+ * <p>Files are replaced atomically. Reads refresh their modification time, and once the store
+ * exceeds its size budget the least recently used files are deleted down to 90% of it.</p>
+ */
+public class DiskArtifactStore {
+
+    private static final Logger log = LoggerFactory.getLogger(DiskArtifactStore.class);
+
+    private static final int FILE_MAGIC = 0x41435044; // "ACPD"
+    private static final int FILE_VERSION = 1;
+    private static final String FILE_SUFFIX = ".artifacts";
+
+    private final Path directory;
+    private final long maxBytes;
+    private long sizeBytes = -1;
+
+    /**
+     * Creates a store.
+     *
+     * @param directory the directory of the store, created if missing
+     * @param maxBytes  the size budget of the store
+     */
+    public DiskArtifactStore(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create derived artifact directory " + directory, e);
+        }
+    }
+
+    /**
+     * Reads an artifact.
+     *
+     * @param contentHash the hash of the original content
+     * @param kind        the derivation and its parameters
+     * @return the artifact, if stored
+     */
+    public Optional<byte[]> get(String contentHash, String kind) {
+        Path file = file(contentHash);
+        try {
+            Optional<byte[]> artifact = Optional.ofNullable(read(file, kind).get(kind));
+            if (artifact.isPresent()) {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            }
+            return artifact;
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            log.warn("Failed to read derived artifacts {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes an artifact next to the other artifacts of the same content.
+     *
+     * @param contentHash the hash of the original content
+     * @param kind        the derivation and its parameters
+     * @param artifact    the artifact
+     */
+    public synchronized void put(String contentHash, String kind, byte[] artifact) {
+        Path file = file(contentHash);
+        try {
+            Map<String, byte[]> artifacts;
+            long previousSize;
+            try {
+                previousSize = Files.size(file);
+                artifacts = read(file, null);
+            } catch (NoSuchFileException e) {
+                previousSize = 0;
+                artifacts = new LinkedHashMap<>();
+            }
+            artifacts.put(kind, artifact);
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(artifacts.size());
+                for (Map.Entry<String, byte[]> entry : artifacts.entrySet()) {
+                    byte[] kindBytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(kindBytes.length);
+                    out.write(kindBytes);
+                    out.writeInt(entry.getValue().length);
+                    out.write(entry.getValue());
+                }
+            }
+            long size = Files.size(temp);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (sizeBytes < 0) {
+                sizeBytes = measure();
+            } else {
+                sizeBytes += size - previousSize;
+            }
+            if (sizeBytes > maxBytes) {
+                prune();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to persist derived artifact {} of {}: {}", kind, file, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes every stored artifact.
+     */
+    public synchronized void clear() {
+        try {
+            for (Path file : files()) {
+                Files.deleteIfExists(file);
+            }
+            sizeBytes = 0;
+        } catch (IOException e) {
+            log.warn("Failed to clear derived artifacts in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the size of the stored files, in bytes
+     */
+    public synchronized long sizeBytes() {
+        try {
+            sizeBytes = measure();
+        } catch (IOException e) {
+            log.warn("Failed to measure derived artifacts in {}: {}", directory, e.getMessage());
+        }
+        return Math.max(0, sizeBytes);
+    }
+
+    /**
+     * Reads the artifact table of a file through a read-only mapping, copying out the artifacts
+     * of one kind only, or all of them. Every length is checked against the bytes left in the
+     * file before it is used.
+     *
+     * @param kind the kind to copy, {@code null} for every kind
+     * @return the artifacts, empty when the file has another format or is corrupt
+     */
+    private static Map<String, byte[]> read(Path file, String kind) throws IOException {
+        ByteBuffer wanted = kind == null ? null : ByteBuffer.wrap(kind.getBytes(StandardCharsets.UTF_8));
+        Map<String, byte[]> artifacts = new LinkedHashMap<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 12 || buffer.getInt() != FILE_MAGIC || buffer.getInt() != FILE_VERSION) {
+                return artifacts;
+            }
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                int kindLength = checkedLength(buffer);
+                ByteBuffer kindBytes = buffer.slice(buffer.position(), kindLength);
+                buffer.position(buffer.position() + kindLength);
+                int artifactLength = checkedLength(buffer);
+                if (wanted != null && !kindBytes.equals(wanted)) {
+                    buffer.position(buffer.position() + artifactLength);
+                    continue;
+                }
+                byte[] artifact = new byte[artifactLength];
+                buffer.get(artifact);
+                artifacts.put(StandardCharsets.UTF_8.decode(kindBytes).toString(), artifact);
+                if (wanted != null) {
+                    break;
+                }
+            }
+            return artifacts;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            log.warn("Ignoring corrupt derived artifacts {}", file);
+            return new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Reads a length, which must fit in the bytes left.
+     *
+     * @throws IllegalArgumentException if the length is negative or beyond the end of the file
+     */
+    private static int checkedLength(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Length " + length + " beyond the " + buffer.remaining() + " bytes left");
+        }
+        return length;
+    }
+
+    /**
+     * Deletes the least recently used files until the store fits in 90% of its budget.
+     */
+    private void prune() throws IOException {
+        record Stored(Path file, long size, long lastModified) {
+        }
+        List<Stored> stored = new ArrayList<>();
+        long total = 0;
+        for (Path file : files()) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                stored.add(new Stored(file, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                total += attributes.size();
+            } catch (NoSuchFileException e) {
+                // deleted meanwhile
+            }
+        }
+        stored.sort(Comparator.comparingLong(Stored::lastModified));
+        long target = maxBytes / 10 * 9;
+        int deleted = 0;
+        for (Stored file : stored) {
+            if (total <= target) {
+                break;
+            }
+            Files.deleteIfExists(file.file());
+            total -= file.size();
+            deleted++;
+        }
+        sizeBytes = total;
+        log.debug("Pruned {} derived artifact file(s) from {}", deleted, directory);
+    }
+
+    private long measure() throws IOException {
+        long total = 0;
+        for (Path file : files()) {
+            try {
+                total += Files.size(file);
+            } catch (NoSuchFileException e) {
+                // deleted meanwhile
+            }
+        }
+        return total;
+    }
+
+    private List<Path> files() throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (file.getFileName().toString().endsWith(FILE_SUFFIX)) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    /**
+     * @return the file of a content hash, hashing it again when it is not a hex digest
+     */
+    private Path file(String contentHash) {
+        String name = contentHash.length() >= 16 && contentHash.chars().allMatch(DiskArtifactStore::isLowerHex)
+                ? contentHash
+                : DerivedArtifactCache.contentHash(contentHash.getBytes(StandardCharsets.UTF_8));
+        return directory.resolve(name.substring(0, 2)).resolve(name + FILE_SUFFIX);
+    }
+
+    private static boolean isLowerHex(int c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+    }
+}
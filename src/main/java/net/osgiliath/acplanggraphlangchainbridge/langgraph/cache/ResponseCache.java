@@ -0,0 +1,298 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Exact-match cache of streamed responses for deterministic prompt graphs.
+ *
+ * <p>Entries live in an in-memory LRU map bounded by an approximate byte budget and
+ * expire after a fixed time-to-live. When a directory is configured, entries are also
+ * written to disk so they survive restarts; a memory miss then falls back to the disk
+ * tier and promotes the entry back into memory.</p>
+ *
+ * <p>All operations are thread safe.</p>
+ */
+public class ResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ResponseCache.class);
+
+    private static final int FILE_MAGIC = 0x41435043; // "ACPC"
+    private static final int FILE_VERSION = 1;
+    private static final String FILE_SUFFIX = ".response";
+
+    private final Duration ttl;
+    private final long maxBytes;
+    private final Path diskDirectory;
+    private final long maxDiskBytes;
+    private final Clock clock;
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+
+    /**
+     * Creates an in-memory only cache.
+     *
+     * @param ttl      how long an entry stays valid after it was recorded
+     * @param maxBytes the approximate heap budget of the in-memory tier
+     */
+    public ResponseCache(Duration ttl, long maxBytes) {
+        this(ttl, maxBytes, null, 0L, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a cache with an optional on-disk tier.
+     *
+     * @param ttl           how long an entry stays valid after it was recorded
+     * @param maxBytes      the approximate heap budget of the in-memory tier
+     * @param diskDirectory the directory of the on-disk tier, or {@code null} to disable it
+     * @param maxDiskBytes  the size budget of the on-disk tier
+     */
+    public ResponseCache(Duration ttl, long maxBytes, Path diskDirectory, long maxDiskBytes) {
+        this(ttl, maxBytes, diskDirectory, maxDiskBytes, Clock.systemUTC());
+    }
+
+    ResponseCache(Duration ttl, long maxBytes, Path diskDirectory, long maxDiskBytes, Clock clock) {
+        this.ttl = ttl;
+        this.maxBytes = maxBytes;
+        this.diskDirectory = diskDirectory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.clock = clock;
+        if (diskDirectory != null) {
+            try {
+                Files.createDirectories(diskDirectory);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot create response cache directory " + diskDirectory, e);
+            }
+        }
+    }
+
+    /**
+     * Looks up a response, first in memory then on disk.
+     *
+     * @param key the key computed by {@link ResponseCacheKey}
+     * @return the cached response, or an empty Optional on a miss or when the entry expired
+     */
+    public Optional<CachedResponse> get(String key) {
+        synchronized (this) {
+            CachedResponse response = entries.get(key);
+            if (response != null) {
+                if (!isExpired(response)) {
+                    return Optional.of(response);
+                }
+                remove(key);
+            }
+        }
+        Optional<CachedResponse> fromDisk = readFromDisk(key);
+        fromDisk.ifPresent(response -> putInMemory(key, response));
+        return fromDisk;
+    }
+
+    /**
+     * Stores a fully streamed response.
+     *
+     * @param key    the key computed by {@link ResponseCacheKey}
+     * @param chunks the chunks streamed to the client, in order
+     */
+    public void put(String key, List<String> chunks) {
+        CachedResponse response = new CachedResponse(chunks, clock.millis());
+        if (response.sizeInBytes() > maxBytes) {
+            log.debug("Response for key {} is larger than the cache budget, not caching it", key);
+            return;
+        }
+        putInMemory(key, response);
+        writeToDisk(key, response);
+    }
+
+    /**
+     * @return the number of entries currently held in memory
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the approximate number of bytes currently held in memory
+     */
+    public synchronized long sizeInBytes() {
+        return currentBytes;
+    }
+
+    private synchronized void putInMemory(String key, CachedResponse response) {
+        remove(key);
+        entries.put(key, response);
+        currentBytes += response.sizeInBytes();
+        Iterator<Map.Entry<String, CachedResponse>> eldest = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, CachedResponse> entry = eldest.next();
+            currentBytes -= entry.getValue().sizeInBytes();
+            eldest.remove();
+        }
+    }
+
+    private void remove(String key) {
+        CachedResponse removed = entries.remove(key);
+        if (removed != null) {
+            currentBytes -= removed.sizeInBytes();
+        }
+    }
+
+    private boolean isExpired(CachedResponse response) {
+        return clock.millis() - response.createdAtMillis() > ttl.toMillis();
+    }
+
+    private Optional<CachedResponse> readFromDisk(String key) {
+        if (diskDirectory == null) {
+            return Optional.empty();
+        }
+        Path file = diskDirectory.resolve(key + FILE_SUFFIX);
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try {
+            Optional<CachedResponse> response = readEntry(file);
+            if (response.isEmpty() || isExpired(response.get())) {
+                Files.deleteIfExists(file);
+                return Optional.empty();
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(clock.millis()));
+            return response;
+        } catch (IOException e) {
+            log.warn("Failed to read cached response {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<CachedResponse> readEntry(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                return Optional.empty();
+            }
+            long createdAt = in.readLong();
+            int count = in.readInt();
+            List<String> chunks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                chunks.add(readString(in));
+            }
+            return Optional.of(new CachedResponse(chunks, createdAt));
+        }
+    }
+
+    private void writeToDisk(String key, CachedResponse response) {
+        if (diskDirectory == null) {
+            return;
+        }
+        Path target = diskDirectory.resolve(key + FILE_SUFFIX);
+        try {
+            Path temp = Files.createTempFile(diskDirectory, key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeLong(response.createdAtMillis());
+                out.writeInt(response.chunks().size());
+                for (String chunk : response.chunks()) {
+                    writeString(out, chunk);
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            pruneDisk();
+        } catch (IOException e) {
+            log.warn("Failed to persist cached response {}: {}", target, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes expired entries, then the least recently used ones until the disk tier fits its budget.
+     * Expiry is read from the creation time stored in each file, as reads refresh the modification
+     * time used for recency.
+     */
+    private synchronized void pruneDisk() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(diskDirectory, "*" + FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        long expiredBefore = clock.millis() - ttl.toMillis();
+        long total = 0L;
+        List<Path> live = new ArrayList<>();
+        for (Path file : files) {
+            if (createdAtMillis(file) < expiredBefore) {
+                Files.deleteIfExists(file);
+            } else {
+                live.add(file);
+                total += Files.size(file);
+            }
+        }
+        if (total <= maxDiskBytes) {
+            return;
+        }
+        live.sort(Comparator.comparingLong(ResponseCache::lastModifiedMillis));
+        for (Path file : live) {
+            if (total <= maxDiskBytes) {
+                break;
+            }
+            total -= Files.size(file);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * @return the creation time stored in the header of an entry file, or {@link Long#MIN_VALUE}
+     * when the file is truncated or has another format
+     */
+    private static long createdAtMillis(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 16))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                return Long.MIN_VALUE;
+            }
+            return in.readLong();
+        } catch (EOFException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static long lastModifiedMillis(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
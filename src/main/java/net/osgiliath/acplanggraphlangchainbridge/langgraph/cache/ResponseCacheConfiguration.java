@@ -0,0 +1,39 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Registers the {@link ResponseCache} when {@code acp.bridge.response-cache.enabled=true}.
+ *
+ * <p>Only enable the cache for deterministic (temperature 0) graphs: a hit replays the
+ * previously streamed answer without running the graph.</p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "acp.bridge.response-cache", name = "enabled", havingValue = "true")
+public class ResponseCacheConfiguration {
+
+    /**
+     * Creates the response cache.
+     *
+     * @param ttl           how long a response stays valid
+     * @param maxBytes      the approximate heap budget of the in-memory tier
+     * @param directory     the on-disk tier directory, empty to keep the cache in memory only
+     * @param maxDiskBytes  the size budget of the on-disk tier
+     * @return the response cache
+     */
+    @Bean
+    public ResponseCache responseCache(
+            @Value("${acp.bridge.response-cache.ttl:PT1H}") Duration ttl,
+            @Value("${acp.bridge.response-cache.max-bytes:33554432}") long maxBytes,
+            @Value("${acp.bridge.response-cache.directory:}") String directory,
+            @Value("${acp.bridge.response-cache.max-disk-bytes:268435456}") long maxDiskBytes) {
+        Path diskDirectory = directory.isBlank() ? null : Path.of(directory);
+        return new ResponseCache(ttl, maxBytes, diskDirectory, maxDiskBytes);
+    }
+}
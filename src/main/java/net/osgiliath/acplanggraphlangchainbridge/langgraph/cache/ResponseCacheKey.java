@@ -0,0 +1,192 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.cache;
+
+import com.agentclientprotocol.model.ContentBlock;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.ImageContent;
+import dev.langchain4j.data.message.TextContent;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.McpServerDefinition;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Computes exact-match keys for the {@link ResponseCache}.
+ *
+ * <p>A key is the SHA-256 digest of:</p>
+ * <ul>
+ *   <li>the graph version ({@link net.osgiliath.acplanggraphlangchainbridge.langgraph.graph.PromptGraph#version()}),</li>
+ *   <li>the normalized prompt text (NFC, {@code \n} line endings, trailing whitespace removed),</li>
+ *   <li>the session working directory and MCP server definitions: transport, command line or URL,
+ *   and a digest of the environment variables or HTTP headers, so sessions using a server under
+ *   different credentials do not share responses,</li>
+ *   <li>the URI and content hash of every attachment,</li>
+ *   <li>the text, or the MIME type and base64 data, of every content embedded in the prompt.</li>
+ * </ul>
+ *
+ * <p>The session id is deliberately left out so that identical prompts issued from
+ * different sessions over the same workspace share cache entries.</p>
+ */
+public final class ResponseCacheKey {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private ResponseCacheKey() {
+    }
+
+    /**
+     * Computes the cache key for a prompt.
+     *
+     * @param graphVersion   the version of the graph that will answer the prompt
+     * @param promptText     the raw prompt text
+     * @param resourceLinks  the attachments of the prompt, may be {@code null}
+     * @param sessionContext the session context of the prompt
+     * @return the hex encoded key, or an empty Optional if an attachment could not be hashed
+     * (such prompts are never cached)
+     */
+    public static Optional<String> of(String graphVersion,
+                                      String promptText,
+                                      List<ContentBlock.ResourceLink> resourceLinks,
+                                      SessionContext sessionContext) {
+        return of(graphVersion, promptText, resourceLinks, List.of(), sessionContext);
+    }
+
+    /**
+     * Computes the cache key for a prompt embedding content.
+     *
+     * @param graphVersion     the version of the graph that will answer the prompt
+     * @param promptText       the raw prompt text
+     * @param resourceLinks    the attachments of the prompt, may be {@code null}
+     * @param embeddedContents the contents embedded in the prompt
+     * @param sessionContext   the session context of the prompt
+     * @return the hex encoded key, or an empty Optional if an attachment could not be hashed
+     * (such prompts are never cached)
+     */
+    public static Optional<String> of(String graphVersion,
+                                      String promptText,
+                                      List<ContentBlock.ResourceLink> resourceLinks,
+                                      List<Content> embeddedContents,
+                                      SessionContext sessionContext) {
+        MessageDigest digest = sha256();
+        update(digest, graphVersion);
+        update(digest, normalizePrompt(promptText));
+        update(digest, sessionContext.cwd());
+        new TreeMap<>(sessionContext.mcpServerDefinitions()).forEach((name, server) -> {
+            update(digest, name);
+            update(digest, server);
+        });
+        if (resourceLinks != null) {
+            for (ContentBlock.ResourceLink link : resourceLinks) {
+                Optional<String> contentHash = contentHash(link.getUri());
+                if (contentHash.isEmpty()) {
+                    return Optional.empty();
+                }
+                update(digest, link.getUri());
+                update(digest, contentHash.get());
+            }
+        }
+        for (Content content : embeddedContents) {
+            switch (content) {
+                case TextContent text -> update(digest, text.text());
+                case ImageContent image -> {
+                    update(digest, image.image().mimeType());
+                    update(digest, image.image().base64Data());
+                }
+                default -> {
+                    return Optional.empty();
+                }
+            }
+        }
+        return Optional.of(HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Normalizes a prompt so that insignificant formatting differences map to the same key.
+     *
+     * @param promptText the raw prompt text
+     * @return the normalized prompt text
+     */
+    static String normalizePrompt(String promptText) {
+        if (promptText == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(promptText, Normalizer.Form.NFC)
+                .replace("\r\n", "\n")
+                .replace('\r', '\n');
+        return normalized.lines()
+                .map(String::stripTrailing)
+                .collect(Collectors.joining("\n"))
+                .strip();
+    }
+
+    private static Optional<String> contentHash(String uri) {
+        try {
+            Path path = Path.of(URI.create(uri));
+            MessageDigest digest = sha256();
+            try (InputStream in = Files.newInputStream(path)) {
+                byte[] buffer = new byte[READ_BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            return Optional.of(HexFormat.of().formatHex(digest.digest()));
+        } catch (IOException | IllegalArgumentException | java.nio.file.FileSystemNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static void update(MessageDigest digest, McpServerDefinition server) {
+        update(digest, server.transport().name());
+        update(digest, server.command());
+        digest.update(intToBytes(server.args().size()));
+        server.args().forEach(arg -> update(digest, arg));
+        update(digest, server.url());
+        update(digest, mapDigest(server.env()));
+        update(digest, mapDigest(server.headers()));
+    }
+
+    /**
+     * @return the digest of sorted name-value pairs, which may hold credentials
+     */
+    private static String mapDigest(Map<String, String> values) {
+        MessageDigest digest = sha256();
+        digest.update(intToBytes(values.size()));
+        new TreeMap<>(values).forEach((name, value) -> {
+            update(digest, name);
+            update(digest, value);
+        });
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        digest.update(intToBytes(bytes.length));
+        digest.update(bytes);
+    }
+
+    private static byte[] intToBytes(int value) {
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Remembers, per session, the last version of each attachment sent whole to the model, so an
+ * attachment sent again can be replaced by a reference when it is unchanged, or by a diff when
+ * it changed a little.
+ *
+ * <p>Each session keeps an approximate heap budget, forgetting its least recently sent
+ * attachment first, and the history keeps a maximum number of sessions, forgetting the least
+ * recently active one first.</p>
+ *
+ * <p>All operations are thread safe.</p>
+ */
+public class SentAttachmentHistory {
+
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    private final int maxSessions;
+    private final long maxBytesPerSession;
+    private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * A version of an attachment sent to the model.
+     *
+     * @param version identifies the content sent, such as its hash
+     * @param text    the text sent
+     */
+    public record Sent(String version, String text) {
+    }
+
+    private static final class Session {
+        private final LinkedHashMap<String, Sent> byUri = new LinkedHashMap<>(16, 0.75f, true);
+        private long sizeBytes;
+    }
+
+    /**
+     * Creates a history.
+     *
+     * @param maxSessions        the maximum number of sessions remembered
+     * @param maxBytesPerSession the approximate heap budget of the attachments of a session
+     */
+    public SentAttachmentHistory(int maxSessions, long maxBytesPerSession) {
+        this.maxSessions = maxSessions;
+        this.maxBytesPerSession = maxBytesPerSession;
+    }
+
+    /**
+     * Looks up the last version of an attachment sent in a session.
+     *
+     * @param sessionId the session
+     * @param uri       the URI of the attachment
+     * @return the version sent, if any
+     */
+    public synchronized Optional<Sent> previous(String sessionId, String uri) {
+        Session session = sessions.get(sessionId);
+        return session == null ? Optional.empty() : Optional.ofNullable(session.byUri.get(uri));
+    }
+
+    /**
+     * Records the version of an attachment sent in a session, unless it is larger than the
+     * session budget.
+     *
+     * @param sessionId the session
+     * @param uri       the URI of the attachment
+     * @param version   identifies the content sent
+     * @param text      the text sent
+     */
+    public synchronized void remember(String sessionId, String uri, String version, String text) {
+        Sent sent = new Sent(version, text);
+        if (estimateBytes(uri, sent) > maxBytesPerSession) {
+            return;
+        }
+        Session session = sessions.computeIfAbsent(sessionId, key -> new Session());
+        Sent previous = session.byUri.put(uri, sent);
+        if (previous != null) {
+            session.sizeBytes -= estimateBytes(uri, previous);
+        }
+        session.sizeBytes += estimateBytes(uri, sent);
+        Iterator<Map.Entry<String, Sent>> eldest = session.byUri.entrySet().iterator();
+        while (session.sizeBytes > maxBytesPerSession && eldest.hasNext()) {
+            Map.Entry<String, Sent> evicted = eldest.next();
+            eldest.remove();
+            session.sizeBytes -= estimateBytes(evicted.getKey(), evicted.getValue());
+        }
+        Iterator<String> eldestSession = sessions.keySet().iterator();
+        while (sessions.size() > maxSessions && eldestSession.hasNext()) {
+            eldestSession.next();
+            eldestSession.remove();
+        }
+    }
+
+    /**
+     * @return the number of sessions remembered
+     */
+    public synchronized int sessionCount() {
+        return sessions.size();
+    }
+
+    private static long estimateBytes(String uri, Sent sent) {
+        return ENTRY_OVERHEAD_BYTES + 2L * (uri.length() + sent.version().length() + sent.text().length());
+    }
+}
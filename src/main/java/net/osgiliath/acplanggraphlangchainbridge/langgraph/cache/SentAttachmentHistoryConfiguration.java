@@ -0,0 +1,32 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the {@link SentAttachmentHistory} when {@code acp.bridge.attachments.text.diff.enabled=true}.
+ *
+ * <p>Only enable it for graphs keeping the conversation of a session, for instance with a
+ * LangChain4j chat memory: an attachment sent again is then replaced by a reference to, or a
+ * diff against, a version the model only knows from the previous messages.</p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "acp.bridge.attachments.text.diff", name = "enabled", havingValue = "true")
+public class SentAttachmentHistoryConfiguration {
+
+    /**
+     * Creates the sent attachment history.
+     *
+     * @param maxSessions        the maximum number of sessions remembered
+     * @param maxBytesPerSession the approximate heap budget of the attachments of a session
+     * @return the sent attachment history
+     */
+    @Bean
+    public SentAttachmentHistory sentAttachmentHistory(
+            @Value("${acp.bridge.attachments.text.diff.max-sessions:256}") int maxSessions,
+            @Value("${acp.bridge.attachments.text.diff.max-bytes-per-session:4194304}") long maxBytesPerSession) {
+        return new SentAttachmentHistory(maxSessions, maxBytesPerSession);
+    }
+}
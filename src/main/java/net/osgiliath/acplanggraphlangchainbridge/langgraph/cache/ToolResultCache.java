@@ -0,0 +1,389 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.service.tool.ToolExecutor;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import net.osgiliath.acplanggraphlangchainbridge.workspace.WorkspaceWatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Memoizes the results of idempotent tools, such as reading a file or listing a directory, so an
+ * agent loop calling the same tool with the same arguments several times only runs it once.
+ *
+ * <p>Results are keyed by tool name and canonical JSON arguments (object keys sorted, whitespace
+ * dropped), within a {@link Scope}. Every entry remembers the working directory of the session
+ * that produced it; any change below that directory reported by the {@link WorkspaceWatcher}
+ * drops the directory's entries, and a result computed while a change happened is not stored.
+ * A directory is watched while it has memoized results or calls in flight, and released once its
+ * last result is dropped; results produced in a directory that cannot be watched are not stored.
+ * Only tools whose name was declared idempotent are memoized, everything else is returned
+ * unwrapped by {@link #memoize(SessionContext, Map)}.</p>
+ *
+ * <p>The cache holds at most a number of entries and an approximate heap budget, evicting the
+ * least recently used result first; results larger than a single-entry limit are never stored.</p>
+ */
+public class ToolResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ToolResultCache.class);
+
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    private static final ObjectMapper CANONICAL_JSON = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    /**
+     * Which calls share memoized results.
+     */
+    public enum Scope {
+        /**
+         * Results are reused within one session only.
+         */
+        SESSION,
+        /**
+         * Results are reused by every session working in the same directory.
+         */
+        CWD
+    }
+
+    private final Set<String> idempotentTools;
+    private final Scope scope;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long maxResultBytes;
+    private final WorkspaceWatcher workspaceWatcher;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Path, Watch> watches = new HashMap<>();
+    private long sizeBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Creates a tool result cache.
+     *
+     * @param idempotentTools  the names of the tools whose results may be memoized
+     * @param scope            which calls share memoized results
+     * @param maxEntries       the maximum number of memoized results
+     * @param maxBytes         the approximate heap budget of all memoized results
+     * @param maxResultBytes   the approximate size above which a result is not memoized
+     * @param workspaceWatcher the watcher invalidating results on file changes, {@code null} to
+     *                         rely on size limits and {@link #invalidate(Path)} only
+     */
+    public ToolResultCache(Set<String> idempotentTools,
+                           Scope scope,
+                           int maxEntries,
+                           long maxBytes,
+                           long maxResultBytes,
+                           WorkspaceWatcher workspaceWatcher) {
+        this.idempotentTools = Set.copyOf(idempotentTools);
+        this.scope = scope;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxResultBytes = maxResultBytes;
+        this.workspaceWatcher = workspaceWatcher;
+    }
+
+    /**
+     * Wraps the executors of the idempotent tools of a session so their results are memoized.
+     *
+     * @param sessionContext the session running the tools
+     * @param tools          the session's tools
+     * @return the same tools, idempotent ones memoized
+     */
+    public Map<ToolSpecification, ToolExecutor> memoize(SessionContext sessionContext,
+                                                        Map<ToolSpecification, ToolExecutor> tools) {
+        Map<ToolSpecification, ToolExecutor> memoized = new LinkedHashMap<>();
+        tools.forEach((specification, executor) ->
+                memoized.put(specification, memoize(sessionContext, specification.name(), executor)));
+        return memoized;
+    }
+
+    /**
+     * Wraps a tool executor so its results are memoized, if the tool is idempotent.
+     *
+     * @param sessionContext the session running the tool
+     * @param toolName       the tool name
+     * @param executor       the tool executor
+     * @return the memoizing executor, or {@code executor} itself for non-idempotent tools
+     */
+    public ToolExecutor memoize(SessionContext sessionContext, String toolName, ToolExecutor executor) {
+        if (!idempotentTools.contains(toolName)) {
+            return executor;
+        }
+        Path cwd = Path.of(sessionContext.cwd()).toAbsolutePath().normalize();
+        String scopeKey = scope == Scope.SESSION ? sessionContext.sessionId() : cwd.toString();
+        return (request, memoryId) -> execute(scopeKey, cwd, request, executor, memoryId);
+    }
+
+    /**
+     * Drops every memoized result produced in a working directory or below it.
+     *
+     * @param directory the changed directory
+     */
+    public void invalidate(Path directory) {
+        Path normalized = directory.toAbsolutePath().normalize();
+        List<Watch> released = new ArrayList<>();
+        synchronized (this) {
+            watches.forEach((cwd, watch) -> {
+                if (normalized.startsWith(cwd) || cwd.startsWith(normalized)) {
+                    watch.generation.incrementAndGet();
+                }
+            });
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (normalized.startsWith(entry.cwd()) || entry.cwd().startsWith(normalized)) {
+                    iterator.remove();
+                    sizeBytes -= entry.sizeBytes();
+                    invalidations.increment();
+                    unuse(entry.cwd(), released);
+                }
+            }
+        }
+        close(released);
+    }
+
+    /**
+     * Drops every memoized result.
+     */
+    public void clear() {
+        List<Watch> released = new ArrayList<>();
+        synchronized (this) {
+            watches.values().forEach(watch -> watch.generation.incrementAndGet());
+            for (Entry entry : entries.values()) {
+                unuse(entry.cwd(), released);
+            }
+            entries.clear();
+            sizeBytes = 0;
+        }
+        close(released);
+    }
+
+    /**
+     * @return the number of calls answered from the cache
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of idempotent calls that ran their tool
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of results dropped to respect the size limits
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of results dropped because their workspace changed
+     */
+    public long invalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * @return the share of idempotent calls answered from the cache, between 0 and 1
+     */
+    public double hitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * @return the number of memoized results
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the approximate heap size of the memoized results
+     */
+    public synchronized long sizeBytes() {
+        return sizeBytes;
+    }
+
+    private String execute(String scopeKey, Path cwd, ToolExecutionRequest request,
+                           ToolExecutor executor, Object memoryId) {
+        String key = scopeKey + '\u0000' + request.name() + '\u0000' + canonicalArguments(request.arguments());
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits.increment();
+                return entry.result();
+            }
+        }
+        misses.increment();
+        Watch watch = watch(cwd);
+        if (watch == null) {
+            return executor.execute(request, memoryId);
+        }
+        List<Watch> released = new ArrayList<>();
+        try {
+            long before = watch.generation.get();
+            String result = executor.execute(request, memoryId);
+            if (result != null && watch.generation.get() == before) {
+                store(key, new Entry(cwd, result, estimateBytes(key, result)), released);
+            }
+            return result;
+        } finally {
+            synchronized (this) {
+                unuse(cwd, released);
+            }
+            close(released);
+        }
+    }
+
+    private void store(String key, Entry entry, List<Watch> released) {
+        if (entry.sizeBytes() > maxResultBytes) {
+            return;
+        }
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            use(entry.cwd());
+            if (previous != null) {
+                sizeBytes -= previous.sizeBytes();
+                unuse(previous.cwd(), released);
+            }
+            sizeBytes += entry.sizeBytes();
+            Iterator<Entry> eldest = entries.values().iterator();
+            while ((entries.size() > maxEntries || sizeBytes > maxBytes) && eldest.hasNext()) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                sizeBytes -= evicted.sizeBytes();
+                evictions.increment();
+                unuse(evicted.cwd(), released);
+            }
+        }
+    }
+
+    /**
+     * Starts watching a working directory, or counts one more use of its watch, for a call about
+     * to run there.
+     *
+     * @return the watch, {@code null} if the directory cannot be watched
+     */
+    private Watch watch(Path cwd) {
+        synchronized (this) {
+            if (use(cwd)) {
+                return watches.get(cwd);
+            }
+        }
+        WorkspaceWatcher.Registration registration = null;
+        if (workspaceWatcher != null) {
+            try {
+                registration = workspaceWatcher.watch(cwd, changed -> invalidate(cwd));
+            } catch (IOException e) {
+                log.debug("Cannot watch {}, tool results there are not memoized: {}", cwd, e.getMessage());
+                return null;
+            }
+        }
+        Watch existing;
+        synchronized (this) {
+            if (!use(cwd)) {
+                Watch watch = new Watch(registration);
+                watch.uses++;
+                watches.put(cwd, watch);
+                return watch;
+            }
+            existing = watches.get(cwd);
+        }
+        // another call started watching the directory meanwhile
+        if (registration != null) {
+            registration.close();
+        }
+        return existing;
+    }
+
+    /**
+     * @return whether the directory is watched, its watch then counting one more use
+     */
+    private boolean use(Path cwd) {
+        Watch watch = watches.get(cwd);
+        if (watch == null) {
+            return false;
+        }
+        watch.uses++;
+        return true;
+    }
+
+    /**
+     * Counts one less use of the watch of a directory, releasing it after its last use.
+     *
+     * @param released receives the watch to close once outside the lock
+     */
+    private void unuse(Path cwd, List<Watch> released) {
+        Watch watch = watches.get(cwd);
+        if (watch != null && --watch.uses == 0) {
+            watches.remove(cwd);
+            released.add(watch);
+        }
+    }
+
+    private static void close(List<Watch> released) {
+        for (Watch watch : released) {
+            if (watch.registration != null) {
+                watch.registration.close();
+            }
+        }
+    }
+
+    static String canonicalArguments(String arguments) {
+        if (arguments == null || arguments.isBlank()) {
+            return "{}";
+        }
+        try {
+            return CANONICAL_JSON.writeValueAsString(CANONICAL_JSON.readValue(arguments, Object.class));
+        } catch (JsonProcessingException e) {
+            return arguments.strip();
+        }
+    }
+
+    private static long estimateBytes(String key, String result) {
+        return ENTRY_OVERHEAD_BYTES + 2L * key.length() + 2L * result.length();
+    }
+
+    private record Entry(Path cwd, String result, long sizeBytes) {
+    }
+
+    /**
+     * The watch of a working directory, used by each of its memoized results and calls in flight.
+     */
+    private static final class Watch {
+
+        private final AtomicLong generation = new AtomicLong();
+        private final WorkspaceWatcher.Registration registration;
+        private int uses;
+
+        private Watch(WorkspaceWatcher.Registration registration) {
+            this.registration = registration;
+        }
+    }
+}
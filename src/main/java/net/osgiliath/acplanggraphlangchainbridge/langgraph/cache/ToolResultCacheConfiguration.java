@@ -0,0 +1,42 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.cache;
+
+import net.osgiliath.acplanggraphlangchainbridge.workspace.WorkspaceWatcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+
+/**
+ * Registers the {@link ToolResultCache} when {@code acp.bridge.tool-cache.enabled=true}.
+ *
+ * <p>Only list read-only tools in {@code acp.bridge.tool-cache.idempotent-tools}: a hit returns
+ * the previous result without running the tool.</p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "acp.bridge.tool-cache", name = "enabled", havingValue = "true")
+public class ToolResultCacheConfiguration {
+
+    /**
+     * Creates the tool result cache.
+     *
+     * @param idempotentTools  the names of the tools whose results may be memoized
+     * @param scope            {@code SESSION} or {@code CWD}
+     * @param maxEntries       the maximum number of memoized results
+     * @param maxBytes         the approximate heap budget of all memoized results
+     * @param maxResultBytes   the approximate size above which a result is not memoized
+     * @param workspaceWatcher the watcher invalidating results on file changes
+     * @return the tool result cache
+     */
+    @Bean
+    public ToolResultCache toolResultCache(
+            @Value("${acp.bridge.tool-cache.idempotent-tools:read_file,list_directory,grep}") Set<String> idempotentTools,
+            @Value("${acp.bridge.tool-cache.scope:SESSION}") ToolResultCache.Scope scope,
+            @Value("${acp.bridge.tool-cache.max-entries:1024}") int maxEntries,
+            @Value("${acp.bridge.tool-cache.max-bytes:16777216}") long maxBytes,
+            @Value("${acp.bridge.tool-cache.max-result-bytes:262144}") long maxResultBytes,
+            WorkspaceWatcher workspaceWatcher) {
+        return new ToolResultCache(idempotentTools, scope, maxEntries, maxBytes, maxResultBytes, workspaceWatcher);
+    }
+}
@@ -16,4 +16,24 @@ public interface PromptGraph<S extends AgentState> {
      * @throws GraphStateException if there is an error building the graph, such as invalid node configuration or state issues
      */
     StateGraph<S> buildGraph() throws GraphStateException;
+
+    /**
+     * Identifies the behaviour of this graph. The value is part of the response cache key and, for a {@link #reusable()}
+     * graph, tells when its compiled graph is stale, so implementations should return a new value whenever a change to
+     * the graph (nodes, prompts, model settings) can change its answers.
+     * @return the version of the graph definition, defaults to the implementing class name
+     */
+    default String version() {
+        return getClass().getName();
+    }
+
+    /**
+     * Tells whether the graph can be built and compiled once, then shared by the prompts of every session and connection
+     * until {@link #version()} changes. Only return {@code true} when {@link #buildGraph()} creates no per-prompt or
+     * per-session state, such as a chat memory or a session tool set; otherwise the graph is built again for each prompt.
+     * @return whether the compiled graph is shared, {@code false} by default
+     */
+    default boolean reusable() {
+        return false;
+    }
 }
@@ -0,0 +1,240 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.message;
+
+import com.agentclientprotocol.model.ContentBlock;
+import com.agentclientprotocol.model.EmbeddedResourceResource;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.ImageContent;
+import dev.langchain4j.data.message.TextContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Converts the embedded content blocks of an ACP prompt, {@link ContentBlock.Image} and
+ * {@link ContentBlock.Resource}, to LangChain4j contents, without writing them to disk.
+ *
+ * <ul>
+ *   <li>Images, and blob resources with an {@code image/*} MIME type, become {@link ImageContent}
+ *       sharing the base64 string received from the client: models take base64 images, so the
+ *       payload is never decoded nor copied.</li>
+ *   <li>Text resources become {@link TextContent} sharing the received text.</li>
+ *   <li>Blob resources with a textual MIME type are decoded from base64 straight into a
+ *       {@link ByteBuffer} borrowed from a small shared pool, then once into a string in their
+ *       declared charset (UTF-8 by default): no intermediate byte array or string is allocated.
+ *       At most {@value #POOLED_BUFFERS} buffers of up to {@value #MAX_RETAINED_BUFFER_BYTES}
+ *       bytes are kept between decodings, however many threads decode.</li>
+ * </ul>
+ *
+ * <p>Other binary resources cannot be given to a chat model and are skipped with a warning.</p>
+ */
+public final class EmbeddedContents {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedContents.class);
+
+    /**
+     * Decode buffers up to this size are returned to the pool for the next decoding.
+     */
+    static final int MAX_RETAINED_BUFFER_BYTES = 1024 * 1024;
+
+    /**
+     * Number of decode buffers kept in the pool.
+     */
+    static final int POOLED_BUFFERS = 4;
+
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+    private static final BlockingQueue<ByteBuffer> DECODE_BUFFERS = new ArrayBlockingQueue<>(POOLED_BUFFERS);
+
+    private static final byte[] BASE64_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(BASE64_VALUES, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+        // URL-safe alphabet
+        BASE64_VALUES['-'] = 62;
+        BASE64_VALUES['_'] = 63;
+    }
+
+    private EmbeddedContents() {
+    }
+
+    /**
+     * Converts the embedded blocks of a prompt, ignoring other blocks.
+     *
+     * @param blocks the content blocks of the prompt, may be {@code null}
+     * @return the LangChain4j contents, in prompt order
+     * @throws IllegalArgumentException if a blob is not valid base64
+     */
+    public static List<Content> from(List<? extends ContentBlock> blocks) {
+        if (blocks == null || blocks.isEmpty()) {
+            return List.of();
+        }
+        List<Content> contents = new ArrayList<>(blocks.size());
+        for (ContentBlock block : blocks) {
+            Content content = switch (block) {
+                case ContentBlock.Image image -> ImageContent.from(image.getData(), image.getMimeType());
+                case ContentBlock.Resource resource -> from(resource.getResource());
+                default -> null;
+            };
+            if (content != null) {
+                contents.add(content);
+            }
+        }
+        return contents;
+    }
+
+    private static Content from(EmbeddedResourceResource resource) {
+        return switch (resource) {
+            case EmbeddedResourceResource.TextResourceContents text -> TextContent.from(text.getText());
+            case EmbeddedResourceResource.BlobResourceContents blob -> fromBlob(blob);
+            default -> null;
+        };
+    }
+
+    private static Content fromBlob(EmbeddedResourceResource.BlobResourceContents blob) {
+        String mimeType = blob.getMimeType();
+        if (mimeType != null && mimeType.toLowerCase(Locale.ROOT).startsWith("image/")) {
+            return ImageContent.from(blob.getBlob(), baseType(mimeType));
+        }
+        if (isText(mimeType)) {
+            return TextContent.from(decodeText(blob.getBlob(), charset(mimeType)));
+        }
+        log.warn("Skipping embedded resource {}: binary content of type {} cannot be sent to the model",
+                blob.getUri(), mimeType);
+        return null;
+    }
+
+    /**
+     * Decodes base64 text content into a string, through a pooled buffer.
+     *
+     * @param base64  the base64 payload, standard or URL-safe alphabet, padding and line breaks allowed
+     * @param charset the charset of the decoded bytes
+     * @return the decoded text
+     * @throws IllegalArgumentException if the payload is not valid base64
+     */
+    static String decodeText(CharSequence base64, Charset charset) {
+        ByteBuffer buffer = decode(base64, buffer(decodedLength(base64)));
+        String text = new String(buffer.array(), buffer.arrayOffset(), buffer.remaining(), charset);
+        if (buffer.capacity() <= MAX_RETAINED_BUFFER_BYTES) {
+            // dropped when the pool is full
+            DECODE_BUFFERS.offer(buffer);
+        }
+        return text;
+    }
+
+    /**
+     * Decodes a base64 payload into a buffer, without materializing its bytes first.
+     *
+     * @param base64 the base64 payload
+     * @param target a heap buffer with room for the decoded bytes
+     * @return {@code target}, flipped for reading the decoded bytes
+     * @throws IllegalArgumentException if the payload is not valid base64
+     */
+    static ByteBuffer decode(CharSequence base64, ByteBuffer target) {
+        target.clear();
+        int accumulator = 0;
+        int bits = 0;
+        boolean padding = false;
+        for (int i = 0; i < base64.length(); i++) {
+            char c = base64.charAt(i);
+            if (c == '=') {
+                padding = true;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            int value = c < BASE64_VALUES.length ? BASE64_VALUES[c] : -1;
+            if (value < 0 || padding) {
+                throw new IllegalArgumentException("Illegal base64 character at index " + i);
+            }
+            accumulator = (accumulator << 6) | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                target.put((byte) (accumulator >>> bits));
+                accumulator &= (1 << bits) - 1;
+            }
+        }
+        return target.flip();
+    }
+
+    /**
+     * @return an upper bound of the decoded size of a base64 payload
+     */
+    static int decodedLength(CharSequence base64) {
+        return (int) Math.min(Integer.MAX_VALUE, (base64.length() * 3L + 3) / 4);
+    }
+
+    private static ByteBuffer buffer(int capacity) {
+        ByteBuffer buffer = DECODE_BUFFERS.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocate(Math.max(capacity, INITIAL_BUFFER_BYTES));
+        }
+        if (buffer.capacity() >= capacity) {
+            return buffer;
+        }
+        return ByteBuffer.allocate(Math.max(capacity, Math.min(2 * buffer.capacity(), MAX_RETAINED_BUFFER_BYTES)));
+    }
+
+    /**
+     * @return the number of decode buffers currently kept in the pool
+     */
+    static int pooledBuffers() {
+        return DECODE_BUFFERS.size();
+    }
+
+    /**
+     * @param mimeType a MIME type, with or without parameters
+     * @return whether the content is text a model can read
+     */
+    public static boolean isText(String mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+        String type = baseType(mimeType).toLowerCase(Locale.ROOT);
+        return type.startsWith("text/")
+                || type.endsWith("+json")
+                || type.endsWith("+xml")
+                || type.equals("application/json")
+                || type.equals("application/xml")
+                || type.equals("application/javascript")
+                || type.equals("application/x-yaml")
+                || type.equals("application/yaml")
+                || type.equals("application/x-sh")
+                || type.equals("application/sql")
+                || type.equals("application/toml");
+    }
+
+    private static Charset charset(String mimeType) {
+        for (String parameter : mimeType.split(";")) {
+            String[] pair = parameter.strip().split("=", 2);
+            if (pair.length == 2 && pair[0].strip().equalsIgnoreCase("charset")) {
+                try {
+                    return Charset.forName(pair[1].strip().replace("\"", ""));
+                } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                    log.debug("Unknown charset in {}, decoding as UTF-8", mimeType);
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static String baseType(String mimeType) {
+        int parameters = mimeType.indexOf(';');
+        return (parameters < 0 ? mimeType : mimeType.substring(0, parameters)).strip();
+    }
+}
@@ -2,6 +2,7 @@ package net.osgiliath.acplanggraphlangchainbridge.langgraph.node;
 
 import net.osgiliath.acplanggraphlangchainbridge.langgraph.message.ResourceLinkContent;
 import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
+import net.osgiliath.acplanggraphlangchainbridge.observability.ActivePrompts;
 import org.bsc.langgraph4j.action.NodeAction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,7 +60,9 @@ public class AttachmentUnwrapperNode<T> implements NodeAction<AcpState<T>> {
             URI filePath = metadata.uri();
             Path path = Paths.get(filePath);
 
+            long readStart = System.nanoTime();
             byte[] read = Files.readAllBytes(path);
+            ActivePrompts.of(state.sessionId()).attachmentRead(filePath, read.length, System.nanoTime() - readStart);
             attachments.add(read);
         }
         return Map.of(
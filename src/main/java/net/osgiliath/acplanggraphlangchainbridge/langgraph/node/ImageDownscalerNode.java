@@ -0,0 +1,426 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node;
+
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.ImageContent;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.cache.DerivedArtifactCache;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.message.ResourceLinkContent;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
+import net.osgiliath.acplanggraphlangchainbridge.logging.SessionMdc;
+import net.osgiliath.acplanggraphlangchainbridge.observability.ActivePrompts;
+import net.osgiliath.acplanggraphlangchainbridge.workspace.FileChangeDetector;
+import org.bsc.langgraph4j.action.NodeAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Node that prepares the image attachments of a prompt for a vision model, so a full-resolution
+ * screenshot does not cost seconds of upload and thousands of tokens.
+ *
+ * <p>For each {@link ResourceLinkContent} in {@code attachmentsMetadata} whose MIME type is an
+ * image, it:</p>
+ * <ol>
+ *   <li>Takes the bytes read by {@link AttachmentUnwrapperNode} when it ran before, or reads the file.</li>
+ *   <li>Reads the image dimensions from its header, and refuses an image of more than
+ *       {@code maxPixels} pixels before decoding it.</li>
+ *   <li>Decodes every n-th pixel of a large image, so the decoded image is no more than twice
+ *       {@code maxDimension} on its longest side, then downscales it so that side is at most
+ *       {@code maxDimension} pixels, halving it with bilinear interpolation until the last step
+ *       for a smooth result.</li>
+ *   <li>Re-encodes it with {@link ImageIO}: JPEG stays JPEG at the configured quality, any other
+ *       readable format becomes PNG.</li>
+ * </ol>
+ *
+ * <p>Images are processed in parallel, at most {@code parallelism} at once. The results are
+ * cached in the {@link DerivedArtifactCache} by content hash and settings, so attaching the same
+ * image again costs a hash. With a {@link FileChangeDetector}, an image file known unchanged is not
+ * even read when its downscaled version is cached. Images already small enough, formats
+ * {@link ImageIO} cannot read and images it fails to decode, such as CMYK JPEGs or truncated
+ * files, are passed unchanged. The images are appended to the {@code attachmentContents} channel
+ * as {@link ImageContent}, in attachment order.</p>
+ */
+@Component
+public class ImageDownscalerNode<T> implements NodeAction<AcpState<T>>, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageDownscalerNode.class);
+
+    private static final byte[] UNCHANGED = new byte[0];
+
+    private final int maxDimension;
+    private final long maxPixels;
+    private final float jpegQuality;
+    private final int parallelism;
+    private final DerivedArtifactCache cache;
+    private final FileChangeDetector changeDetector;
+    private final ExecutorService imageThreads = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Settings of a node created programmatically; the collaborators left {@code null} are not used.
+     *
+     * @param maxDimension   the maximum width and height of the images, in pixels
+     * @param maxPixels      the maximum number of pixels of an image, as declared by its header
+     * @param jpegQuality    the quality of re-encoded JPEG images, between 0 and 1
+     * @param parallelism    the maximum number of images processed at the same time, 0 for the
+     *                       number of processors
+     * @param cache          the cache of downscaled images, or {@code null}
+     * @param changeDetector the detector of unchanged files, or {@code null}
+     */
+    public record Settings(int maxDimension, long maxPixels, float jpegQuality, int parallelism,
+                           DerivedArtifactCache cache, FileChangeDetector changeDetector) {
+
+        /**
+         * Validates the settings.
+         */
+        public Settings {
+            if (maxDimension < 1) {
+                throw new IllegalArgumentException("maxDimension must be at least 1: " + maxDimension);
+            }
+            if (maxPixels < 1) {
+                throw new IllegalArgumentException("maxPixels must be at least 1: " + maxPixels);
+            }
+        }
+
+        /**
+         * @return the settings of the default configuration, without collaborators
+         */
+        public static Settings defaults() {
+            return new Settings(1568, 100_000_000L, 0.85f, 0, null, null);
+        }
+
+        /**
+         * @param pixels the maximum width and height of the images, in pixels
+         * @return a copy with the given dimension
+         */
+        public Settings withMaxDimension(int pixels) {
+            return new Settings(pixels, maxPixels, jpegQuality, parallelism, cache, changeDetector);
+        }
+
+        /**
+         * @param pixels the maximum number of pixels of an image, as declared by its header
+         * @return a copy refusing the images above the given size
+         */
+        public Settings withMaxPixels(long pixels) {
+            return new Settings(maxDimension, pixels, jpegQuality, parallelism, cache, changeDetector);
+        }
+
+        /**
+         * @param quality the quality of re-encoded JPEG images, between 0 and 1
+         * @return a copy with the given quality
+         */
+        public Settings withJpegQuality(float quality) {
+            return new Settings(maxDimension, maxPixels, quality, parallelism, cache, changeDetector);
+        }
+
+        /**
+         * @param images the maximum number of images processed at the same time, 0 for the number
+         *               of processors
+         * @return a copy with the given parallelism
+         */
+        public Settings withParallelism(int images) {
+            return new Settings(maxDimension, maxPixels, jpegQuality, images, cache, changeDetector);
+        }
+
+        /**
+         * @param artifactCache the cache of downscaled images
+         * @return a copy caching its results
+         */
+        public Settings withCache(DerivedArtifactCache artifactCache) {
+            return new Settings(maxDimension, maxPixels, jpegQuality, parallelism, artifactCache, changeDetector);
+        }
+
+        /**
+         * @param detector the detector of unchanged files
+         * @return a copy skipping the files known unchanged
+         */
+        public Settings withChangeDetector(FileChangeDetector detector) {
+            return new Settings(maxDimension, maxPixels, jpegQuality, parallelism, cache, detector);
+        }
+    }
+
+    /**
+     * Creates a node from the configuration.
+     *
+     * @param maxDimension   the maximum width and height of the images, in pixels
+     * @param maxPixels      the maximum number of pixels of an image, as declared by its header
+     * @param jpegQuality    the quality of re-encoded JPEG images, between 0 and 1
+     * @param parallelism    the maximum number of images processed at the same time, 0 for the
+     *                       number of processors
+     * @param cache          the cache of downscaled images, if any
+     * @param changeDetector the detector of unchanged files, if any
+     */
+    @Autowired
+    public ImageDownscalerNode(@Value("${acp.bridge.attachments.image.max-dimension:1568}") int maxDimension,
+                               @Value("${acp.bridge.attachments.image.max-pixels:100000000}") long maxPixels,
+                               @Value("${acp.bridge.attachments.image.jpeg-quality:0.85}") float jpegQuality,
+                               @Value("${acp.bridge.attachments.image.parallelism:0}") int parallelism,
+                               Optional<DerivedArtifactCache> cache,
+                               Optional<FileChangeDetector> changeDetector) {
+        this(new Settings(maxDimension, maxPixels, jpegQuality, parallelism,
+                cache.orElse(null), changeDetector.orElse(null)));
+    }
+
+    /**
+     * Creates a node with the given settings.
+     *
+     * @param settings the limits, the quality, the parallelism and the collaborators of the node
+     */
+    public ImageDownscalerNode(Settings settings) {
+        this.maxDimension = settings.maxDimension();
+        this.maxPixels = settings.maxPixels();
+        this.jpegQuality = settings.jpegQuality();
+        this.parallelism = settings.parallelism() > 0
+                ? settings.parallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.cache = settings.cache();
+        this.changeDetector = settings.changeDetector();
+    }
+
+    /**
+     * Downscales the image attachments of the given state.
+     *
+     * @param state the current state containing the attachment metadata
+     * @return a map appending one {@link ImageContent} per image attachment to the
+     * {@code attachmentContents} channel, or an empty map when no attachment is an image
+     * @throws IOException          if an image file cannot be read, or has more than
+     *                              {@code maxPixels} pixels
+     * @throws InterruptedException if the graph thread is interrupted while waiting for the images
+     */
+    @Override
+    public Map<String, Object> apply(AcpState<T> state) throws IOException, InterruptedException {
+        List<ResourceLinkContent> metadataList = state.attachmentsMetadata();
+        List<byte[]> unwrapped = state.attachments();
+        boolean aligned = unwrapped.size() == metadataList.size();
+        String sessionId = state.sessionId();
+        String cwd = state.cwd();
+
+        Semaphore permits = new Semaphore(parallelism);
+        List<Future<ImageContent>> pending = new ArrayList<>();
+        for (int i = 0; i < metadataList.size(); i++) {
+            ResourceLinkContent metadata = metadataList.get(i);
+            if (!isImage(metadata.mimeType())) {
+                continue;
+            }
+            byte[] original = aligned ? unwrapped.get(i) : null;
+            pending.add(imageThreads.submit(() -> {
+                try (var ignored = SessionMdc.put(sessionId)) {
+                    permits.acquire();
+                    try {
+                        return prepare(sessionId, cwd, metadata, original);
+                    } finally {
+                        permits.release();
+                    }
+                }
+            }));
+        }
+        if (pending.isEmpty()) {
+            return Map.of();
+        }
+
+        List<Content> images = new ArrayList<>(pending.size());
+        for (Future<ImageContent> image : pending) {
+            try {
+                images.add(image.get());
+            } catch (ExecutionException e) {
+                pending.forEach(other -> other.cancel(true));
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw new IOException("Cannot prepare image attachment", e.getCause());
+            }
+        }
+        log.debug("Prepared {} image attachment(s) for session {}", images.size(), sessionId);
+        return Map.of(AcpState.ATTACHMENT_CONTENTS, images);
+    }
+
+    private ImageContent prepare(String sessionId, String cwd, ResourceLinkContent metadata, byte[] unwrapped)
+            throws IOException {
+        String sourceType = baseType(metadata.mimeType());
+        String kind = "image:" + maxDimension + ":" + jpegQuality + ":" + sourceType;
+        Optional<String> fingerprint = unwrapped == null && cache != null && changeDetector != null
+                ? changeDetector.fingerprint(Path.of(cwd), Path.of(metadata.uri()))
+                : Optional.empty();
+        Optional<byte[]> known = fingerprint.flatMap(cache::contentHashOf)
+                .flatMap(contentHash -> cache.get(contentHash, kind))
+                .filter(artifact -> artifact.length > 0);
+        if (known.isPresent()) {
+            return ImageContent.from(Base64.getEncoder().encodeToString(known.get()), targetType(sourceType));
+        }
+
+        byte[] original = unwrapped != null ? unwrapped : read(sessionId, metadata);
+        byte[] downscaled;
+        if (cache == null) {
+            downscaled = downscale(original, sourceType);
+        } else {
+            String contentHash = DerivedArtifactCache.contentHash(original);
+            fingerprint.ifPresent(value -> cache.rememberContentHash(value, contentHash));
+            downscaled = cache.computeIfAbsent(contentHash, kind, () -> downscale(original, sourceType));
+        }
+        if (downscaled.length == 0) {
+            return ImageContent.from(Base64.getEncoder().encodeToString(original), sourceType);
+        }
+        return ImageContent.from(Base64.getEncoder().encodeToString(downscaled), targetType(sourceType));
+    }
+
+    private static byte[] read(String sessionId, ResourceLinkContent metadata) throws IOException {
+        long readStart = System.nanoTime();
+        byte[] read = Files.readAllBytes(Path.of(metadata.uri()));
+        ActivePrompts.of(sessionId).attachmentRead(metadata.uri(), read.length, System.nanoTime() - readStart);
+        return read;
+    }
+
+    /**
+     * Interrupts the images still being prepared and releases the image threads.
+     */
+    @Override
+    public void close() {
+        imageThreads.shutdownNow();
+    }
+
+    /**
+     * Downscales and re-encodes an image.
+     *
+     * @return the re-encoded image, or an empty array when the image is small enough or cannot be
+     * read or decoded
+     * @throws IOException if the image has more than {@code maxPixels} pixels, or cannot be re-encoded
+     */
+    byte[] downscale(byte[] original, String mimeType) throws IOException {
+        BufferedImage image;
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(original))) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                log.debug("No ImageIO reader for {}, passing the image unchanged", mimeType);
+                return UNCHANGED;
+            }
+            ImageReader reader = readers.next();
+            try {
+                int width;
+                int height;
+                try {
+                    reader.setInput(input, true, true);
+                    width = reader.getWidth(0);
+                    height = reader.getHeight(0);
+                } catch (IOException e) {
+                    log.debug("Cannot read the header of a {} image, passing it unchanged", mimeType, e);
+                    return UNCHANGED;
+                }
+                if ((long) width * height > maxPixels) {
+                    throw new IOException("Image of " + width + "x" + height + " pixels is larger than "
+                            + maxPixels + " pixels");
+                }
+                int longest = Math.max(width, height);
+                if (longest <= maxDimension) {
+                    return UNCHANGED;
+                }
+                ImageReadParam parameters = reader.getDefaultReadParam();
+                int step = longest / maxDimension;
+                if (step > 1) {
+                    parameters.setSourceSubsampling(step, step, 0, 0);
+                }
+                try {
+                    image = reader.read(0, parameters);
+                } catch (IOException e) {
+                    // a CMYK JPEG, a truncated PNG, ...: the model may still make sense of the original
+                    log.debug("Cannot decode a {} image of {}x{} pixels, passing it unchanged",
+                            mimeType, width, height, e);
+                    return UNCHANGED;
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+        boolean jpeg = "image/jpeg".equals(targetType(mimeType));
+        BufferedImage scaled = scale(image, maxDimension, jpeg || !image.getColorModel().hasAlpha());
+        return jpeg ? encodeJpeg(scaled, jpegQuality) : encodePng(scaled);
+    }
+
+    static BufferedImage scale(BufferedImage source, int maxDimension, boolean opaque) {
+        double ratio = (double) maxDimension / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam parameters = writer.getDefaultWriteParam();
+            parameters.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            parameters.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), parameters);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    static boolean isImage(String mimeType) {
+        return mimeType != null && mimeType.toLowerCase(Locale.ROOT).startsWith("image/");
+    }
+
+    private static String targetType(String mimeType) {
+        return "image/jpeg".equals(mimeType) || "image/jpg".equals(mimeType) ? "image/jpeg" : "image/png";
+    }
+
+    private static String baseType(String mimeType) {
+        int parameters = mimeType.indexOf(';');
+        return (parameters < 0 ? mimeType : mimeType.substring(0, parameters)).strip().toLowerCase(Locale.ROOT);
+    }
+}
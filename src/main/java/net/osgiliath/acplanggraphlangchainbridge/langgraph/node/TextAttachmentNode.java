@@ -0,0 +1,528 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node;
+
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.model.TokenCountEstimator;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.cache.DerivedArtifactCache;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.cache.SentAttachmentHistory;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.message.EmbeddedContents;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.message.ResourceLinkContent;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment.AttachmentMode;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment.SourceOutline;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment.TextChunker;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment.TextDecoder;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment.UnifiedDiff;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
+import net.osgiliath.acplanggraphlangchainbridge.observability.ActivePrompts;
+import net.osgiliath.acplanggraphlangchainbridge.workspace.FileChangeDetector;
+import org.bsc.langgraph4j.action.NodeAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.ToIntFunction;
+
+/**
+ * Node that prepares the text attachments of a prompt for the model, so a huge log or source
+ * file does not overflow the context window or slow the model call down.
+ *
+ * <p>For each {@link ResourceLinkContent} in {@code attachmentsMetadata} whose MIME type is
+ * text, or unknown, it:</p>
+ * <ol>
+ *   <li>Decodes the bytes read by {@link AttachmentUnwrapperNode} when it ran before, or streams
+ *       the file, detecting its charset with {@link TextDecoder}. Binary files are skipped, and
+ *       only the first {@code maxBytes} bytes of a larger file are decoded.</li>
+ *   <li>Replaces source files by their {@link SourceOutline}, keeping declarations and signatures
+ *       but no method body, when the {@link AttachmentMode} of the attachment asks for it: always
+ *       for {@code outline}, above {@code outlineAboveTokens} tokens for {@code auto}.</li>
+ *   <li>Splits the text into overlapping chunks of at most {@code chunkTokens} tokens with
+ *       {@link TextChunker}.</li>
+ *   <li>Keeps the whole text when it fits in its share of {@code tokenBudget}; otherwise keeps the
+ *       head, the tail and the chunks sharing the most words with the prompt, marking the lines
+ *       left out.</li>
+ * </ol>
+ *
+ * <p>The budget is shared between the attachments of the prompt: small attachments are kept
+ * whole and leave the rest of their share to the larger ones. Tokens are counted with the
+ * {@link TokenCountEstimator} of the model when one is registered, at four characters per token
+ * otherwise, and the outline and the chunks of a text are cached in the
+ * {@link DerivedArtifactCache} by content hash; with a {@link FileChangeDetector}, a source file
+ * known unchanged whose outline is cached is not read again. The excerpts are appended to the {@code attachmentContents} channel as
+ * {@link TextContent}, each headed by the name and URI of its file, so the model, or a tool, can
+ * still read the omitted lines from the original file.</p>
+ */
+@Component
+public class TextAttachmentNode<T> implements NodeAction<AcpState<T>> {
+
+    private static final Logger log = LoggerFactory.getLogger(TextAttachmentNode.class);
+
+    private static final String OUTLINE_KIND = "source-outline";
+    private static final String TOKENS_KIND = "text-tokens";
+    private static final int DIFF_CONTEXT_LINES = 3;
+    private static final int MAX_DIFF_EDITS = 1000;
+
+    private final int tokenBudget;
+    private final long maxBytes;
+    private final AttachmentMode defaultMode;
+    private final int outlineAboveTokens;
+    private final TextChunker chunker;
+    private final ToIntFunction<String> tokenCounter;
+    private final String chunksKind;
+    private final String countKind;
+    private final DerivedArtifactCache cache;
+    private final FileChangeDetector changeDetector;
+    private final SentAttachmentHistory history;
+
+    /**
+     * A text attachment ready to send.
+     *
+     * @param version   the content hash of the file, suffixed when the text is its outline
+     * @param tokens    the number of tokens of the text, not the sum of its overlapping chunks
+     * @param truncated whether the text only covers the first bytes of the file
+     */
+    private record Attachment(ResourceLinkContent metadata, String version, String text, boolean outline,
+                              List<TextChunker.Chunk> chunks, long tokens, boolean truncated) {
+    }
+
+    /**
+     * Settings of a node created programmatically; the collaborators left {@code null} are not used.
+     *
+     * @param tokenBudget        the maximum number of tokens of the text attachments of a prompt
+     * @param maxBytes           the maximum number of bytes decoded from an attachment
+     * @param chunkTokens        the maximum number of tokens of a chunk
+     * @param overlapTokens      the maximum number of tokens a chunk repeats from the previous one
+     * @param defaultMode        the mode of the attachments that do not request one
+     * @param outlineAboveTokens the approximate number of tokens above which {@link AttachmentMode#AUTO}
+     *                           sends the outline of a source file
+     * @param estimator          the token count estimator of the model, or {@code null} to count four
+     *                           characters per token
+     * @param cache              the cache of outlines and chunk boundaries, or {@code null}
+     * @param changeDetector     the detector of unchanged files, or {@code null}
+     * @param history            the attachments sent whole in each session, or {@code null} to disable diffs
+     */
+    public record Settings(int tokenBudget, long maxBytes, int chunkTokens, int overlapTokens,
+                           AttachmentMode defaultMode, int outlineAboveTokens, TokenCountEstimator estimator,
+                           DerivedArtifactCache cache, FileChangeDetector changeDetector,
+                           SentAttachmentHistory history) {
+
+        /**
+         * Validates the settings.
+         */
+        public Settings {
+            if (tokenBudget < 1) {
+                throw new IllegalArgumentException("tokenBudget must be at least 1: " + tokenBudget);
+            }
+            if (maxBytes < 1) {
+                throw new IllegalArgumentException("maxBytes must be at least 1: " + maxBytes);
+            }
+        }
+
+        /**
+         * @return the settings of the default configuration, without collaborators
+         */
+        public static Settings defaults() {
+            return new Settings(8000, 16L * 1024 * 1024, 512, 64, AttachmentMode.AUTO, 2000,
+                    null, null, null, null);
+        }
+
+        /**
+         * @param tokens the maximum number of tokens of the text attachments of a prompt
+         * @return a copy with the given budget
+         */
+        public Settings withTokenBudget(int tokens) {
+            return new Settings(tokens, maxBytes, chunkTokens, overlapTokens, defaultMode, outlineAboveTokens,
+                    estimator, cache, changeDetector, history);
+        }
+
+        /**
+         * @param bytes the maximum number of bytes decoded from an attachment
+         * @return a copy with the given limit
+         */
+        public Settings withMaxBytes(long bytes) {
+            return new Settings(tokenBudget, bytes, chunkTokens, overlapTokens, defaultMode, outlineAboveTokens,
+                    estimator, cache, changeDetector, history);
+        }
+
+        /**
+         * @param tokens  the maximum number of tokens of a chunk
+         * @param overlap the maximum number of tokens a chunk repeats from the previous one
+         * @return a copy with the given chunks
+         */
+        public Settings withChunks(int tokens, int overlap) {
+            return new Settings(tokenBudget, maxBytes, tokens, overlap, defaultMode, outlineAboveTokens,
+                    estimator, cache, changeDetector, history);
+        }
+
+        /**
+         * @param mode         the mode of the attachments that do not request one
+         * @param outlineAbove the approximate number of tokens above which {@link AttachmentMode#AUTO}
+         *                     sends the outline of a source file
+         * @return a copy with the given mode
+         */
+        public Settings withDefaultMode(AttachmentMode mode, int outlineAbove) {
+            return new Settings(tokenBudget, maxBytes, chunkTokens, overlapTokens, mode, outlineAbove,
+                    estimator, cache, changeDetector, history);
+        }
+
+        /**
+         * @param tokenEstimator the token count estimator of the model
+         * @return a copy counting tokens with the given estimator
+         */
+        public Settings withEstimator(TokenCountEstimator tokenEstimator) {
+            return new Settings(tokenBudget, maxBytes, chunkTokens, overlapTokens, defaultMode, outlineAboveTokens,
+                    tokenEstimator, cache, changeDetector, history);
+        }
+
+        /**
+         * @param artifactCache the cache of outlines and chunk boundaries
+         * @return a copy with the given cache
+         */
+        public Settings withCache(DerivedArtifactCache artifactCache) {
+            return new Settings(tokenBudget, maxBytes, chunkTokens, overlapTokens, defaultMode, outlineAboveTokens,
+                    estimator, artifactCache, changeDetector, history);
+        }
+
+        /**
+         * @param detector the detector of unchanged files
+         * @return a copy skipping the source files known unchanged when their outline is cached
+         */
+        public Settings withChangeDetector(FileChangeDetector detector) {
+            return new Settings(tokenBudget, maxBytes, chunkTokens, overlapTokens, defaultMode, outlineAboveTokens,
+                    estimator, cache, detector, history);
+        }
+
+        /**
+         * @param sent the attachments sent whole in each session
+         * @return a copy sending a reference or a diff for the attachments already sent in the session
+         */
+        public Settings withHistory(SentAttachmentHistory sent) {
+            return new Settings(tokenBudget, maxBytes, chunkTokens, overlapTokens, defaultMode, outlineAboveTokens,
+                    estimator, cache, changeDetector, sent);
+        }
+    }
+
+    /**
+     * Creates a node from the configuration.
+     *
+     * @param tokenBudget        the maximum number of tokens of the text attachments of a prompt
+     * @param maxBytes           the maximum number of bytes decoded from an attachment
+     * @param chunkTokens        the maximum number of tokens of a chunk
+     * @param overlapTokens      the maximum number of tokens a chunk repeats from the previous one
+     * @param defaultMode        the mode of the attachments that do not request one
+     * @param outlineAboveTokens the approximate number of tokens above which {@link AttachmentMode#AUTO}
+     *                           sends the outline of a source file
+     * @param estimator          the token count estimator of the model, if any
+     * @param cache              the cache of outlines and chunk boundaries, if any
+     * @param changeDetector     the detector of unchanged files, if any
+     * @param history            the attachments sent whole in each session, if diffs are enabled
+     */
+    @Autowired
+    public TextAttachmentNode(@Value("${acp.bridge.attachments.text.token-budget:8000}") int tokenBudget,
+                              @Value("${acp.bridge.attachments.text.max-bytes:16777216}") long maxBytes,
+                              @Value("${acp.bridge.attachments.text.chunk-tokens:512}") int chunkTokens,
+                              @Value("${acp.bridge.attachments.text.overlap-tokens:64}") int overlapTokens,
+                              @Value("${acp.bridge.attachments.text.mode:AUTO}") AttachmentMode defaultMode,
+                              @Value("${acp.bridge.attachments.text.outline-above-tokens:2000}") int outlineAboveTokens,
+                              Optional<TokenCountEstimator> estimator,
+                              Optional<DerivedArtifactCache> cache,
+                              Optional<FileChangeDetector> changeDetector,
+                              Optional<SentAttachmentHistory> history) {
+        this(new Settings(tokenBudget, maxBytes, chunkTokens, overlapTokens, defaultMode, outlineAboveTokens,
+                estimator.orElse(null), cache.orElse(null), changeDetector.orElse(null), history.orElse(null)));
+    }
+
+    /**
+     * Creates a node with the given settings.
+     *
+     * @param settings the budget, the chunks, the mode and the collaborators of the node
+     */
+    public TextAttachmentNode(Settings settings) {
+        TokenCountEstimator estimator = settings.estimator();
+        ToIntFunction<String> tokenCounter = estimator == null
+                ? TextChunker::approximateTokens
+                : estimator::estimateTokenCountInText;
+        String counterName = estimator == null ? "chars" : estimator.getClass().getName();
+        this.tokenBudget = settings.tokenBudget();
+        this.maxBytes = settings.maxBytes();
+        this.tokenCounter = tokenCounter;
+        this.defaultMode = settings.defaultMode();
+        this.outlineAboveTokens = settings.outlineAboveTokens();
+        this.chunker = new TextChunker(settings.chunkTokens(), settings.overlapTokens(), tokenCounter);
+        this.chunksKind = "text-chunks:" + settings.chunkTokens() + ":" + settings.overlapTokens() + ":" + counterName;
+        this.countKind = "text-count:" + counterName;
+        this.cache = settings.cache();
+        this.changeDetector = settings.changeDetector();
+        this.history = settings.history();
+    }
+
+    /**
+     * Prepares the text attachments of the given state.
+     *
+     * @param state the current state containing the attachment metadata and the prompt
+     * @return a map appending one {@link TextContent} per text attachment to the
+     * {@code attachmentContents} channel, or an empty map when no attachment is text
+     * @throws IOException if an attachment file cannot be read
+     */
+    @Override
+    public Map<String, Object> apply(AcpState<T> state) throws IOException {
+        List<ResourceLinkContent> metadataList = state.attachmentsMetadata();
+        List<byte[]> unwrapped = state.attachments();
+        boolean aligned = unwrapped.size() == metadataList.size();
+
+        List<Attachment> attachments = new ArrayList<>();
+        for (int i = 0; i < metadataList.size(); i++) {
+            ResourceLinkContent metadata = metadataList.get(i);
+            if (!isCandidate(metadata.mimeType())) {
+                continue;
+            }
+            Optional<String> fingerprint = aligned ? Optional.empty() : fingerprint(state.cwd(), metadata);
+            Optional<Attachment> known = fingerprint.isPresent() ? knownOutline(fingerprint.get(), metadata) : Optional.empty();
+            if (known.isPresent()) {
+                attachments.add(known.get());
+                continue;
+            }
+            TextDecoder.DecodedText decoded = aligned
+                    ? TextDecoder.decode(new ByteArrayInputStream(unwrapped.get(i)), maxBytes)
+                    : read(state.sessionId(), metadata, maxBytes);
+            if (decoded.binary()) {
+                log.debug("Skipping binary attachment {} for session {}", metadata.uri(), state.sessionId());
+                continue;
+            }
+            if (decoded.truncated()) {
+                log.debug("Decoded the first {} bytes of attachment {} for session {}", decoded.sizeBytes(),
+                        metadata.uri(), state.sessionId());
+            }
+            int textTokens = TextChunker.approximateTokens(decoded.text());
+            if (fingerprint.isPresent() && !decoded.truncated()) {
+                cache.rememberContentHash(fingerprint.get(), decoded.contentHash());
+                cache.put(decoded.contentHash(), TOKENS_KIND, ByteBuffer.allocate(4).putInt(textTokens).array());
+            }
+            Optional<SourceOutline> extractor = outlineExtractor(metadata, textTokens);
+            String text = extractor.isPresent() ? outline(decoded, extractor.get()) : decoded.text();
+            List<TextChunker.Chunk> chunks = chunks(decoded.contentHash(), text, extractor.isPresent());
+            attachments.add(new Attachment(metadata, version(decoded.contentHash(), extractor.isPresent()), text,
+                    extractor.isPresent(), chunks, tokens(decoded.contentHash(), text, extractor.isPresent()),
+                    decoded.truncated()));
+        }
+        if (attachments.isEmpty()) {
+            return Map.of();
+        }
+
+        String sessionId = state.sessionId();
+        List<Attachment> sent = new ArrayList<>();
+        Map<Attachment, String> resent = new IdentityHashMap<>();
+        long resentTokens = 0;
+        for (Attachment attachment : attachments) {
+            Optional<String> reference = resend(sessionId, attachment, sent);
+            if (reference.isPresent()) {
+                resent.put(attachment, reference.get());
+                resentTokens += TextChunker.approximateTokens(reference.get());
+            }
+        }
+        Map<Attachment, Integer> budgets = shareBudget(
+                attachments.stream().filter(attachment -> !resent.containsKey(attachment)).toList(),
+                Math.max(0, tokenBudget - resentTokens));
+        String prompt = state.lastUserText();
+        List<Content> contents = new ArrayList<>(attachments.size());
+        for (Attachment attachment : attachments) {
+            if (resent.containsKey(attachment)) {
+                contents.add(TextContent.from(resent.get(attachment)));
+                continue;
+            }
+            int budget = budgets.get(attachment);
+            contents.add(TextContent.from(excerpt(attachment, prompt, budget)));
+            if (history != null && attachment.tokens() <= budget) {
+                sent.add(attachment);
+            }
+        }
+        if (!sent.isEmpty()) {
+            // the model only received the attachments once the prompt completed
+            ActivePrompts.afterCompletion(sessionId, () -> sent.forEach(attachment -> history.remember(sessionId,
+                    attachment.metadata().uri().toString(), attachment.version(), attachment.text())));
+        }
+        log.debug("Prepared {} text attachment(s) for session {}", contents.size(), state.sessionId());
+        return Map.of(AcpState.ATTACHMENT_CONTENTS, contents);
+    }
+
+    private static TextDecoder.DecodedText read(String sessionId, ResourceLinkContent metadata, long maxBytes)
+            throws IOException {
+        long readStart = System.nanoTime();
+        TextDecoder.DecodedText decoded = TextDecoder.decode(Path.of(metadata.uri()), maxBytes);
+        ActivePrompts.of(sessionId).attachmentRead(metadata.uri(), decoded.sizeBytes(), System.nanoTime() - readStart);
+        return decoded;
+    }
+
+    private Optional<String> fingerprint(String cwd, ResourceLinkContent metadata) {
+        if (cache == null || changeDetector == null) {
+            return Optional.empty();
+        }
+        return changeDetector.fingerprint(Path.of(cwd), Path.of(metadata.uri()));
+    }
+
+    /**
+     * Builds the attachment of a file known unchanged from its cached outline, when it is sent as
+     * an outline: the file is not read.
+     */
+    private Optional<Attachment> knownOutline(String fingerprint, ResourceLinkContent metadata) throws IOException {
+        Optional<String> contentHash = cache.contentHashOf(fingerprint);
+        if (contentHash.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<Integer> textTokens = cache.get(contentHash.get(), TOKENS_KIND).map(bytes -> ByteBuffer.wrap(bytes).getInt());
+        if (textTokens.isEmpty() || outlineExtractor(metadata, textTokens.get()).isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<byte[]> outline = cache.get(contentHash.get(), OUTLINE_KIND);
+        if (outline.isEmpty()) {
+            return Optional.empty();
+        }
+        String text = new String(outline.get(), StandardCharsets.UTF_8);
+        List<TextChunker.Chunk> chunks = chunks(contentHash.get(), text, true);
+        return Optional.of(new Attachment(metadata, version(contentHash.get(), true), text, true, chunks,
+                tokens(contentHash.get(), text, true), false));
+    }
+
+    private static String version(String contentHash, boolean outline) {
+        return outline ? contentHash + ":" + OUTLINE_KIND : contentHash;
+    }
+
+    /**
+     * Replaces an attachment already sent whole in the session by a reference when it is
+     * unchanged, or by a unified diff when the diff is at most half the size of the text, adding
+     * the attachment to {@code sent} in the latter case.
+     */
+    private Optional<String> resend(String sessionId, Attachment attachment, List<Attachment> sent) {
+        if (history == null) {
+            return Optional.empty();
+        }
+        String uri = attachment.metadata().uri().toString();
+        Optional<SentAttachmentHistory.Sent> previous = history.previous(sessionId, uri);
+        if (previous.isEmpty()) {
+            return Optional.empty();
+        }
+        StringBuilder text = header(attachment);
+        if (previous.get().version().equals(attachment.version())) {
+            return Optional.of(text.append(" is unchanged since it was sent earlier in this session.").toString());
+        }
+        Optional<String> diff = UnifiedDiff.of(attachment.metadata().name(), previous.get().text(), attachment.text(),
+                        DIFF_CONTEXT_LINES, MAX_DIFF_EDITS)
+                .filter(candidate -> 2L * TextChunker.approximateTokens(candidate) <= attachment.tokens());
+        if (diff.isEmpty()) {
+            return Optional.empty();
+        }
+        log.debug("Sending a diff of attachment {} for session {}", uri, sessionId);
+        sent.add(attachment);
+        return Optional.of(text.append(" changed since it was sent earlier in this session, unified diff against that version:\n")
+                .append(diff.get()).toString());
+    }
+
+    private Optional<SourceOutline> outlineExtractor(ResourceLinkContent metadata, int textTokens) {
+        AttachmentMode mode = AttachmentMode.of(metadata, defaultMode);
+        if (mode == AttachmentMode.FULL || (mode == AttachmentMode.AUTO && textTokens <= outlineAboveTokens)) {
+            return Optional.empty();
+        }
+        return SourceOutline.forFile(metadata.uri().getPath() != null ? metadata.uri().getPath() : metadata.name());
+    }
+
+    private String outline(TextDecoder.DecodedText decoded, SourceOutline extractor) throws IOException {
+        if (cache == null) {
+            return extractor.extract(decoded.text());
+        }
+        byte[] outline = cache.computeIfAbsent(decoded.contentHash(), OUTLINE_KIND,
+                () -> extractor.extract(decoded.text()).getBytes(StandardCharsets.UTF_8));
+        return new String(outline, StandardCharsets.UTF_8);
+    }
+
+    private List<TextChunker.Chunk> chunks(String contentHash, String text, boolean outline) throws IOException {
+        if (cache == null) {
+            return chunker.split(text);
+        }
+        List<TextChunker.Chunk> split = new ArrayList<>();
+        String kind = outline ? chunksKind + ":" + OUTLINE_KIND : chunksKind;
+        byte[] boundaries = cache.computeIfAbsent(contentHash, kind, () -> {
+            split.addAll(chunker.split(text));
+            return TextChunker.encodeBoundaries(split);
+        });
+        return split.isEmpty() ? TextChunker.decodeBoundaries(boundaries, text) : split;
+    }
+
+    /**
+     * Counts the tokens of a text once, as its chunks overlap and the sum of their counts is larger.
+     */
+    private int tokens(String contentHash, String text, boolean outline) throws IOException {
+        if (cache == null) {
+            return tokenCounter.applyAsInt(text);
+        }
+        String kind = outline ? countKind + ":" + OUTLINE_KIND : countKind;
+        byte[] count = cache.computeIfAbsent(contentHash, kind,
+                () -> ByteBuffer.allocate(4).putInt(tokenCounter.applyAsInt(text)).array());
+        return ByteBuffer.wrap(count).getInt();
+    }
+
+    /**
+     * Shares the token budget so that attachments smaller than an even share are kept whole and
+     * the rest is split evenly between the larger ones.
+     */
+    private static Map<Attachment, Integer> shareBudget(List<Attachment> attachments, long tokenBudget) {
+        List<Attachment> bySize = attachments.stream()
+                .sorted(Comparator.comparingLong(Attachment::tokens))
+                .toList();
+        Map<Attachment, Integer> budgets = new IdentityHashMap<>();
+        long remaining = tokenBudget;
+        for (int i = 0; i < bySize.size(); i++) {
+            Attachment attachment = bySize.get(i);
+            long share = remaining / (bySize.size() - i);
+            long budget = Math.min(attachment.tokens(), share);
+            budgets.put(attachment, (int) budget);
+            remaining -= budget;
+        }
+        return budgets;
+    }
+
+    private static String excerpt(Attachment attachment, String prompt, int budget) {
+        StringBuilder text = header(attachment);
+        if (attachment.tokens() <= budget) {
+            return text.append(":\n").append(attachment.text()).toString();
+        }
+        List<TextChunker.Chunk> selected = TextChunker.select(attachment.chunks(), prompt, budget);
+        int totalLines = TextChunker.lineCount(attachment.text());
+        ResourceLinkContent metadata = attachment.metadata();
+        if (selected.size() == attachment.chunks().size()) {
+            return text.append(":\n").append(attachment.text()).toString();
+        }
+        log.debug("Sending {} of {} chunks of attachment {}", selected.size(), attachment.chunks().size(), metadata.uri());
+        return text.append(", excerpts of ").append(totalLines).append(" lines, read the file for the omitted lines:\n")
+                .append(TextChunker.excerpt(selected, totalLines))
+                .toString();
+    }
+
+    private static StringBuilder header(Attachment attachment) {
+        ResourceLinkContent metadata = attachment.metadata();
+        StringBuilder text = new StringBuilder("Attachment ")
+                .append(metadata.name()).append(" (").append(metadata.uri()).append(")");
+        if (attachment.outline()) {
+            text.append(", outline with method bodies elided");
+        }
+        if (attachment.truncated()) {
+            text.append(", first part of the file only");
+        }
+        return text;
+    }
+
+    private static boolean isCandidate(String mimeType) {
+        return mimeType == null || mimeType.isBlank() || EmbeddedContents.isText(mimeType);
+    }
+}
@@ -0,0 +1,199 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.service.tool.ToolExecutor;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
+import net.osgiliath.acplanggraphlangchainbridge.logging.SessionMdc;
+import net.osgiliath.acplanggraphlangchainbridge.observability.ActivePrompts;
+import net.osgiliath.acplanggraphlangchainbridge.observability.PromptObservation;
+import org.bsc.langgraph4j.action.NodeAction;
+import org.bsc.langgraph4j.prebuilt.MessagesState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Node that executes every {@link ToolExecutionRequest} of the last {@link AiMessage} concurrently.
+ *
+ * <p>Typically wired behind a conditional edge that routes to it when
+ * {@link AiMessage#hasToolExecutionRequests()} is {@code true}, then back to the model node.
+ * For each request, it:</p>
+ * <ol>
+ *   <li>Waits for one of {@code maxParallelism} permits, so at most that many tools run at once.</li>
+ *   <li>Runs the matching {@link ToolExecutor} on a virtual thread, with the session id as memory id.</li>
+ *   <li>Interrupts the tool and reports a timeout if it runs longer than its timeout.</li>
+ * </ol>
+ *
+ * <p>The resulting {@link ToolExecutionResultMessage}s are appended to the messages channel in
+ * the order of the requests, whatever the order in which the tools completed. Failures, unknown
+ * tools and timeouts become error results so the model can react to them instead of aborting
+ * the graph, and a tool returning {@code null} gets an empty result.</p>
+ *
+ * <p>Close the node with its graph to interrupt the tools still running.</p>
+ */
+public class ToolExecutorNode implements NodeAction<AcpState<ChatMessage>>, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ToolExecutorNode.class);
+
+    private final Map<String, ToolExecutor> executors;
+    private final Duration defaultTimeout;
+    private final Map<String, Duration> toolTimeouts;
+    private final int maxParallelism;
+    private final ExecutorService toolThreads = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Creates a node applying the same timeout to every tool.
+     *
+     * @param executors      the tool executors, keyed by tool name
+     * @param defaultTimeout the maximum duration of a single tool execution
+     * @param maxParallelism the maximum number of tools executing at the same time
+     */
+    public ToolExecutorNode(Map<String, ToolExecutor> executors, Duration defaultTimeout, int maxParallelism) {
+        this(executors, defaultTimeout, Map.of(), maxParallelism);
+    }
+
+    /**
+     * Creates a node with per-tool timeouts.
+     *
+     * @param executors      the tool executors, keyed by tool name
+     * @param defaultTimeout the maximum duration of a tool execution when the tool has no specific timeout
+     * @param toolTimeouts   specific timeouts, keyed by tool name
+     * @param maxParallelism the maximum number of tools executing at the same time
+     */
+    public ToolExecutorNode(Map<String, ToolExecutor> executors,
+                            Duration defaultTimeout,
+                            Map<String, Duration> toolTimeouts,
+                            int maxParallelism) {
+        if (maxParallelism < 1) {
+            throw new IllegalArgumentException("maxParallelism must be at least 1: " + maxParallelism);
+        }
+        this.executors = Map.copyOf(executors);
+        this.defaultTimeout = defaultTimeout;
+        this.toolTimeouts = Map.copyOf(toolTimeouts);
+        this.maxParallelism = maxParallelism;
+    }
+
+    /**
+     * Creates a node from LangChain4j tool specifications, as returned by a
+     * {@link dev.langchain4j.service.tool.ToolProvider}.
+     *
+     * @param tools          the tool executors, keyed by specification
+     * @param defaultTimeout the maximum duration of a single tool execution
+     * @param maxParallelism the maximum number of tools executing at the same time
+     * @return the node
+     */
+    public static ToolExecutorNode fromSpecifications(Map<ToolSpecification, ToolExecutor> tools,
+                                                      Duration defaultTimeout,
+                                                      int maxParallelism) {
+        Map<String, ToolExecutor> byName = new HashMap<>();
+        tools.forEach((specification, executor) -> byName.put(specification.name(), executor));
+        return new ToolExecutorNode(byName, defaultTimeout, maxParallelism);
+    }
+
+    /**
+     * Executes the tool requests of the last message.
+     *
+     * @param state the current state, whose last message carries the tool requests
+     * @return a map appending one {@link ToolExecutionResultMessage} per request to the messages channel,
+     * or an empty map when the last message requests no tool
+     * @throws InterruptedException if the graph thread is interrupted while waiting for the tools
+     */
+    @Override
+    public Map<String, Object> apply(AcpState<ChatMessage> state) throws InterruptedException {
+        List<ToolExecutionRequest> requests = state.lastMessage()
+                .filter(AiMessage.class::isInstance)
+                .map(AiMessage.class::cast)
+                .filter(AiMessage::hasToolExecutionRequests)
+                .map(AiMessage::toolExecutionRequests)
+                .orElse(List.of());
+        if (requests.isEmpty()) {
+            return Map.of();
+        }
+        log.debug("Executing {} tool requests for session {}", requests.size(), state.sessionId());
+
+        Semaphore permits = new Semaphore(maxParallelism);
+        String memoryId = state.sessionId();
+        PromptObservation observation = ActivePrompts.of(state.sessionId());
+        List<Future<ToolExecutionResultMessage>> pending = new ArrayList<>(requests.size());
+        for (ToolExecutionRequest request : requests) {
+            pending.add(toolThreads.submit(() -> {
+                try (var ignored = SessionMdc.put(memoryId)) {
+                    return executeBounded(request, memoryId, permits, observation);
+                }
+            }));
+        }
+        List<ToolExecutionResultMessage> results = new ArrayList<>(requests.size());
+        try {
+            for (Future<ToolExecutionResultMessage> future : pending) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            pending.forEach(future -> future.cancel(true));
+            throw e;
+        } catch (ExecutionException e) {
+            // executeBounded turns every failure into a result message
+            throw new IllegalStateException("Unexpected tool execution failure", e.getCause());
+        }
+        return Map.of(MessagesState.MESSAGES_STATE, results);
+    }
+
+    private ToolExecutionResultMessage executeBounded(ToolExecutionRequest request, Object memoryId, Semaphore permits,
+                                                      PromptObservation observation)
+            throws InterruptedException {
+        ToolExecutor executor = executors.get(request.name());
+        if (executor == null) {
+            log.warn("No executor registered for tool {}", request.name());
+            return ToolExecutionResultMessage.from(request, "Error: there is no tool called " + request.name());
+        }
+        Duration timeout = toolTimeouts.getOrDefault(request.name(), defaultTimeout);
+        permits.acquire();
+        long start = System.nanoTime();
+        boolean failed = true;
+        Future<String> execution = toolThreads.submit(() -> executor.execute(request, memoryId));
+        try {
+            String result = execution.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            failed = false;
+            return ToolExecutionResultMessage.from(request, result == null ? "" : result);
+        } catch (TimeoutException e) {
+            execution.cancel(true);
+            log.warn("Tool {} timed out after {}", request.name(), timeout);
+            return ToolExecutionResultMessage.from(request,
+                    "Error: tool " + request.name() + " timed out after " + timeout.toMillis() + " ms");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            String message = cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage();
+            log.warn("Tool {} failed: {}", request.name(), message);
+            return ToolExecutionResultMessage.from(request, "Error: " + message);
+        } catch (InterruptedException e) {
+            execution.cancel(true);
+            throw e;
+        } finally {
+            permits.release();
+            observation.toolExecuted(request.name(), System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Interrupts the tools still running and releases the tool threads.
+     */
+    @Override
+    public void close() {
+        toolThreads.shutdownNow();
+    }
+}
@@ -0,0 +1,111 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node;
+
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.TextContent;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment.TextChunker;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
+import net.osgiliath.acplanggraphlangchainbridge.workspace.index.WorkspaceIndex;
+import net.osgiliath.acplanggraphlangchainbridge.workspace.index.WorkspaceIndexRegistry;
+import org.bsc.langgraph4j.action.NodeAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Node that adds the workspace snippets most relevant to the prompt, so the model sees the code
+ * the user talks about without the client attaching it.
+ *
+ * <p>The snippets come from the {@link WorkspaceIndex} of the session working directory,
+ * searched with the text of the last user message. They are kept, best first, while they fit in
+ * {@code tokenBudget}, and appended to the {@code attachmentContents} channel as a single
+ * {@link TextContent} giving the path and lines of each snippet. Without a
+ * {@link WorkspaceIndexRegistry}, that is unless {@code acp.bridge.workspace-index.enabled} is
+ * set, the node does nothing.</p>
+ */
+@Component
+public class WorkspaceRetrievalNode<T> implements NodeAction<AcpState<T>> {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkspaceRetrievalNode.class);
+
+    private final int maxSnippets;
+    private final int tokenBudget;
+    private final WorkspaceIndexRegistry registry;
+
+    /**
+     * Creates a node.
+     *
+     * @param maxSnippets the maximum number of snippets added to a prompt
+     * @param tokenBudget the maximum number of tokens of the snippets of a prompt
+     * @param registry    the indexes of the workspaces, or {@code null} to add nothing
+     */
+    public WorkspaceRetrievalNode(int maxSnippets, int tokenBudget, WorkspaceIndexRegistry registry) {
+        this.maxSnippets = maxSnippets;
+        this.tokenBudget = tokenBudget;
+        this.registry = registry;
+    }
+
+    /**
+     * Creates a node from the application properties.
+     *
+     * @param maxSnippets the maximum number of snippets added to a prompt
+     * @param tokenBudget the maximum number of tokens of the snippets of a prompt
+     * @param registry    the indexes of the workspaces, present when the workspace index is enabled
+     */
+    @Autowired
+    public WorkspaceRetrievalNode(@Value("${acp.bridge.workspace-index.max-snippets:8}") int maxSnippets,
+                                  @Value("${acp.bridge.workspace-index.token-budget:2000}") int tokenBudget,
+                                  Optional<WorkspaceIndexRegistry> registry) {
+        this(maxSnippets, tokenBudget, registry.orElse(null));
+    }
+
+    /**
+     * Searches the workspace of the session for the prompt.
+     *
+     * @param state the current state containing the session context and the prompt
+     * @return a map appending the snippets to the {@code attachmentContents} channel, or an empty
+     * map when there is no index, no prompt, no absolute working directory or no relevant snippet
+     */
+    @Override
+    public Map<String, Object> apply(AcpState<T> state) {
+        if (registry == null) {
+            return Map.of();
+        }
+        Optional<Path> cwd = WorkspaceIndexRegistry.workspaceRoot(state.cwd());
+        String prompt = state.lastUserText();
+        if (prompt.isBlank() || cwd.isEmpty()) {
+            return Map.of();
+        }
+        WorkspaceIndex index = registry.forWorkspace(cwd.get());
+        StringBuilder text = new StringBuilder("Workspace snippets relevant to the prompt:\n");
+        int used = 0;
+        int kept = 0;
+        for (WorkspaceIndex.Snippet snippet : index.search(prompt, maxSnippets)) {
+            int tokens = TextChunker.approximateTokens(snippet.text());
+            if (used + tokens > tokenBudget) {
+                continue;
+            }
+            used += tokens;
+            kept++;
+            text.append('\n').append(index.root().relativize(snippet.path()))
+                    .append(':').append(snippet.firstLine()).append('-').append(snippet.lastLine()).append('\n')
+                    .append("```\n").append(snippet.text());
+            if (!snippet.text().endsWith("\n")) {
+                text.append('\n');
+            }
+            text.append("```\n");
+        }
+        if (kept == 0) {
+            return Map.of();
+        }
+        log.debug("Added {} workspace snippet(s), about {} tokens, for session {}", kept, used, state.sessionId());
+        List<Content> contents = List.of(TextContent.from(text.toString()));
+        return Map.of(AcpState.ATTACHMENT_CONTENTS, contents);
+    }
+}
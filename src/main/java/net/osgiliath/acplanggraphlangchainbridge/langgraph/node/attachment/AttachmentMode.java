@@ -0,0 +1,58 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment;
+
+import kotlinx.serialization.json.JsonObject;
+import kotlinx.serialization.json.JsonPrimitive;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.message.ResourceLinkContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * How much of a source file attachment is sent to the model.
+ *
+ * <p>A client chooses the mode of an attachment with the {@value #META_KEY} key of the
+ * {@code _meta} object of its resource link, for instance {@code {"attachmentMode": "outline"}};
+ * attachments without it get the configured default.</p>
+ */
+public enum AttachmentMode {
+
+    /**
+     * The whole file.
+     */
+    FULL,
+    /**
+     * The outline of the file, with its method bodies elided.
+     */
+    OUTLINE,
+    /**
+     * The outline of large files, the whole of small ones.
+     */
+    AUTO;
+
+    /**
+     * The key of the mode in the {@code _meta} object of a resource link.
+     */
+    public static final String META_KEY = "attachmentMode";
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentMode.class);
+
+    /**
+     * Reads the mode requested for an attachment.
+     *
+     * @param attachment  the attachment
+     * @param defaultMode the mode of attachments that do not request one
+     * @return the requested mode, or {@code defaultMode}
+     */
+    public static AttachmentMode of(ResourceLinkContent attachment, AttachmentMode defaultMode) {
+        if (attachment.meta() instanceof JsonObject meta
+                && meta.get(META_KEY) instanceof JsonPrimitive mode && mode.isString()) {
+            try {
+                return valueOf(mode.getContent().strip().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring unknown attachment mode {} of {}", mode.getContent(), attachment.uri());
+            }
+        }
+        return defaultMode;
+    }
+}
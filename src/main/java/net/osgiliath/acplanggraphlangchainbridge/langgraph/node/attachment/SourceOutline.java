@@ -0,0 +1,219 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts the outline of a source file written in a brace-delimited language: the package,
+ * the imports, the type declarations, the member signatures and the comments are kept, and the
+ * bodies of methods, functions, constructors, initializers and field initializers are replaced
+ * by <code>{ ... }</code>.
+ *
+ * <p>The extractor is a lexer, not a parser: it skips comments, strings, text blocks and string
+ * templates, and decides at each opening brace, from the code since the previous statement, if
+ * the brace opens a type (kept, and scanned) or anything else (elided). Code it cannot classify
+ * is kept, so the outline errs on the side of showing more.</p>
+ */
+public final class SourceOutline {
+
+    private static final String ELIDED_BODY = "{ ... }";
+
+    private static final Pattern TYPE_HEADER = Pattern.compile(
+            "(?<![:.\\w$@])(?:class|interface|enum|record|struct|union|trait|impl|namespace|mod|protocol|extension)\\s+[A-Za-z_$]"
+                    + "|(?<![:.\\w$@])(?:class|interface|enum|struct|union)\\s*$"
+                    + "|(?<![:.\\w$@])impl\\s*<"
+                    + "|(?<![:.\\w$@])object(?:\\s*$|\\s*:|\\s+[A-Za-z_$])"
+                    + "|@interface\\s");
+    private static final Pattern BLANK_LINES = Pattern.compile("\\n[ \\t]*(?:\\n[ \\t]*)+\\n");
+
+    private static final SourceOutline C_LIKE = new SourceOutline(false, false);
+    private static final SourceOutline TEMPLATED = new SourceOutline(true, false);
+    private static final SourceOutline SCRIPT = new SourceOutline(true, true);
+
+    private static final Map<String, SourceOutline> BY_EXTENSION = Map.ofEntries(
+            Map.entry("java", C_LIKE),
+            Map.entry("c", C_LIKE),
+            Map.entry("h", C_LIKE),
+            Map.entry("cc", C_LIKE),
+            Map.entry("cpp", C_LIKE),
+            Map.entry("hpp", C_LIKE),
+            Map.entry("cs", C_LIKE),
+            Map.entry("go", C_LIKE),
+            Map.entry("rs", C_LIKE),
+            Map.entry("swift", C_LIKE),
+            Map.entry("kt", TEMPLATED),
+            Map.entry("kts", TEMPLATED),
+            Map.entry("scala", TEMPLATED),
+            Map.entry("groovy", SCRIPT),
+            Map.entry("gradle", SCRIPT),
+            Map.entry("js", SCRIPT),
+            Map.entry("mjs", SCRIPT),
+            Map.entry("cjs", SCRIPT),
+            Map.entry("jsx", SCRIPT),
+            Map.entry("ts", SCRIPT),
+            Map.entry("tsx", SCRIPT));
+
+    /**
+     * Whether {@code "${...}"} in strings holds code, whose braces are not string content.
+     */
+    private final boolean stringTemplates;
+    /**
+     * Whether single quotes delimit strings, rather than character literals or lifetimes.
+     */
+    private final boolean singleQuoteStrings;
+
+    private SourceOutline(boolean stringTemplates, boolean singleQuoteStrings) {
+        this.stringTemplates = stringTemplates;
+        this.singleQuoteStrings = singleQuoteStrings;
+    }
+
+    /**
+     * Finds the extractor for a source file.
+     *
+     * @param fileName the name or path of the file
+     * @return the extractor for the language of the file, empty when the language is not supported
+     */
+    public static Optional<SourceOutline> forFile(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0 || dot < fileName.lastIndexOf('/')) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(BY_EXTENSION.get(fileName.substring(dot + 1).toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * Extracts the outline of a source.
+     *
+     * @param source the source code
+     * @return the source with its bodies elided
+     */
+    public String extract(String source) {
+        StringBuilder outline = new StringBuilder(source.length() / 2);
+        StringBuilder header = new StringBuilder();
+        int length = source.length();
+        int i = 0;
+        while (i < length) {
+            char c = source.charAt(i);
+            int end = skipCommentOrString(source, i);
+            if (end > i) {
+                outline.append(source, i, end);
+                if (c != '/') {
+                    header.append("\"\"");
+                }
+                i = end;
+            } else if (c == '{') {
+                if (TYPE_HEADER.matcher(header).find()) {
+                    outline.append(c);
+                    i++;
+                } else {
+                    outline.append(ELIDED_BODY);
+                    i = skipBlock(source, i);
+                }
+                header.setLength(0);
+            } else if (c == '}' || c == ';') {
+                outline.append(c);
+                header.setLength(0);
+                i++;
+            } else {
+                outline.append(c);
+                header.append(c);
+                i++;
+            }
+        }
+        return BLANK_LINES.matcher(outline).replaceAll("\n\n");
+    }
+
+    /**
+     * @return the index after the block opening at {@code open}, or the end of the source when
+     * the block is not closed
+     */
+    private int skipBlock(String source, int open) {
+        int depth = 0;
+        int i = open;
+        while (i < source.length()) {
+            int end = skipCommentOrString(source, i);
+            if (end > i) {
+                i = end;
+                continue;
+            }
+            char c = source.charAt(i++);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        return source.length();
+    }
+
+    /**
+     * @return the index after the comment or string starting at {@code start}, or {@code start}
+     * when none starts there
+     */
+    private int skipCommentOrString(String source, int start) {
+        char c = source.charAt(start);
+        if (c == '/' && source.startsWith("//", start)) {
+            int end = source.indexOf('\n', start);
+            return end < 0 ? source.length() : end;
+        }
+        if (c == '/' && source.startsWith("/*", start)) {
+            int end = source.indexOf("*/", start + 2);
+            return end < 0 ? source.length() : end + 2;
+        }
+        if (c == '"' && source.startsWith("\"\"\"", start)) {
+            int end = source.indexOf("\"\"\"", start + 3);
+            return end < 0 ? source.length() : end + 3;
+        }
+        if (c == '"' || c == '`' || (c == '\'' && singleQuoteStrings)) {
+            return skipQuoted(source, start, c);
+        }
+        if (c == '\'') {
+            return skipCharacterLiteral(source, start);
+        }
+        return start;
+    }
+
+    private int skipQuoted(String source, int start, char quote) {
+        int i = start + 1;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else if (stringTemplates && c == '$' && i + 1 < source.length() && source.charAt(i + 1) == '{') {
+                i = skipBlock(source, i + 1);
+            } else if (c == '\n' && quote != '`') {
+                // unterminated string: resume scanning on the next line
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return source.length();
+    }
+
+    /**
+     * Skips a character literal, {@code 'x'} or an escape sequence, and leaves a lone quote,
+     * such as a Rust lifetime, to the code.
+     */
+    private static int skipCharacterLiteral(String source, int start) {
+        int i = start + 1;
+        if (i < source.length() && source.charAt(i) == '\\') {
+            int limit = Math.min(source.length(), start + 12);
+            for (i += 2; i < limit; i++) {
+                if (source.charAt(i) == '\'') {
+                    return i + 1;
+                }
+            }
+            return start;
+        }
+        if (i < source.length() && Character.isHighSurrogate(source.charAt(i))) {
+            i++;
+        }
+        i++;
+        return i < source.length() && source.charAt(i) == '\'' ? i + 1 : start;
+    }
+}
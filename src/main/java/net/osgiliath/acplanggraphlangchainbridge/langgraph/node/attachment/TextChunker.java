@@ -0,0 +1,360 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.ToIntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into line-aligned chunks of a bounded number of tokens, and selects the chunks
+ * worth sending when the whole text does not fit in a token budget.
+ *
+ * <p>Chunks hold whole lines, at most {@code maxTokens} tokens each, and repeat the last lines
+ * of the previous chunk up to {@code overlapTokens} tokens, so a statement cut by a boundary is
+ * whole in one of them. A line longer than a chunk is cut into pieces of its own.</p>
+ *
+ * <p>Selection keeps the head and the tail of the text, where headers, declarations and the
+ * latest log lines are, then the chunks containing the most words of the prompt, and returns
+ * them in text order.</p>
+ */
+public final class TextChunker {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}_]{3,}");
+
+    private final int maxTokens;
+    private final int overlapTokens;
+    private final ToIntFunction<String> tokenCounter;
+
+    /**
+     * A chunk of text.
+     *
+     * @param index     the position of the chunk in the text, from 0
+     * @param firstLine the first line of the chunk, from 1
+     * @param lastLine  the last line of the chunk, inclusive
+     * @param tokens    the number of tokens of the chunk
+     * @param text      the text of the chunk
+     */
+    public record Chunk(int index, int firstLine, int lastLine, int tokens, String text) {
+    }
+
+    /**
+     * Creates a chunker.
+     *
+     * @param maxTokens     the maximum number of tokens of a chunk
+     * @param overlapTokens the maximum number of tokens a chunk repeats from the previous one
+     * @param tokenCounter  counts the tokens of a text
+     */
+    public TextChunker(int maxTokens, int overlapTokens, ToIntFunction<String> tokenCounter) {
+        if (maxTokens < 1 || overlapTokens < 0 || overlapTokens >= maxTokens) {
+            throw new IllegalArgumentException("Invalid chunk sizes: " + maxTokens + " tokens, " + overlapTokens + " overlapping");
+        }
+        this.maxTokens = maxTokens;
+        this.overlapTokens = overlapTokens;
+        this.tokenCounter = tokenCounter;
+    }
+
+    /**
+     * Estimates tokens at four characters each, the usual ratio of English text and code.
+     *
+     * @param text a text
+     * @return its approximate number of tokens
+     */
+    public static int approximateTokens(String text) {
+        return (text.length() + 3) / 4;
+    }
+
+    /**
+     * Splits a text.
+     *
+     * @param text the text
+     * @return its chunks, in order
+     */
+    public List<Chunk> split(String text) {
+        int[] lineStarts = lineStarts(text);
+        int lineCount = lineStarts.length - 1;
+        int[] lineTokens = new int[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            lineTokens[i] = Math.max(1, tokenCounter.applyAsInt(text.substring(lineStarts[i], lineStarts[i + 1])));
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < lineCount) {
+            int end = start;
+            int tokens = 0;
+            while (end < lineCount && (end == start || tokens + lineTokens[end] <= maxTokens)) {
+                tokens += lineTokens[end];
+                end++;
+            }
+            if (end == start + 1 && tokens > maxTokens) {
+                cut(text, lineStarts[start], lineStarts[end], start + 1, tokens, chunks);
+            } else {
+                chunks.add(new Chunk(chunks.size(), start + 1, end, tokens,
+                        text.substring(lineStarts[start], lineStarts[end])));
+            }
+            if (end >= lineCount) {
+                break;
+            }
+            // repeat the last lines, as long as the next chunk still has room for a new line
+            int next = end;
+            int overlap = 0;
+            while (next - 1 > start && overlap + lineTokens[next - 1] <= overlapTokens
+                    && overlap + lineTokens[next - 1] + lineTokens[end] <= maxTokens) {
+                overlap += lineTokens[next - 1];
+                next--;
+            }
+            start = next;
+        }
+        return chunks;
+    }
+
+    /**
+     * Selects the chunks to send within a token budget: the first and last chunks, then the
+     * chunks most relevant to the prompt, while they fit.
+     *
+     * @param chunks      the chunks of a text
+     * @param prompt      the prompt, whose words rank the chunks
+     * @param tokenBudget the maximum number of tokens of the selected chunks
+     * @return the selected chunks, in text order
+     */
+    public static List<Chunk> select(List<Chunk> chunks, String prompt, int tokenBudget) {
+        if (chunks.stream().mapToLong(Chunk::tokens).sum() <= tokenBudget) {
+            return chunks;
+        }
+        Set<String> promptWords = words(prompt);
+        List<Chunk> candidates = new ArrayList<>();
+        candidates.add(chunks.getFirst());
+        if (chunks.size() > 1) {
+            candidates.add(chunks.getLast());
+        }
+        chunks.subList(1, Math.max(1, chunks.size() - 1)).stream()
+                .sorted(Comparator.comparingInt((Chunk chunk) -> -relevance(chunk, promptWords))
+                        .thenComparingInt(Chunk::index))
+                .forEach(candidates::add);
+
+        TreeSet<Chunk> selected = new TreeSet<>(Comparator.comparingInt(Chunk::index));
+        int used = 0;
+        for (Chunk chunk : candidates) {
+            if (used + chunk.tokens() <= tokenBudget) {
+                selected.add(chunk);
+                used += chunk.tokens();
+            }
+        }
+        return List.copyOf(selected);
+    }
+
+    /**
+     * Joins selected chunks into an excerpt, dropping the lines repeated by overlapping chunks
+     * and marking the lines left out.
+     *
+     * @param selected   chunks of a text, in text order
+     * @param totalLines the number of lines of the text
+     * @return the excerpt
+     */
+    public static String excerpt(List<Chunk> selected, int totalLines) {
+        StringBuilder excerpt = new StringBuilder();
+        Chunk previous = null;
+        for (Chunk chunk : selected) {
+            int previousLine = previous == null ? 0 : previous.lastLine();
+            boolean samePiecedLine = previous != null && chunk.firstLine() == chunk.lastLine()
+                    && chunk.firstLine() == previousLine;
+            if (samePiecedLine) {
+                if (chunk.index() != previous.index() + 1) {
+                    omitted(excerpt, "part of line " + previousLine);
+                }
+                excerpt.append(chunk.text());
+            } else {
+                if (chunk.firstLine() > previousLine + 1) {
+                    omitted(excerpt, lines(previousLine + 1, chunk.firstLine() - 1));
+                }
+                excerpt.append(chunk.text(), offsetOfLine(chunk.text(), previousLine - chunk.firstLine() + 1),
+                        chunk.text().length());
+            }
+            previous = chunk;
+        }
+        int lastLine = previous == null ? 0 : previous.lastLine();
+        if (lastLine < totalLines) {
+            omitted(excerpt, lines(lastLine + 1, totalLines));
+        }
+        return excerpt.toString();
+    }
+
+    /**
+     * Counts the lines of a text, a last line without terminator included.
+     *
+     * @param text a text
+     * @return its number of lines
+     */
+    public static int lineCount(String text) {
+        return lineStarts(text).length - 1;
+    }
+
+    /**
+     * Encodes the boundaries of chunks, without their text, for the derived artifact cache.
+     *
+     * @param chunks the chunks
+     * @return the encoded boundaries
+     */
+    public static byte[] encodeBoundaries(List<Chunk> chunks) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 + 16 * chunks.size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(chunks.size());
+            for (Chunk chunk : chunks) {
+                out.writeInt(chunk.firstLine());
+                out.writeInt(chunk.lastLine());
+                out.writeInt(chunk.text().length());
+                out.writeInt(chunk.tokens());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Rebuilds chunks from their encoded boundaries and the text they were split from.
+     *
+     * @param boundaries the encoded boundaries
+     * @param text       the text
+     * @return the chunks
+     */
+    public static List<Chunk> decodeBoundaries(byte[] boundaries, String text) {
+        int[] lineStarts = lineStarts(text);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(boundaries))) {
+            int count = in.readInt();
+            List<Chunk> chunks = new ArrayList<>(count);
+            int previousLine = 0;
+            int previousEnd = 0;
+            for (int i = 0; i < count; i++) {
+                int firstLine = in.readInt();
+                int lastLine = in.readInt();
+                int length = in.readInt();
+                int tokens = in.readInt();
+                // only the pieces of a cut line start on the line the previous chunk ended on
+                boolean piece = firstLine == lastLine && firstLine == previousLine;
+                int start = piece ? previousEnd : lineStarts[firstLine - 1];
+                chunks.add(new Chunk(i, firstLine, lastLine, tokens, text.substring(start, start + length)));
+                previousLine = lastLine;
+                previousEnd = start + length;
+            }
+            return chunks;
+        } catch (IOException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Chunk boundaries do not match the text", e);
+        }
+    }
+
+    /**
+     * Finds where chunks start in the text they were split from.
+     *
+     * @param chunks the chunks of a text, in text order
+     * @param text   the text
+     * @return the offset of the first character of each chunk
+     */
+    public static int[] offsets(List<Chunk> chunks, String text) {
+        int[] lineStarts = lineStarts(text);
+        int[] offsets = new int[chunks.size()];
+        int previousLine = 0;
+        int previousEnd = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            Chunk chunk = chunks.get(i);
+            // only the pieces of a cut line start on the line the previous chunk ended on
+            boolean piece = chunk.firstLine() == chunk.lastLine() && chunk.firstLine() == previousLine;
+            offsets[i] = piece ? previousEnd : lineStarts[chunk.firstLine() - 1];
+            previousLine = chunk.lastLine();
+            previousEnd = offsets[i] + chunk.text().length();
+        }
+        return offsets;
+    }
+
+    private void cut(String text, int start, int end, int line, int lineTokens, List<Chunk> chunks) {
+        int pieceLength = Math.max(1, (int) ((long) (end - start) * maxTokens / lineTokens));
+        for (int offset = start; offset < end; offset += pieceLength) {
+            String piece = text.substring(offset, Math.min(end, offset + pieceLength));
+            chunks.add(new Chunk(chunks.size(), line, line, Math.max(1, tokenCounter.applyAsInt(piece)), piece));
+        }
+    }
+
+    private static void omitted(StringBuilder excerpt, String what) {
+        if (!excerpt.isEmpty() && excerpt.charAt(excerpt.length() - 1) != '\n') {
+            excerpt.append('\n');
+        }
+        excerpt.append("[... ").append(what).append(" omitted ...]\n");
+    }
+
+    private static String lines(int first, int last) {
+        return first == last ? "line " + first : "lines " + first + "-" + last;
+    }
+
+    private static int offsetOfLine(String text, int line) {
+        int offset = 0;
+        for (int i = 0; i < line && offset < text.length(); i++) {
+            int newline = text.indexOf('\n', offset);
+            offset = newline < 0 ? text.length() : newline + 1;
+        }
+        return offset;
+    }
+
+    /**
+     * @return the offsets at which the lines of the text start, followed by the length of the text
+     */
+    private static int[] lineStarts(String text) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n' && i + 1 < text.length()) {
+                starts.add(i + 1);
+            }
+        }
+        if (text.isEmpty()) {
+            return new int[]{0};
+        }
+        int[] result = new int[starts.size() + 1];
+        for (int i = 0; i < starts.size(); i++) {
+            result[i] = starts.get(i);
+        }
+        result[starts.size()] = text.length();
+        return result;
+    }
+
+    /**
+     * Scores a chunk by the number of distinct prompt words it contains, so a rare word of the
+     * prompt weighs as much as a common one however often the latter repeats.
+     */
+    private static int relevance(Chunk chunk, Set<String> promptWords) {
+        if (promptWords.isEmpty()) {
+            return 0;
+        }
+        Set<String> found = new HashSet<>();
+        Matcher matcher = WORD.matcher(chunk.text());
+        while (matcher.find() && found.size() < promptWords.size()) {
+            String word = matcher.group().toLowerCase(Locale.ROOT);
+            if (promptWords.contains(word)) {
+                found.add(word);
+            }
+        }
+        return found.size();
+    }
+
+    private static Set<String> words(String text) {
+        Set<String> words = new HashSet<>();
+        if (text != null) {
+            Matcher matcher = WORD.matcher(text);
+            while (matcher.find()) {
+                words.add(matcher.group().toLowerCase(Locale.ROOT));
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,242 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Decodes text attachments in a single streaming pass, detecting their charset on the way.
+ *
+ * <p>A byte order mark selects UTF-8 or UTF-16. Otherwise the bytes are decoded as UTF-8 and,
+ * at the first malformed sequence, decoding goes on from that point as windows-1252 (the usual
+ * charset of legacy Western files, ISO-8859-1 when the JVM lacks it): the bytes already decoded
+ * were valid UTF-8, which is plain ASCII in practice. A NUL byte in the first block marks the
+ * file as binary and stops decoding.</p>
+ *
+ * <p>The SHA-256 of the bytes is computed in the same pass, so the decoded text can be looked
+ * up in caches keyed by content without reading the file again. Decoding can stop after a
+ * maximum number of bytes: the text, the hash and the size then only cover those bytes, a
+ * multi-byte character cut at the limit is dropped, and the result is marked truncated.</p>
+ */
+public final class TextDecoder {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final Charset LEGACY = legacyCharset();
+
+    /**
+     * A decoded text attachment.
+     *
+     * @param text        the decoded text, empty for binary content
+     * @param charset     the detected charset
+     * @param contentHash the hex encoded SHA-256 of the bytes
+     * @param sizeBytes   the number of bytes
+     * @param binary      whether the content looks binary, in which case it was not decoded
+     * @param truncated   whether decoding stopped at the maximum number of bytes before the end
+     */
+    public record DecodedText(String text, Charset charset, String contentHash, long sizeBytes, boolean binary,
+                              boolean truncated) {
+    }
+
+    private TextDecoder() {
+    }
+
+    /**
+     * Decodes a file.
+     *
+     * @param path the file
+     * @return the decoded text
+     * @throws IOException if the file cannot be read
+     */
+    public static DecodedText decode(Path path) throws IOException {
+        return decode(path, Long.MAX_VALUE);
+    }
+
+    /**
+     * Decodes the first bytes of a file.
+     *
+     * @param path     the file
+     * @param maxBytes the maximum number of bytes to decode
+     * @return the decoded text, truncated when the file is larger than {@code maxBytes}
+     * @throws IOException if the file cannot be read
+     */
+    public static DecodedText decode(Path path, long maxBytes) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return decode(in, maxBytes);
+        }
+    }
+
+    /**
+     * Decodes a stream until its end, without closing it.
+     *
+     * @param input the bytes to decode
+     * @return the decoded text
+     * @throws IOException if the stream cannot be read
+     */
+    public static DecodedText decode(InputStream input) throws IOException {
+        return decode(input, Long.MAX_VALUE);
+    }
+
+    /**
+     * Decodes the first bytes of a stream, without closing it.
+     *
+     * @param input    the bytes to decode
+     * @param maxBytes the maximum number of bytes to decode
+     * @return the decoded text, truncated when the stream holds more than {@code maxBytes} bytes
+     * @throws IOException if the stream cannot be read
+     */
+    public static DecodedText decode(InputStream input, long maxBytes) throws IOException {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be at least 1: " + maxBytes);
+        }
+        MessageDigest digest = sha256();
+        DigestInputStream in = new DigestInputStream(input, digest);
+        ByteBuffer bytes = ByteBuffer.allocate(BLOCK_SIZE);
+        CharBuffer chars = CharBuffer.allocate(BLOCK_SIZE);
+        StringBuilder text = new StringBuilder();
+
+        int requested = (int) Math.min(bytes.remaining(), maxBytes);
+        int read = fill(in, bytes, requested);
+        long size = read;
+        boolean endOfInput = read < requested;
+        boolean truncated = !endOfInput && size == maxBytes && hasMore(in);
+        endOfInput |= size == maxBytes && !truncated;
+        bytes.flip();
+        if (looksBinary(bytes)) {
+            while (!endOfInput && !truncated) {
+                bytes.clear();
+                requested = (int) Math.min(bytes.remaining(), maxBytes - size);
+                read = fill(in, bytes, requested);
+                size += read;
+                endOfInput = read < requested;
+                truncated = !endOfInput && size == maxBytes && hasMore(in);
+            }
+            return new DecodedText("", StandardCharsets.ISO_8859_1, hex(digest), size, true, truncated);
+        }
+        Charset charset = skipByteOrderMark(bytes);
+        CharsetDecoder decoder = decoder(charset, charset != StandardCharsets.UTF_8);
+
+        while (true) {
+            CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            if (result.isError()) {
+                // not UTF-8 after all: decode the rest, from the malformed bytes on, as a legacy charset
+                charset = LEGACY;
+                decoder = decoder(LEGACY, true);
+            } else if (result.isOverflow()) {
+                drain(chars, text);
+            } else if (endOfInput || truncated) {
+                break;
+            } else {
+                bytes.compact();
+                requested = (int) Math.min(bytes.remaining(), maxBytes - size);
+                read = fill(in, bytes, requested);
+                size += read;
+                endOfInput = read < requested;
+                truncated = !endOfInput && size == maxBytes && hasMore(in);
+                endOfInput |= size == maxBytes && !truncated;
+                bytes.flip();
+            }
+        }
+        if (truncated) {
+            // drop the incomplete character cut at the limit
+            bytes.position(bytes.limit());
+            decoder.decode(bytes, chars, true);
+        }
+        decoder.flush(chars);
+        drain(chars, text);
+        return new DecodedText(text.toString(), charset, hex(digest), size, false, truncated);
+    }
+
+    private static int fill(InputStream in, ByteBuffer bytes, int requested) throws IOException {
+        int total = 0;
+        while (total < requested) {
+            int read = in.read(bytes.array(), bytes.arrayOffset() + bytes.position(), requested - total);
+            if (read < 0) {
+                break;
+            }
+            bytes.position(bytes.position() + read);
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Tells whether a stream holds more bytes, without adding the byte read to the digest.
+     */
+    private static boolean hasMore(DigestInputStream in) throws IOException {
+        in.on(false);
+        try {
+            return in.read() >= 0;
+        } finally {
+            in.on(true);
+        }
+    }
+
+    private static void drain(CharBuffer chars, StringBuilder text) {
+        chars.flip();
+        text.append(chars);
+        chars.clear();
+    }
+
+    private static boolean looksBinary(ByteBuffer bytes) {
+        if (bytes.remaining() >= 2 && ((bytes.get(0) == (byte) 0xFE && bytes.get(1) == (byte) 0xFF)
+                || (bytes.get(0) == (byte) 0xFF && bytes.get(1) == (byte) 0xFE))) {
+            return false;
+        }
+        for (int i = bytes.position(); i < bytes.limit(); i++) {
+            if (bytes.get(i) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Charset skipByteOrderMark(ByteBuffer bytes) {
+        if (bytes.remaining() >= 3 && bytes.get(0) == (byte) 0xEF && bytes.get(1) == (byte) 0xBB
+                && bytes.get(2) == (byte) 0xBF) {
+            bytes.position(3);
+            return StandardCharsets.UTF_8;
+        }
+        if (bytes.remaining() >= 2 && bytes.get(0) == (byte) 0xFE && bytes.get(1) == (byte) 0xFF) {
+            bytes.position(2);
+            return StandardCharsets.UTF_16BE;
+        }
+        if (bytes.remaining() >= 2 && bytes.get(0) == (byte) 0xFF && bytes.get(1) == (byte) 0xFE) {
+            bytes.position(2);
+            return StandardCharsets.UTF_16LE;
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static CharsetDecoder decoder(Charset charset, boolean lenient) {
+        CodingErrorAction action = lenient ? CodingErrorAction.REPLACE : CodingErrorAction.REPORT;
+        return charset.newDecoder().onMalformedInput(action).onUnmappableCharacter(action);
+    }
+
+    private static Charset legacyCharset() {
+        return Charset.isSupported("windows-1252") ? Charset.forName("windows-1252") : StandardCharsets.ISO_8859_1;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,198 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Computes the line diff of two versions of a text in the unified format of {@code diff -u}.
+ *
+ * <p>Lines shared at the start and at the end of both versions are skipped first, then the
+ * shortest edit script of the rest is found with Myers' algorithm. The search stops after a
+ * number of edits, as a diff that large is no cheaper to send than the text.</p>
+ */
+public final class UnifiedDiff {
+
+    private enum Operation {
+        EQUAL, DELETE, INSERT
+    }
+
+    /**
+     * An edit of the script, with the indexes of its line in the old and the new version.
+     */
+    private record Edit(Operation operation, int oldIndex, int newIndex) {
+    }
+
+    private UnifiedDiff() {
+    }
+
+    /**
+     * Diffs two versions of a text.
+     *
+     * @param name     the name of the file, for the {@code ---} and {@code +++} lines
+     * @param before   the old version
+     * @param after    the new version
+     * @param context  the number of unchanged lines shown around each change
+     * @param maxEdits the maximum number of deleted and inserted lines
+     * @return the unified diff, empty when the versions differ by more than {@code maxEdits}
+     * lines; a diff without hunk when they have the same lines
+     */
+    public static Optional<String> of(String name, String before, String after, int context, int maxEdits) {
+        List<String> oldLines = lines(before);
+        List<String> newLines = lines(after);
+        int prefix = 0;
+        while (prefix < oldLines.size() && prefix < newLines.size()
+                && oldLines.get(prefix).equals(newLines.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldLines.size() - prefix && suffix < newLines.size() - prefix
+                && oldLines.get(oldLines.size() - 1 - suffix).equals(newLines.get(newLines.size() - 1 - suffix))) {
+            suffix++;
+        }
+        Optional<List<Edit>> middle = shortestEdits(oldLines.subList(prefix, oldLines.size() - suffix),
+                newLines.subList(prefix, newLines.size() - suffix), prefix, maxEdits);
+        if (middle.isEmpty()) {
+            return Optional.empty();
+        }
+        List<Edit> edits = new ArrayList<>(oldLines.size() + newLines.size());
+        for (int i = 0; i < prefix; i++) {
+            edits.add(new Edit(Operation.EQUAL, i, i));
+        }
+        edits.addAll(middle.get());
+        for (int i = suffix; i > 0; i--) {
+            edits.add(new Edit(Operation.EQUAL, oldLines.size() - i, newLines.size() - i));
+        }
+        return Optional.of(format(name, oldLines, newLines, edits, context));
+    }
+
+    /**
+     * Finds the shortest edit script turning {@code a} into {@code b} by Myers' greedy
+     * algorithm, keeping the furthest reaching paths of each step to trace the script back.
+     *
+     * @param offset the index of the first line of {@code a} and {@code b} in their texts
+     */
+    private static Optional<List<Edit>> shortestEdits(List<String> a, List<String> b, int offset, int maxEdits) {
+        int n = a.size();
+        int m = b.size();
+        int max = Math.min(n + m, maxEdits);
+        int origin = max + 1;
+        int[] furthest = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<>();
+        for (int d = 0; d <= max; d++) {
+            trace.add(furthest.clone());
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && furthest[origin + k - 1] < furthest[origin + k + 1])
+                        ? furthest[origin + k + 1]
+                        : furthest[origin + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a.get(x).equals(b.get(y))) {
+                    x++;
+                    y++;
+                }
+                furthest[origin + k] = x;
+                if (x >= n && y >= m) {
+                    return Optional.of(backtrack(trace, origin, n, m, offset));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static List<Edit> backtrack(List<int[]> trace, int origin, int n, int m, int offset) {
+        List<Edit> edits = new ArrayList<>();
+        int x = n;
+        int y = m;
+        for (int d = trace.size() - 1; d >= 0; d--) {
+            int[] furthest = trace.get(d);
+            int k = x - y;
+            int previousK = k == -d || (k != d && furthest[origin + k - 1] < furthest[origin + k + 1]) ? k + 1 : k - 1;
+            int previousX = d == 0 ? 0 : furthest[origin + previousK];
+            int previousY = d == 0 ? 0 : previousX - previousK;
+            while (x > previousX && y > previousY) {
+                x--;
+                y--;
+                edits.add(new Edit(Operation.EQUAL, offset + x, offset + y));
+            }
+            if (d > 0) {
+                if (x == previousX) {
+                    edits.add(new Edit(Operation.INSERT, offset + x, offset + y - 1));
+                } else {
+                    edits.add(new Edit(Operation.DELETE, offset + x - 1, offset + y));
+                }
+                x = previousX;
+                y = previousY;
+            }
+        }
+        Collections.reverse(edits);
+        return edits;
+    }
+
+    /**
+     * Groups the edits into hunks of changes with their context, merging the hunks whose
+     * contexts touch.
+     */
+    private static String format(String name, List<String> oldLines, List<String> newLines, List<Edit> edits,
+                                 int context) {
+        StringBuilder diff = new StringBuilder("--- a/").append(name).append("\n+++ b/").append(name).append('\n');
+        int i = 0;
+        while (i < edits.size()) {
+            if (edits.get(i).operation() == Operation.EQUAL) {
+                i++;
+                continue;
+            }
+            int start = Math.max(0, i - context);
+            int end = i;
+            int equalRun = 0;
+            for (int j = i; j < edits.size() && equalRun <= 2 * context; j++) {
+                if (edits.get(j).operation() == Operation.EQUAL) {
+                    equalRun++;
+                } else {
+                    equalRun = 0;
+                    end = j;
+                }
+            }
+            end = Math.min(edits.size() - 1, end + context);
+            appendHunk(diff, oldLines, newLines, edits.subList(start, end + 1));
+            i = end + 1;
+        }
+        return diff.toString();
+    }
+
+    private static void appendHunk(StringBuilder diff, List<String> oldLines, List<String> newLines, List<Edit> hunk) {
+        int oldCount = 0;
+        int newCount = 0;
+        for (Edit edit : hunk) {
+            oldCount += edit.operation() != Operation.INSERT ? 1 : 0;
+            newCount += edit.operation() != Operation.DELETE ? 1 : 0;
+        }
+        Edit first = hunk.getFirst();
+        diff.append("@@ -").append(range(first.oldIndex(), oldCount))
+                .append(" +").append(range(first.newIndex(), newCount)).append(" @@\n");
+        for (Edit edit : hunk) {
+            switch (edit.operation()) {
+                case EQUAL -> diff.append(' ').append(oldLines.get(edit.oldIndex()));
+                case DELETE -> diff.append('-').append(oldLines.get(edit.oldIndex()));
+                case INSERT -> diff.append('+').append(newLines.get(edit.newIndex()));
+            }
+            diff.append('\n');
+        }
+    }
+
+    /**
+     * Formats a hunk range as {@code diff -u} does: the first line from 1, or the line before
+     * an empty range, and the count unless it is 1.
+     */
+    private static String range(int index, int count) {
+        return count == 1 ? String.valueOf(index + 1) : (count == 0 ? index : index + 1) + "," + count;
+    }
+
+    private static List<String> lines(String text) {
+        List<String> lines = new ArrayList<>(List.of(text.split("\n", -1)));
+        if (lines.getLast().isEmpty()) {
+            lines.removeLast();
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,90 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.replay;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import net.osgiliath.acplanggraphlangchainbridge.logging.SessionMdc;
+import org.slf4j.MDC;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link StreamingChatModel} decorator recording every stream of the wrapped model, so a real
+ * model node records without changing its code.
+ *
+ * <p>Each call wraps the handler of the caller, typically the handler of the node's
+ * {@link org.bsc.langgraph4j.langchain4j.generators.StreamingChatGenerator}, in a
+ * {@link RecordingStreamingChatResponseHandler} writing to
+ * {@code <directory>/<session>-<start>-<sequence>.acpr}, the session being the one in the
+ * logging context of the calling thread, {@code model} without one.</p>
+ */
+public class RecordingStreamingChatModel implements StreamingChatModel {
+
+    private final StreamingChatModel delegate;
+    private final Path directory;
+    private final long startMillis = System.currentTimeMillis();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Creates a recording model.
+     *
+     * @param delegate  the model answering the requests
+     * @param directory the directory receiving the recordings
+     */
+    public RecordingStreamingChatModel(StreamingChatModel delegate, Path directory) {
+        this.delegate = delegate;
+        this.directory = directory;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        delegate.chat(chatRequest, RecordingStreamingChatResponseHandler.toFile(handler, nextFile()));
+    }
+
+    @Override
+    public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        delegate.doChat(chatRequest, RecordingStreamingChatResponseHandler.toFile(handler, nextFile()));
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        return delegate.listeners();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    /**
+     * @return the wrapped model
+     */
+    public StreamingChatModel delegate() {
+        return delegate;
+    }
+
+    private Path nextFile() {
+        String sessionId = MDC.get(SessionMdc.KEY);
+        String prefix = sessionId == null || sessionId.isBlank()
+                ? "model"
+                : sessionId.replaceAll("[^A-Za-z0-9_.-]", "_");
+        return directory.resolve(prefix + "-" + startMillis + "-" + sequence.incrementAndGet() + ".acpr");
+    }
+}
@@ -0,0 +1,146 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.replay;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.CompleteToolCall;
+import dev.langchain4j.model.chat.response.PartialThinking;
+import dev.langchain4j.model.chat.response.PartialToolCall;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.FinishReason;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * {@link StreamingChatResponseHandler} decorator that captures a model stream while
+ * forwarding every callback to the wrapped handler unchanged.
+ *
+ * <p>Wrap the handler of the real model node's
+ * {@link org.bsc.langgraph4j.langchain4j.generators.StreamingChatGenerator} to record it:</p>
+ * <pre>{@code
+ * var handler = RecordingStreamingChatResponseHandler.toFile(generator.handler(), Path.of("recordings/answer.acpr"));
+ * streamingChatModel.chat(request, handler);
+ * }</pre>
+ * <p>or set {@code acp.bridge.stream-recording.enabled=true} to have every
+ * {@link RecordingStreamingChatModel streaming model} bean record its streams.</p>
+ *
+ * <p>Create the decorator right before the request is sent: the delay of the first chunk
+ * is measured from construction time. The recording, final response included, is handed
+ * to the sink once the stream completes or fails; thinking and tool call events are
+ * forwarded but not recorded.</p>
+ */
+public class RecordingStreamingChatResponseHandler implements StreamingChatResponseHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(RecordingStreamingChatResponseHandler.class);
+
+    private final StreamingChatResponseHandler delegate;
+    private final Consumer<StreamRecording> sink;
+    private final List<StreamRecording.Chunk> chunks = new ArrayList<>();
+    private long lastEventNanos;
+
+    /**
+     * Creates a recording handler.
+     *
+     * @param delegate the handler receiving the live stream
+     * @param sink     receives the recording when the stream ends
+     */
+    public RecordingStreamingChatResponseHandler(StreamingChatResponseHandler delegate, Consumer<StreamRecording> sink) {
+        this.delegate = delegate;
+        this.sink = sink;
+        this.lastEventNanos = System.nanoTime();
+    }
+
+    /**
+     * Creates a recording handler that writes the recording to a file.
+     *
+     * @param delegate the handler receiving the live stream
+     * @param file     the recording file, replaced when the stream ends
+     * @return the recording handler
+     */
+    public static RecordingStreamingChatResponseHandler toFile(StreamingChatResponseHandler delegate, Path file) {
+        return new RecordingStreamingChatResponseHandler(delegate, recording -> {
+            try {
+                recording.write(file);
+                log.debug("Recorded {} chunks to {}", recording.chunks().size(), file);
+            } catch (IOException e) {
+                log.warn("Failed to write stream recording {}: {}", file, e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void onPartialResponse(String partialResponse) {
+        synchronized (this) {
+            chunks.add(new StreamRecording.Chunk(sinceLastEvent(), partialResponse));
+        }
+        delegate.onPartialResponse(partialResponse);
+    }
+
+    @Override
+    public void onPartialThinking(PartialThinking partialThinking) {
+        delegate.onPartialThinking(partialThinking);
+    }
+
+    @Override
+    public void onPartialToolCall(PartialToolCall partialToolCall) {
+        delegate.onPartialToolCall(partialToolCall);
+    }
+
+    @Override
+    public void onCompleteToolCall(CompleteToolCall completeToolCall) {
+        delegate.onCompleteToolCall(completeToolCall);
+    }
+
+    @Override
+    public void onCompleteResponse(ChatResponse completeResponse) {
+        Optional<AiMessage> message = Optional.ofNullable(completeResponse).map(ChatResponse::aiMessage);
+        String text = message.map(AiMessage::text).orElse("");
+        List<StreamRecording.ToolCall> toolCalls = message
+                .filter(AiMessage::hasToolExecutionRequests)
+                .map(AiMessage::toolExecutionRequests)
+                .orElse(List.of())
+                .stream()
+                .map(request -> new StreamRecording.ToolCall(request.id(), request.name(), request.arguments()))
+                .toList();
+        String finishReason = Optional.ofNullable(completeResponse)
+                .map(ChatResponse::finishReason)
+                .map(FinishReason::name)
+                .orElse(null);
+        StreamRecording.Usage usage = Optional.ofNullable(completeResponse)
+                .map(ChatResponse::tokenUsage)
+                .map(tokens -> new StreamRecording.Usage(tokens.inputTokenCount(), tokens.outputTokenCount(),
+                        tokens.totalTokenCount()))
+                .orElse(null);
+        publish(text, toolCalls, finishReason, usage, null);
+        delegate.onCompleteResponse(completeResponse);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        publish(null, List.of(), null, null, String.valueOf(error.getMessage()));
+        delegate.onError(error);
+    }
+
+    private void publish(String responseText, List<StreamRecording.ToolCall> toolCalls, String finishReason,
+                         StreamRecording.Usage usage, String error) {
+        StreamRecording recording;
+        synchronized (this) {
+            recording = new StreamRecording(chunks, sinceLastEvent(), responseText, toolCalls, finishReason, usage,
+                    error);
+        }
+        sink.accept(recording);
+    }
+
+    private long sinceLastEvent() {
+        long now = System.nanoTime();
+        long delay = now - lastEventNanos;
+        lastEventNanos = now;
+        return delay;
+    }
+}
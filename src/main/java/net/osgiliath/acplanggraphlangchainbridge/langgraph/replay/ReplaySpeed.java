@@ -0,0 +1,40 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.replay;
+
+/**
+ * How fast a {@link StreamRecording} is replayed.
+ *
+ * @param multiplier the speed-up applied to every recorded delay: {@code 1} keeps the
+ *                   original timing, {@code 10} replays ten times faster and
+ *                   {@link Double#POSITIVE_INFINITY} emits chunks without waiting
+ */
+public record ReplaySpeed(double multiplier) {
+
+    /** Replays with the recorded inter-chunk timings. */
+    public static final ReplaySpeed ORIGINAL = new ReplaySpeed(1.0d);
+
+    /** Replays as fast as the consumer accepts chunks. */
+    public static final ReplaySpeed MAX = new ReplaySpeed(Double.POSITIVE_INFINITY);
+
+    /**
+     * Validates the multiplier.
+     *
+     * @param multiplier the speed-up applied to every recorded delay
+     */
+    public ReplaySpeed {
+        if (!(multiplier > 0.0d)) {
+            throw new IllegalArgumentException("Replay speed multiplier must be positive: " + multiplier);
+        }
+    }
+
+    /**
+     * @param multiplier the speed-up applied to every recorded delay
+     * @return a speed replaying {@code multiplier} times faster than recorded
+     */
+    public static ReplaySpeed accelerated(double multiplier) {
+        return new ReplaySpeed(multiplier);
+    }
+
+    long scale(long delayNanos) {
+        return Double.isInfinite(multiplier) ? 0L : (long) (delayNanos / multiplier);
+    }
+}
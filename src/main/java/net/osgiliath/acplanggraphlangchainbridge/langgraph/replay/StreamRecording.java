@@ -0,0 +1,237 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.replay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A captured model stream: every partial response with the time elapsed since the
+ * previous one, followed by the final response or the error that ended the stream.
+ *
+ * <p>The delay of the first chunk is measured from the start of the request, so it is
+ * the time to first token of the recorded call. The final response keeps what a graph
+ * routes on besides its text: the tool execution requests, the finish reason and the
+ * token usage.</p>
+ *
+ * <p>Recordings are stored in a compact gzipped binary file:</p>
+ * <pre>
+ * int magic "ACPR" | int version | int chunkCount
+ * chunkCount x (int delayMicros | string text)
+ * int completionDelayMicros | byte hasResponse [string responseText]
+ * int toolCallCount | toolCallCount x (optional id | string name | optional arguments)
+ * optional finishReason | byte hasUsage [int input | int output | int total]
+ * byte hasError [string error]
+ * </pre>
+ * <p>where {@code string} is an int byte length followed by UTF-8 bytes, {@code optional}
+ * a byte flag followed by a string when set, and a token count {@code -1} when unknown.
+ * Version 1 files, written before tool calls, finish reason and usage were recorded, are
+ * still read.</p>
+ *
+ * @param chunks                 the partial responses, in emission order
+ * @param completionDelayNanos   the time between the last chunk and the completion or error
+ * @param responseText           the text of the final response, or {@code null} if the stream failed
+ * @param toolCalls              the tool execution requests of the final response
+ * @param finishReason           the name of the finish reason of the final response, or {@code null}
+ * @param usage                  the token usage of the final response, or {@code null}
+ * @param error                  the message of the error that ended the stream, or {@code null}
+ */
+public record StreamRecording(List<Chunk> chunks, long completionDelayNanos, String responseText,
+                              List<ToolCall> toolCalls, String finishReason, Usage usage, String error) {
+
+    private static final int FILE_MAGIC = 0x41435052; // "ACPR"
+    private static final int FILE_VERSION = 2;
+
+    /**
+     * A single partial response.
+     *
+     * @param delayNanos the time elapsed since the previous chunk (or the request start)
+     * @param text       the partial response text
+     */
+    public record Chunk(long delayNanos, String text) {
+    }
+
+    /**
+     * A tool execution request of the final response.
+     *
+     * @param id        the id of the request, or {@code null}
+     * @param name      the name of the tool
+     * @param arguments the arguments, as the JSON text sent by the model, or {@code null}
+     */
+    public record ToolCall(String id, String name, String arguments) {
+    }
+
+    /**
+     * The token usage of the final response.
+     *
+     * @param inputTokens  the number of input tokens, or {@code null} if unknown
+     * @param outputTokens the number of output tokens, or {@code null} if unknown
+     * @param totalTokens  the total number of tokens, or {@code null} if unknown
+     */
+    public record Usage(Integer inputTokens, Integer outputTokens, Integer totalTokens) {
+    }
+
+    /**
+     * Canonical constructor making the lists immutable.
+     *
+     * @param chunks               the partial responses, in emission order
+     * @param completionDelayNanos the time between the last chunk and the completion or error
+     * @param responseText         the text of the final response, or {@code null}
+     * @param toolCalls            the tool execution requests of the final response
+     * @param finishReason         the name of the finish reason, or {@code null}
+     * @param usage                the token usage, or {@code null}
+     * @param error                the error message, or {@code null}
+     */
+    public StreamRecording {
+        chunks = List.copyOf(chunks);
+        toolCalls = toolCalls == null ? List.of() : List.copyOf(toolCalls);
+    }
+
+    /**
+     * Creates the recording of a stream ending with a plain text response, or an error.
+     *
+     * @param chunks               the partial responses, in emission order
+     * @param completionDelayNanos the time between the last chunk and the completion or error
+     * @param responseText         the text of the final response, or {@code null}
+     * @param error                the error message, or {@code null}
+     */
+    public StreamRecording(List<Chunk> chunks, long completionDelayNanos, String responseText, String error) {
+        this(chunks, completionDelayNanos, responseText, List.of(), null, null, error);
+    }
+
+    /**
+     * @return the total recorded duration of the stream, in nanoseconds
+     */
+    public long durationNanos() {
+        long total = completionDelayNanos;
+        for (Chunk chunk : chunks) {
+            total += chunk.delayNanos();
+        }
+        return total;
+    }
+
+    /**
+     * Writes this recording to a file, replacing any existing content.
+     *
+     * @param file the target file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(file))))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(chunks.size());
+            for (Chunk chunk : chunks) {
+                out.writeInt(toMicros(chunk.delayNanos()));
+                writeString(out, chunk.text());
+            }
+            out.writeInt(toMicros(completionDelayNanos));
+            writeOptionalString(out, responseText);
+            out.writeInt(toolCalls.size());
+            for (ToolCall toolCall : toolCalls) {
+                writeOptionalString(out, toolCall.id());
+                writeString(out, toolCall.name());
+                writeOptionalString(out, toolCall.arguments());
+            }
+            writeOptionalString(out, finishReason);
+            out.writeBoolean(usage != null);
+            if (usage != null) {
+                writeCount(out, usage.inputTokens());
+                writeCount(out, usage.outputTokens());
+                writeCount(out, usage.totalTokens());
+            }
+            writeOptionalString(out, error);
+        }
+    }
+
+    /**
+     * Reads a recording written by {@link #write(Path)}.
+     *
+     * @param file the recording file
+     * @return the recording
+     * @throws IOException if the file cannot be read or is not a stream recording
+     */
+    public static StreamRecording read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Not a stream recording: " + file);
+            }
+            int version = in.readInt();
+            if (version != 1 && version != FILE_VERSION) {
+                throw new IOException("Unsupported stream recording version " + version + ": " + file);
+            }
+            int count = in.readInt();
+            List<Chunk> chunks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long delayNanos = TimeUnit.MICROSECONDS.toNanos(in.readInt());
+                chunks.add(new Chunk(delayNanos, readString(in)));
+            }
+            long completionDelayNanos = TimeUnit.MICROSECONDS.toNanos(in.readInt());
+            String responseText = readOptionalString(in);
+            if (version == 1) {
+                return new StreamRecording(chunks, completionDelayNanos, responseText, readOptionalString(in));
+            }
+            int toolCallCount = in.readInt();
+            List<ToolCall> toolCalls = new ArrayList<>(toolCallCount);
+            for (int i = 0; i < toolCallCount; i++) {
+                toolCalls.add(new ToolCall(readOptionalString(in), readString(in), readOptionalString(in)));
+            }
+            String finishReason = readOptionalString(in);
+            Usage usage = in.readBoolean() ? new Usage(readCount(in), readCount(in), readCount(in)) : null;
+            String error = readOptionalString(in);
+            return new StreamRecording(chunks, completionDelayNanos, responseText, toolCalls, finishReason, usage,
+                    error);
+        }
+    }
+
+    private static int toMicros(long nanos) {
+        return (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMicros(Math.max(0L, nanos)));
+    }
+
+    private static void writeCount(DataOutputStream out, Integer count) throws IOException {
+        out.writeInt(count == null ? -1 : count);
+    }
+
+    private static Integer readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        return count < 0 ? null : count;
+    }
+
+    private static void writeOptionalString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    private static String readOptionalString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,44 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.replay;
+
+import dev.langchain4j.model.chat.StreamingChatModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * Records the streams of every {@link StreamingChatModel} bean when
+ * {@code acp.bridge.stream-recording.enabled=true}, for {@link StreamReplayer} to replay them
+ * without network access.
+ *
+ * <p>Recordings hold the prompts' answers and tool arguments verbatim: only enable it to
+ * capture the streams of a benchmark or a bug report.</p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "acp.bridge.stream-recording", name = "enabled", havingValue = "true")
+public class StreamRecordingConfiguration {
+
+    /**
+     * Creates the post-processor wrapping the streaming models in a {@link RecordingStreamingChatModel}.
+     *
+     * @param directory the directory receiving the recordings
+     * @return the post-processor
+     */
+    @Bean
+    public static BeanPostProcessor streamRecordingPostProcessor(
+            @Value("${acp.bridge.stream-recording.directory:recordings}") String directory) {
+        Path recordings = Path.of(directory);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof StreamingChatModel model && !(bean instanceof RecordingStreamingChatModel)) {
+                    return new RecordingStreamingChatModel(model, recordings);
+                }
+                return bean;
+            }
+        };
+    }
+}
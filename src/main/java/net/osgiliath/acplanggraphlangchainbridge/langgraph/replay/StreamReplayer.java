@@ -0,0 +1,146 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.replay;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+import org.bsc.langgraph4j.langchain4j.generators.StreamingChatGenerator;
+import org.bsc.langgraph4j.state.AgentState;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Replays a {@link StreamRecording} as if it came from a live streaming model.
+ *
+ * <p>Delays are scheduled against the cumulative recorded timeline rather than slept one
+ * by one, so slow consumers do not make the replay drift further behind the recording.</p>
+ *
+ * <p>A graph node can stand in for the real model node without any network access:</p>
+ * <pre>{@code
+ * var generator = StreamReplayer.generator(recording, ReplaySpeed.MAX, "agent", state,
+ *         response -> Map.of("messages", response.aiMessage()));
+ * return Map.of("_streaming_messages", generator);
+ * }</pre>
+ */
+public final class StreamReplayer {
+
+    private StreamReplayer() {
+    }
+
+    /**
+     * Replays a recording into a handler on the calling thread.
+     *
+     * <p>A recorded error is replayed as an {@link IOException} carrying the recorded message.
+     * If the calling thread is interrupted the replay stops and the handler receives the
+     * {@link InterruptedException}.</p>
+     *
+     * @param recording the recording to replay
+     * @param handler   the handler receiving the replayed stream
+     * @param speed     the replay speed
+     */
+    public static void replay(StreamRecording recording, StreamingChatResponseHandler handler, ReplaySpeed speed) {
+        long deadline = System.nanoTime();
+        try {
+            for (StreamRecording.Chunk chunk : recording.chunks()) {
+                deadline += speed.scale(chunk.delayNanos());
+                awaitDeadline(deadline);
+                handler.onPartialResponse(chunk.text());
+            }
+            deadline += speed.scale(recording.completionDelayNanos());
+            awaitDeadline(deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            handler.onError(e);
+            return;
+        }
+        if (recording.error() != null) {
+            handler.onError(new IOException(recording.error()));
+        } else {
+            handler.onCompleteResponse(response(recording));
+        }
+    }
+
+    /**
+     * Rebuilds the final response of a recording that completed.
+     *
+     * @param recording the recording
+     * @return the response, with the recorded text, tool execution requests, finish reason and usage
+     */
+    static ChatResponse response(StreamRecording recording) {
+        List<ToolExecutionRequest> requests = recording.toolCalls().stream()
+                .map(toolCall -> ToolExecutionRequest.builder()
+                        .id(toolCall.id())
+                        .name(toolCall.name())
+                        .arguments(toolCall.arguments())
+                        .build())
+                .toList();
+        String text = recording.responseText();
+        AiMessage message = AiMessage.builder()
+                // a response made of tool calls only has no text
+                .text(text != null && text.isEmpty() && !requests.isEmpty() ? null : text)
+                .toolExecutionRequests(requests)
+                .build();
+        StreamRecording.Usage usage = recording.usage();
+        return ChatResponse.builder()
+                .aiMessage(message)
+                .finishReason(finishReason(recording.finishReason()))
+                .tokenUsage(usage == null ? null
+                        : new TokenUsage(usage.inputTokens(), usage.outputTokens(), usage.totalTokens()))
+                .build();
+    }
+
+    private static FinishReason finishReason(String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return FinishReason.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return FinishReason.OTHER;
+        }
+    }
+
+    /**
+     * Creates a {@link StreamingChatGenerator} fed by a recording replayed on a virtual thread.
+     *
+     * @param recording     the recording to replay
+     * @param speed         the replay speed
+     * @param startingNode  the node the generator reports its outputs for
+     * @param startingState the state the generator starts from
+     * @param mapResult     maps the final response to the state update, as for a live generator
+     * @param <S>           the graph state type
+     * @return a generator emitting the recorded chunks
+     */
+    public static <S extends AgentState> StreamingChatGenerator<S> generator(StreamRecording recording,
+                                                                            ReplaySpeed speed,
+                                                                            String startingNode,
+                                                                            S startingState,
+                                                                            Function<ChatResponse, Map<String, Object>> mapResult) {
+        StreamingChatGenerator<S> generator = StreamingChatGenerator.<S>builder()
+                .mapResult(mapResult)
+                .startingNode(startingNode)
+                .startingState(startingState)
+                .build();
+        StreamingChatResponseHandler handler = generator.handler();
+        Thread.ofVirtual()
+                .name("acp-stream-replay")
+                .start(() -> replay(recording, handler, speed));
+        return generator;
+    }
+
+    private static void awaitDeadline(long deadline) throws InterruptedException {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0L) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Stream replay interrupted");
+            }
+        }
+    }
+}
@@ -2,6 +2,8 @@ package net.osgiliath.acplanggraphlangchainbridge.langgraph.serializer;
 
 import com.agentclientprotocol.model.Annotations;
 import dev.langchain4j.data.message.Content;
+import kotlinx.serialization.KSerializer;
+import kotlinx.serialization.json.Json;
 import kotlinx.serialization.json.JsonElement;
 import net.osgiliath.acplanggraphlangchainbridge.langgraph.message.ResourceLinkContent;
 import org.bsc.langgraph4j.langchain4j.serializer.std.ContentSerializer;
@@ -18,6 +20,8 @@ import java.util.Optional;
  * Custom ContentSerializer for ACP that handles serialization of ResourceLinkContent.
  * This serializer writes a type marker to identify ResourceLinkContent during deserialization.
  * It also handles nullable fields and ensures backward compatibility with existing Content types.
+ * The ACP annotations and {@code _meta} are Kotlin serializable types rather than Java serializable
+ * ones, so they are written as JSON with their kotlinx-serialization serializers.
  */
 public class AcpBridgeContentSerializer extends ContentSerializer {
 
@@ -43,8 +47,8 @@ public class AcpBridgeContentSerializer extends ContentSerializer {
             writeResourceLinkString(mimeType, out);
             out.writeLong(size != null ? size : -1L);
             writeResourceLinkString(title, out);
-            writeResourceLinkObject(annotations, out);
-            writeResourceLinkObject(meta, out);
+            writeResourceLinkJson(Annotations.Companion.serializer(), annotations, out);
+            writeResourceLinkJson(JsonElement.Companion.serializer(), meta, out);
             return;
         }
         super.write(object, out);
@@ -65,8 +69,8 @@ public class AcpBridgeContentSerializer extends ContentSerializer {
                 long sizeValue = in.readLong();
                 Long size = sizeValue >= 0 ? sizeValue : null;
                 String title = readResourceLinkString(in).orElse(null);
-                var annotations = readResourceLinkObject(in, Annotations.class);
-                var meta = readResourceLinkObject(in, JsonElement.class);
+                var annotations = readResourceLinkJson(Annotations.Companion.serializer(), in);
+                var meta = readResourceLinkJson(JsonElement.Companion.serializer(), in);
                 return new ResourceLinkContent(name, URI.create(uri), description, mimeType, size, title, annotations, meta);
             }
         }
@@ -100,29 +104,30 @@ public class AcpBridgeContentSerializer extends ContentSerializer {
     }
 
     /**
-     * Helper method to write nullable objects
-     * @param obj the object to write. If the object is null, it writes a boolean false to the output stream. Otherwise, it writes a boolean true followed by the object itself.
+     * Helper method to write nullable kotlinx-serializable objects
+     * @param serializer the kotlinx-serialization serializer of the object
+     * @param obj the object to write. If the object is null, it writes a boolean false to the output stream. Otherwise, it writes a boolean true followed by the object as JSON.
      * @param out the ObjectOutput stream to write the object to. It must not be null.
      * @throws IOException if there is an error writing to the output stream
      */
-    private void writeResourceLinkObject(Object obj, ObjectOutput out) throws IOException {
+    private <T> void writeResourceLinkJson(KSerializer<T> serializer, T obj, ObjectOutput out) throws IOException {
         out.writeBoolean(obj != null);
         if (obj != null) {
-            out.writeObject(obj);
+            Serializer.writeUTF(Json.Default.encodeToString(serializer, obj), out);
         }
     }
 
     /**
-     * Helper method to read nullable objects
+     * Helper method to read nullable kotlinx-serializable objects
+     * @param serializer the kotlinx-serialization serializer of the object
      * @param in the ObjectInput stream to read the object from. It must not be null.
-     * @return the deserialized object of type T. If the object is null, it returns null. Otherwise, it returns the deserialized object.
+     * @return the deserialized object of type T. If the object is null, it returns null. Otherwise, it returns the object decoded from its JSON.
      * @throws IOException if there is an error reading from the input stream
-     * @throws ClassNotFoundException if the class of the serialized object cannot be found
      */
-    private <T> T readResourceLinkObject(ObjectInput in, Class<T> type) throws IOException, ClassNotFoundException {
+    private <T> T readResourceLinkJson(KSerializer<T> serializer, ObjectInput in) throws IOException {
         boolean isNotNull = in.readBoolean();
         if (isNotNull) {
-            return type.cast(in.readObject());
+            return Json.Default.decodeFromString(serializer, Serializer.readUTF(in));
         }
         return null;
     }}
@@ -1,5 +1,8 @@
 package net.osgiliath.acplanggraphlangchainbridge.langgraph.state;
 
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.UserMessage;
 import net.osgiliath.acplanggraphlangchainbridge.langgraph.message.ResourceLinkContent;
 import net.osgiliath.acplanggraphlangchainbridge.langgraph.serializer.AcpLangChain4jStateSerializer;
 import org.bsc.langgraph4j.prebuilt.MessagesState;
@@ -8,6 +11,7 @@ import org.bsc.langgraph4j.state.Channel;
 import org.bsc.langgraph4j.state.Channels;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * ChatState is a state class that extends MessagesState with ChatMessage as the message type. It represents the state of a chat conversation, including the messages exchanged and any attachments sent by the user. The state includes channels for storing the chat messages, the metadata of the attachments, and the content of the attachments. This state is used in the context of a chat application where users can send messages and attachments, and it allows for tracking the conversation history and associated files.
@@ -23,6 +27,10 @@ public class AcpState<T> extends MessagesState<T> {
      * Channel for attachments content. The content of this channel is a list of byte arrays, which contains the content of the attachments sent by the user.
      */
     public static final String ATTACHMENTS_SCHEMA = "attachments";
+    /**
+     * Channel for the content embedded in the prompt. The content of this channel is a list of LangChain4j {@link dev.langchain4j.data.message.Content}, {@link dev.langchain4j.data.message.ImageContent} or {@link dev.langchain4j.data.message.TextContent}, converted from the image and resource blocks sent by the client, or prepared from the attachments by pre-processing nodes such as {@link net.osgiliath.acplanggraphlangchainbridge.langgraph.node.ImageDownscalerNode}.
+     */
+    public static final String ATTACHMENT_CONTENTS = "attachmentContents";
 
     /**
      * State schema for the {@link AcpState}. This defines the channels that are used in the state and their types. The schema is a map where the keys are the channel names and the values are the channel definitions. In this case, we have three channels: MESSAGES_STATE, ATTACHMENTS_META, and ATTACHMENTS. The MESSAGES_STATE channel is defined in the parent class and is used to store the chat messages. The ATTACHMENTS_META channel is used to store the metadata of the attachments sent by the user, and the ATTACHMENTS channel is used to store the content of the attachments sent by the user.
@@ -34,6 +42,7 @@ public class AcpState<T> extends MessagesState<T> {
         result.put(SESSION_CONTEXT, Channels.base((currentValue, newValue) -> newValue, SessionContext::empty));
         result.put(ATTACHMENTS_META, Channels.appender(ArrayList::new));
         result.put(ATTACHMENTS_SCHEMA, Channels.appender(ArrayList::new));
+        result.put(ATTACHMENT_CONTENTS, Channels.appender(ArrayList::new));
         return result;
     }
 
@@ -92,4 +101,29 @@ public class AcpState<T> extends MessagesState<T> {
     public List<byte[]> attachments() {
         return this.<List<byte[]>>value(ATTACHMENTS_SCHEMA).orElse(List.of());
     }
+
+    /**
+     * Gets the content embedded in the prompt by the client, as images and resources, and the attachments prepared for the model by pre-processing nodes. Unlike {@link #attachments()}, this content is ready to be added to a user message.
+     * @return A list of LangChain4j contents embedded in the prompt, or an empty list if the prompt only has text and resource links.
+     */
+    public List<Content> attachmentContents() {
+        return this.<List<Content>>value(ATTACHMENT_CONTENTS).orElse(List.of());
+    }
+
+    /**
+     * Gets the text of the last user message, which pre-processing nodes use to find the parts of the attachments and of the workspace relevant to the prompt.
+     * @return The text contents of the last {@link UserMessage} joined by new lines, or an empty string if there is no user message.
+     */
+    public String lastUserText() {
+        List<T> messages = messages();
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof UserMessage user) {
+                return user.contents().stream()
+                        .filter(TextContent.class::isInstance)
+                        .map(content -> ((TextContent) content).text())
+                        .collect(Collectors.joining("\n"));
+            }
+        }
+        return "";
+    }
 }
@@ -0,0 +1,122 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.state;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An MCP server declared by an ACP session: the command line and environment of a stdio
+ * server, or the URL and headers of a remote one.
+ *
+ * <p>Two definitions are equal when they start the same process or reach the same endpoint
+ * with the same headers, so a definition can key a shared connection. {@link #toString()} only
+ * shows the command line or the URL, as environments and headers often hold credentials.</p>
+ *
+ * @param transport how the server is reached
+ * @param command   the executable of a stdio server, {@code null} otherwise
+ * @param args      the arguments of a stdio server
+ * @param env       the environment variables of a stdio server
+ * @param url       the endpoint of a remote server, {@code null} otherwise
+ * @param headers   the HTTP headers sent to a remote server
+ */
+public record McpServerDefinition(Transport transport,
+                                  String command,
+                                  List<String> args,
+                                  Map<String, String> env,
+                                  String url,
+                                  Map<String, String> headers) implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The transports of the ACP {@code McpServer} variants.
+     */
+    public enum Transport {
+        STDIO, HTTP, SSE
+    }
+
+    public McpServerDefinition {
+        args = args == null ? List.of() : List.copyOf(args);
+        env = sorted(env);
+        headers = sorted(headers);
+    }
+
+    /**
+     * @param command the executable
+     * @param args    its arguments
+     * @param env     its environment variables
+     * @return the definition of a server run as a local process
+     */
+    public static McpServerDefinition stdio(String command, List<String> args, Map<String, String> env) {
+        return new McpServerDefinition(Transport.STDIO, command, args, env, null, null);
+    }
+
+    /**
+     * @param url     the endpoint
+     * @param headers the HTTP headers
+     * @return the definition of a server reached over streamable HTTP
+     */
+    public static McpServerDefinition http(String url, Map<String, String> headers) {
+        return new McpServerDefinition(Transport.HTTP, null, null, null, url, headers);
+    }
+
+    /**
+     * @param url     the SSE endpoint
+     * @param headers the HTTP headers
+     * @return the definition of a server reached over the legacy HTTP+SSE transport
+     */
+    public static McpServerDefinition sse(String url, Map<String, String> headers) {
+        return new McpServerDefinition(Transport.SSE, null, null, null, url, headers);
+    }
+
+    /**
+     * Reads a definition flattened to a single string: an {@code http(s)://} URL ending with
+     * {@code /sse} is an SSE server, any other URL a streamable HTTP server, and anything else a
+     * command line split on whitespace.
+     *
+     * @param definition the command line or URL
+     * @return the definition, without environment variables or headers
+     */
+    public static McpServerDefinition parse(String definition) {
+        String stripped = definition.strip();
+        if (stripped.startsWith("http://") || stripped.startsWith("https://")) {
+            return stripped.endsWith("/sse") ? sse(stripped, null) : http(stripped, null);
+        }
+        List<String> words = List.of(stripped.split("\\s+"));
+        return stdio(words.getFirst(), words.subList(1, words.size()), null);
+    }
+
+    /**
+     * @return {@code true} for a server run as a local process
+     */
+    public boolean isStdio() {
+        return transport == Transport.STDIO;
+    }
+
+    /**
+     * @return the executable followed by its arguments, for a stdio server
+     */
+    public List<String> commandLine() {
+        List<String> commandLine = new ArrayList<>(args.size() + 1);
+        commandLine.add(command);
+        commandLine.addAll(args);
+        return commandLine;
+    }
+
+    /**
+     * @return the command line or the URL, without environment variables or headers
+     */
+    @Override
+    public String toString() {
+        return isStdio() ? String.join(" ", commandLine()) : url;
+    }
+
+    private static Map<String, String> sorted(Map<String, String> values) {
+        return values == null || values.isEmpty() ? Map.of() : Collections.unmodifiableMap(new TreeMap<>(values));
+    }
+}
@@ -8,8 +8,13 @@ import java.util.Map;
 
 /**
  * Immutable execution context shared across the ACP session, graph state, and downstream tool or MCP calls.
+ *
+ * <p>{@code mcpServers} maps each MCP server name to its command or URL, while
+ * {@code mcpServerDefinitions} keeps the full definitions, arguments, environment and headers
+ * included. A context created from the names and commands only parses its definitions from them.</p>
  */
-public record SessionContext(String sessionId, String cwd, Map<String, String> mcpServers) implements Serializable {
+public record SessionContext(String sessionId, String cwd, Map<String, String> mcpServers,
+                             Map<String, McpServerDefinition> mcpServerDefinitions) implements Serializable {
 
     @Serial
     private static final long serialVersionUID = 1L;
@@ -19,15 +24,38 @@ public record SessionContext(String sessionId, String cwd, Map<String, String> m
     public SessionContext {
         sessionId = sessionId == null ? "" : sessionId;
         cwd = cwd == null || cwd.isBlank() ? "." : cwd;
-        mcpServers = mcpServers == null || mcpServers.isEmpty()
-                ? Map.of()
-                : Collections.unmodifiableMap(new LinkedHashMap<>(mcpServers));
+        mcpServers = copy(mcpServers);
+        if (mcpServerDefinitions == null || mcpServerDefinitions.isEmpty()) {
+            Map<String, McpServerDefinition> parsed = new LinkedHashMap<>();
+            mcpServers.forEach((name, server) -> parsed.put(name, McpServerDefinition.parse(server)));
+            mcpServerDefinitions = parsed;
+        }
+        mcpServerDefinitions = copy(mcpServerDefinitions);
+    }
+
+    public SessionContext(String sessionId, String cwd, Map<String, String> mcpServers) {
+        this(sessionId, cwd, mcpServers, null);
     }
 
     public static SessionContext of(String sessionId, String cwd, Map<String, String> mcpServers) {
         return new SessionContext(sessionId, cwd, mcpServers);
     }
 
+    /**
+     * Creates a context from full MCP server definitions.
+     *
+     * @param sessionId  the session identifier
+     * @param cwd        the session working directory
+     * @param mcpServers the MCP server definitions, keyed by the name the client gave them
+     * @return the context
+     */
+    public static SessionContext withServers(String sessionId, String cwd, Map<String, McpServerDefinition> mcpServers) {
+        Map<String, String> commands = new LinkedHashMap<>();
+        mcpServers.forEach((name, definition) ->
+                commands.put(name, definition.isStdio() ? definition.command() : definition.url()));
+        return new SessionContext(sessionId, cwd, commands, mcpServers);
+    }
+
     /**
      * Returns an empty SessionContext with default values. Useful for testing or when no context is needed.
      *
@@ -36,4 +64,10 @@ public record SessionContext(String sessionId, String cwd, Map<String, String> m
     public static SessionContext empty() {
         return EMPTY;
     }
+
+    private static <V> Map<String, V> copy(Map<String, V> values) {
+        return values == null || values.isEmpty()
+                ? Map.of()
+                : Collections.unmodifiableMap(new LinkedHashMap<>(values));
+    }
 }
@@ -0,0 +1,229 @@
+package net.osgiliath.acplanggraphlangchainbridge.launcher;
+
+import net.osgiliath.acplanggraphlangchainbridge.transport.AcpEndpoint;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.UnaryOperator;
+
+/**
+ * Stdio command for IDEs that connects to a running bridge daemon and pipes stdin/stdout to it.
+ *
+ * <p>The shim only depends on the JDK (see the {@code shimJar} artifact), so it starts in tens
+ * of milliseconds while the daemon keeps the Spring context, the models and the caches warm. It
+ * reads the same settings as the daemon, as system properties or environment variables
+ * ({@code acp.bridge.transport.mode} or {@code ACP_BRIDGE_TRANSPORT_MODE}):</p>
+ * <ul>
+ *   <li>{@code acp.bridge.transport.mode}, {@code socket}, {@code host}, {@code port} and
+ *       {@code token-file}: the daemon endpoint, the per-user Unix domain socket by default;</li>
+ *   <li>{@code acp.bridge.shim.command-file}: a file holding the command starting the bridge,
+ *       one argument per line, used when no daemon is listening;</li>
+ *   <li>{@code acp.bridge.shim.command}: the same command as a single line split on whitespace,
+ *       for commands without spaces in their arguments;</li>
+ *   <li>{@code acp.bridge.shim.startup-timeout}: how long to wait for a daemon started by the
+ *       shim, {@code PT30S} by default.</li>
+ * </ul>
+ *
+ * <p>The command can also be given as the arguments of the shim, which take precedence over
+ * both settings. When no daemon is listening, the shim starts the command as a daemon in the
+ * background, its output appended to {@code daemon.log} in the per-user
+ * {@link AcpEndpoint#runtimeDirectory()}, and connects to it once it listens. If it exits, does
+ * not come up in time, or cannot be connected to, the shim falls back to running the command as
+ * a regular stdio bridge for this session.</p>
+ */
+public final class StdioShim {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final long POLL_MILLIS = 50;
+
+    private final UnaryOperator<String> settings;
+    private final List<String> commandArguments;
+
+    StdioShim(UnaryOperator<String> settings) {
+        this(settings, List.of());
+    }
+
+    StdioShim(UnaryOperator<String> settings, List<String> commandArguments) {
+        this.settings = settings;
+        this.commandArguments = List.copyOf(commandArguments);
+    }
+
+    /**
+     * Runs the shim.
+     *
+     * @param args the command starting the bridge, if any
+     */
+    public static void main(String[] args) {
+        StdioShim shim = new StdioShim(StdioShim::systemSetting, List.of(args));
+        int status;
+        try {
+            status = shim.run(new FileInputStream(FileDescriptor.in), new FileOutputStream(FileDescriptor.out));
+        } catch (IOException e) {
+            System.err.println("acp-bridge shim: " + e.getMessage());
+            status = 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = 130;
+        }
+        System.exit(status);
+    }
+
+    int run(InputStream stdin, OutputStream stdout) throws IOException, InterruptedException {
+        AcpEndpoint endpoint = endpoint();
+        SocketChannel channel = connectOrNull(endpoint);
+        List<String> command = command();
+        if (channel == null && !command.isEmpty()) {
+            Process daemon = startDaemon(command, endpoint);
+            Duration startupTimeout = Duration.parse(setting("acp.bridge.shim.startup-timeout", "PT30S"));
+            channel = awaitDaemon(endpoint, daemon, startupTimeout);
+            if (channel == null && !daemon.isAlive()) {
+                System.err.println("acp-bridge shim: the daemon exited with status " + daemon.exitValue()
+                        + ", see " + daemonLog() + "; running the bridge over stdio");
+            }
+        }
+        if (channel == null) {
+            if (command.isEmpty()) {
+                throw new IOException("No bridge daemon on " + endpoint + " and no acp.bridge.shim.command to start one");
+            }
+            return runStdio(command);
+        }
+        try (SocketChannel connected = channel) {
+            pipe(stdin, stdout, connected);
+        }
+        return 0;
+    }
+
+    AcpEndpoint endpoint() {
+        String mode = setting("acp.bridge.transport.mode", "unix").trim().toLowerCase(Locale.ROOT);
+        if (mode.equals("tcp")) {
+            String host = setting("acp.bridge.transport.host", "127.0.0.1");
+            int port = Integer.parseInt(setting("acp.bridge.transport.port", String.valueOf(AcpEndpoint.DEFAULT_PORT)));
+            String tokenFile = setting("acp.bridge.transport.token-file", "");
+            return tokenFile.isBlank() ? AcpEndpoint.tcp(host, port) : AcpEndpoint.tcp(host, port, Path.of(tokenFile));
+        }
+        // the shim always talks to a daemon: stdio means the default socket
+        String socket = setting("acp.bridge.transport.socket", "");
+        return AcpEndpoint.unix(socket.isBlank() ? AcpEndpoint.defaultSocket() : Path.of(socket));
+    }
+
+    List<String> command() throws IOException {
+        if (!commandArguments.isEmpty()) {
+            return commandArguments;
+        }
+        String commandFile = setting("acp.bridge.shim.command-file", "");
+        if (!commandFile.isBlank()) {
+            return Files.readAllLines(Path.of(commandFile), StandardCharsets.UTF_8).stream()
+                    .filter(argument -> !argument.isEmpty())
+                    .toList();
+        }
+        String command = setting("acp.bridge.shim.command", "").trim();
+        return command.isEmpty() ? List.of() : Arrays.asList(command.split("\\s+"));
+    }
+
+    /**
+     * Copies stdin to the daemon on a second thread and the daemon output to stdout, flushing
+     * every read so tokens are not held back, until the daemon closes the connection.
+     */
+    private static void pipe(InputStream stdin, OutputStream stdout, SocketChannel channel) throws IOException {
+        OutputStream toDaemon = Channels.newOutputStream(channel);
+        Thread.ofPlatform().name("acp-shim-stdin").daemon(true).start(() -> {
+            try {
+                copy(stdin, toDaemon);
+                channel.shutdownOutput();
+            } catch (IOException e) {
+                // the daemon went away, the main thread sees it too
+            }
+        });
+        copy(Channels.newInputStream(channel), stdout);
+    }
+
+    private static void copy(InputStream input, OutputStream output) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = input.read(buffer)) >= 0) {
+            output.write(buffer, 0, read);
+            output.flush();
+        }
+    }
+
+    private static Process startDaemon(List<String> command, AcpEndpoint endpoint) throws IOException {
+        List<String> daemon = new ArrayList<>(command);
+        daemon.addAll(transportArguments(endpoint));
+        Process process = new ProcessBuilder(daemon)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.appendTo(daemonLog().toFile()))
+                .start();
+        // the daemon never reads stdin: close it right away
+        process.getOutputStream().close();
+        return process;
+    }
+
+    private static Path daemonLog() throws IOException {
+        return AcpEndpoint.privateDirectory(AcpEndpoint.runtimeDirectory()).resolve("daemon.log");
+    }
+
+    static List<String> transportArguments(AcpEndpoint endpoint) {
+        return switch (endpoint.mode()) {
+            case UNIX -> List.of("--acp.bridge.transport.mode=unix", "--acp.bridge.transport.socket=" + endpoint.socket());
+            case TCP -> List.of("--acp.bridge.transport.mode=tcp", "--acp.bridge.transport.host=" + endpoint.host(),
+                    "--acp.bridge.transport.port=" + endpoint.port(),
+                    "--acp.bridge.transport.token-file=" + endpoint.tokenFile());
+            case STDIO -> List.of("--acp.bridge.transport.mode=stdio");
+        };
+    }
+
+    /**
+     * Polls the endpoint until the daemon listens, exits, or the timeout elapses.
+     */
+    private static SocketChannel awaitDaemon(AcpEndpoint endpoint, Process daemon, Duration timeout)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        SocketChannel channel = connectOrNull(endpoint);
+        while (channel == null && daemon.isAlive() && System.nanoTime() < deadline) {
+            Thread.sleep(POLL_MILLIS);
+            channel = connectOrNull(endpoint);
+        }
+        return channel;
+    }
+
+    private static int runStdio(List<String> command) throws IOException, InterruptedException {
+        List<String> stdio = new ArrayList<>(command);
+        stdio.addAll(transportArguments(AcpEndpoint.STDIO));
+        return new ProcessBuilder(stdio).inheritIO().start().waitFor();
+    }
+
+    private static SocketChannel connectOrNull(AcpEndpoint endpoint) {
+        try {
+            return endpoint.connect();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private String setting(String name, String defaultValue) {
+        String value = settings.apply(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+
+    private static String systemSetting(String name) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            value = System.getenv(name.toUpperCase(Locale.ROOT).replace('.', '_').replace('-', '_'));
+        }
+        return value;
+    }
+}
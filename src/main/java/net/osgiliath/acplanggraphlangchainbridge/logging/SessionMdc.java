@@ -0,0 +1,28 @@
+package net.osgiliath.acplanggraphlangchainbridge.logging;
+
+import org.slf4j.MDC;
+
+/**
+ * Puts the ACP session id in the logging context (MDC) of the thread serving a prompt, so log
+ * lines carry it and {@link SessionSamplingFilter} can sample debug output per session.
+ */
+public final class SessionMdc {
+
+    /**
+     * The MDC key holding the session id.
+     */
+    public static final String KEY = "sessionId";
+
+    private SessionMdc() {
+    }
+
+    /**
+     * Puts a session id in the MDC of the current thread.
+     *
+     * @param sessionId the session id
+     * @return a handle removing the session id when closed
+     */
+    public static MDC.MDCCloseable put(String sessionId) {
+        return MDC.putCloseable(KEY, sessionId);
+    }
+}
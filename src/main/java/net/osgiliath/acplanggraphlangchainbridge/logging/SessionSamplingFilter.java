@@ -0,0 +1,81 @@
+package net.osgiliath.acplanggraphlangchainbridge.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Logback turbo filter enabling debug output for a sample of ACP sessions.
+ *
+ * <p>Debug and trace events of the bridge are high volume: with the loggers at {@code INFO},
+ * they are dropped by the level check before any event or message is built. This filter lets
+ * the events of a deterministic share of sessions through anyway, chosen by hashing the session
+ * id found in the MDC under {@link SessionMdc#KEY}; a sampled session is logged completely, the
+ * others not at all, so every debug trace that is written can be followed from start to end.
+ * Events without a session id, of other loggers or at {@code INFO} and above are left to the
+ * regular level check.</p>
+ *
+ * <pre>{@code
+ * <turboFilter class="net.osgiliath.acplanggraphlangchainbridge.logging.SessionSamplingFilter">
+ *     <samplePercent>5</samplePercent>
+ * </turboFilter>
+ * }</pre>
+ */
+public class SessionSamplingFilter extends TurboFilter {
+
+    private static final int PERCENT = 100;
+
+    private String loggerPrefix = "net.osgiliath.acplanggraphlangchainbridge";
+    private Level level = Level.DEBUG;
+    private int samplePercent;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!isStarted() || samplePercent <= 0 || level == null
+                || level.isGreaterOrEqual(Level.INFO) || !level.isGreaterOrEqual(this.level)
+                || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        String sessionId = MDC.get(SessionMdc.KEY);
+        return sessionId != null && sampled(sessionId, samplePercent) ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
+    }
+
+    /**
+     * Tells whether a session is part of the sample.
+     *
+     * @param sessionId     the session id
+     * @param samplePercent the share of sessions sampled, from 0 to 100
+     * @return {@code true} if the debug events of the session are logged
+     */
+    static boolean sampled(String sessionId, int samplePercent) {
+        // spread similar ids (session-<counter>) before bucketing
+        int hash = sessionId.hashCode() * 0x9E3779B9;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, PERCENT) < samplePercent;
+    }
+
+    /**
+     * @param loggerPrefix the name prefix of the sampled loggers, the bridge package by default
+     */
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    /**
+     * @param level the most verbose level let through for sampled sessions, {@code DEBUG} by default
+     */
+    public void setLevel(String level) {
+        this.level = Level.toLevel(level, Level.DEBUG);
+    }
+
+    /**
+     * @param samplePercent the share of sessions whose debug events are logged, from 0 (none, the
+     *                      default) to 100 (all)
+     */
+    public void setSamplePercent(int samplePercent) {
+        this.samplePercent = Math.clamp(samplePercent, 0, PERCENT);
+    }
+}
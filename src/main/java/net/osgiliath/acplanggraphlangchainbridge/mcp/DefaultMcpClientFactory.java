@@ -0,0 +1,61 @@
+package net.osgiliath.acplanggraphlangchainbridge.mcp;
+
+import dev.langchain4j.mcp.client.DefaultMcpClient;
+import dev.langchain4j.mcp.client.McpClient;
+import dev.langchain4j.mcp.client.transport.McpTransport;
+import dev.langchain4j.mcp.client.transport.http.HttpMcpTransport;
+import dev.langchain4j.mcp.client.transport.http.StreamableHttpMcpTransport;
+import dev.langchain4j.mcp.client.transport.stdio.StdioMcpTransport;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.McpServerDefinition;
+
+import java.time.Duration;
+
+/**
+ * {@link McpClientFactory} building LangChain4j {@link DefaultMcpClient}s.
+ *
+ * <p>Stdio servers are run with their arguments and environment, HTTP servers use the
+ * streamable HTTP transport and SSE servers the legacy HTTP+SSE one, both with their headers.</p>
+ */
+public class DefaultMcpClientFactory implements McpClientFactory {
+
+    private final Duration timeout;
+
+    /**
+     * Creates the factory.
+     *
+     * @param timeout the initialization, request and tool execution timeout of the clients
+     */
+    public DefaultMcpClientFactory(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public McpClient create(McpServerDefinition definition) {
+        return new DefaultMcpClient.Builder()
+                .key(definition.toString())
+                .transport(transport(definition))
+                .initializationTimeout(timeout)
+                .toolExecutionTimeout(timeout)
+                .build();
+    }
+
+    private McpTransport transport(McpServerDefinition definition) {
+        return switch (definition.transport()) {
+            case STDIO -> new StdioMcpTransport.Builder()
+                    .command(definition.commandLine())
+                    .environment(definition.env())
+                    .logEvents(false)
+                    .build();
+            case SSE -> new HttpMcpTransport.Builder()
+                    .sseUrl(definition.url())
+                    .customHeaders(definition.headers())
+                    .timeout(timeout)
+                    .build();
+            case HTTP -> StreamableHttpMcpTransport.builder()
+                    .url(definition.url())
+                    .customHeaders(definition.headers())
+                    .timeout(timeout)
+                    .build();
+        };
+    }
+}
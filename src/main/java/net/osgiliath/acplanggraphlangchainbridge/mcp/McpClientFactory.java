@@ -0,0 +1,20 @@
+package net.osgiliath.acplanggraphlangchainbridge.mcp;
+
+import dev.langchain4j.mcp.client.McpClient;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.McpServerDefinition;
+
+/**
+ * Creates and initializes an MCP client for a server definition taken from
+ * {@link net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext#mcpServerDefinitions()}.
+ */
+@FunctionalInterface
+public interface McpClientFactory {
+
+    /**
+     * Connects to an MCP server, spawning its process for stdio servers.
+     *
+     * @param definition the server definition
+     * @return an initialized client
+     */
+    McpClient create(McpServerDefinition definition);
+}
@@ -0,0 +1,331 @@
+package net.osgiliath.acplanggraphlangchainbridge.mcp;
+
+import dev.langchain4j.mcp.client.McpClient;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.McpServerDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pool of MCP client connections shared by every session declaring the same server.
+ *
+ * <p>Connections are keyed by server definition (the command line, arguments and environment,
+ * or the URL and headers found in
+ * {@link net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext#mcpServerDefinitions()}),
+ * not by the name a client gave the server, so two sessions declaring the same server share
+ * one process. Connections are:</p>
+ * <ul>
+ *   <li>started lazily, by the first {@link #lease(McpServerDefinition)} of their definition,</li>
+ *   <li>health-checked when leased again after {@code healthCheckInterval} and replaced if the check
+ *       fails. The failed client is closed once the leases still holding it are closed,</li>
+ *   <li>closed once they have not been leased for {@code idleTimeout},</li>
+ *   <li>capped: at most {@code maxProcesses} stdio servers and {@code maxConnections} connections
+ *       in total. Reaching a cap closes the least recently used idle connection, or fails the lease
+ *       when every connection is in use.</li>
+ * </ul>
+ *
+ * <p>All operations are thread safe; concurrent leases of a definition that is not connected yet
+ * wait for a single connection to be established.</p>
+ */
+public class McpClientPool implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(McpClientPool.class);
+
+    private final McpClientFactory factory;
+    private final long idleTimeoutNanos;
+    private final long healthCheckIntervalNanos;
+    private final int maxProcesses;
+    private final int maxConnections;
+    private final Map<McpServerDefinition, Entry> entries = new HashMap<>();
+    private final ScheduledExecutorService evictor;
+    private boolean closed;
+
+    /**
+     * Creates a pool.
+     *
+     * @param factory             creates the clients
+     * @param idleTimeout         how long an unused connection is kept open
+     * @param healthCheckInterval the minimum delay between two health checks of a connection
+     * @param maxProcesses        the maximum number of stdio server processes
+     * @param maxConnections      the maximum number of connections, stdio ones included
+     */
+    public McpClientPool(McpClientFactory factory,
+                         Duration idleTimeout,
+                         Duration healthCheckInterval,
+                         int maxProcesses,
+                         int maxConnections) {
+        this.factory = factory;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.healthCheckIntervalNanos = healthCheckInterval.toNanos();
+        this.maxProcesses = maxProcesses;
+        this.maxConnections = maxConnections;
+        this.evictor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("acp-mcp-pool-evictor")
+                .daemon(true)
+                .factory());
+        long period = Math.max(1L, idleTimeout.toMillis() / 2);
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leases the connection of a server given by its command line or URL.
+     *
+     * @param definition the server command line or URL, as read by {@link McpServerDefinition#parse(String)}
+     * @return the lease, to be closed once the caller is done with the client
+     * @throws IllegalStateException if the pool is closed or every allowed connection is in use
+     */
+    public Lease lease(String definition) {
+        return lease(McpServerDefinition.parse(definition));
+    }
+
+    /**
+     * Leases the connection of a server, connecting to it first if needed.
+     *
+     * @param definition the server definition
+     * @return the lease, to be closed once the caller is done with the client
+     * @throws IllegalStateException if the pool is closed or every allowed connection is in use
+     */
+    public Lease lease(McpServerDefinition definition) {
+        List<Entry> evicted = new ArrayList<>();
+        Entry entry;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("MCP client pool is closed");
+            }
+            entry = entries.get(definition);
+            if (entry == null) {
+                entry = new Entry(definition, definition.isStdio());
+                reserveCapacity(entry.stdio, evicted);
+                entries.put(definition, entry);
+            }
+            entry.leases++;
+            entry.lastUsedNanos = System.nanoTime();
+        }
+        evicted.forEach(Entry::close);
+        try {
+            return new Lease(this, entry, entry.connect());
+        } catch (RuntimeException e) {
+            release(entry);
+            synchronized (this) {
+                if (entry.leases == 0 && !entry.isConnected()) {
+                    entries.remove(definition, entry);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of connections currently held, started or starting
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of stdio server processes currently held
+     */
+    public synchronized int processCount() {
+        return (int) entries.values().stream().filter(entry -> entry.stdio).count();
+    }
+
+    @Override
+    public void close() {
+        List<Entry> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayList<>(entries.values());
+            entries.clear();
+        }
+        evictor.shutdownNow();
+        toClose.forEach(Entry::close);
+    }
+
+    /**
+     * Closes the connections that have not been leased for the idle timeout.
+     */
+    void evictIdle() {
+        List<Entry> idle = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            entries.values().removeIf(entry -> {
+                boolean expired = entry.leases == 0 && now - entry.lastUsedNanos >= idleTimeoutNanos;
+                if (expired) {
+                    idle.add(entry);
+                }
+                return expired;
+            });
+        }
+        idle.forEach(entry -> {
+            log.debug("Closing idle MCP connection {}", entry.definition);
+            entry.close();
+        });
+    }
+
+    private void reserveCapacity(boolean stdio, List<Entry> evicted) {
+        if (stdio && processCount() >= maxProcesses) {
+            evicted.add(evictLeastRecentlyUsed(true)
+                    .orElseThrow(() -> new IllegalStateException(
+                            "MCP stdio process limit of " + maxProcesses + " reached, all processes are in use")));
+        }
+        if (entries.size() >= maxConnections) {
+            evicted.add(evictLeastRecentlyUsed(false)
+                    .orElseThrow(() -> new IllegalStateException(
+                            "MCP connection limit of " + maxConnections + " reached, all connections are in use")));
+        }
+    }
+
+    private Optional<Entry> evictLeastRecentlyUsed(boolean stdioOnly) {
+        Optional<Entry> candidate = entries.values().stream()
+                .filter(entry -> entry.leases == 0)
+                .filter(entry -> !stdioOnly || entry.stdio)
+                .min(Comparator.comparingLong(entry -> entry.lastUsedNanos));
+        candidate.ifPresent(entry -> entries.remove(entry.definition));
+        return candidate;
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.leases--;
+        entry.lastUsedNanos = System.nanoTime();
+    }
+
+    /**
+     * A borrowed MCP connection. Closing the lease returns the connection to the pool; it does
+     * not close the client.
+     */
+    public static final class Lease implements AutoCloseable {
+
+        private final McpClientPool pool;
+        private final Entry entry;
+        private final Connection connection;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(McpClientPool pool, Entry entry, Connection connection) {
+            this.pool = pool;
+            this.entry = entry;
+            this.connection = connection;
+        }
+
+        /**
+         * @return the server definition this lease connects to
+         */
+        public McpServerDefinition definition() {
+            return entry.definition;
+        }
+
+        /**
+         * @return the leased client
+         */
+        public McpClient client() {
+            return connection.client;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                entry.release(connection);
+                pool.release(entry);
+            }
+        }
+    }
+
+    /**
+     * A client and the number of leases holding it. A client replaced after a failed health
+     * check is retired, and closed when its last lease is.
+     */
+    private static final class Connection {
+
+        private final McpClient client;
+        private int leases;
+        private boolean retired;
+
+        private Connection(McpClient client) {
+            this.client = client;
+        }
+    }
+
+    private final class Entry {
+
+        private final McpServerDefinition definition;
+        private final boolean stdio;
+        // guarded by the pool monitor
+        private int leases;
+        private long lastUsedNanos;
+        // guarded by this entry
+        private Connection connection;
+        private long lastHealthCheckNanos;
+
+        private Entry(McpServerDefinition definition, boolean stdio) {
+            this.definition = definition;
+            this.stdio = stdio;
+        }
+
+        private synchronized boolean isConnected() {
+            return connection != null;
+        }
+
+        private synchronized Connection connect() {
+            long now = System.nanoTime();
+            if (connection != null && now - lastHealthCheckNanos >= healthCheckIntervalNanos) {
+                try {
+                    connection.client.checkHealth();
+                } catch (RuntimeException e) {
+                    log.warn("MCP server {} failed its health check, reconnecting: {}", definition, e.getMessage());
+                    retire(connection);
+                    connection = null;
+                }
+                lastHealthCheckNanos = now;
+            }
+            if (connection == null) {
+                log.info("Starting MCP connection {}", definition);
+                connection = new Connection(factory.create(definition));
+                lastHealthCheckNanos = System.nanoTime();
+            }
+            connection.leases++;
+            return connection;
+        }
+
+        private synchronized void release(Connection released) {
+            released.leases--;
+            if (released.retired && released.leases == 0) {
+                closeClient(released.client);
+            }
+        }
+
+        private synchronized void close() {
+            if (connection != null) {
+                closeClient(connection.client);
+                connection = null;
+            }
+        }
+
+        /**
+         * Closes a connection now when no lease holds it, or when its last lease is closed.
+         */
+        private void retire(Connection retired) {
+            retired.retired = true;
+            if (retired.leases == 0) {
+                closeClient(retired.client);
+            }
+        }
+
+        private void closeClient(McpClient client) {
+            try {
+                client.close();
+            } catch (Exception e) {
+                log.warn("Failed to close MCP connection {}: {}", definition, e.getMessage());
+            }
+        }
+    }
+}
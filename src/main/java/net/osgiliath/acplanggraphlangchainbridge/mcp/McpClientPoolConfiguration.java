@@ -0,0 +1,49 @@
+package net.osgiliath.acplanggraphlangchainbridge.mcp;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Registers the {@link McpClientPool} and the {@link McpToolCatalog} built on it. Nothing is
+ * started until a graph leases a connection or asks for a server's tools.
+ */
+@Configuration
+public class McpClientPoolConfiguration {
+
+    /**
+     * Creates the MCP connection pool.
+     *
+     * @param timeout             the initialization and tool execution timeout of MCP clients
+     * @param idleTimeout         how long an unused connection is kept open
+     * @param healthCheckInterval the minimum delay between two health checks of a connection
+     * @param maxProcesses        the maximum number of stdio server processes
+     * @param maxConnections      the maximum number of connections, stdio ones included
+     * @return the pool
+     */
+    @Bean(destroyMethod = "close")
+    public McpClientPool mcpClientPool(
+            @Value("${acp.bridge.mcp.timeout:PT60S}") Duration timeout,
+            @Value("${acp.bridge.mcp.idle-timeout:PT10M}") Duration idleTimeout,
+            @Value("${acp.bridge.mcp.health-check-interval:PT30S}") Duration healthCheckInterval,
+            @Value("${acp.bridge.mcp.max-processes:8}") int maxProcesses,
+            @Value("${acp.bridge.mcp.max-connections:32}") int maxConnections) {
+        return new McpClientPool(new DefaultMcpClientFactory(timeout), idleTimeout, healthCheckInterval,
+                maxProcesses, maxConnections);
+    }
+
+    /**
+     * Creates the shared MCP tool catalogue cache.
+     *
+     * @param mcpClientPool the MCP connection pool
+     * @param ttl           how long a catalogue is served before being refreshed in the background
+     * @return the catalogue cache
+     */
+    @Bean
+    public McpToolCatalog mcpToolCatalog(McpClientPool mcpClientPool,
+                                         @Value("${acp.bridge.mcp.tools-ttl:PT5M}") Duration ttl) {
+        return new McpToolCatalog(mcpClientPool, ttl);
+    }
+}
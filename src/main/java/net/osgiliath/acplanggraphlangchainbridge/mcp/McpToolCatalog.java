@@ -0,0 +1,258 @@
+package net.osgiliath.acplanggraphlangchainbridge.mcp;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.mcp.McpToolProvider;
+import dev.langchain4j.mcp.client.McpClient;
+import dev.langchain4j.service.tool.ToolExecutor;
+import dev.langchain4j.service.tool.ToolProviderRequest;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.McpServerDefinition;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of the tool catalogue of every MCP server, shared by all sessions.
+ *
+ * <p>A server's {@code tools/list} is fetched through the {@link McpClientPool} the first time a
+ * session needs it. Afterwards the cached catalogue is served immediately; once older than the
+ * time-to-live, it is still served while a single background refresh fetches the new one. A
+ * catalogue is also reloaded when the pool replaced the server connection, and can be dropped
+ * explicitly with {@link #invalidate(String)}, for instance on a {@code notifications/tools/list_changed}.</p>
+ *
+ * <p>The executors handed out lease the server connection for each call, so tool executions
+ * always go through the pool and its warm connections.</p>
+ */
+public class McpToolCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(McpToolCatalog.class);
+
+    /**
+     * The longest tool name the OpenAI and Anthropic APIs accept.
+     */
+    private static final int MAX_TOOL_NAME_LENGTH = 64;
+
+    private final McpClientPool pool;
+    private final long ttlNanos;
+    private final Map<McpServerDefinition, Catalogue> catalogues = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a catalogue cache.
+     *
+     * @param pool the MCP connection pool
+     * @param ttl  how long a catalogue is served before being refreshed in the background
+     */
+    public McpToolCatalog(McpClientPool pool, Duration ttl) {
+        this.pool = pool;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Returns the tool specifications of a server given by its command line or URL.
+     *
+     * @param definition the server command line or URL, as read by {@link McpServerDefinition#parse(String)}
+     * @return the server's tools, as LangChain4j specifications
+     */
+    public List<ToolSpecification> toolSpecifications(String definition) {
+        return toolSpecifications(McpServerDefinition.parse(definition));
+    }
+
+    /**
+     * Returns the tool specifications of a server.
+     *
+     * @param definition the server definition
+     * @return the server's tools, as LangChain4j specifications
+     */
+    public List<ToolSpecification> toolSpecifications(McpServerDefinition definition) {
+        return catalogue(definition).specifications();
+    }
+
+    /**
+     * Returns the tools of every MCP server declared by a session, ready for a tool-enabled graph
+     * (for instance through {@link net.osgiliath.acplanggraphlangchainbridge.langgraph.node.ToolExecutorNode#fromSpecifications}).
+     *
+     * <p>Servers that cannot be reached are logged and skipped so the session keeps the tools of
+     * the others.</p>
+     *
+     * <p>Tools are dispatched by name, so a tool whose name an earlier server of the session
+     * already uses is exposed as {@code <server>__<tool>}, the server name reduced to the
+     * characters model APIs accept; a tool whose prefixed name is taken too is logged and
+     * skipped. The executors call the server with the tool's own name.</p>
+     *
+     * @param sessionContext the session declaring the servers
+     * @return the tool executors, keyed by specification
+     */
+    public Map<ToolSpecification, ToolExecutor> tools(SessionContext sessionContext) {
+        Map<ToolSpecification, ToolExecutor> tools = new LinkedHashMap<>();
+        Set<String> names = new HashSet<>();
+        sessionContext.mcpServerDefinitions().forEach((name, definition) -> {
+            try {
+                for (ToolSpecification specification : toolSpecifications(definition)) {
+                    String toolName = specification.name();
+                    ToolSpecification exposed = specification;
+                    if (!names.add(toolName)) {
+                        String prefixed = prefixedName(name, toolName);
+                        if (!names.add(prefixed)) {
+                            log.warn("Skipping tool {} of MCP server {} for session {}: {} is already taken",
+                                    toolName, name, sessionContext.sessionId(), prefixed);
+                            continue;
+                        }
+                        log.info("Exposing tool {} of MCP server {} as {} for session {}: "
+                                        + "another server has a tool of that name",
+                                toolName, name, prefixed, sessionContext.sessionId());
+                        exposed = specification.toBuilder().name(prefixed).build();
+                    }
+                    tools.put(exposed, (request, memoryId) -> execute(definition, named(request, toolName), memoryId));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Skipping tools of MCP server {} ({}) for session {}: {}",
+                        name, definition, sessionContext.sessionId(), e.getMessage());
+            }
+        });
+        return tools;
+    }
+
+    /**
+     * Drops the cached catalogue of a server given by its command line or URL.
+     *
+     * @param definition the server command line or URL, as read by {@link McpServerDefinition#parse(String)}
+     */
+    public void invalidate(String definition) {
+        invalidate(McpServerDefinition.parse(definition));
+    }
+
+    /**
+     * Drops the cached catalogue of a server, so the next lookup fetches it again.
+     *
+     * @param definition the server definition
+     */
+    public void invalidate(McpServerDefinition definition) {
+        catalogues.remove(definition);
+    }
+
+    private static String prefixedName(String server, String tool) {
+        String prefixed = server.replaceAll("[^A-Za-z0-9_-]", "_") + "__" + tool;
+        return prefixed.length() > MAX_TOOL_NAME_LENGTH ? prefixed.substring(0, MAX_TOOL_NAME_LENGTH) : prefixed;
+    }
+
+    private static ToolExecutionRequest named(ToolExecutionRequest request, String toolName) {
+        if (toolName.equals(request.name())) {
+            return request;
+        }
+        return ToolExecutionRequest.builder()
+                .id(request.id())
+                .name(toolName)
+                .arguments(request.arguments())
+                .build();
+    }
+
+    private String execute(McpServerDefinition definition, ToolExecutionRequest request, Object memoryId) {
+        try (McpClientPool.Lease lease = pool.lease(definition)) {
+            Catalogue catalogue = catalogue(definition);
+            if (catalogue.client() != lease.client()) {
+                catalogue = load(definition);
+            }
+            ToolExecutor executor = catalogue.executors().get(request.name());
+            if (executor == null) {
+                return "Error: MCP server " + definition + " has no tool called " + request.name();
+            }
+            return executor.execute(request, memoryId);
+        }
+    }
+
+    private Catalogue catalogue(McpServerDefinition definition) {
+        Catalogue catalogue = catalogues.get(definition);
+        if (catalogue == null) {
+            // single flight: concurrent first lookups wait for one tools/list round-trip
+            return catalogues.computeIfAbsent(definition, this::fetch);
+        }
+        if (System.nanoTime() - catalogue.loadedAtNanos() >= ttlNanos && catalogue.claimRefresh()) {
+            Thread.ofVirtual().name("acp-mcp-catalog-refresh").start(() -> {
+                try {
+                    load(definition);
+                } catch (RuntimeException e) {
+                    log.warn("Background refresh of MCP tools {} failed: {}", definition, e.getMessage());
+                    catalogue.releaseRefresh();
+                }
+            });
+        }
+        return catalogue;
+    }
+
+    private Catalogue load(McpServerDefinition definition) {
+        Catalogue catalogue = fetch(definition);
+        catalogues.put(definition, catalogue);
+        return catalogue;
+    }
+
+    private Catalogue fetch(McpServerDefinition definition) {
+        try (McpClientPool.Lease lease = pool.lease(definition)) {
+            McpClient client = lease.client();
+            Map<ToolSpecification, ToolExecutor> provided = McpToolProvider.builder()
+                    .mcpClients(List.of(client))
+                    .build()
+                    .provideTools(new ToolProviderRequest(definition.toString(), UserMessage.from("tools/list")))
+                    .tools();
+            Map<String, ToolExecutor> executors = new LinkedHashMap<>();
+            provided.forEach((specification, executor) -> executors.put(specification.name(), executor));
+            log.debug("Loaded {} tools from MCP server {}", executors.size(), definition);
+            return new Catalogue(client, List.copyOf(provided.keySet()), Map.copyOf(executors), System.nanoTime());
+        }
+    }
+
+    private static final class Catalogue {
+
+        private final McpClient client;
+        private final List<ToolSpecification> specifications;
+        private final Map<String, ToolExecutor> executors;
+        private final long loadedAtNanos;
+        private boolean refreshing;
+
+        private Catalogue(McpClient client,
+                          List<ToolSpecification> specifications,
+                          Map<String, ToolExecutor> executors,
+                          long loadedAtNanos) {
+            this.client = client;
+            this.specifications = specifications;
+            this.executors = executors;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+
+        McpClient client() {
+            return client;
+        }
+
+        List<ToolSpecification> specifications() {
+            return specifications;
+        }
+
+        Map<String, ToolExecutor> executors() {
+            return executors;
+        }
+
+        long loadedAtNanos() {
+            return loadedAtNanos;
+        }
+
+        synchronized boolean claimRefresh() {
+            if (refreshing) {
+                return false;
+            }
+            refreshing = true;
+            return true;
+        }
+
+        synchronized void releaseRefresh() {
+            refreshing = false;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The observations of the prompts currently running, by session.
+ *
+ * <p>Graph nodes only receive the graph state, which carries the session id but cannot carry
+ * the observation itself (it is not serializable). The adapter binds the observation of a
+ * prompt here for the prompt's duration, so nodes such as the attachment reader can report
+ * to it, and can defer work until the prompt completed, such as remembering what the model
+ * was sent. ACP runs at most one prompt at a time per session.</p>
+ */
+public final class ActivePrompts {
+
+    private static final Map<String, Prompt> PROMPTS = new ConcurrentHashMap<>();
+
+    /**
+     * A running prompt and the actions to run once it completed.
+     */
+    private record Prompt(PromptObservation observation, List<Runnable> afterCompletion) {
+    }
+
+    private ActivePrompts() {
+    }
+
+    /**
+     * Binds the observation of the prompt a session is running.
+     *
+     * @param sessionId   the session id
+     * @param observation the prompt observation
+     */
+    public static void bind(String sessionId, PromptObservation observation) {
+        PROMPTS.put(sessionId, new Prompt(observation, new CopyOnWriteArrayList<>()));
+    }
+
+    /**
+     * Unbinds the observation of a prompt once it ended, dropping the actions to run after its
+     * completion.
+     *
+     * @param sessionId   the session id
+     * @param observation the prompt observation, only unbound if still the bound one
+     */
+    public static void unbind(String sessionId, PromptObservation observation) {
+        unbind(sessionId, observation, false);
+    }
+
+    /**
+     * Unbinds the observation of a prompt once it ended.
+     *
+     * @param sessionId   the session id
+     * @param observation the prompt observation, only unbound if still the bound one
+     * @param completed   whether the prompt completed normally, which runs the actions registered
+     *                    with {@link #afterCompletion(String, Runnable)}; they are dropped when it
+     *                    failed or was cancelled
+     */
+    public static void unbind(String sessionId, PromptObservation observation, boolean completed) {
+        Prompt prompt = PROMPTS.get(sessionId);
+        if (prompt == null || prompt.observation() != observation || !PROMPTS.remove(sessionId, prompt)) {
+            return;
+        }
+        if (completed) {
+            prompt.afterCompletion().forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Returns the observation of the prompt a session is running.
+     *
+     * @param sessionId the session id
+     * @return the observation, {@link PromptObservation#NOOP} when no prompt is observed
+     */
+    public static PromptObservation of(String sessionId) {
+        Prompt prompt = sessionId == null ? null : PROMPTS.get(sessionId);
+        return prompt == null ? PromptObservation.NOOP : prompt.observation();
+    }
+
+    /**
+     * Runs an action once the prompt a session is running completed normally, and never if it
+     * fails or is cancelled.
+     *
+     * @param sessionId the session id
+     * @param action    the action, run right away when the session runs no bound prompt
+     */
+    public static void afterCompletion(String sessionId, Runnable action) {
+        Prompt prompt = sessionId == null ? null : PROMPTS.get(sessionId);
+        if (prompt == null) {
+            action.run();
+        } else {
+            prompt.afterCompletion().add(action);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import net.osgiliath.acplanggraphlangchainbridge.http.HttpClientStats;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.cache.ToolResultCache;
+import net.osgiliath.acplanggraphlangchainbridge.mcp.McpClientPool;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Exposes the counters the bridge components already keep as Micrometer meters.
+ *
+ * <p>Each component is optional; the meters of a missing one are simply not registered.</p>
+ */
+public class BridgeMeterBinder implements MeterBinder {
+
+    private final HttpClientStats httpClientStats;
+    private final ToolResultCache toolResultCache;
+    private final McpClientPool mcpClientPool;
+
+    /**
+     * Creates the binder.
+     *
+     * @param httpClientStats the shared HTTP client counters, may be {@code null}
+     * @param toolResultCache the tool result cache, may be {@code null}
+     * @param mcpClientPool   the MCP connection pool, may be {@code null}
+     */
+    public BridgeMeterBinder(HttpClientStats httpClientStats, ToolResultCache toolResultCache, McpClientPool mcpClientPool) {
+        this.httpClientStats = httpClientStats;
+        this.toolResultCache = toolResultCache;
+        this.mcpClientPool = mcpClientPool;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (httpClientStats != null) {
+            FunctionCounter.builder("acp.bridge.http.requests", httpClientStats, HttpClientStats::requests)
+                    .description("Requests sent by the shared HTTP client")
+                    .register(registry);
+            FunctionCounter.builder("acp.bridge.http.tls-handshakes", httpClientStats, HttpClientStats::tlsHandshakes)
+                    .description("TLS handshakes of the shared HTTP client")
+                    .register(registry);
+            FunctionCounter.builder("acp.bridge.http.prewarms", httpClientStats, HttpClientStats::prewarms)
+                    .description("Connection pre-warming requests")
+                    .register(registry);
+        }
+        if (toolResultCache != null) {
+            toolCacheCounter(registry, "hit", ToolResultCache::hitCount);
+            toolCacheCounter(registry, "miss", ToolResultCache::missCount);
+            toolCacheCounter(registry, "eviction", ToolResultCache::evictionCount);
+            toolCacheCounter(registry, "invalidation", ToolResultCache::invalidationCount);
+            Gauge.builder("acp.bridge.tool-cache.size", toolResultCache, ToolResultCache::sizeBytes)
+                    .description("Approximate heap size of the memoized tool results")
+                    .baseUnit("bytes")
+                    .register(registry);
+        }
+        if (mcpClientPool != null) {
+            Gauge.builder("acp.bridge.mcp.connections", mcpClientPool, McpClientPool::size)
+                    .description("Open MCP server connections")
+                    .register(registry);
+            Gauge.builder("acp.bridge.mcp.processes", mcpClientPool, McpClientPool::processCount)
+                    .description("Running stdio MCP server processes")
+                    .register(registry);
+        }
+    }
+
+    private void toolCacheCounter(MeterRegistry registry, String result,
+                                  ToDoubleFunction<ToolResultCache> count) {
+        FunctionCounter.builder("acp.bridge.tool-cache.calls", toolResultCache, count)
+                .description("Idempotent tool calls, by cache result")
+                .tag("result", result)
+                .register(registry);
+    }
+}
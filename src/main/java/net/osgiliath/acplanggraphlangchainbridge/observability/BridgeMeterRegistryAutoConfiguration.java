@@ -0,0 +1,118 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.logging.LoggingMeterRegistry;
+import io.micrometer.core.instrument.logging.LoggingRegistryConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.jmx.JmxConfig;
+import io.micrometer.jmx.JmxMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Creates the meter registry of the bridge when {@code acp.bridge.metrics.enabled=true} and the
+ * application provides no {@link MeterRegistry}.
+ *
+ * <p>This is an auto-configuration, listed in
+ * {@code META-INF/spring/org.springframework.boot.autoconfigure.AutoConfiguration.imports} and
+ * ordered after the Spring Boot metrics auto-configurations, so the missing-bean condition is
+ * evaluated once the registries of the application and of Actuator are known. The bridge is a
+ * stdio process without a web server, so the registry exports according to
+ * {@code acp.bridge.metrics.export}:</p>
+ * <ul>
+ *   <li>{@code log} (default): every step, one log line per meter (never to stdout, which carries the protocol);</li>
+ *   <li>{@code file}: every step, one line per meter appended to {@code acp.bridge.metrics.file};</li>
+ *   <li>{@code jmx}: MBeans under the {@code acp.bridge} domain, for JConsole or a JMX agent;</li>
+ *   <li>{@code none}: kept in memory only.</li>
+ * </ul>
+ */
+@AutoConfiguration(afterName = {
+        "org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration"})
+@ConditionalOnProperty(prefix = "acp.bridge.metrics", name = "enabled", havingValue = "true")
+public class BridgeMeterRegistryAutoConfiguration {
+
+    private static final Logger log = LoggerFactory.getLogger(BridgeMeterRegistryAutoConfiguration.class);
+
+    /**
+     * Creates the meter registry used when the application provides none.
+     *
+     * @param export where to export the meters: {@code log}, {@code file}, {@code jmx} or {@code none}
+     * @param step   the publishing interval of the {@code log}, {@code file} and {@code jmx} exports
+     * @param file   the file the {@code file} export appends to
+     * @return the meter registry
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean(MeterRegistry.class)
+    public MeterRegistry bridgeMeterRegistry(
+            @Value("${acp.bridge.metrics.export:log}") String export,
+            @Value("${acp.bridge.metrics.step:PT1M}") Duration step,
+            @Value("${acp.bridge.metrics.file:${user.home}/.cache/acp-bridge/metrics.log}") Path file) {
+        return switch (export.toLowerCase(Locale.ROOT)) {
+            case "log" -> LoggingMeterRegistry.builder(loggingConfig(step)).build();
+            case "file" -> LoggingMeterRegistry.builder(loggingConfig(step))
+                    .loggingSink(line -> append(file, line))
+                    .build();
+            case "jmx" -> new JmxMeterRegistry(new JmxConfig() {
+                @Override
+                public String get(String key) {
+                    return null;
+                }
+
+                @Override
+                public String domain() {
+                    return "acp.bridge";
+                }
+
+                @Override
+                public Duration step() {
+                    return step;
+                }
+            }, Clock.SYSTEM);
+            case "none" -> new SimpleMeterRegistry();
+            default -> throw new IllegalArgumentException("Unknown acp.bridge.metrics.export: " + export
+                    + " (expected log, file, jmx or none)");
+        };
+    }
+
+    private static LoggingRegistryConfig loggingConfig(Duration step) {
+        return new LoggingRegistryConfig() {
+            @Override
+            public String get(String key) {
+                return null;
+            }
+
+            @Override
+            public Duration step() {
+                return step;
+            }
+        };
+    }
+
+    private static void append(Path file, String line) {
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            Files.writeString(file, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.warn("Cannot write metrics to {}: {}", file, e.getMessage());
+        }
+    }
+}
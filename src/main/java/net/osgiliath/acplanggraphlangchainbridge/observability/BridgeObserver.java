@@ -0,0 +1,54 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability;
+
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+
+import java.util.List;
+
+/**
+ * Receives the lifecycle events of the bridge: sessions being opened and prompts being run.
+ *
+ * <p>Every Spring bean implementing this interface is notified; implementations must be
+ * cheap and must not throw, they run on the prompt streaming path.</p>
+ */
+public interface BridgeObserver {
+
+    /**
+     * An observer ignoring every event.
+     */
+    BridgeObserver NOOP = new BridgeObserver() {
+    };
+
+    /**
+     * Called when an ACP session is created or loaded.
+     *
+     * @param sessionContext the new session
+     */
+    default void sessionOpened(SessionContext sessionContext) {
+    }
+
+    /**
+     * Called when a prompt starts; the returned observation follows the prompt until it ends.
+     *
+     * @param sessionContext the session running the prompt
+     * @return the prompt observation
+     */
+    default PromptObservation promptStarted(SessionContext sessionContext) {
+        return PromptObservation.NOOP;
+    }
+
+    /**
+     * Combines observers into one notifying each of them in order.
+     *
+     * @param observers the observers
+     * @return a single observer
+     */
+    static BridgeObserver composite(List<? extends BridgeObserver> observers) {
+        if (observers.isEmpty()) {
+            return NOOP;
+        }
+        if (observers.size() == 1) {
+            return observers.getFirst();
+        }
+        return new CompositeBridgeObserver(List.copyOf(observers));
+    }
+}
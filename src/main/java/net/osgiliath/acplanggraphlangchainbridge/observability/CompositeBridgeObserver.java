@@ -0,0 +1,94 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability;
+
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Notifies several observers, isolating the prompt from the failure of any of them.
+ */
+final class CompositeBridgeObserver implements BridgeObserver {
+
+    private static final Logger log = LoggerFactory.getLogger(CompositeBridgeObserver.class);
+
+    private final List<BridgeObserver> observers;
+
+    CompositeBridgeObserver(List<BridgeObserver> observers) {
+        this.observers = observers;
+    }
+
+    @Override
+    public void sessionOpened(SessionContext sessionContext) {
+        forEach(observers, observer -> observer.sessionOpened(sessionContext));
+    }
+
+    @Override
+    public PromptObservation promptStarted(SessionContext sessionContext) {
+        List<PromptObservation> observations = new ArrayList<>(observers.size());
+        forEach(observers, observer -> observations.add(observer.promptStarted(sessionContext)));
+        return new CompositePromptObservation(List.copyOf(observations));
+    }
+
+    private static <T> void forEach(List<T> targets, Consumer<T> action) {
+        for (T target : targets) {
+            try {
+                action.accept(target);
+            } catch (RuntimeException e) {
+                log.warn("Observer {} failed: {}", target.getClass().getName(), e.getMessage());
+            }
+        }
+    }
+
+    private record CompositePromptObservation(List<PromptObservation> observations) implements PromptObservation {
+
+        @Override
+        public void graphCompiled(long nanos) {
+            forEach(observations, observation -> observation.graphCompiled(nanos));
+        }
+
+        @Override
+        public void nodeStarted(String nodeId) {
+            forEach(observations, observation -> observation.nodeStarted(nodeId));
+        }
+
+        @Override
+        public void nodeCompleted(NodeTiming timing) {
+            forEach(observations, observation -> observation.nodeCompleted(timing));
+        }
+
+        @Override
+        public void chunk(String chunk) {
+            forEach(observations, observation -> observation.chunk(chunk));
+        }
+
+        @Override
+        public void attachmentRead(URI uri, long bytes, long nanos) {
+            forEach(observations, observation -> observation.attachmentRead(uri, bytes, nanos));
+        }
+
+        @Override
+        public void toolExecuted(String toolName, long nanos, boolean failed) {
+            forEach(observations, observation -> observation.toolExecuted(toolName, nanos, failed));
+        }
+
+        @Override
+        public void completed() {
+            forEach(observations, PromptObservation::completed);
+        }
+
+        @Override
+        public void failed(Throwable error) {
+            forEach(observations, observation -> observation.failed(error));
+        }
+
+        @Override
+        public void cancelled() {
+            forEach(observations, PromptObservation::cancelled);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.osgiliath.acplanggraphlangchainbridge.http.SharedHttpClient;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.cache.ToolResultCache;
+import net.osgiliath.acplanggraphlangchainbridge.mcp.McpClientPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Optional;
+
+/**
+ * Registers the Micrometer instrumentation of the bridge when {@code acp.bridge.metrics.enabled=true}.
+ *
+ * <p>The meters are recorded in the application's {@link MeterRegistry}, or in the one
+ * {@link BridgeMeterRegistryAutoConfiguration} creates when the application provides none.</p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "acp.bridge.metrics", name = "enabled", havingValue = "true")
+public class MetricsConfiguration {
+
+    /**
+     * Creates the observer recording the prompt lifecycle.
+     *
+     * @param meterRegistry the meter registry
+     * @param sessionTags   whether to tag the token and byte counters by session id
+     * @return the observer
+     */
+    @Bean
+    public MicrometerBridgeObserver micrometerBridgeObserver(
+            MeterRegistry meterRegistry,
+            @Value("${acp.bridge.metrics.session-tags:false}") boolean sessionTags) {
+        return new MicrometerBridgeObserver(meterRegistry, sessionTags);
+    }
+
+    /**
+     * Exposes the counters of the shared HTTP client, the tool result cache and the MCP pool.
+     *
+     * @param meterRegistry    the meter registry
+     * @param sharedHttpClient the shared HTTP client, if enabled
+     * @param toolResultCache  the tool result cache, if enabled
+     * @param mcpClientPool    the MCP connection pool, if any
+     * @return the bound binder
+     */
+    @Bean
+    public BridgeMeterBinder bridgeMeterBinder(MeterRegistry meterRegistry,
+                                               Optional<SharedHttpClient> sharedHttpClient,
+                                               Optional<ToolResultCache> toolResultCache,
+                                               Optional<McpClientPool> mcpClientPool) {
+        BridgeMeterBinder binder = new BridgeMeterBinder(
+                sharedHttpClient.map(SharedHttpClient::stats).orElse(null),
+                toolResultCache.orElse(null),
+                mcpClientPool.orElse(null));
+        binder.bindTo(meterRegistry);
+        return binder;
+    }
+}
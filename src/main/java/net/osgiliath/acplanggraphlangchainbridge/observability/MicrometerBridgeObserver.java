@@ -0,0 +1,237 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the prompt lifecycle and the token stream as Micrometer meters.
+ *
+ * <ul>
+ *   <li>{@code acp.bridge.prompts.started} and {@code acp.bridge.prompts} (a timer tagged
+ *       {@code outcome=completed|failed|cancelled});</li>
+ *   <li>{@code acp.bridge.prompts.time-to-first-token} and
+ *       {@code acp.bridge.prompts.inter-token-latency} histograms;</li>
+ *   <li>{@code acp.bridge.tokens.emitted} and {@code acp.bridge.bytes.emitted}, a chunk being
+ *       counted as one token, tagged by session when session tags are enabled;</li>
+ *   <li>{@code acp.bridge.graph.compile}, {@code acp.bridge.attachments.read} and
+ *       {@code acp.bridge.tools} (a timer tagged by tool and outcome);</li>
+ *   <li>per graph node, tagged by node (and session when session tags are enabled):
+ *       {@code acp.bridge.graph.node} wall time, {@code acp.bridge.graph.node.cpu} CPU time and
+ *       {@code acp.bridge.graph.node.allocated} bytes;</li>
+ *   <li>the {@code acp.bridge.sessions.active} and {@code acp.bridge.prompts.in-flight} gauges.</li>
+ * </ul>
+ *
+ * <p>Active sessions are the sessions still referenced by the protocol layer: ACP has no
+ * session close, so a session stops counting once it is garbage collected.</p>
+ */
+public class MicrometerBridgeObserver implements BridgeObserver {
+
+    private final MeterRegistry registry;
+    private final boolean sessionTags;
+
+    private final Counter promptsStarted;
+    private final Timer completed;
+    private final Timer failed;
+    private final Timer cancelled;
+    private final Timer timeToFirstToken;
+    private final Timer interTokenLatency;
+    private final Counter tokens;
+    private final Counter bytes;
+    private final Timer graphCompile;
+    private final DistributionSummary attachmentBytes;
+
+    private final Map<SessionContext, Boolean> activeSessions = Collections.synchronizedMap(new WeakHashMap<>());
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Creates the observer and registers its meters.
+     *
+     * @param registry    the registry receiving the meters
+     * @param sessionTags whether to tag the token and byte counters by session id; only enable
+     *                    it for short-lived processes, every session adds two time series
+     */
+    public MicrometerBridgeObserver(MeterRegistry registry, boolean sessionTags) {
+        this.registry = registry;
+        this.sessionTags = sessionTags;
+        this.promptsStarted = Counter.builder("acp.bridge.prompts.started")
+                .description("Prompts started")
+                .register(registry);
+        this.completed = promptTimer("completed");
+        this.failed = promptTimer("failed");
+        this.cancelled = promptTimer("cancelled");
+        this.timeToFirstToken = Timer.builder("acp.bridge.prompts.time-to-first-token")
+                .description("Delay between the prompt start and its first streamed chunk")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.interTokenLatency = Timer.builder("acp.bridge.prompts.inter-token-latency")
+                .description("Delay between two streamed chunks")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.tokens = tokenCounter("all");
+        this.bytes = byteCounter("all");
+        this.graphCompile = Timer.builder("acp.bridge.graph.compile")
+                .description("Prompt graph build and compile time")
+                .register(registry);
+        this.attachmentBytes = DistributionSummary.builder("acp.bridge.attachments.read")
+                .description("Size of the attachments read")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("acp.bridge.sessions.active", activeSessions, Map::size)
+                .description("Sessions still referenced by the protocol layer")
+                .register(registry);
+        Gauge.builder("acp.bridge.prompts.in-flight", inFlight, AtomicInteger::get)
+                .description("Prompts currently running")
+                .register(registry);
+    }
+
+    @Override
+    public void sessionOpened(SessionContext sessionContext) {
+        activeSessions.put(sessionContext, Boolean.TRUE);
+    }
+
+    @Override
+    public PromptObservation promptStarted(SessionContext sessionContext) {
+        promptsStarted.increment();
+        inFlight.incrementAndGet();
+        String session = sessionTags ? sessionContext.sessionId() : "all";
+        Counter sessionTokens = sessionTags ? tokenCounter(session) : tokens;
+        Counter sessionBytes = sessionTags ? byteCounter(session) : bytes;
+        return new Observation(System.nanoTime(), session, sessionTokens, sessionBytes);
+    }
+
+    private Timer promptTimer(String outcome) {
+        return Timer.builder("acp.bridge.prompts")
+                .description("Prompt duration, by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private Counter tokenCounter(String session) {
+        return Counter.builder("acp.bridge.tokens.emitted")
+                .description("Chunks streamed to the client")
+                .tag("session", session)
+                .register(registry);
+    }
+
+    private Counter byteCounter(String session) {
+        return Counter.builder("acp.bridge.bytes.emitted")
+                .description("UTF-8 bytes streamed to the client")
+                .baseUnit("bytes")
+                .tag("session", session)
+                .register(registry);
+    }
+
+    private final class Observation implements PromptObservation {
+
+        private final long startNanos;
+        private final String session;
+        private final Counter sessionTokens;
+        private final Counter sessionBytes;
+        private long lastChunkNanos;
+        private boolean ended;
+
+        private Observation(long startNanos, String session, Counter sessionTokens, Counter sessionBytes) {
+            this.startNanos = startNanos;
+            this.session = session;
+            this.sessionTokens = sessionTokens;
+            this.sessionBytes = sessionBytes;
+        }
+
+        @Override
+        public void graphCompiled(long nanos) {
+            graphCompile.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void nodeCompleted(NodeTiming timing) {
+            Timer.builder("acp.bridge.graph.node")
+                    .description("Graph node wall time")
+                    .tag("node", timing.nodeId())
+                    .tag("session", session)
+                    .tag("outcome", timing.failed() ? "failed" : "completed")
+                    .register(registry)
+                    .record(timing.wallNanos(), TimeUnit.NANOSECONDS);
+            if (timing.cpuNanos() >= 0) {
+                Timer.builder("acp.bridge.graph.node.cpu")
+                        .description("Graph node CPU time")
+                        .tag("node", timing.nodeId())
+                        .tag("session", session)
+                        .register(registry)
+                        .record(timing.cpuNanos(), TimeUnit.NANOSECONDS);
+            }
+            if (timing.allocatedBytes() >= 0) {
+                DistributionSummary.builder("acp.bridge.graph.node.allocated")
+                        .description("Bytes allocated by a graph node")
+                        .baseUnit("bytes")
+                        .tag("node", timing.nodeId())
+                        .tag("session", session)
+                        .register(registry)
+                        .record(timing.allocatedBytes());
+            }
+        }
+
+        @Override
+        public synchronized void chunk(String chunk) {
+            long now = System.nanoTime();
+            if (lastChunkNanos == 0) {
+                timeToFirstToken.record(now - startNanos, TimeUnit.NANOSECONDS);
+            } else {
+                interTokenLatency.record(now - lastChunkNanos, TimeUnit.NANOSECONDS);
+            }
+            lastChunkNanos = now;
+            sessionTokens.increment();
+            sessionBytes.increment(chunk.getBytes(StandardCharsets.UTF_8).length);
+        }
+
+        @Override
+        public void attachmentRead(URI uri, long bytes, long nanos) {
+            attachmentBytes.record(bytes);
+        }
+
+        @Override
+        public void toolExecuted(String toolName, long nanos, boolean failed) {
+            Timer.builder("acp.bridge.tools")
+                    .description("Tool call duration")
+                    .tag("tool", toolName)
+                    .tag("outcome", failed ? "failed" : "completed")
+                    .register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void completed() {
+            end(completed);
+        }
+
+        @Override
+        public void failed(Throwable error) {
+            end(failed);
+        }
+
+        @Override
+        public void cancelled() {
+            end(cancelled);
+        }
+
+        private synchronized void end(Timer outcome) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            inFlight.decrementAndGet();
+            outcome.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
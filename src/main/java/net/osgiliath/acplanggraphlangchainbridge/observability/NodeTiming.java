@@ -0,0 +1,14 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability;
+
+/**
+ * The cost of one graph node invocation.
+ *
+ * @param nodeId         the node name
+ * @param wallNanos      the elapsed time between the node start and end
+ * @param cpuNanos       the CPU time of the thread running the node, {@code -1} when unavailable
+ *                       (virtual thread, node ending on another thread, unsupported JVM)
+ * @param allocatedBytes the bytes allocated by the thread running the node, {@code -1} when unavailable
+ * @param failed         whether the node threw
+ */
+public record NodeTiming(String nodeId, long wallNanos, long cpuNanos, long allocatedBytes, boolean failed) {
+}
@@ -0,0 +1,115 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability;
+
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import org.bsc.langgraph4j.GraphLifecycleListener;
+import org.bsc.langgraph4j.RunnableConfig;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Measures every node invocation of a compiled graph and reports it to the prompt observation.
+ *
+ * <p>Wall time is measured between the runtime's {@code before} and {@code after} callbacks. CPU
+ * time and allocated bytes come from the {@link ThreadMXBean} of the thread running the node;
+ * they are only reported when the node starts and ends on the same platform thread.</p>
+ *
+ * <p>A listener either reports to the observation of one prompt, or, when created by
+ * {@link #forActivePrompts()}, to the {@link ActivePrompts} observation of the session in the
+ * graph state, so a single compiled graph can serve every prompt.</p>
+ */
+public class NodeTimingListener implements GraphLifecycleListener {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS =
+            THREADS instanceof com.sun.management.ThreadMXBean sunThreads
+                    && sunThreads.isThreadAllocatedMemorySupported() ? sunThreads : null;
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+
+    private final Function<String, PromptObservation> observations;
+    private final Map<Node, Deque<Start>> running = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a listener for one prompt.
+     *
+     * @param observation the observation of the prompt running the graph
+     */
+    public NodeTimingListener(PromptObservation observation) {
+        this(sessionId -> observation);
+    }
+
+    private NodeTimingListener(Function<String, PromptObservation> observations) {
+        this.observations = observations;
+    }
+
+    /**
+     * Creates a listener reporting to the prompt each session is running.
+     *
+     * @return the listener
+     */
+    public static NodeTimingListener forActivePrompts() {
+        return new NodeTimingListener(ActivePrompts::of);
+    }
+
+    @Override
+    public void before(String nodeId, Map<String, Object> state, RunnableConfig config, Long curTime) {
+        Thread thread = Thread.currentThread();
+        boolean measurable = !thread.isVirtual();
+        Start start = new Start(thread.threadId(), System.nanoTime(),
+                measurable && CPU_TIME ? THREADS.getCurrentThreadCpuTime() : -1,
+                measurable && ALLOCATIONS != null ? ALLOCATIONS.getCurrentThreadAllocatedBytes() : -1);
+        Node node = new Node(sessionId(state), nodeId);
+        running.compute(node, (key, starts) -> {
+            Deque<Start> nodeStarts = starts == null ? new ArrayDeque<>() : starts;
+            nodeStarts.push(start);
+            return nodeStarts;
+        });
+        observations.apply(node.sessionId()).nodeStarted(nodeId);
+    }
+
+    @Override
+    public void after(String nodeId, Map<String, Object> state, RunnableConfig config, Long curTime) {
+        end(new Node(sessionId(state), nodeId), false);
+    }
+
+    @Override
+    public void onError(String nodeId, Map<String, Object> state, Throwable ex, RunnableConfig config) {
+        end(new Node(sessionId(state), nodeId), true);
+    }
+
+    private static String sessionId(Map<String, Object> state) {
+        return state != null && state.get(AcpState.SESSION_CONTEXT) instanceof SessionContext sessionContext
+                ? sessionContext.sessionId() : "";
+    }
+
+    private void end(Node node, boolean failed) {
+        Start[] polled = new Start[1];
+        // the deque is dropped with its last start, so finished sessions leave nothing behind
+        running.computeIfPresent(node, (key, starts) -> {
+            polled[0] = starts.poll();
+            return starts.isEmpty() ? null : starts;
+        });
+        Start start = polled[0];
+        if (start == null) {
+            return;
+        }
+        long wall = System.nanoTime() - start.wallNanos();
+        boolean sameThread = Thread.currentThread().threadId() == start.threadId();
+        long cpu = sameThread && start.cpuNanos() >= 0 ? THREADS.getCurrentThreadCpuTime() - start.cpuNanos() : -1;
+        long allocated = sameThread && start.allocatedBytes() >= 0
+                ? ALLOCATIONS.getCurrentThreadAllocatedBytes() - start.allocatedBytes() : -1;
+        observations.apply(node.sessionId()).nodeCompleted(new NodeTiming(node.nodeId(), wall, cpu, allocated, failed));
+    }
+
+    private record Node(String sessionId, String nodeId) {
+    }
+
+    private record Start(long threadId, long wallNanos, long cpuNanos, long allocatedBytes) {
+    }
+}
@@ -0,0 +1,103 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability;
+
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Logs one summary line per prompt with the time spent in each graph node, when
+ * {@code acp.bridge.metrics.node-trace=true}.
+ *
+ * <p>For instance: {@code Prompt trace for session s1 (completed, 2310.4 ms): attachments x1
+ * 12.0 ms wall 9.8 ms cpu 1.2 MiB; agent x2 2290.1 ms wall 41.3 ms cpu 3.5 MiB}.</p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "acp.bridge.metrics", name = "node-trace", havingValue = "true")
+public class NodeTraceLogger implements BridgeObserver {
+
+    private static final Logger log = LoggerFactory.getLogger(NodeTraceLogger.class);
+
+    @Override
+    public PromptObservation promptStarted(SessionContext sessionContext) {
+        return new Trace(sessionContext.sessionId(), System.nanoTime());
+    }
+
+    private static final class Trace implements PromptObservation {
+
+        private final String sessionId;
+        private final long startNanos;
+        private final Map<String, Total> totals = new LinkedHashMap<>();
+
+        private Trace(String sessionId, long startNanos) {
+            this.sessionId = sessionId;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public synchronized void nodeCompleted(NodeTiming timing) {
+            totals.computeIfAbsent(timing.nodeId(), id -> new Total()).add(timing);
+        }
+
+        @Override
+        public void completed() {
+            log("completed");
+        }
+
+        @Override
+        public void failed(Throwable error) {
+            log("failed");
+        }
+
+        @Override
+        public void cancelled() {
+            log("cancelled");
+        }
+
+        private synchronized void log(String outcome) {
+            if (!log.isInfoEnabled()) {
+                return;
+            }
+            StringBuilder summary = new StringBuilder();
+            totals.forEach((nodeId, total) -> {
+                if (!summary.isEmpty()) {
+                    summary.append("; ");
+                }
+                summary.append(nodeId).append(" x").append(total.calls)
+                        .append(' ').append(millis(total.wallNanos)).append(" wall");
+                if (total.cpuNanos >= 0) {
+                    summary.append(' ').append(millis(total.cpuNanos)).append(" cpu");
+                }
+                if (total.allocatedBytes >= 0) {
+                    summary.append(' ').append(String.format(Locale.ROOT, "%.1f MiB", total.allocatedBytes / 1048576.0));
+                }
+            });
+            log.info("Prompt trace for session {} ({}, {}): {}", sessionId, outcome,
+                    millis(System.nanoTime() - startNanos), summary);
+        }
+
+        private static String millis(long nanos) {
+            return String.format(Locale.ROOT, "%.1f ms", nanos / 1_000_000.0);
+        }
+    }
+
+    private static final class Total {
+        private int calls;
+        private long wallNanos;
+        private long cpuNanos;
+        private long allocatedBytes;
+
+        void add(NodeTiming timing) {
+            calls++;
+            wallNanos += timing.wallNanos();
+            // a single unmeasured invocation makes the total unknown
+            cpuNanos = cpuNanos < 0 || timing.cpuNanos() < 0 ? -1 : cpuNanos + timing.cpuNanos();
+            allocatedBytes = allocatedBytes < 0 || timing.allocatedBytes() < 0 ? -1 : allocatedBytes + timing.allocatedBytes();
+        }
+    }
+}
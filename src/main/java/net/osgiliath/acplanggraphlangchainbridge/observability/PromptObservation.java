@@ -0,0 +1,91 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability;
+
+import java.net.URI;
+
+/**
+ * Follows one prompt from its start to its completion, failure or cancellation.
+ *
+ * <p>Exactly one of {@link #completed()}, {@link #failed(Throwable)} and {@link #cancelled()} is
+ * called once the prompt ends. While it runs, graph nodes can reach the observation of their
+ * session through {@link ActivePrompts}.</p>
+ */
+public interface PromptObservation {
+
+    /**
+     * An observation ignoring every event.
+     */
+    PromptObservation NOOP = new PromptObservation() {
+    };
+
+    /**
+     * Called once the prompt graph is built and compiled.
+     *
+     * @param nanos the build and compile time
+     */
+    default void graphCompiled(long nanos) {
+    }
+
+    /**
+     * Called when a graph node starts.
+     *
+     * @param nodeId the node name
+     */
+    default void nodeStarted(String nodeId) {
+    }
+
+    /**
+     * Called when a graph node ends, normally or not.
+     *
+     * @param timing the cost of the node invocation
+     */
+    default void nodeCompleted(NodeTiming timing) {
+    }
+
+    /**
+     * Called for every chunk streamed to the client.
+     *
+     * @param chunk the chunk text
+     */
+    default void chunk(String chunk) {
+    }
+
+    /**
+     * Called when an attachment was read.
+     *
+     * @param uri   the attachment location
+     * @param bytes the number of bytes read
+     * @param nanos the read time
+     */
+    default void attachmentRead(URI uri, long bytes, long nanos) {
+    }
+
+    /**
+     * Called when a tool call ended, normally or not.
+     *
+     * @param toolName the tool name
+     * @param nanos    the execution time
+     * @param failed   whether the tool failed or timed out
+     */
+    default void toolExecuted(String toolName, long nanos, boolean failed) {
+    }
+
+    /**
+     * Called when the prompt completed normally.
+     */
+    default void completed() {
+    }
+
+    /**
+     * Called when the prompt failed.
+     *
+     * @param error the failure
+     */
+    default void failed(Throwable error) {
+    }
+
+    /**
+     * Called when the prompt was cancelled by the client.
+     */
+    default void cancelled() {
+    }
+}
@@ -0,0 +1,32 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * An attachment read by a graph node.
+ */
+@Name("net.osgiliath.acp.AttachmentRead")
+@Label("ACP Attachment Read")
+@Category("ACP Bridge")
+@Description("An attachment read by a graph node")
+final class AttachmentReadEvent extends jdk.jfr.Event {
+
+    @Label("Session Id")
+    String sessionId;
+
+    @Label("Path")
+    String path;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Read Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long readTime;
+}
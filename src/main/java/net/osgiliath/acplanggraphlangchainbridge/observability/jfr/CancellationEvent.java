@@ -0,0 +1,35 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A client asking to cancel the running prompt of a session.
+ *
+ * <p>The prompt itself ends later with a {@link PromptEvent} whose stop reason is
+ * {@code cancelled}; the gap between both is the cancellation latency.</p>
+ */
+@Name("net.osgiliath.acp.Cancellation")
+@Label("ACP Cancellation")
+@Category("ACP Bridge")
+@Description("A client asking to cancel the running prompt")
+public final class CancellationEvent extends jdk.jfr.Event {
+
+    @Label("Session Id")
+    String sessionId;
+
+    /**
+     * Commits a cancellation event if it is recorded.
+     *
+     * @param sessionId the cancelled session
+     */
+    public static void emit(String sessionId) {
+        CancellationEvent event = new CancellationEvent();
+        if (event.shouldCommit()) {
+            event.sessionId = sessionId;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A batch of consecutive chunks streamed to the client; one event per chunk would flood the recording.
+ */
+@Name("net.osgiliath.acp.ChunkBatch")
+@Label("ACP Chunk Batch")
+@Category("ACP Bridge")
+@Description("Consecutive chunks streamed to the client")
+final class ChunkBatchEvent extends jdk.jfr.Event {
+
+    @Label("Session Id")
+    String sessionId;
+
+    @Label("Chunks")
+    int chunks;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+}
@@ -0,0 +1,24 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The prompt graph being built and compiled.
+ */
+@Name("net.osgiliath.acp.GraphCompile")
+@Label("ACP Graph Compile")
+@Category("ACP Bridge")
+@Description("The prompt graph being built and compiled")
+final class GraphCompileEvent extends jdk.jfr.Event {
+
+    @Label("Session Id")
+    String sessionId;
+
+    @Label("Compile Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long compileTime;
+}
@@ -0,0 +1,143 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability.jfr;
+
+import jdk.jfr.EventType;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import net.osgiliath.acplanggraphlangchainbridge.observability.BridgeObserver;
+import net.osgiliath.acplanggraphlangchainbridge.observability.PromptObservation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Emits Java Flight Recorder events for prompts, chunk batches, attachment reads and graph
+ * compilations, so a recording shows the bridge activity next to GC and thread data.
+ *
+ * <p>Session and cancellation events are emitted by the ACP runner, which knows whether a
+ * session is created or loaded. When no recording enables the events, a chunk costs two
+ * {@link EventType#isEnabled()} checks and nothing else, and the other events are only
+ * populated once {@code shouldCommit()} says they are recorded. Disable entirely with {@code acp.bridge.jfr.enabled=false}.</p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "acp.bridge.jfr", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class JfrBridgeObserver implements BridgeObserver {
+
+    /**
+     * Number of chunks grouped in one {@link ChunkBatchEvent}.
+     */
+    static final int CHUNK_BATCH_SIZE = 32;
+
+    private static final EventType PROMPT = EventType.getEventType(PromptEvent.class);
+    private static final EventType CHUNK_BATCH = EventType.getEventType(ChunkBatchEvent.class);
+
+    @Override
+    public PromptObservation promptStarted(SessionContext sessionContext) {
+        PromptEvent event = new PromptEvent();
+        event.begin();
+        return new Observation(sessionContext.sessionId(), event);
+    }
+
+    private static final class Observation implements PromptObservation {
+
+        private final String sessionId;
+        private final PromptEvent prompt;
+        private ChunkBatchEvent batch;
+        private long chunks;
+        private long bytes;
+
+        private Observation(String sessionId, PromptEvent prompt) {
+            this.sessionId = sessionId;
+            this.prompt = prompt;
+        }
+
+        @Override
+        public void graphCompiled(long nanos) {
+            GraphCompileEvent event = new GraphCompileEvent();
+            if (event.shouldCommit()) {
+                event.sessionId = sessionId;
+                event.compileTime = nanos;
+                event.commit();
+            }
+        }
+
+        @Override
+        public void chunk(String chunk) {
+            boolean countForPrompt = PROMPT.isEnabled();
+            boolean batched = CHUNK_BATCH.isEnabled();
+            if (!countForPrompt && !batched) {
+                return;
+            }
+            int chunkBytes = chunk.getBytes(StandardCharsets.UTF_8).length;
+            synchronized (this) {
+                if (countForPrompt) {
+                    chunks++;
+                    bytes += chunkBytes;
+                }
+                if (batched) {
+                    if (batch == null) {
+                        batch = new ChunkBatchEvent();
+                        batch.begin();
+                    }
+                    batch.chunks++;
+                    batch.bytes += chunkBytes;
+                    if (batch.chunks >= CHUNK_BATCH_SIZE) {
+                        flushBatch();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void attachmentRead(URI uri, long bytes, long nanos) {
+            AttachmentReadEvent event = new AttachmentReadEvent();
+            if (event.shouldCommit()) {
+                event.sessionId = sessionId;
+                event.path = uri.toString();
+                event.bytes = bytes;
+                event.readTime = nanos;
+                event.commit();
+            }
+        }
+
+        @Override
+        public void completed() {
+            end("end_turn", null);
+        }
+
+        @Override
+        public void failed(Throwable error) {
+            end("error", error.getMessage());
+        }
+
+        @Override
+        public void cancelled() {
+            end("cancelled", null);
+        }
+
+        private synchronized void end(String stopReason, String error) {
+            flushBatch();
+            prompt.end();
+            if (prompt.shouldCommit()) {
+                prompt.sessionId = sessionId;
+                prompt.stopReason = stopReason;
+                prompt.chunks = chunks;
+                prompt.bytes = bytes;
+                prompt.error = error;
+                prompt.commit();
+            }
+        }
+
+        private void flushBatch() {
+            if (batch == null) {
+                return;
+            }
+            batch.end();
+            if (batch.shouldCommit()) {
+                batch.sessionId = sessionId;
+                batch.commit();
+            }
+            batch = null;
+        }
+    }
+}
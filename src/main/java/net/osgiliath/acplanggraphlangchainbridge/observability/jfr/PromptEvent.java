@@ -0,0 +1,34 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A prompt, from its start to its end.
+ */
+@Name("net.osgiliath.acp.Prompt")
+@Label("ACP Prompt")
+@Category("ACP Bridge")
+@Description("A prompt, from its start to its end")
+final class PromptEvent extends jdk.jfr.Event {
+
+    @Label("Session Id")
+    String sessionId;
+
+    @Label("Stop Reason")
+    @Description("end_turn, cancelled or error")
+    String stopReason;
+
+    @Label("Chunks")
+    long chunks;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Error")
+    String error;
+}
@@ -0,0 +1,59 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An ACP session being created or loaded; its duration is the time taken to set the session up.
+ */
+@Name("net.osgiliath.acp.Session")
+@Label("ACP Session")
+@Category("ACP Bridge")
+@Description("An ACP session being created or loaded")
+public final class SessionEvent extends jdk.jfr.Event {
+
+    @Label("Session Id")
+    String sessionId;
+
+    @Label("Kind")
+    @Description("create or load")
+    String kind;
+
+    @Label("Working Directory")
+    String cwd;
+
+    @Label("MCP Servers")
+    int mcpServers;
+
+    /**
+     * Starts timing a session set-up.
+     *
+     * @param kind {@code create} or {@code load}
+     * @return the started event
+     */
+    public static SessionEvent start(String kind) {
+        SessionEvent event = new SessionEvent();
+        event.kind = kind;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the session set-up and commits the event if it is recorded.
+     *
+     * @param sessionId  the session id
+     * @param cwd        the session working directory
+     * @param mcpServers the number of MCP servers declared by the session
+     */
+    public void complete(String sessionId, String cwd, int mcpServers) {
+        end();
+        if (shouldCommit()) {
+            this.sessionId = sessionId;
+            this.cwd = cwd;
+            this.mcpServers = mcpServers;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability.otel;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.exporter.logging.otlp.OtlpStdoutSpanExporter;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Creates the tracer provider of the bridge when {@code acp.bridge.tracing.enabled=true} and the
+ * application provides no {@link OpenTelemetry} instance.
+ *
+ * <p>This is an auto-configuration, ordered after the Spring Boot OpenTelemetry
+ * auto-configurations so the missing-bean condition sees their instance. The provider exports
+ * to the application's {@link SpanExporter} bean if there is one (an in-memory exporter in
+ * tests, an OTLP exporter in production), or else according to
+ * {@code acp.bridge.tracing.exporter}:</p>
+ * <ul>
+ *   <li>{@code file} (default): OTLP JSON, one export batch per line, appended to
+ *       {@code acp.bridge.tracing.file} ({@code ~/.cache/acp-bridge/traces.jsonl} by default),
+ *       ready to be shipped by a log agent;</li>
+ *   <li>{@code none}: spans are created but dropped.</li>
+ * </ul>
+ */
+@AutoConfiguration(afterName = {
+        "org.springframework.boot.actuate.autoconfigure.opentelemetry.OpenTelemetryAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.tracing.OpenTelemetryTracingAutoConfiguration"})
+@ConditionalOnProperty(prefix = "acp.bridge.tracing", name = "enabled", havingValue = "true")
+public class BridgeTracerProviderAutoConfiguration {
+
+    /**
+     * Creates the tracer provider used when the application provides no {@link OpenTelemetry}.
+     *
+     * @param exporters   the application span exporter, if any
+     * @param exporter    {@code file} or {@code none}, when the application provides no exporter
+     * @param file        the file the {@code file} exporter appends to
+     * @param serviceName the {@code service.name} resource attribute
+     * @return the tracer provider
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean(OpenTelemetry.class)
+    public SdkTracerProvider bridgeTracerProvider(
+            ObjectProvider<SpanExporter> exporters,
+            @Value("${acp.bridge.tracing.exporter:file}") String exporter,
+            @Value("${acp.bridge.tracing.file:${user.home}/.cache/acp-bridge/traces.jsonl}") Path file,
+            @Value("${acp.bridge.tracing.service-name:acp-bridge}") String serviceName) {
+        SdkTracerProviderBuilder builder = SdkTracerProvider.builder()
+                .setResource(Resource.getDefault().toBuilder()
+                        .put(AttributeKey.stringKey("service.name"), serviceName)
+                        .build());
+        SpanExporter spanExporter = exporters.getIfAvailable(() -> switch (exporter.toLowerCase(Locale.ROOT)) {
+            case "file" -> OtlpStdoutSpanExporter.builder().setOutput(append(file)).build();
+            case "none" -> null;
+            default -> throw new IllegalArgumentException("Unknown acp.bridge.tracing.exporter: " + exporter
+                    + " (expected file or none)");
+        });
+        if (spanExporter != null) {
+            builder.addSpanProcessor(BatchSpanProcessor.builder(spanExporter).build());
+        }
+        return builder.build();
+    }
+
+    private static OutputStream append(Path file) {
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            return Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the trace file " + file, e);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability.otel;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import net.osgiliath.acplanggraphlangchainbridge.observability.BridgeObserver;
+import net.osgiliath.acplanggraphlangchainbridge.observability.NodeTiming;
+import net.osgiliath.acplanggraphlangchainbridge.observability.PromptObservation;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traces every prompt as an OpenTelemetry span tree.
+ *
+ * <p>The {@code acp.prompt} root span carries the session id and, once the prompt ended, the
+ * number of chunks and bytes streamed and the stop reason. Its children are the graph
+ * compilation, one {@code acp.node.<id>} span per node invocation, one {@code acp.tool.call}
+ * span per tool call and one {@code acp.attachment.load} span per attachment read. Model calls
+ * are traced by {@link TracingChatModelListener}: the root span is current on the thread
+ * running the graph and each node span is current while its node runs, so model calls nest
+ * under the node issuing them.</p>
+ */
+public class OpenTelemetryBridgeObserver implements BridgeObserver {
+
+    static final String SESSION_ID = "acp.session.id";
+
+    private final Tracer tracer;
+
+    /**
+     * Creates the observer.
+     *
+     * @param tracer the tracer creating the spans
+     */
+    public OpenTelemetryBridgeObserver(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public PromptObservation promptStarted(SessionContext sessionContext) {
+        Span root = tracer.spanBuilder("acp.prompt")
+                .setSpanKind(SpanKind.SERVER)
+                .setAttribute(SESSION_ID, sessionContext.sessionId())
+                .setAttribute("acp.session.cwd", sessionContext.cwd())
+                .startSpan();
+        return new Observation(sessionContext.sessionId(), root);
+    }
+
+    private static long epochNanos() {
+        Instant now = Instant.now();
+        return TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+    }
+
+    private final class Observation implements PromptObservation {
+
+        private final String sessionId;
+        private final Span root;
+        private final Context rootContext;
+        private final CurrentSpan rootScope;
+        private final Map<String, Deque<CurrentSpan>> nodes = new ConcurrentHashMap<>();
+        private long chunks;
+        private long bytes;
+        private boolean ended;
+
+        private Observation(String sessionId, Span root) {
+            this.sessionId = sessionId;
+            this.root = root;
+            this.rootContext = Context.current().with(root);
+            this.rootScope = CurrentSpan.enter(root, rootContext);
+        }
+
+        @Override
+        public void graphCompiled(long nanos) {
+            completedChild("acp.graph.compile", nanos).end();
+        }
+
+        @Override
+        public void nodeStarted(String nodeId) {
+            Span node = tracer.spanBuilder("acp.node." + nodeId)
+                    .setParent(rootContext)
+                    .setAttribute(SESSION_ID, sessionId)
+                    .setAttribute("acp.node.id", nodeId)
+                    .startSpan();
+            nodes.computeIfAbsent(nodeId, id -> new ConcurrentLinkedDeque<>())
+                    .push(CurrentSpan.enter(node, rootContext.with(node)));
+        }
+
+        @Override
+        public void nodeCompleted(NodeTiming timing) {
+            Deque<CurrentSpan> started = nodes.get(timing.nodeId());
+            CurrentSpan node = started == null ? null : started.poll();
+            if (node == null) {
+                return;
+            }
+            if (timing.cpuNanos() >= 0) {
+                node.span().setAttribute("acp.node.cpu_ns", timing.cpuNanos());
+            }
+            if (timing.allocatedBytes() >= 0) {
+                node.span().setAttribute("acp.node.allocated_bytes", timing.allocatedBytes());
+            }
+            if (timing.failed()) {
+                node.span().setStatus(StatusCode.ERROR);
+            }
+            node.exit();
+            node.span().end();
+        }
+
+        @Override
+        public synchronized void chunk(String chunk) {
+            chunks++;
+            bytes += chunk.getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        @Override
+        public void attachmentRead(URI uri, long bytes, long nanos) {
+            completedChild("acp.attachment.load", nanos)
+                    .setAttribute("acp.attachment.uri", uri.toString())
+                    .setAttribute("acp.attachment.bytes", bytes)
+                    .end();
+        }
+
+        @Override
+        public void toolExecuted(String toolName, long nanos, boolean failed) {
+            Span tool = completedChild("acp.tool.call", nanos)
+                    .setAttribute("acp.tool.name", toolName);
+            if (failed) {
+                tool.setStatus(StatusCode.ERROR);
+            }
+            tool.end();
+        }
+
+        @Override
+        public void completed() {
+            end("end_turn", null);
+        }
+
+        @Override
+        public void failed(Throwable error) {
+            end("error", error);
+        }
+
+        @Override
+        public void cancelled() {
+            end("cancelled", null);
+        }
+
+        private synchronized void end(String stopReason, Throwable error) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            // nodes interrupted by a failure or a cancellation never reported their end
+            nodes.values().forEach(started -> {
+                for (CurrentSpan node; (node = started.poll()) != null; ) {
+                    node.exit();
+                    node.span().setStatus(StatusCode.ERROR, "interrupted").end();
+                }
+            });
+            root.setAttribute("acp.prompt.chunks", chunks)
+                    .setAttribute("acp.prompt.bytes", bytes)
+                    .setAttribute("acp.prompt.stop_reason", stopReason);
+            if (error != null) {
+                root.recordException(error).setStatus(StatusCode.ERROR, String.valueOf(error.getMessage()));
+            }
+            rootScope.exit();
+            root.end();
+        }
+
+        /**
+         * Starts a child span of the prompt backdated by {@code nanos}; the caller ends it.
+         */
+        private Span completedChild(String name, long nanos) {
+            return tracer.spanBuilder(name)
+                    .setParent(rootContext)
+                    .setAttribute(SESSION_ID, sessionId)
+                    .setStartTimestamp(epochNanos() - nanos, TimeUnit.NANOSECONDS)
+                    .startSpan();
+        }
+    }
+
+    /**
+     * A span made current on the thread that started it; {@link #exit()} only restores the
+     * previous context when called on that same thread, the only place a scope may be closed.
+     */
+    private record CurrentSpan(Span span, Scope scope, Thread thread) {
+
+        static CurrentSpan enter(Span span, Context context) {
+            return new CurrentSpan(span, context.makeCurrent(), Thread.currentThread());
+        }
+
+        void exit() {
+            if (Thread.currentThread() == thread) {
+                scope.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability.otel;
+
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.output.TokenUsage;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+
+/**
+ * Traces LangChain4j model calls as {@code acp.model.call} spans.
+ *
+ * <p>The span starts on the thread issuing the request, as a child of the current span (the
+ * graph node running the model when the call comes from a prompt graph), and ends when the
+ * response or the error arrives, usually on an HTTP client thread. The LangChain4j Spring Boot
+ * starters register listener beans on the models they create.</p>
+ */
+public class TracingChatModelListener implements ChatModelListener {
+
+    private static final String SPAN = TracingChatModelListener.class.getName() + ".span";
+
+    private final Tracer tracer;
+
+    /**
+     * Creates the listener.
+     *
+     * @param tracer the tracer creating the spans
+     */
+    public TracingChatModelListener(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public void onRequest(ChatModelRequestContext requestContext) {
+        Span span = tracer.spanBuilder("acp.model.call")
+                .setParent(Context.current())
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute("gen_ai.request.model", String.valueOf(requestContext.chatRequest().modelName()))
+                .setAttribute("gen_ai.request.messages", requestContext.chatRequest().messages().size())
+                .startSpan();
+        requestContext.attributes().put(SPAN, span);
+    }
+
+    @Override
+    public void onResponse(ChatModelResponseContext responseContext) {
+        if (!(responseContext.attributes().get(SPAN) instanceof Span span)) {
+            return;
+        }
+        TokenUsage usage = responseContext.chatResponse().tokenUsage();
+        if (usage != null) {
+            if (usage.inputTokenCount() != null) {
+                span.setAttribute("gen_ai.usage.input_tokens", usage.inputTokenCount());
+            }
+            if (usage.outputTokenCount() != null) {
+                span.setAttribute("gen_ai.usage.output_tokens", usage.outputTokenCount());
+            }
+        }
+        span.end();
+    }
+
+    @Override
+    public void onError(ChatModelErrorContext errorContext) {
+        if (!(errorContext.attributes().get(SPAN) instanceof Span span)) {
+            return;
+        }
+        span.recordException(errorContext.error())
+                .setStatus(StatusCode.ERROR, String.valueOf(errorContext.error().getMessage()))
+                .end();
+    }
+}
@@ -0,0 +1,65 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability.otel;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers OpenTelemetry tracing of prompts when {@code acp.bridge.tracing.enabled=true}.
+ *
+ * <p>When the application provides an {@link OpenTelemetry} instance, its tracer is used as is.
+ * Otherwise the tracer comes from the provider {@link BridgeTracerProviderAutoConfiguration}
+ * creates.</p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "acp.bridge.tracing", name = "enabled", havingValue = "true")
+public class TracingConfiguration {
+
+    /**
+     * The instrumentation scope name of the bridge spans.
+     */
+    public static final String INSTRUMENTATION_SCOPE = "net.osgiliath.acp-bridge";
+
+    /**
+     * Creates the tracer of the bridge spans.
+     *
+     * @param openTelemetry  the application OpenTelemetry instance, if any
+     * @param tracerProvider the bridge tracer provider, when the application provides no OpenTelemetry
+     * @return the tracer
+     */
+    @Bean
+    public Tracer acpBridgeTracer(ObjectProvider<OpenTelemetry> openTelemetry,
+                                  ObjectProvider<SdkTracerProvider> tracerProvider) {
+        OpenTelemetry application = openTelemetry.getIfAvailable();
+        return application != null
+                ? application.getTracer(INSTRUMENTATION_SCOPE)
+                : tracerProvider.getObject().get(INSTRUMENTATION_SCOPE);
+    }
+
+    /**
+     * Creates the observer tracing prompts, nodes, tool calls and attachment loads.
+     *
+     * @param tracer the bridge tracer
+     * @return the observer
+     */
+    @Bean
+    public OpenTelemetryBridgeObserver openTelemetryBridgeObserver(@Qualifier("acpBridgeTracer") Tracer tracer) {
+        return new OpenTelemetryBridgeObserver(tracer);
+    }
+
+    /**
+     * Creates the listener tracing model calls.
+     *
+     * @param tracer the bridge tracer
+     * @return the listener
+     */
+    @Bean
+    public TracingChatModelListener tracingChatModelListener(@Qualifier("acpBridgeTracer") Tracer tracer) {
+        return new TracingChatModelListener(tracer);
+    }
+}
@@ -0,0 +1,328 @@
+package net.osgiliath.acplanggraphlangchainbridge.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Where the bridge serves ACP: on its own stdin/stdout, or as a daemon accepting many clients on a
+ * Unix domain socket or a local TCP port.
+ *
+ * <p>This class only depends on the JDK, so the stdio shim can use it to reach the daemon
+ * without loading Spring.</p>
+ *
+ * <p>On POSIX systems a socket file is only bound in a directory owned by the current user and
+ * closed to everyone else, and is only connected to once that directory and the socket are
+ * found to belong to the current user. A TCP port can be reached by every local user, so the
+ * daemon writes a random token to a file only its owner can read, and a client must send that
+ * token on its first line before any ACP message.</p>
+ *
+ * @param mode      the transport
+ * @param socket    the socket file, for {@link Mode#UNIX}
+ * @param host      the address to bind or connect to, for {@link Mode#TCP}
+ * @param port      the port, for {@link Mode#TCP}
+ * @param tokenFile the file holding the token clients authenticate with, for {@link Mode#TCP}
+ */
+public record AcpEndpoint(Mode mode, Path socket, String host, int port, Path tokenFile) {
+
+    /**
+     * The default TCP port.
+     */
+    public static final int DEFAULT_PORT = 7341;
+
+    /**
+     * Serving one client on the process stdin/stdout.
+     */
+    public static final AcpEndpoint STDIO = new AcpEndpoint(Mode.STDIO, null, null, 0, null);
+
+    private static final int TOKEN_BYTES = 32;
+    private static final Set<PosixFilePermission> OWNER_ONLY = EnumSet.of(
+            PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE);
+
+    /**
+     * The ACP transports.
+     */
+    public enum Mode {
+        /**
+         * One client, on stdin/stdout.
+         */
+        STDIO,
+        /**
+         * Many clients, on a Unix domain socket.
+         */
+        UNIX,
+        /**
+         * Many clients, on a TCP port.
+         */
+        TCP
+    }
+
+    /**
+     * Creates a Unix domain socket endpoint.
+     *
+     * @param socket the socket file
+     * @return the endpoint
+     */
+    public static AcpEndpoint unix(Path socket) {
+        return new AcpEndpoint(Mode.UNIX, socket.toAbsolutePath().normalize(), null, 0, null);
+    }
+
+    /**
+     * Creates a TCP endpoint authenticated by the default token file of its port.
+     *
+     * @param host the address to bind or connect to
+     * @param port the port
+     * @return the endpoint
+     */
+    public static AcpEndpoint tcp(String host, int port) {
+        return tcp(host, port, runtimeDirectory().resolve("tcp-" + port + ".token"));
+    }
+
+    /**
+     * Creates a TCP endpoint.
+     *
+     * @param host      the address to bind or connect to
+     * @param port      the port
+     * @param tokenFile the file holding the token clients authenticate with
+     * @return the endpoint
+     */
+    public static AcpEndpoint tcp(String host, int port, Path tokenFile) {
+        return new AcpEndpoint(Mode.TCP, null, host, port, tokenFile.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Returns the directory holding the sockets, tokens and logs of the current user's daemons:
+     * {@code $XDG_RUNTIME_DIR/acp-bridge}, or {@code ~/.cache/acp-bridge/run} when there is no
+     * runtime directory.
+     *
+     * @return the per-user runtime directory, which may not exist yet
+     */
+    public static Path runtimeDirectory() {
+        String runtime = System.getenv("XDG_RUNTIME_DIR");
+        return runtime != null && !runtime.isBlank()
+                ? Path.of(runtime, "acp-bridge")
+                : Path.of(System.getProperty("user.home"), ".cache", "acp-bridge", "run");
+    }
+
+    /**
+     * Returns the default socket file, {@code bridge.sock} in the {@link #runtimeDirectory()}.
+     *
+     * @return the default socket file
+     */
+    public static Path defaultSocket() {
+        return runtimeDirectory().resolve("bridge.sock");
+    }
+
+    /**
+     * Creates a directory only its owner can access, or checks that an existing one is owned by
+     * the current user and closed to everyone else. Does nothing but create the directory on
+     * systems without POSIX permissions.
+     *
+     * @param directory the directory
+     * @return the directory
+     * @throws IOException if the directory cannot be created, belongs to another user or is
+     *                     accessible by other users
+     */
+    public static Path privateDirectory(Path directory) throws IOException {
+        if (!isPosix()) {
+            return Files.createDirectories(directory);
+        }
+        if (!Files.isDirectory(directory)) {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+        }
+        requireOwnedByCurrentUser(directory);
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory);
+        if (!OWNER_ONLY.containsAll(permissions)) {
+            throw new IOException(directory + " is accessible by other users ("
+                    + PosixFilePermissions.toString(permissions) + "), restrict it with chmod 700");
+        }
+        return directory;
+    }
+
+    /**
+     * Opens the server socket of a daemon endpoint. A socket file is bound in a
+     * {@linkplain #privateDirectory(Path) private directory}, replacing the one left behind by a
+     * daemon that is no longer running. A TCP endpoint writes a new token to its token file once bound.
+     *
+     * @return the bound server channel, in blocking mode
+     * @throws IOException if the endpoint cannot be bound, or another daemon is listening on it
+     */
+    public ServerSocketChannel bind() throws IOException {
+        if (mode == Mode.STDIO) {
+            throw new IllegalStateException("The stdio transport has no server socket");
+        }
+        if (mode == Mode.TCP) {
+            ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.INET);
+            try {
+                server.bind(address());
+                // only once the port is ours, so the token of a daemon already listening is kept
+                writeToken();
+            } catch (IOException e) {
+                server.close();
+                throw e;
+            }
+            return server;
+        }
+        privateDirectory(socket.getParent());
+        if (Files.exists(socket)) {
+            if (isListening()) {
+                throw new IOException("A bridge daemon is already listening on " + this);
+            }
+            Files.deleteIfExists(socket);
+        }
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(address());
+        if (isPosix()) {
+            Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+        }
+        return server;
+    }
+
+    /**
+     * Connects to a daemon endpoint. A socket file is only connected to when it and its directory
+     * belong to the current user; a TCP connection starts with the token of the token file.
+     *
+     * @return the connected channel, in blocking mode
+     * @throws IOException if no daemon accepts the connection, the socket belongs to another user
+     *                     or the token cannot be read
+     */
+    public SocketChannel connect() throws IOException {
+        if (mode == Mode.STDIO) {
+            throw new IllegalStateException("The stdio transport cannot be connected to");
+        }
+        if (mode == Mode.UNIX) {
+            requireOwnedByCurrentUser(socket.getParent());
+            requireOwnedByCurrentUser(socket);
+            return SocketChannel.open(address());
+        }
+        byte[] token = readToken();
+        SocketChannel channel = SocketChannel.open(address());
+        try {
+            ByteBuffer line = ByteBuffer.allocate(token.length + 1).put(token).put((byte) '\n').flip();
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * Authenticates a client accepted by the daemon: on a TCP endpoint, reads the first line of
+     * the connection and compares it with the token. Unix domain socket clients are already
+     * authenticated by the permissions of the socket directory.
+     *
+     * @param channel the accepted connection, in blocking mode
+     * @return {@code true} if the client may talk ACP on the connection
+     * @throws IOException if the first line cannot be read
+     */
+    public boolean authenticate(SocketChannel channel) throws IOException {
+        if (mode != Mode.TCP) {
+            return true;
+        }
+        byte[] expected = readToken();
+        // read byte by byte, so the ACP messages after the token are left in the channel
+        ByteBuffer received = ByteBuffer.allocate(expected.length + 1);
+        ByteBuffer single = ByteBuffer.allocate(1);
+        while (received.hasRemaining()) {
+            single.clear();
+            if (channel.read(single) < 0) {
+                return false;
+            }
+            byte read = single.get(0);
+            if (read == '\n') {
+                break;
+            }
+            received.put(read);
+        }
+        byte[] token = new byte[received.position()];
+        received.flip().get(token);
+        return MessageDigest.isEqual(expected, token);
+    }
+
+    /**
+     * Tells whether a daemon accepts connections on this endpoint.
+     *
+     * @return {@code true} if a connection could be opened
+     */
+    public boolean isListening() {
+        try (SocketChannel ignored = connect()) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void writeToken() throws IOException {
+        privateDirectory(tokenFile.getParent());
+        byte[] random = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(random);
+        byte[] token = Base64.getUrlEncoder().withoutPadding().encodeToString(random).getBytes(StandardCharsets.US_ASCII);
+        Files.deleteIfExists(tokenFile);
+        try (SeekableByteChannel channel = isPosix()
+                ? Files.newByteChannel(tokenFile, Set.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                PosixFilePermissions.asFileAttribute(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)))
+                : Files.newByteChannel(tokenFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(token);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private byte[] readToken() throws IOException {
+        requireOwnedByCurrentUser(tokenFile);
+        return Files.readString(tokenFile, StandardCharsets.US_ASCII).strip().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void requireOwnedByCurrentUser(Path path) throws IOException {
+        if (!isPosix()) {
+            return;
+        }
+        UserPrincipal owner = Files.getFileAttributeView(path, PosixFileAttributeView.class).getOwner();
+        UserPrincipal currentUser = path.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!owner.equals(currentUser)) {
+            throw new IOException(path + " belongs to " + owner.getName() + ", not to " + currentUser.getName());
+        }
+    }
+
+    private static boolean isPosix() {
+        return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    }
+
+    private SocketAddress address() {
+        return mode == Mode.UNIX ? UnixDomainSocketAddress.of(socket) : new InetSocketAddress(host, port);
+    }
+
+    @Override
+    public String toString() {
+        return switch (mode) {
+            case STDIO -> "stdio";
+            case UNIX -> "unix:" + socket;
+            case TCP -> "tcp:" + host + ':' + port;
+        };
+    }
+}
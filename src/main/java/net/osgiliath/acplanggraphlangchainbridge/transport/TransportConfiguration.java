@@ -0,0 +1,41 @@
+package net.osgiliath.acplanggraphlangchainbridge.transport;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Registers the {@link AcpEndpoint} the agent runner serves ACP on. The bridge talks over stdio by
+ * default; with {@code acp.bridge.transport.mode=unix} or {@code tcp} it runs as a daemon serving
+ * every client from one warm Spring context.
+ */
+@Configuration
+public class TransportConfiguration {
+
+    /**
+     * Creates the ACP endpoint.
+     *
+     * @param mode      {@code stdio}, {@code unix} or {@code tcp}
+     * @param socket    the socket file of the {@code unix} mode, {@link AcpEndpoint#defaultSocket()} when blank
+     * @param host      the address the {@code tcp} mode binds to, loopback by default
+     * @param port      the port of the {@code tcp} mode
+     * @param tokenFile the token file of the {@code tcp} mode, {@code tcp-<port>.token} in the
+     *                  {@link AcpEndpoint#runtimeDirectory()} when blank
+     * @return the endpoint
+     */
+    @Bean
+    public AcpEndpoint acpEndpoint(@Value("${acp.bridge.transport.mode:stdio}") String mode,
+                                   @Value("${acp.bridge.transport.socket:}") String socket,
+                                   @Value("${acp.bridge.transport.host:127.0.0.1}") String host,
+                                   @Value("${acp.bridge.transport.port:" + AcpEndpoint.DEFAULT_PORT + "}") int port,
+                                   @Value("${acp.bridge.transport.token-file:}") String tokenFile) {
+        return switch (AcpEndpoint.Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT))) {
+            case STDIO -> AcpEndpoint.STDIO;
+            case UNIX -> AcpEndpoint.unix(socket.isBlank() ? AcpEndpoint.defaultSocket() : Path.of(socket));
+            case TCP -> tokenFile.isBlank() ? AcpEndpoint.tcp(host, port) : AcpEndpoint.tcp(host, port, Path.of(tokenFile));
+        };
+    }
+}
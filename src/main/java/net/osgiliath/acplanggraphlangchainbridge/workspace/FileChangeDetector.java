@@ -0,0 +1,211 @@
+package net.osgiliath.acplanggraphlangchainbridge.workspace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Tells whether a workspace file changed without reading it, so the attachment nodes can reuse
+ * what they derived from it.
+ *
+ * <p>A file gets a fingerprint that changes whenever its content may have changed. In a git
+ * work tree, a file staged with the same size and modification time as on disk has the
+ * fingerprint {@code git:<blob id>}: git has hashed that content already, and the same content
+ * gets the same fingerprint in any path or clone. Any other file, and any file when
+ * {@code useGitIndex} is off, has the fingerprint {@code stat:<path>:<size>:<mtime>:<file key>}.</p>
+ *
+ * <p>The git index of a work tree is parsed on first use and again whenever it changes on disk.
+ * Like git, an entry staged in the same instant as the index was written is not trusted, since
+ * the file may have changed again within the timestamp granularity.</p>
+ */
+@Component
+public class FileChangeDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(FileChangeDetector.class);
+
+    private static final Pattern SHA256_FORMAT = Pattern.compile("(?im)^\\s*objectformat\\s*=\\s*sha256\\s*$");
+
+    private final boolean useGitIndex;
+    private final Map<Path, Optional<WorkTree>> workTrees = new ConcurrentHashMap<>();
+    private final Map<Path, LoadedIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * A git work tree.
+     *
+     * @param root         the top directory of the work tree
+     * @param indexFile    its index file
+     * @param objectIdSize the size of the object ids of the repository
+     */
+    private record WorkTree(Path root, Path indexFile, int objectIdSize) {
+    }
+
+    /**
+     * A parsed index, and the size and modification time of its file when it was parsed.
+     */
+    private record LoadedIndex(long size, long lastModifiedNanos, GitIndex index) {
+    }
+
+    /**
+     * Creates a detector reading git indexes.
+     */
+    public FileChangeDetector() {
+        this(true);
+    }
+
+    /**
+     * Creates a detector.
+     *
+     * @param useGitIndex whether to fingerprint the files of git work trees by their blob ids
+     */
+    @Autowired
+    public FileChangeDetector(@Value("${acp.bridge.change-detection.git-index:true}") boolean useGitIndex) {
+        this.useGitIndex = useGitIndex;
+    }
+
+    /**
+     * Fingerprints a file.
+     *
+     * @param cwd  the session working directory, from which the git work tree is found
+     * @param file the file
+     * @return its fingerprint, or an empty Optional when the file is missing or not a regular file
+     */
+    public Optional<String> fingerprint(Path cwd, Path file) {
+        Path absolute = file.toAbsolutePath().normalize();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(absolute, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+        if (!attributes.isRegularFile()) {
+            return Optional.empty();
+        }
+        if (useGitIndex && cwd != null) {
+            Optional<String> blobId = stagedBlobId(cwd.toAbsolutePath().normalize(), absolute, attributes);
+            if (blobId.isPresent()) {
+                return Optional.of("git:" + blobId.get());
+            }
+        }
+        return Optional.of("stat:" + absolute + ':' + attributes.size() + ':'
+                + attributes.lastModifiedTime().toInstant() + ':' + attributes.fileKey());
+    }
+
+    private Optional<String> stagedBlobId(Path cwd, Path file, BasicFileAttributes attributes) {
+        Optional<WorkTree> workTree = workTrees.computeIfAbsent(cwd, FileChangeDetector::findWorkTree);
+        if (workTree.isEmpty() || !file.startsWith(workTree.get().root())) {
+            return Optional.empty();
+        }
+        Optional<LoadedIndex> loaded = index(workTree.get());
+        if (loaded.isEmpty()) {
+            return Optional.empty();
+        }
+        String path = workTree.get().root().relativize(file).toString().replace(File.separatorChar, '/');
+        return loaded.get().index().entry(path)
+                .filter(entry -> matches(entry, attributes, loaded.get().lastModifiedNanos()))
+                .map(GitIndex.Entry::objectId);
+    }
+
+    /**
+     * Whether the file on disk is the one staged: same size, same modification time, and staged
+     * strictly before the index was written.
+     */
+    private static boolean matches(GitIndex.Entry entry, BasicFileAttributes attributes, long indexModifiedNanos) {
+        long seconds = attributes.lastModifiedTime().toInstant().getEpochSecond();
+        int nanos = attributes.lastModifiedTime().toInstant().getNano();
+        long stagedNanos = entry.mtimeSeconds() * 1_000_000_000L + entry.mtimeNanos();
+        return entry.size() == (attributes.size() & 0xffffffffL)
+                && entry.mtimeSeconds() == seconds
+                && (entry.mtimeNanos() == nanos || entry.mtimeNanos() == 0)
+                && stagedNanos < indexModifiedNanos - (entry.mtimeNanos() == 0 ? 1_000_000_000L : 0);
+    }
+
+    private Optional<LoadedIndex> index(WorkTree workTree) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(workTree.indexFile(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            indexes.remove(workTree.indexFile());
+            return Optional.empty();
+        }
+        long size = attributes.size();
+        long lastModifiedNanos = toNanos(attributes);
+        LoadedIndex loaded = indexes.compute(workTree.indexFile(), (file, current) -> {
+            if (current != null && current.size() == size && current.lastModifiedNanos() == lastModifiedNanos) {
+                return current;
+            }
+            try {
+                long start = System.nanoTime();
+                GitIndex index = GitIndex.read(file, workTree.objectIdSize());
+                log.debug("Read git index {}: {} entries in {} µs", file, index.size(), (System.nanoTime() - start) / 1000);
+                return new LoadedIndex(size, lastModifiedNanos, index);
+            } catch (IOException e) {
+                log.debug("Cannot use git index {}: {}", file, e.getMessage());
+                return null;
+            }
+        });
+        return Optional.ofNullable(loaded);
+    }
+
+    /**
+     * Finds the work tree containing a directory, following {@code gitdir:} files of linked
+     * work trees and submodules.
+     */
+    private static Optional<WorkTree> findWorkTree(Path cwd) {
+        for (Path directory = cwd; directory != null; directory = directory.getParent()) {
+            Path dotGit = directory.resolve(".git");
+            try {
+                Path gitDirectory;
+                if (Files.isDirectory(dotGit)) {
+                    gitDirectory = dotGit;
+                } else if (Files.isRegularFile(dotGit)) {
+                    String content = Files.readString(dotGit).strip();
+                    if (!content.startsWith("gitdir:")) {
+                        return Optional.empty();
+                    }
+                    gitDirectory = directory.resolve(content.substring("gitdir:".length()).strip()).normalize();
+                } else {
+                    continue;
+                }
+                return Optional.of(new WorkTree(directory, gitDirectory.resolve("index"), objectIdSize(gitDirectory)));
+            } catch (NoSuchFileException e) {
+                // removed meanwhile
+            } catch (IOException e) {
+                log.debug("Cannot read git directory {}: {}", dotGit, e.getMessage());
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Reads the object format of a repository from its config, or from the config of the main
+     * repository for a linked work tree.
+     */
+    private static int objectIdSize(Path gitDirectory) throws IOException {
+        Path commonDirectory = gitDirectory;
+        Path commonDir = gitDirectory.resolve("commondir");
+        if (Files.isRegularFile(commonDir)) {
+            commonDirectory = gitDirectory.resolve(Files.readString(commonDir).strip()).normalize();
+        }
+        Path config = commonDirectory.resolve("config");
+        return Files.isRegularFile(config) && SHA256_FORMAT.matcher(Files.readString(config)).find() ? 32 : 20;
+    }
+
+    private static long toNanos(BasicFileAttributes attributes) {
+        var instant = attributes.lastModifiedTime().toInstant();
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+}
@@ -0,0 +1,188 @@
+package net.osgiliath.acplanggraphlangchainbridge.workspace;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The entries of a git index file ({@code .git/index}), read without the git binary.
+ *
+ * <p>Versions 2, 3 and 4 of the format are supported, with SHA-1 or SHA-256 object ids. Only
+ * the entries git can vouch for are kept: regular files at stage 0, neither intent-to-add nor
+ * directories of a sparse index. An index split with {@code core.splitIndex} is rejected, as
+ * its entries live in a second file.</p>
+ */
+final class GitIndex {
+
+    private static final int SIGNATURE = 0x44495243; // "DIRC"
+    private static final int LINK_EXTENSION = 0x6c696e6b; // "link"
+    private static final int EXTENDED_FLAG = 0x4000;
+    private static final int INTENT_TO_ADD_FLAG = 0x2000;
+    private static final int STAGE_MASK = 0x3000;
+    private static final int NAME_MASK = 0x0fff;
+    private static final int TYPE_MASK = 0xf000;
+    private static final int REGULAR_FILE_TYPE = 0x8000;
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * An entry of the index.
+     *
+     * @param mtimeSeconds the modification time of the file when it was staged, seconds part
+     * @param mtimeNanos   the modification time of the file when it was staged, nanoseconds part
+     * @param size         the size of the file when it was staged, truncated to 32 bits
+     * @param objectId     the hex encoded id of the staged blob
+     */
+    record Entry(long mtimeSeconds, int mtimeNanos, long size, String objectId) {
+    }
+
+    private GitIndex(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Reads an index file.
+     *
+     * @param indexFile    the index file
+     * @param objectIdSize the size of object ids, 20 for SHA-1 repositories, 32 for SHA-256 ones
+     * @return the index
+     * @throws IOException if the file cannot be read, or is not a supported index
+     */
+    static GitIndex read(Path indexFile, int objectIdSize) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            return parse(buffer, objectIdSize);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Invalid git index " + indexFile, e);
+        }
+    }
+
+    /**
+     * Looks a file up.
+     *
+     * @param path the path of the file relative to the work tree, with {@code /} separators
+     * @return its entry, if the file is staged
+     */
+    Optional<Entry> entry(String path) {
+        return Optional.ofNullable(entries.get(path));
+    }
+
+    /**
+     * @return the number of entries
+     */
+    int size() {
+        return entries.size();
+    }
+
+    private static GitIndex parse(ByteBuffer buffer, int objectIdSize) throws IOException {
+        if (buffer.getInt() != SIGNATURE) {
+            throw new IOException("Not a git index");
+        }
+        int version = buffer.getInt();
+        if (version < 2 || version > 4) {
+            throw new IOException("Unsupported git index version " + version);
+        }
+        int count = buffer.getInt();
+        Map<String, Entry> entries = new HashMap<>(Math.max(16, count * 4 / 3 + 1));
+        HexFormat hex = HexFormat.of();
+        byte[] objectId = new byte[objectIdSize];
+        byte[] previousPath = new byte[0];
+        for (int i = 0; i < count; i++) {
+            int entryStart = buffer.position();
+            buffer.position(entryStart + 8); // ctime
+            long mtimeSeconds = Integer.toUnsignedLong(buffer.getInt());
+            int mtimeNanos = buffer.getInt();
+            buffer.position(buffer.position() + 8); // dev, ino
+            int mode = buffer.getInt();
+            buffer.position(buffer.position() + 8); // uid, gid
+            long size = Integer.toUnsignedLong(buffer.getInt());
+            buffer.get(objectId);
+            int flags = Short.toUnsignedInt(buffer.getShort());
+            int extendedFlags = version >= 3 && (flags & EXTENDED_FLAG) != 0 ? Short.toUnsignedInt(buffer.getShort()) : 0;
+
+            byte[] path;
+            if (version == 4) {
+                int strip = readOffset(buffer);
+                byte[] suffix = readUntilNul(buffer);
+                int keep = previousPath.length - strip;
+                if (keep < 0) {
+                    throw new IOException("Invalid path compression in git index");
+                }
+                path = new byte[keep + suffix.length];
+                System.arraycopy(previousPath, 0, path, 0, keep);
+                System.arraycopy(suffix, 0, path, keep, suffix.length);
+            } else {
+                int nameLength = flags & NAME_MASK;
+                if (nameLength < NAME_MASK) {
+                    path = new byte[nameLength];
+                    buffer.get(path);
+                } else {
+                    path = readUntilNul(buffer);
+                    buffer.position(buffer.position() - 1);
+                }
+                // entries are padded with 1 to 8 NUL bytes to a multiple of 8 bytes
+                int entryLength = buffer.position() - entryStart;
+                buffer.position(entryStart + ((entryLength + 8) & ~7));
+            }
+            previousPath = path;
+
+            boolean trusted = (flags & STAGE_MASK) == 0
+                    && (extendedFlags & INTENT_TO_ADD_FLAG) == 0
+                    && (mode & TYPE_MASK) == REGULAR_FILE_TYPE;
+            if (trusted) {
+                entries.put(new String(path, StandardCharsets.UTF_8),
+                        new Entry(mtimeSeconds, mtimeNanos, size, hex.formatHex(objectId)));
+            }
+        }
+        // extensions, then the checksum of the file
+        while (buffer.remaining() >= objectIdSize + 8) {
+            int signature = buffer.getInt();
+            int length = buffer.getInt();
+            if (signature == LINK_EXTENSION) {
+                throw new IOException("Split git indexes are not supported");
+            }
+            buffer.position(buffer.position() + length);
+        }
+        return new GitIndex(entries);
+    }
+
+    /**
+     * Reads the variable-length integer git uses for offsets: 7 bits per byte, most significant
+     * first, with one added to every continued group.
+     */
+    private static int readOffset(ByteBuffer buffer) {
+        int c = Byte.toUnsignedInt(buffer.get());
+        int value = c & 0x7f;
+        while ((c & 0x80) != 0) {
+            c = Byte.toUnsignedInt(buffer.get());
+            value = ((value + 1) << 7) | (c & 0x7f);
+        }
+        return value;
+    }
+
+    /**
+     * Reads bytes up to a NUL byte, which is consumed.
+     */
+    private static byte[] readUntilNul(ByteBuffer buffer) {
+        int start = buffer.position();
+        int end = start;
+        while (buffer.get(end) != 0) {
+            end++;
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(bytes);
+        buffer.get();
+        return bytes;
+    }
+}
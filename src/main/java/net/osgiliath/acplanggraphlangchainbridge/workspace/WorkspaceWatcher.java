@@ -0,0 +1,248 @@
+package net.osgiliath.acplanggraphlangchainbridge.workspace;
+
+import net.osgiliath.acplanggraphlangchainbridge.workspace.index.WorkspaceIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Watches session working directories for file changes and notifies listeners.
+ *
+ * <p>A single daemon thread serves every watched workspace. Directories are registered
+ * recursively, new directories are picked up as they are created, and the build output,
+ * dependency and VCS directories skipped by the workspace index are not watched, whether they
+ * exist up front or are created later. At most
+ * {@code acp.bridge.workspace-watcher.max-directories} directories are watched in total: a
+ * workspace that would go beyond, such as a home directory, is not watched at all, and the
+ * directories registered for it are released. Listeners receive the absolute path that changed; when the platform drops events
+ * (overflow), they receive the directory whose events were lost, meaning "anything below
+ * may have changed".</p>
+ */
+@Component
+public class WorkspaceWatcher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkspaceWatcher.class);
+
+    private static final int DEFAULT_MAX_DIRECTORIES = 8192;
+
+    private final int maxDirectories;
+    private final Map<Path, List<Consumer<Path>>> listeners = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private Thread pollingThread;
+
+    /**
+     * Creates a watcher with the default directory limit.
+     */
+    public WorkspaceWatcher() {
+        this(DEFAULT_MAX_DIRECTORIES);
+    }
+
+    /**
+     * Creates a watcher.
+     *
+     * @param maxDirectories the number of directories watched at most, across all workspaces
+     */
+    @Autowired
+    public WorkspaceWatcher(@Value("${acp.bridge.workspace-watcher.max-directories:8192}") int maxDirectories) {
+        this.maxDirectories = maxDirectories;
+    }
+
+    /**
+     * Starts watching a workspace.
+     *
+     * @param root     the workspace root
+     * @param listener receives every changed path below {@code root}
+     * @return a registration, closing it stops notifying {@code listener}
+     * @throws IOException if the workspace cannot be watched, or holds too many directories
+     */
+    public synchronized Registration watch(Path root, Consumer<Path> listener) throws IOException {
+        Path normalizedRoot = root.toAbsolutePath().normalize();
+        ensureStarted();
+        if (!listeners.containsKey(normalizedRoot)) {
+            registerRecursively(normalizedRoot);
+            log.debug("Watching workspace {} ({} directories)", normalizedRoot, directories.size());
+        }
+        listeners.computeIfAbsent(normalizedRoot, key -> new CopyOnWriteArrayList<>()).add(listener);
+        return () -> unwatch(normalizedRoot, listener);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        listeners.clear();
+        directories.clear();
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+        if (pollingThread != null) {
+            pollingThread.interrupt();
+            pollingThread = null;
+        }
+    }
+
+    private synchronized void unwatch(Path root, Consumer<Path> listener) {
+        List<Consumer<Path>> rootListeners = listeners.get(root);
+        if (rootListeners == null) {
+            return;
+        }
+        rootListeners.remove(listener);
+        if (rootListeners.isEmpty()) {
+            listeners.remove(root);
+            directories.entrySet().removeIf(entry -> {
+                boolean orphan = entry.getValue().startsWith(root)
+                        && listeners.keySet().stream().noneMatch(other -> entry.getValue().startsWith(other));
+                if (orphan) {
+                    entry.getKey().cancel();
+                }
+                return orphan;
+            });
+        }
+    }
+
+    private void ensureStarted() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        WatchService service = watchService;
+        pollingThread = Thread.ofPlatform()
+                .name("acp-workspace-watcher")
+                .daemon(true)
+                .start(() -> poll(service));
+    }
+
+    private void poll(WatchService service) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = service.take();
+                Path directory = directories.get(key);
+                if (directory != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        handle(directory, event);
+                    }
+                }
+                if (!key.reset()) {
+                    directories.remove(key);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Workspace watcher closed");
+        }
+    }
+
+    private void handle(Path directory, WatchEvent<?> event) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            notifyListeners(directory);
+            return;
+        }
+        Path changed = directory.resolve((Path) event.context());
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)
+                && !WorkspaceIndex.SKIPPED_DIRECTORIES.contains(changed.getFileName().toString())) {
+            synchronized (this) {
+                try {
+                    registerRecursively(changed);
+                } catch (IOException e) {
+                    log.warn("Cannot watch new directory {}: {}", changed, e.getMessage());
+                }
+            }
+        }
+        notifyListeners(changed);
+    }
+
+    private void notifyListeners(Path changed) {
+        listeners.forEach((root, rootListeners) -> {
+            if (changed.startsWith(root)) {
+                for (Consumer<Path> listener : rootListeners) {
+                    try {
+                        listener.accept(changed);
+                    } catch (RuntimeException e) {
+                        log.warn("Workspace listener failed on {}: {}", changed, e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the number of watched directories
+     */
+    int watchedDirectories() {
+        return directories.size();
+    }
+
+    private void registerRecursively(Path root) throws IOException {
+        if (watchService == null || !Files.isDirectory(root)) {
+            return;
+        }
+        List<WatchKey> registered = new ArrayList<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (!dir.equals(root) && WorkspaceIndex.SKIPPED_DIRECTORIES.contains(dir.getFileName().toString())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    if (directories.size() >= maxDirectories) {
+                        throw new IOException("More than " + maxDirectories + " directories to watch");
+                    }
+                    WatchKey key = dir.register(watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                    if (directories.put(key, dir) == null) {
+                        registered.add(key);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            for (WatchKey key : registered) {
+                key.cancel();
+                directories.remove(key);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A listener registration.
+     */
+    @FunctionalInterface
+    public interface Registration extends AutoCloseable {
+
+        /**
+         * Stops notifying the listener.
+         */
+        @Override
+        void close();
+    }
+}
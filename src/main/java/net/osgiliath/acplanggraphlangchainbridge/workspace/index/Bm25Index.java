@@ -0,0 +1,371 @@
+package net.osgiliath.acplanggraphlangchainbridge.workspace.index;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Lexical index of text chunks ranked with Okapi BM25.
+ *
+ * <p>Each chunk keeps its distinct terms and their frequencies; each term keeps the ids of the
+ * chunks containing it in a growable {@code int} array. Removing a file only empties the slots
+ * of its chunks: the postings skip empty slots, and are rebuilt once half of the slots are
+ * empty.</p>
+ *
+ * <p>Identifiers are indexed whole and split on camel case, digits and underscores, so
+ * {@code processOperation} is found by {@code process operation} too.</p>
+ *
+ * <p>This class is not thread safe; {@link WorkspaceIndex} guards it with a read-write lock.</p>
+ */
+final class Bm25Index {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final List<Chunk> chunks = new ArrayList<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<String, int[]> chunkIdsByPath = new HashMap<>();
+    private long totalLength;
+    private int liveChunks;
+
+    /**
+     * An indexed chunk.
+     *
+     * @param path        the path of the file, relative to the workspace
+     * @param index       the position of the chunk in the file, from 0
+     * @param firstLine   the first line of the chunk, from 1
+     * @param lastLine    the last line of the chunk, inclusive
+     * @param byteOffset  the position of the chunk in the file, in bytes, -1 when unknown
+     * @param byteLength  the size of the chunk in the file, in bytes
+     * @param terms       the distinct terms of the chunk, sorted
+     * @param frequencies the number of occurrences of each term
+     * @param length      the number of terms of the chunk, repetitions included
+     */
+    record Chunk(String path, int index, int firstLine, int lastLine, long byteOffset, int byteLength,
+                 String[] terms, int[] frequencies, int length) {
+
+        /**
+         * Creates a chunk from its text, without its position in the file.
+         */
+        static Chunk of(String path, int index, int firstLine, int lastLine, String text) {
+            return of(path, index, firstLine, lastLine, -1, 0, text);
+        }
+
+        /**
+         * Creates a chunk from its text.
+         */
+        static Chunk of(String path, int index, int firstLine, int lastLine, long byteOffset, int byteLength,
+                        String text) {
+            Map<String, Integer> counts = new TreeMap<>(termFrequencies(text));
+            String[] terms = counts.keySet().toArray(String[]::new);
+            int[] frequencies = new int[terms.length];
+            int length = 0;
+            for (int i = 0; i < terms.length; i++) {
+                frequencies[i] = counts.get(terms[i]);
+                length += frequencies[i];
+            }
+            return new Chunk(path, index, firstLine, lastLine, byteOffset, byteLength, terms, frequencies, length);
+        }
+
+        /**
+         * @return the key of the chunk, unique in the workspace
+         */
+        String key() {
+            return path + '#' + index;
+        }
+    }
+
+    /**
+     * A ranked chunk.
+     *
+     * @param chunk the chunk
+     * @param score its BM25 score for the query
+     */
+    record Hit(Chunk chunk, double score) {
+    }
+
+    /**
+     * Replaces the chunks of a file.
+     *
+     * @param path      the path of the file
+     * @param newChunks its chunks, empty to only remove the previous ones
+     */
+    void put(String path, List<Chunk> newChunks) {
+        remove(path);
+        if (newChunks.isEmpty()) {
+            return;
+        }
+        int[] ids = new int[newChunks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Chunk chunk = newChunks.get(i);
+            int id = chunks.size();
+            chunks.add(chunk);
+            for (String term : chunk.terms()) {
+                postings.computeIfAbsent(term, key -> new Postings()).add(id);
+            }
+            totalLength += chunk.length();
+            ids[i] = id;
+        }
+        liveChunks += ids.length;
+        chunkIdsByPath.put(path, ids);
+    }
+
+    /**
+     * Removes the chunks of a file.
+     *
+     * @param path the path of the file
+     */
+    void remove(String path) {
+        int[] ids = chunkIdsByPath.remove(path);
+        if (ids == null) {
+            return;
+        }
+        for (int id : ids) {
+            Chunk chunk = chunks.set(id, null);
+            for (String term : chunk.terms()) {
+                Postings termPostings = postings.get(term);
+                if (--termPostings.live == 0) {
+                    postings.remove(term);
+                }
+            }
+            totalLength -= chunk.length();
+        }
+        liveChunks -= ids.length;
+        if (chunks.size() > 1024 && liveChunks < chunks.size() / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * Ranks the chunks matching a query.
+     *
+     * @param query the query text
+     * @param limit the maximum number of hits
+     * @return the best hits, best first
+     */
+    List<Hit> search(String query, int limit) {
+        if (liveChunks == 0 || limit < 1) {
+            return List.of();
+        }
+        double averageLength = (double) totalLength / liveChunks;
+        Map<Integer, Double> scores = new HashMap<>();
+        for (String term : termFrequencies(query).keySet()) {
+            Postings termPostings = postings.get(term);
+            if (termPostings == null) {
+                continue;
+            }
+            double idf = Math.log(1 + (liveChunks - termPostings.live + 0.5) / (termPostings.live + 0.5));
+            for (int i = 0; i < termPostings.size; i++) {
+                int id = termPostings.ids[i];
+                Chunk chunk = chunks.get(id);
+                if (chunk == null) {
+                    continue;
+                }
+                int frequency = chunk.frequencies()[Arrays.binarySearch(chunk.terms(), term)];
+                double norm = frequency + K1 * (1 - B + B * chunk.length() / averageLength);
+                scores.merge(id, idf * frequency * (K1 + 1) / norm, Double::sum);
+            }
+        }
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, (a, b) -> Double.compare(a.score(), b.score()));
+        scores.forEach((id, score) -> {
+            best.add(new Hit(chunks.get(id), score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        });
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort((a, b) -> Double.compare(b.score(), a.score()));
+        return hits;
+    }
+
+    /**
+     * @return the paths of the indexed files
+     */
+    Collection<String> paths() {
+        return chunkIdsByPath.keySet();
+    }
+
+    /**
+     * @return the number of indexed chunks
+     */
+    int chunkCount() {
+        return liveChunks;
+    }
+
+    /**
+     * Writes the chunks, with a shared table of terms.
+     */
+    void write(DataOutputStream out) throws IOException {
+        Map<String, Integer> termIds = new LinkedHashMap<>();
+        for (Chunk chunk : chunks) {
+            if (chunk != null) {
+                for (String term : chunk.terms()) {
+                    termIds.putIfAbsent(term, termIds.size());
+                }
+            }
+        }
+        out.writeInt(termIds.size());
+        for (String term : termIds.keySet()) {
+            out.writeUTF(term);
+        }
+        out.writeInt(liveChunks);
+        for (Chunk chunk : chunks) {
+            if (chunk == null) {
+                continue;
+            }
+            out.writeUTF(chunk.path());
+            out.writeInt(chunk.index());
+            out.writeInt(chunk.firstLine());
+            out.writeInt(chunk.lastLine());
+            out.writeLong(chunk.byteOffset());
+            out.writeInt(chunk.byteLength());
+            out.writeInt(chunk.terms().length);
+            for (int i = 0; i < chunk.terms().length; i++) {
+                out.writeInt(termIds.get(chunk.terms()[i]));
+                out.writeInt(chunk.frequencies()[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads chunks written by {@link #write(DataOutputStream)}.
+     */
+    static Bm25Index read(DataInputStream in) throws IOException {
+        String[] termTable = new String[in.readInt()];
+        for (int i = 0; i < termTable.length; i++) {
+            termTable[i] = in.readUTF();
+        }
+        Map<String, List<Chunk>> chunksByPath = new LinkedHashMap<>();
+        int count = in.readInt();
+        for (int c = 0; c < count; c++) {
+            String path = in.readUTF();
+            int index = in.readInt();
+            int firstLine = in.readInt();
+            int lastLine = in.readInt();
+            long byteOffset = in.readLong();
+            int byteLength = in.readInt();
+            String[] terms = new String[in.readInt()];
+            int[] frequencies = new int[terms.length];
+            int length = 0;
+            for (int i = 0; i < terms.length; i++) {
+                terms[i] = termTable[in.readInt()];
+                frequencies[i] = in.readInt();
+                length += frequencies[i];
+            }
+            chunksByPath.computeIfAbsent(path, key -> new ArrayList<>())
+                    .add(new Chunk(path, index, firstLine, lastLine, byteOffset, byteLength, terms, frequencies, length));
+        }
+        Bm25Index index = new Bm25Index();
+        chunksByPath.forEach(index::put);
+        return index;
+    }
+
+    /**
+     * Splits text into lower-case terms: words of at least two characters, and the parts of
+     * compound identifiers.
+     *
+     * @param text a text
+     * @return its terms and their number of occurrences
+     */
+    static Map<String, Integer> termFrequencies(String text) {
+        Map<String, Integer> counts = new HashMap<>();
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !isWordCharacter(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && isWordCharacter(text.charAt(i))) {
+                i++;
+            }
+            if (i - start >= 2) {
+                addWord(text.substring(start, i), counts);
+            }
+        }
+        return counts;
+    }
+
+    private static void addWord(String word, Map<String, Integer> counts) {
+        counts.merge(word.toLowerCase(Locale.ROOT), 1, Integer::sum);
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= word.length(); i++) {
+            if (i == word.length() || isBoundary(word, i)) {
+                String part = word.substring(start, i).replace("_", "");
+                if (part.length() >= 2) {
+                    parts.add(part.toLowerCase(Locale.ROOT));
+                }
+                start = i;
+            }
+        }
+        if (parts.size() > 1) {
+            for (String part : parts) {
+                counts.merge(part, 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Whether a part of a compound identifier starts at {@code i}: after an underscore, at a
+     * lower to upper case change, before the last capital of an acronym ({@code HTTPServer}), or
+     * at a letter to digit change.
+     */
+    private static boolean isBoundary(String word, int i) {
+        char previous = word.charAt(i - 1);
+        char current = word.charAt(i);
+        return previous == '_'
+                || (Character.isLowerCase(previous) && Character.isUpperCase(current))
+                || (Character.isUpperCase(previous) && Character.isUpperCase(current)
+                && i + 1 < word.length() && Character.isLowerCase(word.charAt(i + 1)))
+                || (Character.isDigit(previous) != Character.isDigit(current) && current != '_');
+    }
+
+    private static boolean isWordCharacter(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private void compact() {
+        Map<String, List<Chunk>> live = new LinkedHashMap<>();
+        chunkIdsByPath.forEach((path, ids) -> {
+            List<Chunk> fileChunks = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                fileChunks.add(chunks.get(id));
+            }
+            live.put(path, fileChunks);
+        });
+        chunks.clear();
+        postings.clear();
+        chunkIdsByPath.clear();
+        totalLength = 0;
+        liveChunks = 0;
+        live.forEach(this::put);
+    }
+
+    /**
+     * The ids of the chunks containing a term, empty slots included.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+        private int live;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+            live++;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package net.osgiliath.acplanggraphlangchainbridge.workspace.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * The rules of the {@code .gitignore} files of a workspace.
+ *
+ * <p>The {@code .gitignore} of each directory is read on first use and applies to the paths
+ * below it, deeper files and later lines taking precedence, as with git: blank lines and
+ * comments are skipped, {@code !} includes a path again, a trailing {@code /} only matches
+ * directories, a pattern holding another {@code /} is relative to its directory, and {@code *},
+ * {@code ?}, {@code [...]} and {@code **} are wildcards. A path below an ignored directory is
+ * ignored. The global excludes and {@code .git/info/exclude} are not read.</p>
+ *
+ * <p>This class is thread safe.</p>
+ */
+final class GitIgnore {
+
+    static final String FILE_NAME = ".gitignore";
+
+    private final Path root;
+    private final Map<String, List<Rule>> rulesByDirectory = new ConcurrentHashMap<>();
+
+    /**
+     * A line of a {@code .gitignore} file.
+     *
+     * @param pattern       the pattern, matching the relative path when anchored, the name otherwise
+     * @param negated       whether a match includes the path again
+     * @param directoryOnly whether the rule only matches directories
+     * @param anchored      whether the pattern is relative to the directory of the file
+     */
+    private record Rule(Pattern pattern, boolean negated, boolean directoryOnly, boolean anchored) {
+
+        boolean matches(String relative, String name, boolean directory) {
+            return (directory || !directoryOnly) && pattern.matcher(anchored ? relative : name).matches();
+        }
+    }
+
+    /**
+     * @param root the workspace root
+     */
+    GitIgnore(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Tells whether a path, or one of the directories above it, is ignored.
+     *
+     * @param path      the path, relative to the workspace root, with {@code /} separators
+     * @param directory whether the path is a directory
+     * @return whether git ignores the path
+     */
+    boolean isIgnored(String path, boolean directory) {
+        if (path.isEmpty()) {
+            return false;
+        }
+        String[] names = path.split("/");
+        for (int end = 1; end <= names.length; end++) {
+            if (ignored(names, end, end < names.length || directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Forgets the rules read from a directory, after its {@code .gitignore} changed.
+     *
+     * @param directory the directory, relative to the workspace root, empty for the root
+     */
+    void forget(String directory) {
+        rulesByDirectory.remove(directory);
+    }
+
+    private boolean ignored(String[] names, int end, boolean directory) {
+        boolean ignored = false;
+        StringBuilder directoryPath = new StringBuilder();
+        for (int depth = 0; depth < end; depth++) {
+            if (depth > 0) {
+                directoryPath.append(depth > 1 ? "/" : "").append(names[depth - 1]);
+            }
+            String relative = String.join("/", List.of(names).subList(depth, end));
+            for (Rule rule : rules(directoryPath.toString())) {
+                if (rule.matches(relative, names[end - 1], directory)) {
+                    ignored = !rule.negated();
+                }
+            }
+        }
+        return ignored;
+    }
+
+    private List<Rule> rules(String directory) {
+        return rulesByDirectory.computeIfAbsent(directory, key -> {
+            Path file = root.resolve(key).resolve(FILE_NAME);
+            if (!Files.isRegularFile(file)) {
+                return List.of();
+            }
+            try {
+                List<Rule> rules = new ArrayList<>();
+                for (String line : Files.readAllLines(file)) {
+                    Rule rule = parse(line);
+                    if (rule != null) {
+                        rules.add(rule);
+                    }
+                }
+                return List.copyOf(rules);
+            } catch (IOException | RuntimeException e) {
+                return List.of();
+            }
+        });
+    }
+
+    private static Rule parse(String line) {
+        String pattern = line.strip();
+        if (pattern.isEmpty() || pattern.startsWith("#")) {
+            return null;
+        }
+        boolean negated = pattern.startsWith("!");
+        if (negated || pattern.startsWith("\\!") || pattern.startsWith("\\#")) {
+            pattern = pattern.substring(1);
+        }
+        boolean directoryOnly = pattern.endsWith("/");
+        if (directoryOnly) {
+            pattern = pattern.substring(0, pattern.length() - 1);
+        }
+        boolean anchored = pattern.contains("/");
+        if (pattern.startsWith("/")) {
+            pattern = pattern.substring(1);
+        }
+        if (pattern.isEmpty()) {
+            return null;
+        }
+        return new Rule(Pattern.compile(regex(pattern)), negated, directoryOnly, anchored);
+    }
+
+    private static String regex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int length = glob.length();
+        for (int i = 0; i < length; i++) {
+            char c = glob.charAt(i);
+            boolean segmentStart = i == 0 || glob.charAt(i - 1) == '/';
+            if (c == '*' && i + 1 < length && glob.charAt(i + 1) == '*' && segmentStart
+                    && (i + 2 == length || glob.charAt(i + 2) == '/')) {
+                // "**/" matches any number of directories, a trailing "**" anything below
+                regex.append(i + 2 == length ? ".*" : "(?:.*/)?");
+                i += i + 2 == length ? 1 : 2;
+            } else if (c == '*') {
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else if (c == '[' && glob.indexOf(']', i + 2) > 0) {
+                int close = glob.indexOf(']', i + 2);
+                String members = glob.substring(i + 1, close);
+                regex.append('[').append(members.startsWith("!") ? "^" + members.substring(1) : members)
+                        .append(']');
+                i = close;
+            } else if (c == '\\' && i + 1 < length) {
+                regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return regex.toString();
+    }
+}
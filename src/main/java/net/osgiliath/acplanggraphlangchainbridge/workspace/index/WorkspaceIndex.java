@@ -0,0 +1,766 @@
+package net.osgiliath.acplanggraphlangchainbridge.workspace.index;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment.TextChunker;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment.TextDecoder;
+import net.osgiliath.acplanggraphlangchainbridge.workspace.WorkspaceWatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Retrieval index over the text files of a workspace, answering a query with the few snippets
+ * relevant to it instead of whole files.
+ *
+ * <p>Files are decoded with {@link TextDecoder}, split with {@link TextChunker} and ranked with
+ * BM25. When an {@link EmbeddingModel} is given, the chunks are also embedded in an
+ * {@link InMemoryEmbeddingStore}, and both rankings are merged by reciprocal rank fusion, so a
+ * query finds code sharing its meaning as well as its words.</p>
+ *
+ * <p>The index is built by a background thread: it loads the index persisted by the previous
+ * run, re-indexes the files whose size or modification time changed, drops the deleted ones,
+ * then follows the {@link WorkspaceWatcher} events; a workspace the watcher refuses, such as one
+ * holding more directories than its limit, is indexed once. It answers queries from the first file
+ * indexed, and saves itself after the initial scan, every {@code saveInterval} while files
+ * change, and on {@link #close()}.</p>
+ *
+ * <p>Build output, dependency and VCS directories are skipped, and so are the paths ignored by
+ * the {@code .gitignore} files of the workspace, the dotfiles and dot directories, such as
+ * {@code .env}, and the key and credential files matching {@link #DENIED_FILES}. Each chunk keeps
+ * its position in the file, so a snippet only reads its own bytes.</p>
+ */
+public class WorkspaceIndex implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkspaceIndex.class);
+
+    private static final int FILE_MAGIC = 0x41435049; // "ACPI"
+    private static final int FILE_VERSION = 2;
+    private static final int RRF_RANK_OFFSET = 60;
+
+    /**
+     * The build output, dependency and VCS directories, which are neither indexed nor watched.
+     */
+    public static final Set<String> SKIPPED_DIRECTORIES = Set.of(
+            ".git", ".gradle", ".idea", ".vscode", ".venv", "node_modules", "build", "target", "out", "dist",
+            "__pycache__");
+
+    /**
+     * The glob patterns of the file names never indexed, as they usually hold keys or credentials;
+     * dotfiles, such as {@code .env} or {@code .npmrc}, are never indexed either.
+     */
+    public static final List<String> DENIED_FILES = List.of(
+            "*.env", "*.pem", "*.key", "*.p12", "*.pfx", "*.jks", "*.keystore", "*.kdbx", "*.tfstate", "*.tfvars",
+            "id_rsa*", "id_dsa*", "id_ecdsa*", "id_ed25519*");
+
+    private static final List<PathMatcher> DENIED_FILE_MATCHERS = DENIED_FILES.stream()
+            .map(pattern -> FileSystems.getDefault().getPathMatcher("glob:" + pattern))
+            .toList();
+
+    private final Path root;
+    private final Path storeFile;
+    private final long maxFileBytes;
+    private final Duration saveInterval;
+    private final TextChunker chunker;
+    private final String chunkSettings;
+    private final EmbeddingModel embeddingModel;
+    private final WorkspaceWatcher workspaceWatcher;
+    private final GitIgnore gitIgnore;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Bm25Index lexical = new Bm25Index();
+    private final Map<String, FileState> files = new HashMap<>();
+    private InMemoryEmbeddingStore<TextSegment> embeddings;
+
+    private final BlockingQueue<Path> changes = new LinkedBlockingQueue<>();
+    private final Set<Path> pendingChanges = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch initialScan = new CountDownLatch(1);
+    private volatile boolean dirty;
+    private volatile boolean closed;
+    private Thread worker;
+    private WorkspaceWatcher.Registration registration;
+
+    /**
+     * A snippet of a workspace file.
+     *
+     * @param path      the file
+     * @param firstLine the first line of the snippet, from 1
+     * @param lastLine  the last line of the snippet, inclusive
+     * @param text      the lines of the snippet
+     * @param score     the relevance of the snippet, only comparable within a single search
+     */
+    public record Snippet(Path path, int firstLine, int lastLine, String text, double score) {
+    }
+
+    /**
+     * The indexed version of a file.
+     *
+     * @param size         the size of the file, in bytes
+     * @param lastModified the modification time of the file, in milliseconds
+     * @param contentHash  the hex encoded SHA-256 of the file
+     * @param charset      the charset the file was decoded with
+     * @param chunks       the number of chunks of the file, 0 for binary files
+     */
+    record FileState(long size, long lastModified, String contentHash, String charset, int chunks) {
+    }
+
+    /**
+     * The position of a chunk in its file.
+     *
+     * @param byteOffset the offset of the chunk, in bytes, -1 when unknown
+     * @param byteLength the length of the chunk, in bytes
+     */
+    private record Location(long byteOffset, int byteLength) {
+
+        static final Location UNKNOWN = new Location(-1, 0);
+    }
+
+    /**
+     * Creates the index of a workspace; {@link #start()} builds it.
+     *
+     * @param root             the workspace root
+     * @param storeFile        the file persisting the index, or {@code null} to keep it in memory
+     * @param chunkTokens      the maximum number of tokens of a chunk
+     * @param overlapTokens    the maximum number of tokens a chunk repeats from the previous one
+     * @param maxFileBytes     the size above which a file is not indexed
+     * @param saveInterval     the minimum time between two saves while files change
+     * @param embeddingModel   the model embedding the chunks, or {@code null} for a lexical index only
+     * @param workspaceWatcher the watcher of file changes, or {@code null} to index the workspace once
+     */
+    public WorkspaceIndex(Path root, Path storeFile, int chunkTokens, int overlapTokens, long maxFileBytes,
+                          Duration saveInterval, EmbeddingModel embeddingModel, WorkspaceWatcher workspaceWatcher) {
+        this.root = root.toAbsolutePath().normalize();
+        this.storeFile = storeFile;
+        this.maxFileBytes = maxFileBytes;
+        this.saveInterval = saveInterval;
+        this.chunker = new TextChunker(chunkTokens, overlapTokens, TextChunker::approximateTokens);
+        this.chunkSettings = chunkTokens + ":" + overlapTokens + ":" + (embeddingModel != null);
+        this.embeddingModel = embeddingModel;
+        this.workspaceWatcher = workspaceWatcher;
+        this.embeddings = embeddingModel != null ? new InMemoryEmbeddingStore<>() : null;
+        this.gitIgnore = new GitIgnore(this.root);
+    }
+
+    /**
+     * Starts building the index in the background.
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        worker = Thread.ofVirtual().name("acp-workspace-index").start(this::run);
+    }
+
+    /**
+     * Waits for the initial scan of the workspace.
+     *
+     * @param timeout the maximum time to wait
+     * @return whether the initial scan is complete
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitInitialScan(Duration timeout) throws InterruptedException {
+        return initialScan.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Finds the snippets most relevant to a query. Until the initial scan completes, only the
+     * files indexed so far are searched.
+     *
+     * @param query the query, typically the prompt
+     * @param limit the maximum number of snippets
+     * @return the snippets, most relevant first
+     */
+    public List<Snippet> search(String query, int limit) {
+        if (query == null || query.isBlank() || limit < 1) {
+            return List.of();
+        }
+        Map<String, Double> fused = new LinkedHashMap<>();
+        Map<String, Bm25Index.Chunk> byKey = new HashMap<>();
+        Embedding queryEmbedding = embeddingModel != null ? embeddingModel.embed(query).content() : null;
+        lock.readLock().lock();
+        try {
+            List<Bm25Index.Hit> hits = lexical.search(query, limit * 2);
+            for (int rank = 0; rank < hits.size(); rank++) {
+                Bm25Index.Chunk chunk = hits.get(rank).chunk();
+                byKey.put(chunk.key(), chunk);
+                fused.merge(chunk.key(), 1.0 / (RRF_RANK_OFFSET + rank), Double::sum);
+            }
+            if (queryEmbedding != null) {
+                List<EmbeddingMatch<TextSegment>> matches = embeddings.search(EmbeddingSearchRequest.builder()
+                        .queryEmbedding(queryEmbedding)
+                        .maxResults(limit * 2)
+                        .build()).matches();
+                for (int rank = 0; rank < matches.size(); rank++) {
+                    EmbeddingMatch<TextSegment> match = matches.get(rank);
+                    Metadata metadata = match.embedded().metadata();
+                    Long byteOffset = metadata.getLong("byteOffset");
+                    Integer byteLength = metadata.getInteger("byteLength");
+                    byKey.putIfAbsent(match.embeddingId(), new Bm25Index.Chunk(metadata.getString("path"),
+                            metadata.getInteger("index"), metadata.getInteger("firstLine"),
+                            metadata.getInteger("lastLine"), byteOffset != null ? byteOffset : -1,
+                            byteLength != null ? byteLength : 0, new String[0], new int[0], 0));
+                    fused.merge(match.embeddingId(), 1.0 / (RRF_RANK_OFFSET + rank), Double::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return fused.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(limit)
+                .map(entry -> snippet(byKey.get(entry.getKey()), entry.getValue()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * @return the workspace root
+     */
+    public Path root() {
+        return root;
+    }
+
+    /**
+     * @return the number of indexed text files
+     */
+    public int fileCount() {
+        lock.readLock().lock();
+        try {
+            return lexical.paths().size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed chunks
+     */
+    public int chunkCount() {
+        lock.readLock().lock();
+        try {
+            return lexical.chunkCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stops following file changes and saves the index.
+     */
+    @Override
+    public void close() {
+        Thread running;
+        synchronized (this) {
+            closed = true;
+            running = worker;
+            if (registration != null) {
+                registration.close();
+            }
+        }
+        if (running != null) {
+            running.interrupt();
+            try {
+                running.join(Duration.ofSeconds(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (dirty) {
+            save();
+        }
+    }
+
+    private void run() {
+        try {
+            boolean watched;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                watched = watch();
+            }
+            load();
+            long scanStart = System.nanoTime();
+            reconcile(root);
+            log.debug("Indexed workspace {}: {} files, {} chunks in {} ms", root, fileCount(), chunkCount(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scanStart));
+            initialScan.countDown();
+            save();
+            if (!watched) {
+                return;
+            }
+            long lastSave = System.nanoTime();
+            while (!closed) {
+                Path changed = changes.take();
+                pendingChanges.remove(changed);
+                try {
+                    update(changed);
+                } catch (IOException e) {
+                    log.debug("Cannot index {}: {}", changed, e.getMessage());
+                }
+                if (dirty && changes.isEmpty() && System.nanoTime() - lastSave > saveInterval.toNanos()) {
+                    save();
+                    lastSave = System.nanoTime();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Indexing of workspace {} stopped: {}", root, e.getMessage());
+        } finally {
+            initialScan.countDown();
+        }
+    }
+
+    /**
+     * Starts following the changes of the workspace.
+     *
+     * @return whether changes are followed, otherwise the workspace is only indexed once
+     */
+    private boolean watch() {
+        if (workspaceWatcher == null) {
+            return false;
+        }
+        try {
+            registration = workspaceWatcher.watch(root, this::changed);
+            return true;
+        } catch (IOException e) {
+            log.warn("Cannot watch workspace {}, indexing it once without following changes: {}",
+                    root, e.getMessage());
+            return false;
+        }
+    }
+
+    private void changed(Path path) {
+        if (pendingChanges.add(path)) {
+            changes.add(path);
+        }
+    }
+
+    private void update(Path path) throws IOException {
+        if (path.getFileName() != null && path.getFileName().toString().equals(GitIgnore.FILE_NAME)
+                && !isSkipped(path.getParent(), true)) {
+            // the ignored paths below changed
+            gitIgnore.forget(relative(path.getParent()));
+            reconcile(path.getParent());
+            return;
+        }
+        boolean directory = Files.isDirectory(path);
+        if (isSkipped(path, directory)) {
+            return;
+        }
+        if (directory) {
+            reconcile(path);
+        } else {
+            index(path);
+        }
+    }
+
+    /**
+     * Indexes the new and modified files below a directory, and forgets the deleted ones.
+     */
+    private void reconcile(Path directory) throws IOException {
+        Set<String> seen = new HashSet<>();
+        if (Files.isDirectory(directory)) {
+            Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (closed) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    return !dir.equals(root) && isSkipped(dir, true) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile() && !isSkipped(file, false)) {
+                        seen.add(relative(file));
+                        index(file, attrs);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        String prefix = directory.equals(root) ? "" : relative(directory) + "/";
+        forgetAll(path -> path.startsWith(prefix) && !seen.contains(path));
+    }
+
+    private void forgetBelow(String deleted) {
+        forgetAll(path -> path.equals(deleted) || path.startsWith(deleted + "/"));
+    }
+
+    private void forgetAll(Predicate<String> deleted) {
+        List<String> paths;
+        lock.readLock().lock();
+        try {
+            paths = files.keySet().stream().filter(deleted).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+        paths.forEach(this::forget);
+    }
+
+    private void index(Path file) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (attributes.isRegularFile()) {
+                index(file, attributes);
+                return;
+            }
+        } catch (NoSuchFileException e) {
+            // deleted, maybe with the files below it
+        }
+        forgetBelow(relative(file));
+    }
+
+    private void index(Path file, BasicFileAttributes attributes) throws IOException {
+        String path = relative(file);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        lock.readLock().lock();
+        try {
+            FileState state = files.get(path);
+            if (state != null && state.size() == attributes.size() && state.lastModified() == lastModified) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (attributes.size() > maxFileBytes) {
+            forget(path);
+            return;
+        }
+
+        TextDecoder.DecodedText decoded;
+        try {
+            decoded = TextDecoder.decode(file);
+        } catch (NoSuchFileException e) {
+            forget(path);
+            return;
+        }
+        List<Bm25Index.Chunk> chunks = new ArrayList<>();
+        List<TextSegment> segments = new ArrayList<>();
+        if (!decoded.binary()) {
+            List<TextChunker.Chunk> split = chunker.split(decoded.text());
+            List<Location> locations = locate(decoded, split);
+            for (TextChunker.Chunk chunk : split) {
+                long byteOffset = locations.get(chunk.index()).byteOffset();
+                int byteLength = locations.get(chunk.index()).byteLength();
+                chunks.add(Bm25Index.Chunk.of(path, chunk.index(), chunk.firstLine(), chunk.lastLine(),
+                        byteOffset, byteLength, chunk.text()));
+                if (embeddings != null) {
+                    segments.add(TextSegment.from(chunk.text(), new Metadata()
+                            .put("path", path)
+                            .put("index", chunk.index())
+                            .put("firstLine", chunk.firstLine())
+                            .put("lastLine", chunk.lastLine())
+                            .put("byteOffset", byteOffset)
+                            .put("byteLength", byteLength)));
+                }
+            }
+        }
+        List<Embedding> vectors = segments.isEmpty() ? List.of() : embeddingModel.embedAll(segments).content();
+
+        lock.writeLock().lock();
+        try {
+            FileState previous = files.put(path,
+                    new FileState(attributes.size(), lastModified, decoded.contentHash(), decoded.charset().name(),
+                            chunks.size()));
+            lexical.put(path, chunks);
+            if (embeddings != null) {
+                if (previous != null && previous.chunks() > 0) {
+                    embeddings.removeAll(chunkKeys(path, previous.chunks()));
+                }
+                if (!segments.isEmpty()) {
+                    embeddings.addAll(chunkKeys(path, chunks.size()), vectors, segments);
+                }
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void forget(String path) {
+        lock.writeLock().lock();
+        try {
+            FileState previous = files.remove(path);
+            if (previous == null) {
+                return;
+            }
+            lexical.remove(path);
+            if (embeddings != null && previous.chunks() > 0) {
+                embeddings.removeAll(chunkKeys(path, previous.chunks()));
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Locates the chunks of a text in its file by encoding the text back. The positions are
+     * unknown when the encoded text is not the size of the file, as when a UTF-8 prefix was
+     * followed by legacy bytes, or when a chunk boundary splits a surrogate pair.
+     */
+    private static List<Location> locate(TextDecoder.DecodedText decoded, List<TextChunker.Chunk> chunks) {
+        String text = decoded.text();
+        Charset charset = decoded.charset();
+        int[] offsets = TextChunker.offsets(chunks, text);
+        long byteOrderMark = decoded.sizeBytes() - encodedLength(charset, text, 0, text.length());
+        boolean known = byteOrderMark >= 0 && byteOrderMark <= 3;
+        for (int i = 0; i < chunks.size() && known; i++) {
+            int end = offsets[i] + chunks.get(i).text().length();
+            known = !Character.isLowSurrogate(charAt(text, offsets[i])) && !Character.isLowSurrogate(charAt(text, end));
+        }
+        List<Location> locations = new ArrayList<>(chunks.size());
+        long byteOffset = byteOrderMark;
+        int previous = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            if (!known) {
+                locations.add(Location.UNKNOWN);
+                continue;
+            }
+            int end = offsets[i] + chunks.get(i).text().length();
+            byteOffset += encodedLength(charset, text, previous, offsets[i]);
+            previous = offsets[i];
+            locations.add(new Location(byteOffset, (int) encodedLength(charset, text, offsets[i], end)));
+        }
+        return locations;
+    }
+
+    private static char charAt(String text, int index) {
+        return index < text.length() ? text.charAt(index) : '\0';
+    }
+
+    private static long encodedLength(Charset charset, String text, int start, int end) {
+        if (start == end) {
+            return 0;
+        }
+        return charset.encode(CharBuffer.wrap(text, start, end)).remaining();
+    }
+
+    private Snippet snippet(Bm25Index.Chunk chunk, double score) {
+        Path file = root.resolve(chunk.path());
+        try {
+            String located = read(file, chunk);
+            if (located != null) {
+                return new Snippet(file, chunk.firstLine(), chunk.lastLine(),
+                        String.join("\n", located.lines().toList()), score);
+            }
+            String text = TextDecoder.decode(file).text();
+            List<String> lines = text.lines().toList();
+            if (chunk.firstLine() > lines.size()) {
+                return null;
+            }
+            String excerpt = String.join("\n", lines.subList(chunk.firstLine() - 1, Math.min(chunk.lastLine(), lines.size())));
+            return new Snippet(file, chunk.firstLine(), chunk.lastLine(), excerpt, score);
+        } catch (IOException e) {
+            log.debug("Cannot read snippet of {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the bytes of a chunk, when the file is the version indexed.
+     *
+     * @return the text of the chunk, or {@code null} when its position is unknown or the file changed
+     */
+    private String read(Path file, Bm25Index.Chunk chunk) throws IOException {
+        if (chunk.byteOffset() < 0) {
+            return null;
+        }
+        FileState state;
+        lock.readLock().lock();
+        try {
+            state = files.get(chunk.path());
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (state == null || !Charset.isSupported(state.charset())) {
+            return null;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (attributes.size() != state.size() || attributes.lastModifiedTime().toMillis() != state.lastModified()) {
+            return null;
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(chunk.byteLength());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (bytes.hasRemaining() && channel.read(bytes, chunk.byteOffset() + bytes.position()) >= 0) {
+                // read until the chunk is complete or the file ends
+            }
+        }
+        if (bytes.hasRemaining()) {
+            return null;
+        }
+        return Charset.forName(state.charset()).newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(bytes.flip())
+                .toString();
+    }
+
+    private void load() {
+        if (storeFile == null || !Files.isRegularFile(storeFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(storeFile)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION
+                    || !in.readUTF().equals(root.toString()) || !in.readUTF().equals(chunkSettings)) {
+                log.debug("Ignoring index {} written for another version or settings", storeFile);
+                return;
+            }
+            Map<String, FileState> loadedFiles = new HashMap<>();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                loadedFiles.put(in.readUTF(),
+                        new FileState(in.readLong(), in.readLong(), in.readUTF(), in.readUTF(), in.readInt()));
+            }
+            Bm25Index loadedLexical = Bm25Index.read(in);
+            InMemoryEmbeddingStore<TextSegment> loadedEmbeddings = null;
+            if (embeddings != null) {
+                Path embeddingsFile = embeddingsFile();
+                if (!Files.isRegularFile(embeddingsFile)) {
+                    return;
+                }
+                loadedEmbeddings = InMemoryEmbeddingStore.fromFile(embeddingsFile);
+            }
+            lock.writeLock().lock();
+            try {
+                files.putAll(loadedFiles);
+                lexical = loadedLexical;
+                if (loadedEmbeddings != null) {
+                    embeddings = loadedEmbeddings;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("Loaded index of {}: {} files", root, loadedFiles.size());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot read index {}, rebuilding it: {}", storeFile, e.getMessage());
+        }
+    }
+
+    private void save() {
+        if (storeFile == null) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            Files.createDirectories(storeFile.getParent());
+            Path temp = Files.createTempFile(storeFile.getParent(), storeFile.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeUTF(root.toString());
+                out.writeUTF(chunkSettings);
+                out.writeInt(files.size());
+                for (Map.Entry<String, FileState> entry : files.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().size());
+                    out.writeLong(entry.getValue().lastModified());
+                    out.writeUTF(entry.getValue().contentHash());
+                    out.writeUTF(entry.getValue().charset());
+                    out.writeInt(entry.getValue().chunks());
+                }
+                lexical.write(out);
+            }
+            if (embeddings != null) {
+                embeddings.serializeToFile(embeddingsFile());
+            }
+            move(temp, storeFile);
+            dirty = false;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot save index {}: {}", storeFile, e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path embeddingsFile() {
+        return storeFile.resolveSibling(storeFile.getFileName() + ".embeddings.json");
+    }
+
+    private boolean isSkipped(Path path, boolean directory) {
+        Path relative = root.relativize(path.toAbsolutePath().normalize());
+        if (relative.toString().isEmpty()) {
+            return false;
+        }
+        for (Path name : relative) {
+            if (SKIPPED_DIRECTORIES.contains(name.toString()) || name.toString().startsWith(".")) {
+                return true;
+            }
+        }
+        if (!directory && DENIED_FILE_MATCHERS.stream().anyMatch(matcher -> matcher.matches(relative.getFileName()))) {
+            return true;
+        }
+        return gitIgnore.isIgnored(relative(path), directory);
+    }
+
+    private String relative(Path file) {
+        return root.relativize(file.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    private static List<String> chunkKeys(String path, int count) {
+        List<String> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(path + '#' + i);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,55 @@
+package net.osgiliath.acplanggraphlangchainbridge.workspace.index;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import net.osgiliath.acplanggraphlangchainbridge.workspace.WorkspaceWatcher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Registers the {@link WorkspaceIndexRegistry} when {@code acp.bridge.workspace-index.enabled=true}.
+ *
+ * <p>With {@code acp.bridge.workspace-index.embeddings=true}, chunks are also embedded with the
+ * {@link EmbeddingModel} bean of the application, typically a local in-process model such as
+ * {@code langchain4j-embeddings-all-minilm-l6-v2}.</p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "acp.bridge.workspace-index", name = "enabled", havingValue = "true")
+public class WorkspaceIndexConfiguration {
+
+    /**
+     * Creates the workspace index registry.
+     *
+     * @param directory        the directory persisting the indexes, empty to keep them in memory only
+     * @param chunkTokens      the maximum number of tokens of a chunk
+     * @param overlapTokens    the maximum number of tokens a chunk repeats from the previous one
+     * @param maxFileBytes     the size above which a file is not indexed
+     * @param saveInterval     the minimum time between two saves of an index while files change
+     * @param idleTimeout      how long an index neither opened by a session nor searched is kept open
+     * @param embeddings       whether to embed the chunks too
+     * @param embeddingModel   the embedding model, required when {@code embeddings} is set
+     * @param workspaceWatcher the watcher of file changes
+     * @return the workspace index registry
+     */
+    @Bean
+    public WorkspaceIndexRegistry workspaceIndexRegistry(
+            @Value("${acp.bridge.workspace-index.directory:${user.home}/.cache/acp-bridge/workspace-index}") String directory,
+            @Value("${acp.bridge.workspace-index.chunk-tokens:256}") int chunkTokens,
+            @Value("${acp.bridge.workspace-index.overlap-tokens:32}") int overlapTokens,
+            @Value("${acp.bridge.workspace-index.max-file-bytes:1048576}") long maxFileBytes,
+            @Value("${acp.bridge.workspace-index.save-interval:PT1M}") Duration saveInterval,
+            @Value("${acp.bridge.workspace-index.idle-timeout:PT30M}") Duration idleTimeout,
+            @Value("${acp.bridge.workspace-index.embeddings:false}") boolean embeddings,
+            ObjectProvider<EmbeddingModel> embeddingModel,
+            WorkspaceWatcher workspaceWatcher) {
+        EmbeddingModel model = embeddings ? embeddingModel.getObject() : null;
+        Path indexDirectory = directory.isBlank() ? null : Path.of(directory);
+        return new WorkspaceIndexRegistry(indexDirectory, chunkTokens, overlapTokens, maxFileBytes, saveInterval,
+                idleTimeout, model, workspaceWatcher);
+    }
+}
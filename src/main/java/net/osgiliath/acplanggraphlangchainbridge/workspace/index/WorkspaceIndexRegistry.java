@@ -0,0 +1,187 @@
+package net.osgiliath.acplanggraphlangchainbridge.workspace.index;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.cache.DerivedArtifactCache;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import net.osgiliath.acplanggraphlangchainbridge.observability.BridgeObserver;
+import net.osgiliath.acplanggraphlangchainbridge.workspace.WorkspaceWatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds one {@link WorkspaceIndex} per session working directory, shared by the sessions opened
+ * on it.
+ *
+ * <p>As a {@link BridgeObserver}, the registry starts indexing a workspace when a session is
+ * opened on it, so the index is warm by the first prompt. Each index is persisted in the
+ * configured directory under a file named after the hash of its root.</p>
+ *
+ * <p>ACP does not tell when a session ends, so an index neither opened by a session nor
+ * searched for {@code idleTimeout} is saved and closed, releasing its worker thread and its
+ * watch; the next use loads it back from its file and catches up with the changes since.</p>
+ */
+public class WorkspaceIndexRegistry implements BridgeObserver, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkspaceIndexRegistry.class);
+
+    private final Path directory;
+    private final int chunkTokens;
+    private final int overlapTokens;
+    private final long maxFileBytes;
+    private final Duration saveInterval;
+    private final EmbeddingModel embeddingModel;
+    private final WorkspaceWatcher workspaceWatcher;
+    private final long idleTimeoutNanos;
+    private final Map<Path, Entry> indexes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * Creates a registry.
+     *
+     * @param directory        the directory persisting the indexes, or {@code null} to keep them in memory
+     * @param chunkTokens      the maximum number of tokens of a chunk
+     * @param overlapTokens    the maximum number of tokens a chunk repeats from the previous one
+     * @param maxFileBytes     the size above which a file is not indexed
+     * @param saveInterval     the minimum time between two saves of an index while files change
+     * @param idleTimeout      how long an unused index is kept open
+     * @param embeddingModel   the model embedding the chunks, or {@code null} for lexical indexes only
+     * @param workspaceWatcher the watcher of file changes, or {@code null} to index workspaces once
+     */
+    public WorkspaceIndexRegistry(Path directory, int chunkTokens, int overlapTokens, long maxFileBytes,
+                                  Duration saveInterval, Duration idleTimeout, EmbeddingModel embeddingModel,
+                                  WorkspaceWatcher workspaceWatcher) {
+        this.directory = directory;
+        this.chunkTokens = chunkTokens;
+        this.overlapTokens = overlapTokens;
+        this.maxFileBytes = maxFileBytes;
+        this.saveInterval = saveInterval;
+        this.embeddingModel = embeddingModel;
+        this.workspaceWatcher = workspaceWatcher;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.evictor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("acp-workspace-index-evictor")
+                .daemon(true)
+                .factory());
+        long period = Math.max(1L, idleTimeout.toMillis() / 2);
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the index of a workspace, starting it on first use or after it was closed as idle.
+     *
+     * @param cwd the workspace root
+     * @return its index
+     */
+    public WorkspaceIndex forWorkspace(Path cwd) {
+        Path root = cwd.toAbsolutePath().normalize();
+        Entry entry = indexes.compute(root, (key, existing) -> {
+            Entry used = existing != null ? existing : new Entry(new WorkspaceIndex(key, storeFile(key),
+                    chunkTokens, overlapTokens, maxFileBytes, saveInterval, embeddingModel, workspaceWatcher));
+            used.lastUsedNanos = System.nanoTime();
+            return used;
+        });
+        entry.index.start();
+        return entry.index;
+    }
+
+    /**
+     * @return the number of open indexes
+     */
+    public int size() {
+        return indexes.size();
+    }
+
+    /**
+     * Resolves the working directory of a session to a workspace root. ACP working directories
+     * are absolute: a blank or relative one, such as the {@code "."} of
+     * {@link SessionContext#empty()}, would index the working directory of the bridge process, so
+     * it has no workspace.
+     *
+     * @param cwd the session working directory
+     * @return the workspace root, empty when {@code cwd} is blank, relative or not a directory
+     */
+    public static Optional<Path> workspaceRoot(String cwd) {
+        if (cwd == null || cwd.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            Path root = Path.of(cwd);
+            return root.isAbsolute() && Files.isDirectory(root) ? Optional.of(root) : Optional.empty();
+        } catch (InvalidPathException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void sessionOpened(SessionContext sessionContext) {
+        String cwd = sessionContext.cwd();
+        try {
+            workspaceRoot(cwd).ifPresent(this::forWorkspace);
+        } catch (RuntimeException e) {
+            log.warn("Cannot index workspace {}: {}", cwd, e.getMessage());
+        }
+    }
+
+    /**
+     * Closes every index, saving them.
+     */
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        indexes.values().forEach(entry -> entry.index.close());
+        indexes.clear();
+    }
+
+    /**
+     * Saves and closes the indexes that have not been used for the idle timeout.
+     */
+    void evictIdle() {
+        long now = System.nanoTime();
+        List<WorkspaceIndex> idle = new ArrayList<>();
+        for (Path root : indexes.keySet()) {
+            indexes.computeIfPresent(root, (key, entry) -> {
+                if (now - entry.lastUsedNanos < idleTimeoutNanos) {
+                    return entry;
+                }
+                idle.add(entry.index);
+                return null;
+            });
+        }
+        idle.forEach(index -> {
+            log.debug("Closing idle index of workspace {}", index.root());
+            index.close();
+        });
+    }
+
+    private Path storeFile(Path root) {
+        if (directory == null) {
+            return null;
+        }
+        String hash = DerivedArtifactCache.contentHash(root.toString().getBytes(StandardCharsets.UTF_8));
+        return directory.resolve(hash.substring(0, 32) + ".index");
+    }
+
+    private static final class Entry {
+
+        private final WorkspaceIndex index;
+        private volatile long lastUsedNanos;
+
+        private Entry(WorkspaceIndex index) {
+            this.index = index;
+        }
+    }
+}
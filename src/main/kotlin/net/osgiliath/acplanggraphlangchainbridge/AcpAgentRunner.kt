@@ -9,35 +9,61 @@ import com.agentclientprotocol.common.SessionCreationParameters
 import com.agentclientprotocol.model.*
 import com.agentclientprotocol.protocol.Protocol
 import com.agentclientprotocol.transport.StdioTransport
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineName
+import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
 import kotlinx.coroutines.channels.Channel
 import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.coroutineScope
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.buffer
 import kotlinx.coroutines.flow.callbackFlow
+import kotlinx.coroutines.isActive
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.runInterruptible
+import kotlinx.coroutines.supervisorScope
 import kotlinx.io.asSink
 import kotlinx.io.asSource
 import kotlinx.io.buffered
 import net.osgiliath.acplanggraphlangchainbridge.acp.AcpAgentSupportBridge
 import net.osgiliath.acplanggraphlangchainbridge.acp.InAcpAdapter
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.McpServerDefinition
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext
+import net.osgiliath.acplanggraphlangchainbridge.logging.SessionMdc
+import net.osgiliath.acplanggraphlangchainbridge.observability.jfr.CancellationEvent
+import net.osgiliath.acplanggraphlangchainbridge.observability.jfr.SessionEvent
+import net.osgiliath.acplanggraphlangchainbridge.transport.AcpEndpoint
 import org.slf4j.LoggerFactory
 import org.springframework.boot.CommandLineRunner
 import org.springframework.stereotype.Component
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.nio.channels.Channels
 import java.util.UUID
-import java.util.stream.Collectors
 
 /**
  * ACP Agent Runner - Uses official JetBrains ACP Kotlin SDK
  * Bridges the SDK with Java implementation.
+ *
+ * Serves one client on stdin/stdout by default. With a Unix domain socket or TCP [AcpEndpoint],
+ * it runs as a daemon: every accepted connection gets its own `Protocol` and `Agent`, while all of
+ * them share this Spring context and its caches.
  */
 @Component
 class AcpAgentRunner(
-    private val agentSupportBridge: InAcpAdapter
+    private val agentSupportBridge: InAcpAdapter,
+    private val endpoint: AcpEndpoint
 ) : CommandLineRunner {
 
+    constructor(agentSupportBridge: InAcpAdapter) : this(agentSupportBridge, AcpEndpoint.STDIO)
+
     companion object {
         internal const val PROMPT_FLOW_BUFFER_CAPACITY: Int = Channel.BUFFERED
     }
@@ -48,24 +74,75 @@ class AcpAgentRunner(
         log.info("Starting ACP Agent Runner using official SDK")
 
         runBlocking {
+            if (endpoint.mode() == AcpEndpoint.Mode.STDIO) {
+                serve(System.`in`, System.out)
+            } else {
+                serveClients()
+            }
+        }
+    }
+
+    /**
+     * Accepts ACP connections on the daemon endpoint until the process stops. A failing
+     * connection is logged and closed without affecting the others.
+     */
+    private suspend fun serveClients() = supervisorScope {
+        endpoint.bind().use { server ->
+            log.info("Agent started, waiting for ACP connections on {}", endpoint)
+            while (isActive) {
+                val channel = runInterruptible(Dispatchers.IO) { server.accept() }
+                launch(CoroutineName("acp-connection")) {
+                    channel.use {
+                        val authenticated = try {
+                            runInterruptible(Dispatchers.IO) { endpoint.authenticate(channel) }
+                        } catch (e: IOException) {
+                            false
+                        }
+                        if (!authenticated) {
+                            log.warn("Rejected an ACP client on {}: wrong or missing token", endpoint)
+                            return@launch
+                        }
+                        log.info("ACP client connected on {}", endpoint)
+                        try {
+                            serve(Channels.newInputStream(channel), Channels.newOutputStream(channel))
+                        } catch (e: Exception) {
+                            if (e is CancellationException) throw e
+                            log.warn("ACP connection on {} failed: {}", endpoint, e.message)
+                        }
+                        log.info("ACP client disconnected from {}", endpoint)
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs one ACP agent on a pair of streams until its transport is closed.
+     */
+    private suspend fun serve(input: InputStream, output: OutputStream) = coroutineScope {
+        // the transport and protocol loops live in their own job, stopped once the client leaves
+        val connectionScope = CoroutineScope(coroutineContext + SupervisorJob(coroutineContext[Job]))
+        try {
             val transport = StdioTransport(
-                parentScope = this,
+                parentScope = connectionScope,
                 ioDispatcher = Dispatchers.IO,
-                input = System.`in`.asSource().buffered(),
-                output = System.out.asSink().buffered()
+                input = input.asSource().buffered(),
+                output = output.asSink().buffered()
             )
-            val protocol = Protocol(this, transport)
+            val protocol = Protocol(connectionScope, transport)
 
             val agentSupport = createAgentSupport()
 
             Agent(protocol, agentSupport)
             protocol.start()
-            log.info("Agent started, waiting for requests on stdin...")
+            log.info("Agent started, waiting for requests on {}", endpoint)
 
             // Keep the transport alive until it's closed
             val deferred = CompletableDeferred<Unit>()
             transport.onClose { deferred.complete(Unit) }
             deferred.await()
+        } finally {
+            connectionScope.cancel()
         }
     }
 
@@ -80,7 +157,7 @@ class AcpAgentRunner(
         }
 
         override suspend fun createSession(sessionParameters: SessionCreationParameters): AgentSession {
-            val javaSession = createJavaSession(generateSessionId(), sessionParameters)
+            val javaSession = createJavaSession(generateSessionId(), sessionParameters, "create")
             return createBridgeAgentSession(javaSession)
         }
 
@@ -88,7 +165,7 @@ class AcpAgentRunner(
             sessionId: SessionId,
             sessionParameters: SessionCreationParameters
         ): AgentSession {
-            val javaSession = createJavaSession(sessionId.value, sessionParameters)
+            val javaSession = createJavaSession(sessionId.value, sessionParameters, "load")
             return createBridgeAgentSession(javaSession)
         }
     }
@@ -98,21 +175,31 @@ class AcpAgentRunner(
 
     private fun createJavaSession(
         sessionId: String,
-        sessionParameters: SessionCreationParameters
+        sessionParameters: SessionCreationParameters,
+        kind: String
     ): AcpAgentSupportBridge.AcpSessionBridge {
-        log.info("Creating Java session $sessionId")
-        log.debug("Session parameters: cwd=${sessionParameters.cwd}, mcpServers=${sessionParameters.mcpServers}")
-        return agentSupportBridge.createSession(
-            sessionId,
-            sessionParameters.cwd,
-            sessionParameters.mcpServers.associate { server ->
-                server.name to when (server) {
-                    is McpServer.Stdio -> server.command
-                    is McpServer.Http -> server.url
-                    is McpServer.Sse -> server.url
+        log.info("Creating Java session {}", sessionId)
+        log.debug("Session parameters: cwd={}, mcpServers={}", sessionParameters.cwd, sessionParameters.mcpServers)
+        val event = SessionEvent.start(kind)
+        val session = agentSupportBridge.createSession(
+            SessionContext.withServers(
+                sessionId,
+                sessionParameters.cwd,
+                sessionParameters.mcpServers.associate { server ->
+                    server.name to when (server) {
+                        is McpServer.Stdio -> McpServerDefinition.stdio(
+                            server.command,
+                            server.args,
+                            server.env.associate { it.name to it.value }
+                        )
+                        is McpServer.Http -> McpServerDefinition.http(server.url, server.headers.associate { it.name to it.value })
+                        is McpServer.Sse -> McpServerDefinition.sse(server.url, server.headers.associate { it.name to it.value })
+                    }
                 }
-            }
+            )
         )
+        event.complete(sessionId, sessionParameters.cwd, sessionParameters.mcpServers.size)
+        return session
     }
 
     private fun generateSessionId(): String = "session-${UUID.randomUUID()}"
@@ -126,27 +213,30 @@ class AcpAgentRunner(
             content: List<ContentBlock>,
             _meta: kotlinx.serialization.json.JsonElement?
         ): Flow<Event> = callbackFlow {
-            log.trace("Agent prompt started")
-            log.debug("Content blocks received: ${content.size} for session ${acpSession.sessionId}")
-            if (log.isDebugEnabled) {
-                val iterator = content.stream().collect(Collectors.toList()).iterator()
-                while (iterator.hasNext()) {
-                    log.debug("Content name: ${iterator.next()}")
-                }
-                log.debug("Meta information: ${_meta}")
-            }
             val promptText = content.filterIsInstance<ContentBlock.Text>()
                 .joinToString("\n") { it.text }
             val promtResourceLinks = content.filterIsInstance<ContentBlock.ResourceLink>()
-            log.debug("Prompt resource links received: {}", promtResourceLinks)
-            log.info("Processing streaming prompt for session ${acpSession.sessionId}")
+            // images and resources sent inline, decoded in memory rather than through temp files
+            val embeddedContent = content.filter { it is ContentBlock.Image || it is ContentBlock.Resource }
+            // no suspension inside: the MDC stays on this thread
+            SessionMdc.put(acpSession.sessionId).use {
+                log.trace("Agent prompt started")
+                if (log.isDebugEnabled) {
+                    log.debug("Content blocks received: {} for session {}", content.size, acpSession.sessionId)
+                    content.forEach { block -> log.debug("Content block: {}", block) }
+                    log.debug("Meta information: {}", _meta)
+                    log.debug("Prompt resource links received: {}", promtResourceLinks)
+                    log.debug("Embedded content blocks received: {}", embeddedContent.size)
+                }
+                log.info("Processing streaming prompt for session {}", acpSession.sessionId)
+            }
 
             // Launch the blocking streamPrompt call on Dispatchers.IO so it
             // does NOT monopolise the single-threaded runBlocking dispatcher.
             // Without this, the flow collector cannot run concurrently and all
             // tokens accumulate in the buffer, producing a single-block response.
             launch(Dispatchers.IO) {
-                acpSession.streamPrompt(promptText, promtResourceLinks, object : AcpAgentSupportBridge.TokenConsumer {
+                acpSession.streamPrompt(promptText, promtResourceLinks, embeddedContent, object : AcpAgentSupportBridge.TokenConsumer {
                     override fun onNext(token: String) {
                         trySend(Event.SessionUpdateEvent(SessionUpdate.AgentMessageChunk(ContentBlock.Text(token))))
                             .exceptionOrNull()?.let { e -> log.warn("Failed to send streaming token", e) }
@@ -168,11 +258,12 @@ class AcpAgentRunner(
             }
 
             awaitClose {
-                log.debug("Streaming prompt flow closed for session ${acpSession.sessionId}")
+                log.debug("Streaming prompt flow closed for session {}", acpSession.sessionId)
             }
         }.buffer(PROMPT_FLOW_BUFFER_CAPACITY)
 
         override suspend fun cancel() {
+            CancellationEvent.emit(acpSession.sessionId)
             acpSession.cancel()
         }
     }
@@ -0,0 +1,55 @@
+package net.osgiliath.acplanggraphlangchainbridge.aot;
+
+import com.agentclientprotocol.model.ContentBlock;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.message.ResourceLinkContent;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.serializer.AcpLangChain4jStateSerializer;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import net.osgiliath.acplanggraphlangchainbridge.logging.SessionSamplingFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.core.io.support.SpringFactoriesLoader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BridgeRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    BridgeRuntimeHintsTest() {
+        new BridgeRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void isContributedThroughAotFactories() {
+        assertThat(SpringFactoriesLoader.forResourceLocation("META-INF/spring/aot.factories")
+                .load(RuntimeHintsRegistrar.class))
+                .hasAtLeastOneElementOfType(BridgeRuntimeHints.class);
+    }
+
+    @Test
+    void registersTheCheckpointedStateForJavaSerialization() {
+        assertThat(RuntimeHintsPredicates.serialization().onType(SessionContext.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.serialization().onType(ResourceLinkContent.class)).accepts(hints);
+        assertThat(hints.serialization().javaSerializationHints())
+                .anyMatch(hint -> hint.getType().getName().equals("kotlinx.serialization.json.JsonObject"))
+                .anyMatch(hint -> hint.getType().getName().equals("com.agentclientprotocol.model.Annotations"));
+    }
+
+    @Test
+    void registersTheAcpModelAndItsGeneratedSerializers() {
+        assertThat(BridgeRuntimeHints.acpModelTypes(getClass().getClassLoader()))
+                .contains(ContentBlock.class.getName())
+                .anyMatch(type -> type.endsWith("$$serializer"))
+                .allMatch(type -> type.startsWith(BridgeRuntimeHints.ACP_MODEL_PACKAGE + "."));
+        assertThat(RuntimeHintsPredicates.reflection().onType(ContentBlock.class)).accepts(hints);
+    }
+
+    @Test
+    void registersTheClassesInstantiatedReflectively() {
+        assertThat(RuntimeHintsPredicates.reflection().onType(AcpLangChain4jStateSerializer.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(SessionSamplingFilter.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("logback.xml")).accepts(hints);
+    }
+}
@@ -35,4 +35,9 @@ public class TestGraph implements PromptGraph {
                         edge_async(edge),
                         Map.of("next", "agent", "exit", END));
     }
+
+    @Override
+    public boolean reusable() {
+        return true;
+    }
 }
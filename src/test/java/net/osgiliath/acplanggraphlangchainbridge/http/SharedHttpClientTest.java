@@ -0,0 +1,116 @@
+package net.osgiliath.acplanggraphlangchainbridge.http;
+
+import dev.langchain4j.http.client.jdk.JdkHttpClientBuilder;
+import net.osgiliath.acplanggraphlangchainbridge.testing.OpenAiStreamingStubServer;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class SharedHttpClientTest {
+
+    @Test
+    void everyLangChain4jBuilderResolvesToTheSharedClient() {
+        try (SharedHttpClient shared = new SharedHttpClient(Duration.ofSeconds(5), Duration.ofMinutes(1), null)) {
+            JdkHttpClientBuilder first = (JdkHttpClientBuilder) shared.langChain4jBuilder();
+            JdkHttpClientBuilder second = (JdkHttpClientBuilder) shared.langChain4jBuilder();
+
+            HttpClient fromFirst = first.httpClientBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+            HttpClient fromSecond = second.httpClientBuilder().build();
+
+            assertThat(fromFirst).isSameAs(shared.client()).isSameAs(fromSecond);
+            assertThat(shared.client().version()).isEqualTo(HttpClient.Version.HTTP_2);
+            assertThat(shared.client().connectTimeout()).contains(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void buildersWithAProxyShareAClientOfTheirOwn() {
+        try (SharedHttpClient shared = new SharedHttpClient(Duration.ofSeconds(5), Duration.ofMinutes(1), null)) {
+            ProxySelector proxy = ProxySelector.of(InetSocketAddress.createUnresolved("proxy.example.com", 3128));
+
+            HttpClient proxied = ((JdkHttpClientBuilder) shared.langChain4jBuilder()).httpClientBuilder().proxy(proxy).build();
+            HttpClient sameProxy = ((JdkHttpClientBuilder) shared.langChain4jBuilder()).httpClientBuilder().proxy(proxy).build();
+
+            assertThat(proxied).isNotSameAs(shared.client()).isSameAs(sameProxy);
+            assertThat(proxied.proxy()).contains(proxy);
+            assertThat(proxied.connectTimeout()).contains(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void buildersWithTheirOwnSslContextOrTimeoutGetAClientWithThem() throws Exception {
+        try (SharedHttpClient shared = new SharedHttpClient(Duration.ofSeconds(5), Duration.ofMinutes(1), null)) {
+            SSLContext truststore = SSLContext.getInstance("TLS");
+            truststore.init(null, null, null);
+
+            HttpClient withTruststore = ((JdkHttpClientBuilder) shared.langChain4jBuilder()).httpClientBuilder()
+                    .sslContext(truststore).build();
+            HttpClient withTimeout = ((JdkHttpClientBuilder) shared.langChain4jBuilder()).httpClientBuilder()
+                    .connectTimeout(Duration.ofMillis(1)).build();
+
+            assertThat(withTruststore).isNotSameAs(shared.client());
+            assertThat(withTruststore.sslContext()).isSameAs(truststore);
+            assertThat(withTimeout).isNotSameAs(shared.client()).isNotSameAs(withTruststore);
+            assertThat(withTimeout.connectTimeout()).contains(Duration.ofMillis(1));
+        }
+    }
+
+    @Test
+    void leavesTheKeepAliveSystemPropertiesAlone() {
+        String before = System.getProperty("jdk.httpclient.keepalive.timeout");
+        try (SharedHttpClient ignored = new SharedHttpClient(Duration.ofSeconds(5), Duration.ofSeconds(42), null)) {
+            assertThat(System.getProperty("jdk.httpclient.keepalive.timeout")).isEqualTo(before);
+        }
+    }
+
+    @Test
+    void countsRequestsAndReuseOnPlainHttp() throws Exception {
+        try (OpenAiStreamingStubServer server = OpenAiStreamingStubServer.start(OpenAiStreamingStubServer.Options.defaults());
+             SharedHttpClient shared = new SharedHttpClient(Duration.ofSeconds(5), Duration.ofMinutes(1), null)) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(server.baseUrl() + "/chat/completions"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                    .build();
+
+            shared.client().send(request, HttpResponse.BodyHandlers.discarding());
+            shared.client().send(request, HttpResponse.BodyHandlers.discarding());
+
+            assertThat(shared.stats().requests()).isEqualTo(2);
+            assertThat(shared.stats().tlsHandshakes()).isZero();
+            assertThat(shared.stats().reusedConnections()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void prewarmIsThrottledAcrossSessions() throws Exception {
+        try (OpenAiStreamingStubServer server = OpenAiStreamingStubServer.start(OpenAiStreamingStubServer.Options.defaults());
+             SharedHttpClient shared = new SharedHttpClient(Duration.ofSeconds(5), Duration.ofMinutes(1),
+                     URI.create(server.baseUrl() + "/chat/completions"))) {
+
+            shared.prewarm();
+            shared.prewarm();
+
+            await().atMost(Duration.ofSeconds(5)).until(() -> server.requestCount() == 1);
+            assertThat(shared.stats().prewarms()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void prewarmIsANoOpWithoutEndpoint() {
+        try (SharedHttpClient shared = new SharedHttpClient(Duration.ofSeconds(5), Duration.ofMinutes(1), null)) {
+            shared.prewarm();
+
+            assertThat(shared.stats().prewarms()).isZero();
+            assertThat(shared.stats().requests()).isZero();
+        }
+    }
+}
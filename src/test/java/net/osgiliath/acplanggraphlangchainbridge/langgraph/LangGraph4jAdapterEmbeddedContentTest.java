@@ -0,0 +1,103 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph;
+
+import com.agentclientprotocol.model.ContentBlock;
+import com.agentclientprotocol.model.EmbeddedResourceResource;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.ImageContent;
+import dev.langchain4j.data.message.TextContent;
+import net.osgiliath.acplanggraphlangchainbridge.acp.AcpAgentSupportBridge;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.graph.PromptGraph;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import org.bsc.langgraph4j.GraphStateException;
+import org.bsc.langgraph4j.StateGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bsc.langgraph4j.GraphDefinition.END;
+import static org.bsc.langgraph4j.GraphDefinition.START;
+import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
+
+class LangGraph4jAdapterEmbeddedContentTest {
+
+    private static final SessionContext CONTEXT = SessionContext.of("session-embedded", "/workspace", Map.of());
+
+    @Test
+    void seedsEmbeddedImagesAndResourcesIntoTheGraphState() {
+        AtomicReference<List<Content>> captured = new AtomicReference<>();
+        LangGraph4jAdapter adapter = new LangGraph4jAdapter(new CapturingPromptGraph(captured));
+        RecordingConsumer consumer = new RecordingConsumer();
+
+        adapter.streamPrompt(CONTEXT, "", List.of(), List.of(
+                new ContentBlock.Image("iVBORw0KGgo=", "image/png", null, null, null),
+                new ContentBlock.Resource(new EmbeddedResourceResource.TextResourceContents(
+                        "class A {}", "file:///workspace/A.java", "text/x-java", null), null, null)),
+                consumer, new AtomicBoolean(false));
+
+        assertThat(consumer.completed).isTrue();
+        assertThat(consumer.tokens).doesNotContain("Please provide a prompt.");
+        assertThat(captured.get()).hasSize(2);
+        assertThat(captured.get().get(0)).isInstanceOf(ImageContent.class);
+        assertThat(((TextContent) captured.get().get(1)).text()).isEqualTo("class A {}");
+    }
+
+    @Test
+    void reportsInvalidBlobsAsErrors() {
+        LangGraph4jAdapter adapter = new LangGraph4jAdapter(new CapturingPromptGraph(new AtomicReference<>()));
+        RecordingConsumer consumer = new RecordingConsumer();
+
+        adapter.streamPrompt(CONTEXT, "summarize", List.of(), List.of(
+                new ContentBlock.Resource(new EmbeddedResourceResource.BlobResourceContents(
+                        "not base64!", "file:///workspace/notes.txt", "text/plain", null), null, null)),
+                consumer, new AtomicBoolean(false));
+
+        assertThat(consumer.error).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static final class RecordingConsumer implements AcpAgentSupportBridge.TokenConsumer {
+        private final List<String> tokens = new ArrayList<>();
+        private boolean completed;
+        private Throwable error;
+
+        @Override
+        public void onNext(String token) {
+            tokens.add(token);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+    }
+
+    private static final class CapturingPromptGraph implements PromptGraph<AcpState<ChatMessage>> {
+        private final AtomicReference<List<Content>> captured;
+
+        private CapturingPromptGraph(AtomicReference<List<Content>> captured) {
+            this.captured = captured;
+        }
+
+        @Override
+        public StateGraph<AcpState<ChatMessage>> buildGraph() throws GraphStateException {
+            return new StateGraph<AcpState<ChatMessage>>(AcpState.SCHEMA, AcpState.serializer())
+                    .addNode("capture", node_async(state -> {
+                        captured.set(state.attachmentContents());
+                        return Map.of();
+                    }))
+                    .addEdge(START, "capture")
+                    .addEdge("capture", END);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph;
+
+import dev.langchain4j.data.message.ChatMessage;
+import net.osgiliath.acplanggraphlangchainbridge.acp.AcpAgentSupportBridge;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.graph.PromptGraph;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import org.bsc.langgraph4j.GraphStateException;
+import org.bsc.langgraph4j.StateGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bsc.langgraph4j.GraphDefinition.END;
+import static org.bsc.langgraph4j.GraphDefinition.START;
+import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
+
+class LangGraph4jAdapterGraphReuseTest {
+
+    @Test
+    void buildsTheGraphOfEachPromptByDefault() {
+        CountingPromptGraph graph = new CountingPromptGraph(false);
+        LangGraph4jAdapter adapter = new LangGraph4jAdapter(graph);
+
+        prompt(adapter, "session-1");
+        prompt(adapter, "session-2");
+
+        assertThat(graph.builds).hasValue(2);
+    }
+
+    @Test
+    void sharesTheCompiledGraphOfAReusableGraph() {
+        CountingPromptGraph graph = new CountingPromptGraph(true);
+        LangGraph4jAdapter adapter = new LangGraph4jAdapter(graph);
+
+        prompt(adapter, "session-1");
+        prompt(adapter, "session-2");
+
+        assertThat(graph.builds).hasValue(1);
+    }
+
+    private static void prompt(LangGraph4jAdapter adapter, String sessionId) {
+        adapter.streamPrompt(SessionContext.of(sessionId, "/workspace/demo", Map.of()), "hello graph", List.of(),
+                new AcpAgentSupportBridge.TokenConsumer() {
+                    @Override
+                    public void onNext(String token) {
+                        // no tokens expected
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        // the build count is checked afterwards
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        throw new AssertionError(error);
+                    }
+                });
+    }
+
+    private static final class CountingPromptGraph implements PromptGraph<AcpState<ChatMessage>> {
+        private final boolean reusable;
+        private final AtomicInteger builds = new AtomicInteger();
+
+        private CountingPromptGraph(boolean reusable) {
+            this.reusable = reusable;
+        }
+
+        @Override
+        public StateGraph<AcpState<ChatMessage>> buildGraph() throws GraphStateException {
+            builds.incrementAndGet();
+            return new StateGraph<AcpState<ChatMessage>>(AcpState.SCHEMA, AcpState.serializer())
+                    .addNode("noop", node_async(state -> Map.of()))
+                    .addEdge(START, "noop")
+                    .addEdge("noop", END);
+        }
+
+        @Override
+        public boolean reusable() {
+            return reusable;
+        }
+    }
+}
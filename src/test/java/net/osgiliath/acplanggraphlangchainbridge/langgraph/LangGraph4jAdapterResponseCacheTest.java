@@ -0,0 +1,95 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import net.osgiliath.acplanggraphlangchainbridge.acp.AcpAgentSupportBridge;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.cache.ResponseCache;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.graph.PromptGraph;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import org.bsc.langgraph4j.GraphStateException;
+import org.bsc.langgraph4j.StateGraph;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bsc.langgraph4j.GraphDefinition.END;
+import static org.bsc.langgraph4j.GraphDefinition.START;
+import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
+
+class LangGraph4jAdapterResponseCacheTest {
+
+    private static final SessionContext CONTEXT = SessionContext.of("session-cache", "/workspace", Map.of());
+
+    @Test
+    void identicalPromptIsReplayedFromCacheWithoutRunningTheGraph() {
+        AtomicInteger invocations = new AtomicInteger();
+        LangGraph4jAdapter adapter = new LangGraph4jAdapter(new CountingGraph(invocations),
+                Optional.of(new ResponseCache(Duration.ofMinutes(5), 1024 * 1024)));
+
+        List<String> first = stream(adapter, "What is 2 + 2?", new AtomicBoolean(false));
+        List<String> second = stream(adapter, "What is 2 + 2?  ", new AtomicBoolean(false));
+
+        assertThat(invocations).hasValue(1);
+        assertThat(second).isEqualTo(first).containsExactly("answer-1");
+    }
+
+    @Test
+    void cancelledStreamsAreNotCached() {
+        AtomicInteger invocations = new AtomicInteger();
+        LangGraph4jAdapter adapter = new LangGraph4jAdapter(new CountingGraph(invocations),
+                Optional.of(new ResponseCache(Duration.ofMinutes(5), 1024 * 1024)));
+
+        stream(adapter, "cancel me", new AtomicBoolean(true));
+        int invocationsAfterCancel = invocations.get();
+        List<String> second = stream(adapter, "cancel me", new AtomicBoolean(false));
+
+        assertThat(invocations).hasValue(invocationsAfterCancel + 1);
+        assertThat(second).containsExactly("answer-" + invocations.get());
+    }
+
+    private static List<String> stream(LangGraph4jAdapter adapter, String prompt, AtomicBoolean cancelled) {
+        List<String> tokens = new ArrayList<>();
+        adapter.streamPrompt(CONTEXT, prompt, List.of(), new AcpAgentSupportBridge.TokenConsumer() {
+            @Override
+            public void onNext(String token) {
+                tokens.add(token);
+            }
+
+            @Override
+            public void onComplete() {
+                // tokens are asserted by the caller
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                throw new AssertionError(error);
+            }
+        }, cancelled);
+        return tokens;
+    }
+
+    private static final class CountingGraph implements PromptGraph<AcpState<ChatMessage>> {
+        private final AtomicInteger invocations;
+
+        private CountingGraph(AtomicInteger invocations) {
+            this.invocations = invocations;
+        }
+
+        @Override
+        public StateGraph<AcpState<ChatMessage>> buildGraph() throws GraphStateException {
+            return new StateGraph<AcpState<ChatMessage>>(AcpState.SCHEMA, AcpState.serializer())
+                    .addNode("answer", node_async(state ->
+                            Map.of("messages", AiMessage.from("answer-" + invocations.incrementAndGet()))))
+                    .addEdge(START, "answer")
+                    .addEdge("answer", END);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DerivedArtifactCacheTest {
+
+    private static final String HASH = DerivedArtifactCache.contentHash("original".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    void derivesOnceThenServesFromTheCache() throws IOException {
+        DerivedArtifactCache cache = new DerivedArtifactCache(1 << 20, 1 << 20);
+        AtomicInteger derivations = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(cache.computeIfAbsent(HASH, "image:1568", () -> {
+                derivations.incrementAndGet();
+                return new byte[]{1, 2, 3};
+            })).containsExactly(1, 2, 3);
+        }
+
+        assertThat(derivations).hasValue(1);
+        assertThat(cache.hitCount()).isEqualTo(2);
+        assertThat(cache.get(HASH, "image:800")).isEmpty();
+    }
+
+    @Test
+    void derivesConcurrentRequestsForTheSameArtifactOnce() throws Exception {
+        DerivedArtifactCache cache = new DerivedArtifactCache(1 << 20, 1 << 20);
+        AtomicInteger derivations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<byte[]> first = threads.submit(() -> cache.computeIfAbsent(HASH, "outline", () -> {
+                derivations.incrementAndGet();
+                started.countDown();
+                release.await();
+                return new byte[]{42};
+            }));
+            started.await();
+            Future<byte[]> second = threads.submit(() -> cache.computeIfAbsent(HASH, "outline", () -> {
+                derivations.incrementAndGet();
+                return new byte[]{0};
+            }));
+            release.countDown();
+
+            assertThat(first.get()).containsExactly(42);
+            assertThat(second.get()).containsExactly(42);
+        }
+        assertThat(derivations).hasValue(1);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedArtifactsBeyondTheBudget() {
+        DerivedArtifactCache cache = new DerivedArtifactCache(1000, 1000);
+
+        cache.put("a", "kind", new byte[400]);
+        cache.put("b", "kind", new byte[400]);
+        cache.get("a", "kind");
+        cache.put("c", "kind", new byte[400]);
+
+        assertThat(cache.get("a", "kind")).isPresent();
+        assertThat(cache.get("b", "kind")).isEmpty();
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(cache.sizeBytes()).isLessThanOrEqualTo(1000);
+    }
+
+    @Test
+    void neverStoresArtifactsAboveTheSingleEntryLimitNorFailedDerivations() throws IOException {
+        DerivedArtifactCache cache = new DerivedArtifactCache(1 << 20, 1000);
+
+        assertThat(cache.computeIfAbsent(HASH, "big", () -> new byte[2000])).hasSize(2000);
+        assertThatThrownBy(() -> cache.computeIfAbsent(HASH, "broken", () -> {
+            throw new IOException("unreadable");
+        })).isInstanceOf(IOException.class);
+
+        assertThat(cache.size()).isZero();
+    }
+}
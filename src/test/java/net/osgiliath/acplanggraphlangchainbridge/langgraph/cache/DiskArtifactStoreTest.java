@@ -0,0 +1,114 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiskArtifactStoreTest {
+
+    private static final String HASH = DerivedArtifactCache.contentHash("original".getBytes(StandardCharsets.UTF_8));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsTheArtifactsOfAContentTogether() throws IOException {
+        DiskArtifactStore store = new DiskArtifactStore(directory, 1 << 20);
+
+        store.put(HASH, "source-outline", new byte[]{1, 2});
+        store.put(HASH, "text-chunks:512:64:chars", new byte[]{3});
+        store.put(HASH, "source-outline", new byte[]{4});
+
+        assertThat(store.get(HASH, "source-outline")).hasValueSatisfying(bytes -> assertThat(bytes).containsExactly(4));
+        assertThat(store.get(HASH, "text-chunks:512:64:chars")).hasValueSatisfying(bytes -> assertThat(bytes).containsExactly(3));
+        assertThat(store.get(HASH, "image:1568:png")).isEmpty();
+        try (Stream<Path> files = Files.walk(directory)) {
+            assertThat(files.filter(Files::isRegularFile))
+                    .containsExactly(directory.resolve(HASH.substring(0, 2)).resolve(HASH + ".artifacts"));
+        }
+    }
+
+    @Test
+    void ignoresFilesOfAnotherFormat() throws IOException {
+        new DiskArtifactStore(directory, 1 << 20).put(HASH, "outline", new byte[]{1});
+        Path file = directory.resolve(HASH.substring(0, 2)).resolve(HASH + ".artifacts");
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[7]++;
+        Files.write(file, bytes);
+        DiskArtifactStore store = new DiskArtifactStore(directory, 1 << 20);
+
+        assertThat(store.get(HASH, "outline")).isEmpty();
+
+        Files.write(file, new byte[]{0x41, 0x43, 0x50});
+        assertThat(store.get(HASH, "outline")).isEmpty();
+        store.put(HASH, "outline", new byte[]{2});
+        assertThat(store.get(HASH, "outline")).hasValueSatisfying(artifact -> assertThat(artifact).containsExactly(2));
+    }
+
+    @Test
+    void ignoresFilesWhoseLengthsGoBeyondTheirEnd() throws IOException {
+        DiskArtifactStore store = new DiskArtifactStore(directory, 1 << 20);
+        store.put(HASH, "source-outline", new byte[]{1, 2});
+        store.put(HASH, "outline", new byte[]{3});
+        Path file = directory.resolve(HASH.substring(0, 2)).resolve(HASH + ".artifacts");
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        // after the header (magic, version, count) and the first kind, the length of the first artifact
+        bytes.putInt(12 + 4 + "source-outline".length(), Integer.MAX_VALUE);
+        Files.write(file, bytes.array());
+
+        assertThat(store.get(HASH, "outline")).isEmpty();
+        assertThat(store.get(HASH, "source-outline")).isEmpty();
+
+        store.put(HASH, "outline", new byte[]{4});
+        assertThat(store.get(HASH, "outline")).hasValueSatisfying(artifact -> assertThat(artifact).containsExactly(4));
+    }
+
+    @Test
+    void deletesTheLeastRecentlyUsedFilesBeyondTheBudget() throws IOException {
+        DiskArtifactStore store = new DiskArtifactStore(directory, 10_000);
+        for (int i = 0; i < 9; i++) {
+            store.put(hash(i), "kind", new byte[1000]);
+            Files.setLastModifiedTime(file(hash(i)), FileTime.fromMillis(1_000_000L * (i + 1)));
+        }
+        assertThat(store.get(hash(0), "kind")).isPresent();
+
+        store.put(hash(9), "kind", new byte[1000]);
+
+        assertThat(store.sizeBytes()).isLessThanOrEqualTo(9_000);
+        assertThat(store.get(hash(0), "kind")).isPresent();
+        assertThat(store.get(hash(1), "kind")).isEmpty();
+        assertThat(store.get(hash(9), "kind")).isPresent();
+    }
+
+    @Test
+    void servesArtifactsDerivedBeforeARestart() throws IOException {
+        DerivedArtifactCache before = new DerivedArtifactCache(1 << 20, 1 << 20, new DiskArtifactStore(directory, 1 << 20));
+        before.computeIfAbsent(HASH, "outline", () -> new byte[]{42});
+
+        DerivedArtifactCache after = new DerivedArtifactCache(1 << 20, 1 << 20, new DiskArtifactStore(directory, 1 << 20));
+
+        assertThat(after.computeIfAbsent(HASH, "outline", () -> {
+            throw new IOException("derived again");
+        })).containsExactly(42);
+        assertThat(after.size()).isEqualTo(1);
+        after.clear();
+        assertThat(new DiskArtifactStore(directory, 1 << 20).get(HASH, "outline")).isEmpty();
+    }
+
+    private Path file(String hash) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash + ".artifacts");
+    }
+
+    private static String hash(int i) {
+        return DerivedArtifactCache.contentHash(new byte[]{(byte) i});
+    }
+}
@@ -0,0 +1,163 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.cache;
+
+import com.agentclientprotocol.model.ContentBlock;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.McpServerDefinition;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheTest {
+
+    private static final SessionContext CONTEXT = SessionContext.of("session-1", "/workspace", Map.of("mcp-a", "stdio://server"));
+
+    @Test
+    void returnsStoredChunksInOrder() {
+        ResponseCache cache = new ResponseCache(Duration.ofMinutes(5), 1024 * 1024);
+
+        cache.put("key", List.of("Hello", " ", "world"));
+
+        assertThat(cache.get("key")).get()
+                .extracting(CachedResponse::chunks)
+                .isEqualTo(List.of("Hello", " ", "world"));
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() {
+        MutableClock clock = new MutableClock();
+        ResponseCache cache = new ResponseCache(Duration.ofSeconds(10), 1024 * 1024, null, 0L, clock);
+
+        cache.put("key", List.of("value"));
+        clock.advance(Duration.ofSeconds(11));
+
+        assertThat(cache.get("key")).isEmpty();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesWhenOverByteBudget() {
+        String chunk = "x".repeat(100);
+        long entrySize = new CachedResponse(List.of(chunk), 0L).sizeInBytes();
+        ResponseCache cache = new ResponseCache(Duration.ofMinutes(5), entrySize * 2);
+
+        cache.put("first", List.of(chunk));
+        cache.put("second", List.of(chunk));
+        cache.get("first");
+        cache.put("third", List.of(chunk));
+
+        assertThat(cache.get("first")).isPresent();
+        assertThat(cache.get("second")).isEmpty();
+        assertThat(cache.get("third")).isPresent();
+        assertThat(cache.sizeInBytes()).isLessThanOrEqualTo(entrySize * 2);
+    }
+
+    @Test
+    void diskTierSurvivesANewCacheInstance(@TempDir Path directory) {
+        new ResponseCache(Duration.ofMinutes(5), 1024 * 1024, directory, 1024 * 1024)
+                .put("key", List.of("persisted", " answer"));
+
+        ResponseCache restarted = new ResponseCache(Duration.ofMinutes(5), 1024 * 1024, directory, 1024 * 1024);
+
+        assertThat(restarted.get("key")).get()
+                .extracting(CachedResponse::chunks)
+                .isEqualTo(List.of("persisted", " answer"));
+    }
+
+    @Test
+    void prunesExpiredDiskEntriesEvenWhenTheyAreReadOften(@TempDir Path directory) {
+        MutableClock clock = new MutableClock();
+        new ResponseCache(Duration.ofSeconds(10), 1024 * 1024, directory, 1024 * 1024, clock).put("old", List.of("value"));
+        clock.advance(Duration.ofSeconds(9));
+        assertThat(new ResponseCache(Duration.ofSeconds(10), 1024 * 1024, directory, 1024 * 1024, clock).get("old")).isPresent();
+
+        clock.advance(Duration.ofSeconds(2));
+        new ResponseCache(Duration.ofSeconds(10), 1024 * 1024, directory, 1024 * 1024, clock).put("new", List.of("value"));
+
+        assertThat(directory.resolve("old.response")).doesNotExist();
+        assertThat(directory.resolve("new.response")).exists();
+    }
+
+    @Test
+    void keyIgnoresFormattingAndSessionIdButTracksAttachmentContent(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("Attachment.java");
+        Files.writeString(file, "class A {}", StandardCharsets.UTF_8);
+        List<ContentBlock.ResourceLink> links = List.of(
+                new ContentBlock.ResourceLink("Attachment.java", file.toUri().toString(), null, null, null, null, null, null));
+
+        String key = ResponseCacheKey.of("v1", "Explain this\r\n", links, CONTEXT).orElseThrow();
+        String sameKey = ResponseCacheKey.of("v1", "Explain this  ", links,
+                SessionContext.of("session-2", "/workspace", Map.of("mcp-a", "stdio://server"))).orElseThrow();
+        Files.writeString(file, "class A { int changed; }", StandardCharsets.UTF_8);
+        String changedKey = ResponseCacheKey.of("v1", "Explain this", links, CONTEXT).orElseThrow();
+
+        assertThat(sameKey).isEqualTo(key);
+        assertThat(changedKey).isNotEqualTo(key);
+        assertThat(ResponseCacheKey.of("v2", "Explain this", links, CONTEXT)).get().isNotEqualTo(changedKey);
+    }
+
+    @Test
+    void keyTracksTheCredentialsOfMcpServers() {
+        String url = "https://mcp.example.com/mcp";
+        String alice = ResponseCacheKey.of("v1", "prompt", List.of(), session(
+                McpServerDefinition.http(url, Map.of("Authorization", "Bearer alice")))).orElseThrow();
+        String bob = ResponseCacheKey.of("v1", "prompt", List.of(), session(
+                McpServerDefinition.http(url, Map.of("Authorization", "Bearer bob")))).orElseThrow();
+        String aliceAgain = ResponseCacheKey.of("v1", "prompt", List.of(), session(
+                McpServerDefinition.http(url, Map.of("Authorization", "Bearer alice")))).orElseThrow();
+        String token = ResponseCacheKey.of("v1", "prompt", List.of(), session(
+                McpServerDefinition.stdio("mcp-server", List.of(), Map.of("TOKEN", "one")))).orElseThrow();
+        String otherToken = ResponseCacheKey.of("v1", "prompt", List.of(), session(
+                McpServerDefinition.stdio("mcp-server", List.of(), Map.of("TOKEN", "two")))).orElseThrow();
+
+        assertThat(bob).isNotEqualTo(alice);
+        assertThat(aliceAgain).isEqualTo(alice);
+        assertThat(otherToken).isNotEqualTo(token);
+    }
+
+    @Test
+    void keyIsAbsentWhenAnAttachmentCannotBeRead() {
+        List<ContentBlock.ResourceLink> links = List.of(
+                new ContentBlock.ResourceLink("missing", "file:///definitely/missing/file.txt", null, null, null, null, null, null));
+
+        assertThat(ResponseCacheKey.of("v1", "prompt", links, CONTEXT)).isEmpty();
+    }
+
+    private static SessionContext session(McpServerDefinition server) {
+        return new SessionContext("session-1", "/workspace", Map.of("mcp-a", server.toString()), Map.of("mcp-a", server));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public java.time.ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SentAttachmentHistoryTest {
+
+    @Test
+    void remembersTheLastVersionSentPerSession() {
+        SentAttachmentHistory history = new SentAttachmentHistory(16, 1 << 20);
+
+        history.remember("s1", "file:///a.txt", "v1", "one");
+        history.remember("s1", "file:///a.txt", "v2", "two");
+        history.remember("s2", "file:///a.txt", "v3", "three");
+
+        assertThat(history.previous("s1", "file:///a.txt")).contains(new SentAttachmentHistory.Sent("v2", "two"));
+        assertThat(history.previous("s2", "file:///a.txt")).contains(new SentAttachmentHistory.Sent("v3", "three"));
+        assertThat(history.previous("s1", "file:///b.txt")).isEmpty();
+        assertThat(history.previous("s3", "file:///a.txt")).isEmpty();
+    }
+
+    @Test
+    void forgetsTheLeastRecentlySentAttachmentsOverTheSessionBudget() {
+        SentAttachmentHistory history = new SentAttachmentHistory(16, 2000);
+        String text = "x".repeat(400);
+
+        history.remember("s1", "file:///a.txt", "v1", text);
+        history.remember("s1", "file:///b.txt", "v1", text);
+        history.previous("s1", "file:///a.txt");
+        history.remember("s1", "file:///c.txt", "v1", text);
+        history.remember("s1", "file:///huge.txt", "v1", "x".repeat(2000));
+
+        assertThat(history.previous("s1", "file:///a.txt")).isPresent();
+        assertThat(history.previous("s1", "file:///b.txt")).isEmpty();
+        assertThat(history.previous("s1", "file:///c.txt")).isPresent();
+        assertThat(history.previous("s1", "file:///huge.txt")).isEmpty();
+    }
+
+    @Test
+    void forgetsTheLeastRecentlyActiveSessions() {
+        SentAttachmentHistory history = new SentAttachmentHistory(2, 1 << 20);
+
+        history.remember("s1", "file:///a.txt", "v1", "one");
+        history.remember("s2", "file:///a.txt", "v1", "one");
+        history.previous("s1", "file:///a.txt");
+        history.remember("s3", "file:///a.txt", "v1", "one");
+
+        assertThat(history.sessionCount()).isEqualTo(2);
+        assertThat(history.previous("s1", "file:///a.txt")).isPresent();
+        assertThat(history.previous("s2", "file:///a.txt")).isEmpty();
+    }
+}
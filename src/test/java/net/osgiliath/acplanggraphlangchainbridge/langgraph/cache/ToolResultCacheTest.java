@@ -0,0 +1,159 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.cache;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.service.tool.ToolExecutor;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import net.osgiliath.acplanggraphlangchainbridge.workspace.WorkspaceWatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class ToolResultCacheTest {
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private final ToolExecutor readFile = (request, memoryId) -> "content-" + executions.incrementAndGet();
+    private final WorkspaceWatcher watcher = new WorkspaceWatcher();
+
+    @TempDir
+    Path workspace;
+
+    @AfterEach
+    void closeWatcher() throws Exception {
+        watcher.close();
+    }
+
+    @Test
+    void reusesResultsOfIdenticalCallsWhateverTheArgumentFormatting() {
+        ToolResultCache cache = newCache(ToolResultCache.Scope.SESSION, 16, null);
+        ToolExecutor memoized = cache.memoize(session("s1"), "read_file", readFile);
+
+        String first = memoized.execute(request("{\"path\":\"a.txt\",\"limit\":10}"), "s1");
+        String second = memoized.execute(request("{ \"limit\": 10,\n \"path\": \"a.txt\" }"), "s1");
+
+        assertThat(second).isEqualTo(first);
+        assertThat(executions).hasValue(1);
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.hitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void leavesToolsThatAreNotIdempotentUnwrapped() {
+        ToolResultCache cache = newCache(ToolResultCache.Scope.SESSION, 16, null);
+        ToolExecutor writeFile = (request, memoryId) -> "written";
+
+        assertThat(cache.memoize(session("s1"), "write_file", writeFile)).isSameAs(writeFile);
+    }
+
+    @Test
+    void sharesResultsAcrossSessionsOnlyInCwdScope() {
+        ToolResultCache sessionScoped = newCache(ToolResultCache.Scope.SESSION, 16, null);
+        sessionScoped.memoize(session("s1"), "read_file", readFile).execute(request("{\"path\":\"a.txt\"}"), "s1");
+        sessionScoped.memoize(session("s2"), "read_file", readFile).execute(request("{\"path\":\"a.txt\"}"), "s2");
+        assertThat(executions).hasValue(2);
+
+        ToolResultCache cwdScoped = newCache(ToolResultCache.Scope.CWD, 16, null);
+        cwdScoped.memoize(session("s1"), "read_file", readFile).execute(request("{\"path\":\"a.txt\"}"), "s1");
+        cwdScoped.memoize(session("s2"), "read_file", readFile).execute(request("{\"path\":\"a.txt\"}"), "s2");
+        assertThat(executions).hasValue(3);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedResultAtTheEntryLimit() {
+        ToolResultCache cache = newCache(ToolResultCache.Scope.SESSION, 2, null);
+        ToolExecutor memoized = cache.memoize(session("s1"), "read_file", readFile);
+
+        memoized.execute(request("{\"path\":\"a.txt\"}"), "s1");
+        memoized.execute(request("{\"path\":\"b.txt\"}"), "s1");
+        memoized.execute(request("{\"path\":\"c.txt\"}"), "s1");
+        memoized.execute(request("{\"path\":\"a.txt\"}"), "s1");
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.evictionCount()).isEqualTo(2);
+        assertThat(executions).hasValue(4);
+    }
+
+    @Test
+    void dropsResultsWhenAWorkspaceFileChanges() throws Exception {
+        ToolResultCache cache = newCache(ToolResultCache.Scope.SESSION, 16, watcher);
+        ToolExecutor memoized = cache.memoize(session("s1"), "read_file", readFile);
+        memoized.execute(request("{\"path\":\"a.txt\"}"), "s1");
+        assertThat(cache.size()).isEqualTo(1);
+
+        Files.writeString(workspace.resolve("a.txt"), "changed");
+
+        await().atMost(Duration.ofSeconds(30)).until(() -> cache.size() == 0);
+        assertThat(memoized.execute(request("{\"path\":\"a.txt\"}"), "s1")).isEqualTo("content-2");
+    }
+
+    @Test
+    void doesNotMemoizeResultsOfADirectoryThatCannotBeWatched() throws Exception {
+        Files.createDirectories(workspace.resolve("src"));
+        try (WorkspaceWatcher smallWatcher = new WorkspaceWatcher(1)) {
+            ToolResultCache cache = newCache(ToolResultCache.Scope.SESSION, 16, smallWatcher);
+            ToolExecutor memoized = cache.memoize(session("s1"), "read_file", readFile);
+
+            memoized.execute(request("{\"path\":\"a.txt\"}"), "s1");
+            memoized.execute(request("{\"path\":\"a.txt\"}"), "s1");
+
+            assertThat(executions).hasValue(2);
+            assertThat(cache.size()).isZero();
+        }
+    }
+
+    @Test
+    void releasesTheWatchOfADirectoryOnceItsLastResultIsDropped() throws Exception {
+        Path first = Files.createDirectories(workspace.resolve("first"));
+        Path second = Files.createDirectories(workspace.resolve("second"));
+        try (WorkspaceWatcher smallWatcher = new WorkspaceWatcher(1)) {
+            ToolResultCache cache = newCache(ToolResultCache.Scope.CWD, 16, smallWatcher);
+            cache.memoize(session("s1", first), "read_file", readFile).execute(request("{}"), "s1");
+            ToolExecutor inSecond = cache.memoize(session("s2", second), "read_file", readFile);
+            inSecond.execute(request("{}"), "s2");
+            assertThat(cache.size()).isEqualTo(1);
+
+            // the first directory has no result left, so the second one can be watched in its place
+            cache.clear();
+            inSecond.execute(request("{}"), "s2");
+            inSecond.execute(request("{}"), "s2");
+
+            assertThat(executions).hasValue(3);
+            assertThat(cache.size()).isEqualTo(1);
+            assertThat(cache.hitCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void canonicalizesNestedObjects() {
+        assertThat(ToolResultCache.canonicalArguments("{\"b\":{\"y\":1,\"x\":2},\"a\":[3, 1]}"))
+                .isEqualTo("{\"a\":[3,1],\"b\":{\"x\":2,\"y\":1}}");
+        assertThat(ToolResultCache.canonicalArguments("  ")).isEqualTo("{}");
+        assertThat(ToolResultCache.canonicalArguments(" not json ")).isEqualTo("not json");
+    }
+
+    private ToolResultCache newCache(ToolResultCache.Scope scope, int maxEntries, WorkspaceWatcher workspaceWatcher) {
+        return new ToolResultCache(Set.of("read_file"), scope, maxEntries, 1 << 20, 1 << 16, workspaceWatcher);
+    }
+
+    private SessionContext session(String sessionId) {
+        return session(sessionId, workspace);
+    }
+
+    private static SessionContext session(String sessionId, Path cwd) {
+        return SessionContext.of(sessionId, cwd.toString(), Map.of());
+    }
+
+    private static ToolExecutionRequest request(String arguments) {
+        return ToolExecutionRequest.builder().id("call").name("read_file").arguments(arguments).build();
+    }
+}
@@ -0,0 +1,126 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.message;
+
+import com.agentclientprotocol.model.ContentBlock;
+import com.agentclientprotocol.model.EmbeddedResourceResource;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.ImageContent;
+import dev.langchain4j.data.message.TextContent;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmbeddedContentsTest {
+
+    @Test
+    void decodesLikeTheJdkForEveryPaddingLength() {
+        Random random = new Random(42);
+        for (int length = 0; length < 64; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            String base64 = Base64.getEncoder().encodeToString(bytes);
+
+            ByteBuffer decoded = EmbeddedContents.decode(base64, ByteBuffer.allocate(EmbeddedContents.decodedLength(base64)));
+
+            byte[] actual = new byte[decoded.remaining()];
+            decoded.get(actual);
+            assertThat(actual).isEqualTo(bytes);
+        }
+    }
+
+    @Test
+    void acceptsLineBreaksAndTheUrlSafeAlphabet() {
+        byte[] bytes = "some text with ?? and >> characters".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(EmbeddedContents.decodeText(Base64.getMimeEncoder(8, "\r\n".getBytes()).encodeToString(bytes),
+                StandardCharsets.UTF_8)).isEqualTo("some text with ?? and >> characters");
+        assertThat(EmbeddedContents.decodeText(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes),
+                StandardCharsets.UTF_8)).isEqualTo("some text with ?? and >> characters");
+    }
+
+    @Test
+    void keepsABoundedNumberOfDecodeBuffersAcrossThreads() throws Exception {
+        String small = Base64.getEncoder().encodeToString("small".getBytes(StandardCharsets.UTF_8));
+        String large = Base64.getEncoder().encodeToString(new byte[2 * EmbeddedContents.MAX_RETAINED_BUFFER_BYTES]);
+
+        try (ExecutorService threads = Executors.newFixedThreadPool(16)) {
+            List<Future<String>> decoded = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                String payload = i % 8 == 0 ? large : small;
+                decoded.add(threads.submit(() -> EmbeddedContents.decodeText(payload, StandardCharsets.UTF_8)));
+            }
+            for (Future<String> text : decoded) {
+                assertThat(text.get()).isNotNull();
+            }
+        }
+
+        assertThat(EmbeddedContents.pooledBuffers()).isBetween(1, EmbeddedContents.POOLED_BUFFERS);
+    }
+
+    @Test
+    void rejectsInvalidBase64() {
+        assertThatThrownBy(() -> EmbeddedContents.decodeText("ab*d", StandardCharsets.UTF_8))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> EmbeddedContents.decodeText("ab==cd", StandardCharsets.UTF_8))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void passesImagesThroughWithoutCopyingTheirPayload() {
+        String payload = Base64.getEncoder().encodeToString(new byte[]{(byte) 0x89, 'P', 'N', 'G'});
+
+        List<Content> contents = EmbeddedContents.from(List.of(
+                new ContentBlock.Image(payload, "image/png", null, null, null),
+                new ContentBlock.Resource(new EmbeddedResourceResource.BlobResourceContents(
+                        payload, "file:///workspace/screenshot.png", "image/png", null), null, null)));
+
+        assertThat(contents).hasSize(2).allSatisfy(content -> {
+            assertThat(content).isInstanceOf(ImageContent.class);
+            assertThat(((ImageContent) content).image().base64Data()).isSameAs(payload);
+            assertThat(((ImageContent) content).image().mimeType()).isEqualTo("image/png");
+        });
+    }
+
+    @Test
+    void convertsTextResourcesAndDecodesTextBlobsInTheirCharset() {
+        String latin1 = Base64.getEncoder().encodeToString("caf\u00e9".getBytes(StandardCharsets.ISO_8859_1));
+
+        List<Content> contents = EmbeddedContents.from(List.of(
+                new ContentBlock.Text("ignored", null, null),
+                new ContentBlock.Resource(new EmbeddedResourceResource.TextResourceContents(
+                        "class A {}", "file:///workspace/A.java", "text/x-java", null), null, null),
+                new ContentBlock.Resource(new EmbeddedResourceResource.BlobResourceContents(
+                        latin1, "file:///workspace/menu.txt", "text/plain; charset=ISO-8859-1", null), null, null)));
+
+        assertThat(contents).extracting(content -> ((TextContent) content).text())
+                .containsExactly("class A {}", "caf\u00e9");
+    }
+
+    @Test
+    void skipsBinaryResourcesAModelCannotRead() {
+        String zip = Base64.getEncoder().encodeToString(new byte[]{'P', 'K', 3, 4});
+
+        assertThat(EmbeddedContents.from(List.of(new ContentBlock.Resource(
+                new EmbeddedResourceResource.BlobResourceContents(zip, "file:///workspace/a.zip", "application/zip", null),
+                null, null)))).isEmpty();
+    }
+
+    @Test
+    void recognizesTextualMimeTypes() {
+        assertThat(EmbeddedContents.isText("text/markdown")).isTrue();
+        assertThat(EmbeddedContents.isText("application/json; charset=utf-8")).isTrue();
+        assertThat(EmbeddedContents.isText("application/vnd.api+json")).isTrue();
+        assertThat(EmbeddedContents.isText("application/octet-stream")).isFalse();
+        assertThat(EmbeddedContents.isText(null)).isFalse();
+    }
+}
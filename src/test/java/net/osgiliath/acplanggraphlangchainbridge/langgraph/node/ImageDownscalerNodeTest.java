@@ -0,0 +1,148 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.ImageContent;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.cache.DerivedArtifactCache;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.message.ResourceLinkContent;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImageDownscalerNodeTest {
+
+    private final DerivedArtifactCache cache = new DerivedArtifactCache(1 << 24, 1 << 24);
+    private final ImageDownscalerNode<ChatMessage> node = new ImageDownscalerNode<>(settings().withCache(cache));
+
+    @Test
+    void downscalesLargeImagesToTheMaximumDimension(@TempDir Path tempDir) throws Exception {
+        Path screenshot = image(tempDir.resolve("screenshot.png"), 1024, 512, "png");
+        Path photo = image(tempDir.resolve("photo.jpg"), 300, 900, "jpeg");
+
+        List<ImageContent> images = images(node.apply(state(
+                link(screenshot, "image/png"),
+                link(tempDir.resolve("notes.txt"), "text/plain"),
+                link(photo, "image/jpeg"))));
+
+        assertThat(images).hasSize(2);
+        assertThat(images.get(0).image().mimeType()).isEqualTo("image/png");
+        assertThat(decode(images.get(0))).satisfies(image -> {
+            assertThat(image.getWidth()).isEqualTo(256);
+            assertThat(image.getHeight()).isEqualTo(128);
+        });
+        assertThat(images.get(1).image().mimeType()).isEqualTo("image/jpeg");
+        assertThat(decode(images.get(1))).satisfies(image -> {
+            assertThat(image.getWidth()).isEqualTo(85);
+            assertThat(image.getHeight()).isEqualTo(256);
+        });
+    }
+
+    @Test
+    void passesSmallImagesUnchanged(@TempDir Path tempDir) throws Exception {
+        Path icon = image(tempDir.resolve("icon.png"), 64, 64, "png");
+
+        List<ImageContent> images = images(node.apply(state(link(icon, "image/png"))));
+
+        assertThat(Base64.getDecoder().decode(images.getFirst().image().base64Data()))
+                .isEqualTo(Files.readAllBytes(icon));
+    }
+
+    @Test
+    void reusesTheDownscaledImageOfIdenticalContent(@TempDir Path tempDir) throws Exception {
+        Path first = image(tempDir.resolve("first.png"), 1024, 1024, "png");
+        Path copy = Files.copy(first, tempDir.resolve("copy.png"));
+
+        String firstData = images(node.apply(state(link(first, "image/png")))).getFirst().image().base64Data();
+        String copyData = images(node.apply(state(link(copy, "image/png")))).getFirst().image().base64Data();
+
+        assertThat(copyData).isEqualTo(firstData);
+        assertThat(cache.hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void refusesImagesWithMorePixelsThanTheMaximum(@TempDir Path tempDir) throws Exception {
+        Path poster = image(tempDir.resolve("poster.png"), 2048, 1024, "png");
+
+        try (ImageDownscalerNode<ChatMessage> bounded = new ImageDownscalerNode<>(
+                settings().withMaxPixels(1_000_000L))) {
+            assertThatThrownBy(() -> bounded.apply(state(link(poster, "image/png"))))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("2048x1024");
+        }
+    }
+
+    @Test
+    void passesImagesThatCannotBeDecodedUnchanged(@TempDir Path tempDir) throws Exception {
+        byte[] complete = Files.readAllBytes(image(tempDir.resolve("complete.png"), 1024, 1024, "png"));
+        Path truncated = Files.write(tempDir.resolve("truncated.png"), Arrays.copyOf(complete, complete.length / 2));
+
+        List<ImageContent> images = images(node.apply(state(link(truncated, "image/png"))));
+
+        assertThat(Base64.getDecoder().decode(images.getFirst().image().base64Data()))
+                .isEqualTo(Files.readAllBytes(truncated));
+    }
+
+    @Test
+    void decodesLargeImagesSubsampledToTheMaximumDimension(@TempDir Path tempDir) throws Exception {
+        Path panorama = image(tempDir.resolve("panorama.png"), 3000, 600, "png");
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(
+                node.downscale(Files.readAllBytes(panorama), "image/png")));
+
+        assertThat(image.getWidth()).isEqualTo(256);
+        assertThat(image.getHeight()).isEqualTo(52);
+    }
+
+    @Test
+    void returnsNothingWithoutImageAttachments(@TempDir Path tempDir) throws Exception {
+        assertThat(node.apply(state(link(tempDir.resolve("notes.txt"), "text/plain")))).isEmpty();
+    }
+
+    private static ImageDownscalerNode.Settings settings() {
+        return ImageDownscalerNode.Settings.defaults().withMaxDimension(256).withJpegQuality(0.8f).withParallelism(2);
+    }
+
+    private static AcpState<ChatMessage> state(ResourceLinkContent... links) {
+        return new AcpState<>(Map.of(AcpState.ATTACHMENTS_META, List.of(links)));
+    }
+
+    private static ResourceLinkContent link(Path path, String mimeType) {
+        return new ResourceLinkContent(path.getFileName().toString(), path.toUri(), null, mimeType, null, null, null, null);
+    }
+
+    private static Path image(Path path, int width, int height, String format) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8);
+            }
+        }
+        ImageIO.write(image, format, path.toFile());
+        return path;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ImageContent> images(Map<String, Object> output) {
+        return ((List<Content>) output.get(AcpState.ATTACHMENT_CONTENTS)).stream()
+                .map(ImageContent.class::cast)
+                .toList();
+    }
+
+    private static BufferedImage decode(ImageContent content) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(Base64.getDecoder().decode(content.image().base64Data())));
+    }
+}
@@ -0,0 +1,259 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.UserMessage;
+import kotlinx.serialization.json.JsonElementKt;
+import kotlinx.serialization.json.JsonObject;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.cache.DerivedArtifactCache;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.cache.SentAttachmentHistory;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.message.ResourceLinkContent;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment.AttachmentMode;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment.TextChunker;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import net.osgiliath.acplanggraphlangchainbridge.observability.ActivePrompts;
+import net.osgiliath.acplanggraphlangchainbridge.observability.PromptObservation;
+import net.osgiliath.acplanggraphlangchainbridge.workspace.FileChangeDetector;
+import org.bsc.langgraph4j.prebuilt.MessagesState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.withPercentage;
+
+class TextAttachmentNodeTest {
+
+    private final DerivedArtifactCache cache = new DerivedArtifactCache(1 << 24, 1 << 24);
+    private final TextAttachmentNode<ChatMessage> node =
+            new TextAttachmentNode<>(settings().withCache(cache));
+
+    @Test
+    void keepsSmallAttachmentsWhole(@TempDir Path tempDir) throws Exception {
+        Path notes = Files.writeString(tempDir.resolve("notes.txt"), "remember the milk\n");
+
+        List<String> texts = texts(node.apply(state("what should I buy?", link(notes, "text/plain"))));
+
+        assertThat(texts).singleElement().satisfies(text -> {
+            assertThat(text).startsWith("Attachment notes.txt (" + notes.toUri() + ")");
+            assertThat(text).endsWith("remember the milk\n");
+        });
+    }
+
+    @Test
+    void truncatesLargeAttachmentsAroundTheRelevantLines(@TempDir Path tempDir) throws Exception {
+        Path server = Files.writeString(tempDir.resolve("server.log"), log(5000));
+
+        String text = texts(node.apply(state("why did request 4321 fail?", link(server, null)))).getFirst();
+
+        assertThat(text).contains("excerpts of 5000 lines", "request 0 ", "request 4321 ", "request 4999 ", "omitted");
+        assertThat(text.length()).isLessThan(5000);
+    }
+
+    @Test
+    void sharesTheBudgetBetweenAttachments(@TempDir Path tempDir) throws Exception {
+        Path small = Files.writeString(tempDir.resolve("small.txt"), "tiny\n");
+        Path first = Files.writeString(tempDir.resolve("first.log"), log(2000));
+        Path second = Files.writeString(tempDir.resolve("second.log"), log(2000));
+
+        List<String> texts = texts(node.apply(state("summarize",
+                link(small, "text/plain"), link(first, "text/plain"), link(second, "text/plain"))));
+
+        assertThat(texts).hasSize(3);
+        assertThat(texts.getFirst()).endsWith("tiny\n");
+        assertThat(texts.get(1).length()).isCloseTo(texts.get(2).length(), withPercentage(10));
+        assertThat(texts.stream().mapToInt(String::length).sum()).isLessThan(4 * 1000 + 500);
+    }
+
+    @Test
+    void reusesTheChunksOfIdenticalContent(@TempDir Path tempDir) throws Exception {
+        Path first = Files.writeString(tempDir.resolve("first.log"), log(3000));
+        Path copy = Files.copy(first, tempDir.resolve("copy.log"));
+
+        String firstText = texts(node.apply(state("request 42", link(first, "text/plain")))).getFirst();
+        String copyText = texts(node.apply(state("request 42", link(copy, "text/plain")))).getFirst();
+
+        assertThat(copyText).isEqualTo(firstText.replace("first.log", "copy.log")
+                .replace(first.toUri().toString(), copy.toUri().toString()));
+        // the chunk boundaries and the token count of the text
+        assertThat(cache.hitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsAttachmentsWholeWhenTheirTextFitsTheBudgetButNotTheSumOfTheirOverlappingChunks(@TempDir Path tempDir)
+            throws Exception {
+        String log = log(200);
+        TextAttachmentNode<ChatMessage> exact = new TextAttachmentNode<>(settings()
+                .withTokenBudget(TextChunker.approximateTokens(log)).withChunks(100, 50));
+        Path server = Files.writeString(tempDir.resolve("server.log"), log);
+
+        String text = texts(exact.apply(state("summarize", link(server, "text/plain")))).getFirst();
+
+        assertThat(text).endsWith(":\n" + log);
+    }
+
+    @Test
+    void decodesOnlyTheFirstBytesOfLargeAttachments(@TempDir Path tempDir) throws Exception {
+        TextAttachmentNode<ChatMessage> bounded = new TextAttachmentNode<>(settings()
+                .withTokenBudget(100_000).withMaxBytes(1000).withCache(cache));
+        Path server = Files.writeString(tempDir.resolve("server.log"), log(5000));
+
+        String text = texts(bounded.apply(state("summarize", link(server, "text/plain")))).getFirst();
+
+        assertThat(text).startsWith("Attachment server.log (" + server.toUri() + "), first part of the file only:\n")
+                .contains("request 0 served")
+                .doesNotContain("request 4999");
+    }
+
+    @Test
+    void sendsTheOutlineOfSourcesWhenRequested(@TempDir Path tempDir) throws Exception {
+        Path service = dataset(tempDir, "Service.java");
+
+        String outline = texts(node.apply(state("explain", link(service, "text/x-java", "outline")))).getFirst();
+        String full = texts(node.apply(state("explain", link(service, "text/x-java", null)))).getFirst();
+
+        assertThat(outline)
+                .startsWith("Attachment Service.java (" + service.toUri() + "), outline with method bodies elided:")
+                .contains("public Result processOperation(String data) { ... }")
+                .doesNotContain("toUpperCase");
+        assertThat(full).contains("toUpperCase");
+    }
+
+    @Test
+    void sendsTheOutlineOfLargeSourcesInAutoMode(@TempDir Path tempDir) throws Exception {
+        TextAttachmentNode<ChatMessage> autoNode = new TextAttachmentNode<>(settings()
+                .withDefaultMode(AttachmentMode.AUTO, 600).withCache(cache));
+        Path small = dataset(tempDir, "Application.java");
+        Path large = dataset(tempDir, "Controller.java");
+
+        List<String> texts = texts(autoNode.apply(state("explain",
+                link(small, "text/x-java"), link(large, "text/x-java"), link(large, "text/x-java", "full"))));
+
+        assertThat(texts.get(0)).doesNotContain("outline with method bodies elided");
+        assertThat(texts.get(1)).contains("outline with method bodies elided");
+        assertThat(texts.get(2)).doesNotContain("outline with method bodies elided");
+    }
+
+    @Test
+    void reusesTheCachedOutlineOfAnUnchangedFileWithoutReadingIt(@TempDir Path tempDir) throws Exception {
+        TextAttachmentNode<ChatMessage> detecting = new TextAttachmentNode<>(settings()
+                .withDefaultMode(AttachmentMode.AUTO, 600).withCache(cache)
+                .withChangeDetector(new FileChangeDetector(false)));
+        Path source = Files.writeString(tempDir.resolve("Greeter.java"), "class Greeter {\n    void greet() { hello(); }\n}\n");
+        FileTime modified = Files.getLastModifiedTime(source);
+        String first = texts(detecting.apply(state("explain", link(source, null, "outline")))).getFirst();
+
+        // same size and modification time: the file is taken as unchanged, and not read
+        Files.writeString(source, "class Welcome {\n    void greet() { hello(); }\n}\n");
+        Files.setLastModifiedTime(source, modified);
+
+        assertThat(texts(detecting.apply(state("explain", link(source, null, "outline"))))).containsExactly(first);
+        assertThat(first).contains("class Greeter", "void greet() { ... }");
+    }
+
+    @Test
+    void resendsAttachmentsAlreadySentInTheSessionAsReferencesOrDiffs(@TempDir Path tempDir) throws Exception {
+        TextAttachmentNode<ChatMessage> diffing = new TextAttachmentNode<>(settings()
+                .withDefaultMode(AttachmentMode.AUTO, 600).withCache(cache)
+                .withHistory(new SentAttachmentHistory(16, 1 << 20)));
+        Path server = Files.writeString(tempDir.resolve("server.log"), log(100));
+
+        String first = texts(diffing.apply(state("summarize", link(server, "text/plain")))).getFirst();
+        String unchanged = texts(diffing.apply(state("summarize", link(server, "text/plain")))).getFirst();
+        Files.writeString(server, log(100).replace("request 50 served", "request 50 failed"));
+        String changed = texts(diffing.apply(state("summarize", link(server, "text/plain")))).getFirst();
+
+        assertThat(first).endsWith(log(100));
+        assertThat(unchanged).isEqualTo("Attachment server.log (" + server.toUri()
+                + ") is unchanged since it was sent earlier in this session.");
+        assertThat(changed).contains("unified diff against that version", "@@ -48,7 +48,7 @@",
+                "-request 50 served\n+request 50 failed\n");
+        assertThat(changed).doesNotContain("request 40 served");
+    }
+
+    @Test
+    void remembersAttachmentsAsSentOnlyOnceTheirPromptCompleted(@TempDir Path tempDir) throws Exception {
+        TextAttachmentNode<ChatMessage> diffing = new TextAttachmentNode<>(settings()
+                .withDefaultMode(AttachmentMode.AUTO, 600).withCache(cache)
+                .withHistory(new SentAttachmentHistory(16, 1 << 20)));
+        Path server = Files.writeString(tempDir.resolve("server.log"), log(100));
+        AcpState<ChatMessage> state = new AcpState<>(Map.of(
+                MessagesState.MESSAGES_STATE, List.of(UserMessage.from("summarize")),
+                AcpState.SESSION_CONTEXT, SessionContext.of("session-1", tempDir.toString(), Map.of()),
+                AcpState.ATTACHMENTS_META, List.of(link(server, "text/plain"))));
+
+        PromptObservation failed = new PromptObservation() {
+        };
+        ActivePrompts.bind("session-1", failed);
+        diffing.apply(state);
+        ActivePrompts.unbind("session-1", failed, false);
+        PromptObservation completed = new PromptObservation() {
+        };
+        ActivePrompts.bind("session-1", completed);
+        String afterFailure = texts(diffing.apply(state)).getFirst();
+        ActivePrompts.unbind("session-1", completed, true);
+        String afterCompletion = texts(diffing.apply(state)).getFirst();
+
+        assertThat(afterFailure).endsWith(log(100));
+        assertThat(afterCompletion).endsWith("is unchanged since it was sent earlier in this session.");
+    }
+
+    @Test
+    void skipsImagesAndBinaryFiles(@TempDir Path tempDir) throws Exception {
+        Path archive = Files.write(tempDir.resolve("data.bin"), new byte[]{'P', 'K', 3, 4, 0, 0});
+        Path image = Files.write(tempDir.resolve("image.png"), new byte[]{1, 2, 3});
+
+        assertThat(node.apply(state("summarize", link(archive, null), link(image, "image/png")))).isEmpty();
+    }
+
+    private static TextAttachmentNode.Settings settings() {
+        return TextAttachmentNode.Settings.defaults().withTokenBudget(1000).withChunks(100, 10)
+                .withDefaultMode(AttachmentMode.FULL, Integer.MAX_VALUE);
+    }
+
+    private static AcpState<ChatMessage> state(String prompt, ResourceLinkContent... links) {
+        return new AcpState<>(Map.of(
+                MessagesState.MESSAGES_STATE, List.of(UserMessage.from(prompt)),
+                AcpState.ATTACHMENTS_META, List.of(links)));
+    }
+
+    private static ResourceLinkContent link(Path path, String mimeType) {
+        return new ResourceLinkContent(path.getFileName().toString(), path.toUri(), null, mimeType, null, null, null, null);
+    }
+
+    private static ResourceLinkContent link(Path path, String mimeType, String mode) {
+        JsonObject meta = mode == null ? null
+                : new JsonObject(Map.of(AttachmentMode.META_KEY, JsonElementKt.JsonPrimitive(mode)));
+        return new ResourceLinkContent(path.getFileName().toString(), path.toUri(), null, mimeType, null, null, null, meta);
+    }
+
+    private static Path dataset(Path directory, String name) throws IOException {
+        try (InputStream in = TextAttachmentNodeTest.class.getResourceAsStream("/dataset/" + name)) {
+            return Files.write(directory.resolve(name), in.readAllBytes());
+        }
+    }
+
+    private static String log(int lines) {
+        return IntStream.range(0, lines)
+                .mapToObj(i -> "request " + i + " served\n")
+                .collect(Collectors.joining());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> texts(Map<String, Object> output) {
+        return ((List<Content>) output.get(AcpState.ATTACHMENT_CONTENTS)).stream()
+                .map(content -> ((TextContent) content).text())
+                .toList();
+    }
+}
@@ -0,0 +1,137 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.service.tool.ToolExecutor;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
+import org.bsc.langgraph4j.prebuilt.MessagesState;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToolExecutorNodeTest {
+
+    @Test
+    void runsToolsConcurrentlyAndKeepsRequestOrder() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        ToolExecutor slow = (request, memoryId) -> {
+            bothStarted.countDown();
+            awaitQuietly(bothStarted);
+            sleepQuietly(Duration.ofMillis(100));
+            return "slow-result";
+        };
+        ToolExecutor fast = (request, memoryId) -> {
+            bothStarted.countDown();
+            awaitQuietly(bothStarted);
+            return "fast-result";
+        };
+        ToolExecutorNode node = new ToolExecutorNode(Map.of("slow", slow, "fast", fast), Duration.ofSeconds(5), 4);
+
+        List<ToolExecutionResultMessage> results = results(node.apply(stateRequesting(request("1", "slow"), request("2", "fast"))));
+
+        assertThat(results).extracting(ToolExecutionResultMessage::id).containsExactly("1", "2");
+        assertThat(results).extracting(ToolExecutionResultMessage::text).containsExactly("slow-result", "fast-result");
+    }
+
+    @Test
+    void boundsTheNumberOfToolsRunningAtOnce() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ToolExecutor tool = (request, memoryId) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleepQuietly(Duration.ofMillis(50));
+            running.decrementAndGet();
+            return request.id();
+        };
+        ToolExecutorNode node = new ToolExecutorNode(Map.of("tool", tool), Duration.ofSeconds(5), 2);
+
+        List<ToolExecutionResultMessage> results = results(node.apply(stateRequesting(
+                request("1", "tool"), request("2", "tool"), request("3", "tool"), request("4", "tool"), request("5", "tool"))));
+
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+        assertThat(results).extracting(ToolExecutionResultMessage::text).containsExactly("1", "2", "3", "4", "5");
+    }
+
+    @Test
+    void reportsTimeoutsFailuresAndUnknownToolsAsResults() throws Exception {
+        ToolExecutor hanging = (request, memoryId) -> {
+            sleepQuietly(Duration.ofSeconds(30));
+            return "too late";
+        };
+        ToolExecutor failing = (request, memoryId) -> {
+            throw new IllegalArgumentException("bad arguments");
+        };
+        ToolExecutorNode node = new ToolExecutorNode(Map.of("hanging", hanging, "failing", failing),
+                Duration.ofSeconds(5), Map.of("hanging", Duration.ofMillis(100)), 4);
+
+        long start = System.nanoTime();
+        List<ToolExecutionResultMessage> results = results(node.apply(stateRequesting(
+                request("1", "hanging"), request("2", "failing"), request("3", "missing"))));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        assertThat(results).extracting(ToolExecutionResultMessage::text).containsExactly(
+                "Error: tool hanging timed out after 100 ms",
+                "Error: bad arguments",
+                "Error: there is no tool called missing");
+    }
+
+    @Test
+    void reportsNullResultsAsEmptyResults() throws Exception {
+        ToolExecutor silent = (request, memoryId) -> null;
+        try (ToolExecutorNode node = new ToolExecutorNode(Map.of("silent", silent), Duration.ofSeconds(5), 1)) {
+            List<ToolExecutionResultMessage> results = results(node.apply(stateRequesting(request("1", "silent"))));
+
+            assertThat(results).extracting(ToolExecutionResultMessage::text).containsExactly("");
+        }
+    }
+
+    @Test
+    void returnsNothingWhenTheLastMessageRequestsNoTool() throws Exception {
+        ToolExecutorNode node = new ToolExecutorNode(Map.of(), Duration.ofSeconds(1), 1);
+
+        AcpState<ChatMessage> state = new AcpState<>(Map.of(
+                MessagesState.MESSAGES_STATE, List.of(UserMessage.from("hi"), AiMessage.from("hello"))));
+
+        assertThat(node.apply(state)).isEmpty();
+    }
+
+    private static AcpState<ChatMessage> stateRequesting(ToolExecutionRequest... requests) {
+        return new AcpState<>(Map.of(
+                MessagesState.MESSAGES_STATE, List.of(UserMessage.from("use tools"), AiMessage.from(requests))));
+    }
+
+    private static ToolExecutionRequest request(String id, String name) {
+        return ToolExecutionRequest.builder().id(id).name(name).arguments("{}").build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ToolExecutionResultMessage> results(Map<String, Object> output) {
+        return (List<ToolExecutionResultMessage>) output.get(MessagesState.MESSAGES_STATE);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepQuietly(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
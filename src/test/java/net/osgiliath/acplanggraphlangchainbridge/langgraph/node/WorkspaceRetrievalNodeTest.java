@@ -0,0 +1,78 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.UserMessage;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import net.osgiliath.acplanggraphlangchainbridge.workspace.index.WorkspaceIndexRegistry;
+import org.bsc.langgraph4j.prebuilt.MessagesState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkspaceRetrievalNodeTest {
+
+    private final WorkspaceIndexRegistry registry =
+            new WorkspaceIndexRegistry(null, 64, 8, 1 << 20, Duration.ZERO, Duration.ofMinutes(30), null, null);
+
+    @AfterEach
+    void closeRegistry() {
+        registry.close();
+    }
+
+    @Test
+    void addsTheSnippetsMatchingThePrompt(@TempDir Path workspace) throws Exception {
+        Files.writeString(workspace.resolve("Payment.java"), "class Payment {\n    void processRefund() {}\n}\n");
+        Files.writeString(workspace.resolve("Order.java"), "class Order {\n    void ship() {}\n}\n");
+        registry.forWorkspace(workspace).awaitInitialScan(Duration.ofSeconds(30));
+        WorkspaceRetrievalNode<ChatMessage> node = new WorkspaceRetrievalNode<>(8, 2000, registry);
+
+        Map<String, Object> output = node.apply(state(workspace, "where is the refund processed?"));
+
+        @SuppressWarnings("unchecked")
+        List<Content> contents = (List<Content>) output.get(AcpState.ATTACHMENT_CONTENTS);
+        assertThat(contents).singleElement().satisfies(content -> assertThat(((TextContent) content).text())
+                .startsWith("Workspace snippets relevant to the prompt:")
+                .contains("Payment.java:1-3", "void processRefund()")
+                .doesNotContain("Order.java"));
+    }
+
+    @Test
+    void addsNothingWithoutIndexOrMatch(@TempDir Path workspace) throws Exception {
+        Files.writeString(workspace.resolve("Order.java"), "class Order {\n    void ship() {}\n}\n");
+        registry.forWorkspace(workspace).awaitInitialScan(Duration.ofSeconds(30));
+
+        assertThat(new WorkspaceRetrievalNode<ChatMessage>(8, 2000, null).apply(state(workspace, "ship the order")))
+                .isEmpty();
+        assertThat(new WorkspaceRetrievalNode<ChatMessage>(8, 2000, registry).apply(state(workspace, "refund")))
+                .isEmpty();
+    }
+
+    @Test
+    void addsNothingForABlankOrRelativeWorkingDirectory() {
+        WorkspaceRetrievalNode<ChatMessage> node = new WorkspaceRetrievalNode<>(8, 2000, registry);
+
+        // SessionContext.empty() has "." as working directory, which would index the bridge process directory
+        assertThat(node.apply(new AcpState<>(Map.of(
+                MessagesState.MESSAGES_STATE, List.of(UserMessage.from("class")),
+                AcpState.SESSION_CONTEXT, SessionContext.empty())))).isEmpty();
+        assertThat(WorkspaceIndexRegistry.workspaceRoot(".")).isEmpty();
+        assertThat(WorkspaceIndexRegistry.workspaceRoot(" ")).isEmpty();
+    }
+
+    private static AcpState<ChatMessage> state(Path workspace, String prompt) {
+        return new AcpState<>(Map.of(
+                MessagesState.MESSAGES_STATE, List.of(UserMessage.from(prompt)),
+                AcpState.SESSION_CONTEXT, SessionContext.of("session", workspace.toString(), Map.of())));
+    }
+}
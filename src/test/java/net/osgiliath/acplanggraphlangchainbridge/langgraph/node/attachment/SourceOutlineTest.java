@@ -0,0 +1,114 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SourceOutlineTest {
+
+    @Test
+    void keepsDeclarationsAndElidesMethodBodies() throws IOException {
+        String source = dataset("Service.java");
+
+        String outline = SourceOutline.forFile("Service.java").orElseThrow().extract(source);
+
+        assertThat(outline)
+                .contains("package com.example.erp.service;",
+                        "import org.springframework.transaction.annotation.Transactional;",
+                        "* Processes a business operation.",
+                        "public class Service {",
+                        "public Result processOperation(String data) { ... }",
+                        "interface Repository {",
+                        "void save(String data);",
+                        "public static class Result {",
+                        "private final boolean success;")
+                .doesNotContain("toUpperCase", "Data cannot be null or empty");
+        assertThat(outline.length()).isLessThan(source.length());
+    }
+
+    @Test
+    void ignoresBracesInStringsCommentsAndCharacterLiterals() {
+        String source = """
+                class Braces {
+                    // a comment with a { brace
+                    String open = "{";
+                    char close = '}';
+                    /* another } brace */
+                    void run() {
+                        if (open.equals("}")) { return; }
+                    }
+                    String text = \"""
+                        } text block {
+                        \""";
+                    int after() { return 1; }
+                }
+                """;
+
+        String outline = SourceOutline.forFile("Braces.java").orElseThrow().extract(source);
+
+        assertThat(outline)
+                .contains("String open = \"{\";", "char close = '}';", "void run() { ... }", "int after() { ... }")
+                .doesNotContain("return;")
+                .endsWith("}\n");
+    }
+
+    @Test
+    void outlinesKotlinSources() {
+        String source = """
+                package demo
+
+                data class Point(val x: Int, val y: Int)
+
+                class Greeter(private val name: String) {
+                    companion object {
+                        const val DEFAULT = "world"
+                    }
+
+                    init { require(name.isNotBlank()) }
+
+                    fun greet(): String {
+                        return "Hello ${name.ifBlank { DEFAULT }}!"
+                    }
+
+                    fun Int.twice() = this * 2
+                }
+
+                fun main() {
+                    println(Greeter("you").greet())
+                }
+                """;
+
+        String outline = SourceOutline.forFile("demo/Greeter.kt").orElseThrow().extract(source);
+
+        assertThat(outline)
+                .contains("data class Point(val x: Int, val y: Int)",
+                        "class Greeter(private val name: String) {",
+                        "companion object {",
+                        "const val DEFAULT = \"world\"",
+                        "init { ... }",
+                        "fun greet(): String { ... }",
+                        "fun Int.twice() = this * 2",
+                        "fun main() { ... }")
+                .doesNotContain("Hello", "println");
+    }
+
+    @Test
+    void supportsBraceDelimitedLanguagesOnly() {
+        assertThat(SourceOutline.forFile("src/Main.java")).isPresent();
+        assertThat(SourceOutline.forFile("build.gradle.kts")).isPresent();
+        assertThat(SourceOutline.forFile("app.tsx")).isPresent();
+        assertThat(SourceOutline.forFile("script.py")).isEmpty();
+        assertThat(SourceOutline.forFile("README.md")).isEmpty();
+        assertThat(SourceOutline.forFile("Makefile")).isEmpty();
+    }
+
+    private static String dataset(String name) throws IOException {
+        try (InputStream in = SourceOutlineTest.class.getResourceAsStream("/dataset/" + name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TextChunkerTest {
+
+    private final TextChunker chunker = new TextChunker(50, 10, TextChunker::approximateTokens);
+
+    @Test
+    void splitsIntoBoundedOverlappingChunksOfWholeLines() {
+        String text = log(1000);
+
+        List<TextChunker.Chunk> chunks = chunker.split(text);
+
+        assertThat(chunks).allSatisfy(chunk -> {
+            assertThat(chunk.tokens()).isLessThanOrEqualTo(50);
+            assertThat(chunk.text()).endsWith("\n");
+        });
+        assertThat(chunks.getFirst().firstLine()).isEqualTo(1);
+        assertThat(chunks.getLast().lastLine()).isEqualTo(1000);
+        for (int i = 1; i < chunks.size(); i++) {
+            assertThat(chunks.get(i).firstLine())
+                    .isLessThanOrEqualTo(chunks.get(i - 1).lastLine())
+                    .isGreaterThan(chunks.get(i - 1).firstLine());
+        }
+        assertThat(TextChunker.excerpt(chunks, 1000)).isEqualTo(text);
+    }
+
+    @Test
+    void cutsLinesLongerThanAChunk() {
+        String text = "first\n" + "x".repeat(1000) + "\nlast";
+
+        List<TextChunker.Chunk> chunks = chunker.split(text);
+
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.tokens()).isLessThanOrEqualTo(50));
+        assertThat(chunks).filteredOn(chunk -> chunk.firstLine() == 2).hasSizeGreaterThan(1);
+        assertThat(TextChunker.excerpt(chunks, TextChunker.lineCount(text))).isEqualTo(text);
+    }
+
+    @Test
+    void selectsHeadTailAndRelevantChunksInTextOrder() {
+        String text = log(1000);
+        List<TextChunker.Chunk> chunks = chunker.split(text);
+
+        List<TextChunker.Chunk> selected = TextChunker.select(chunks, "why did request 512 fail?", 150);
+        String excerpt = TextChunker.excerpt(selected, 1000);
+
+        assertThat(selected).hasSize(3);
+        assertThat(selected.getFirst()).isEqualTo(chunks.getFirst());
+        assertThat(selected.getLast()).isEqualTo(chunks.getLast());
+        assertThat(selected.get(1).text()).contains("request 512 ");
+        assertThat(excerpt).contains("request 0 ", "request 512 ", "request 999 ", "omitted");
+        assertThat(selected.stream().mapToInt(TextChunker.Chunk::tokens).sum()).isLessThanOrEqualTo(150);
+    }
+
+    @Test
+    void selectsEverythingWithinBudget() {
+        List<TextChunker.Chunk> chunks = chunker.split(log(10));
+
+        assertThat(TextChunker.select(chunks, "", 1000)).isEqualTo(chunks);
+    }
+
+    @Test
+    void rebuildsChunksFromTheirBoundaries() {
+        String text = log(300) + "y".repeat(700) + "\ntail\n";
+        List<TextChunker.Chunk> chunks = chunker.split(text);
+
+        assertThat(TextChunker.decodeBoundaries(TextChunker.encodeBoundaries(chunks), text)).isEqualTo(chunks);
+    }
+
+    @Test
+    void rejectsAnOverlapAsLargeAsAChunk() {
+        assertThatThrownBy(() -> new TextChunker(10, 10, TextChunker::approximateTokens))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String log(int lines) {
+        return IntStream.range(0, lines)
+                .mapToObj(i -> "request " + i + " served\n")
+                .collect(Collectors.joining());
+    }
+}
@@ -0,0 +1,97 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment;
+
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.cache.DerivedArtifactCache;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextDecoderTest {
+
+    @Test
+    void decodesUtf8AndHashesTheBytes() throws IOException {
+        byte[] bytes = "héllo wörld\n".getBytes(StandardCharsets.UTF_8);
+
+        TextDecoder.DecodedText decoded = decode(bytes);
+
+        assertThat(decoded.text()).isEqualTo("héllo wörld\n");
+        assertThat(decoded.charset()).isEqualTo(StandardCharsets.UTF_8);
+        assertThat(decoded.sizeBytes()).isEqualTo(bytes.length);
+        assertThat(decoded.contentHash()).isEqualTo(DerivedArtifactCache.contentHash(bytes));
+        assertThat(decoded.binary()).isFalse();
+    }
+
+    @Test
+    void skipsByteOrderMarks() throws IOException {
+        byte[] utf8 = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'o', 'k'};
+        byte[] utf16 = {(byte) 0xFF, (byte) 0xFE, 'o', 0, 'k', 0};
+
+        assertThat(decode(utf8).text()).isEqualTo("ok");
+        assertThat(decode(utf16).text()).isEqualTo("ok");
+        assertThat(decode(utf16).charset()).isEqualTo(StandardCharsets.UTF_16LE);
+    }
+
+    @Test
+    void fallsBackToLegacyCharsetAfterTheValidUtf8Prefix() throws IOException {
+        String ascii = "x".repeat(200_000) + "\n";
+        byte[] bytes = (ascii + "café\n").getBytes(StandardCharsets.ISO_8859_1);
+
+        TextDecoder.DecodedText decoded = decode(bytes);
+
+        assertThat(decoded.text()).isEqualTo(ascii + "café\n");
+        assertThat(decoded.charset()).isEqualTo(Charset.forName("windows-1252"));
+        assertThat(decoded.contentHash()).isEqualTo(DerivedArtifactCache.contentHash(bytes));
+    }
+
+    @Test
+    void keepsMultiByteSequencesSplitAcrossBlocks() throws IOException {
+        String text = "a".repeat(64 * 1024 - 1) + "é€";
+
+        assertThat(decode(text.getBytes(StandardCharsets.UTF_8)).text()).isEqualTo(text);
+    }
+
+    @Test
+    void detectsBinaryContent() throws IOException {
+        byte[] bytes = {'P', 'K', 3, 4, 0, 0, 1};
+
+        TextDecoder.DecodedText decoded = decode(bytes);
+
+        assertThat(decoded.binary()).isTrue();
+        assertThat(decoded.text()).isEmpty();
+        assertThat(decoded.sizeBytes()).isEqualTo(bytes.length);
+        assertThat(decoded.contentHash()).isEqualTo(DerivedArtifactCache.contentHash(bytes));
+    }
+
+    @Test
+    void stopsAtTheMaximumNumberOfBytes() throws IOException {
+        byte[] bytes = ("a".repeat(99) + "é" + "b".repeat(200_000)).getBytes(StandardCharsets.UTF_8);
+
+        TextDecoder.DecodedText decoded = TextDecoder.decode(new ByteArrayInputStream(bytes), 100);
+
+        assertThat(decoded.text()).isEqualTo("a".repeat(99));
+        assertThat(decoded.charset()).isEqualTo(StandardCharsets.UTF_8);
+        assertThat(decoded.sizeBytes()).isEqualTo(100);
+        assertThat(decoded.contentHash()).isEqualTo(DerivedArtifactCache.contentHash(Arrays.copyOf(bytes, 100)));
+        assertThat(decoded.truncated()).isTrue();
+    }
+
+    @Test
+    void doesNotMarkAStreamOfExactlyTheMaximumAsTruncated() throws IOException {
+        byte[] bytes = "x".repeat(70_000).getBytes(StandardCharsets.UTF_8);
+
+        TextDecoder.DecodedText decoded = TextDecoder.decode(new ByteArrayInputStream(bytes), bytes.length);
+
+        assertThat(decoded.text()).hasSize(70_000);
+        assertThat(decoded.truncated()).isFalse();
+        assertThat(decoded.contentHash()).isEqualTo(DerivedArtifactCache.contentHash(bytes));
+    }
+
+    private static TextDecoder.DecodedText decode(byte[] bytes) throws IOException {
+        return TextDecoder.decode(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,84 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.node.attachment;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UnifiedDiffTest {
+
+    private static final String LINES = IntStream.rangeClosed(1, 20)
+            .mapToObj(i -> "line " + i + "\n")
+            .collect(Collectors.joining());
+
+    @Test
+    void showsChangesWithTheirContext() {
+        String after = LINES.replace("line 5\n", "line five\n");
+
+        assertThat(UnifiedDiff.of("f.txt", LINES, after, 3, 100)).contains("""
+                --- a/f.txt
+                +++ b/f.txt
+                @@ -2,7 +2,7 @@
+                 line 2
+                 line 3
+                 line 4
+                -line 5
+                +line five
+                 line 6
+                 line 7
+                 line 8
+                """);
+    }
+
+    @Test
+    void mergesHunksWhoseContextsTouchAndSplitsTheOthers() {
+        String after = LINES.replace("line 5\n", "").replace("line 11\n", "line eleven\n")
+                .replace("line 20\n", "line 20\nline 21\n");
+
+        assertThat(UnifiedDiff.of("f.txt", LINES, after, 3, 100)).contains("""
+                --- a/f.txt
+                +++ b/f.txt
+                @@ -2,13 +2,12 @@
+                 line 2
+                 line 3
+                 line 4
+                -line 5
+                 line 6
+                 line 7
+                 line 8
+                 line 9
+                 line 10
+                -line 11
+                +line eleven
+                 line 12
+                 line 13
+                 line 14
+                @@ -18,3 +17,4 @@
+                 line 18
+                 line 19
+                 line 20
+                +line 21
+                """);
+    }
+
+    @Test
+    void formatsEmptyRangesLikeDiff() {
+        assertThat(UnifiedDiff.of("f.txt", "", "one\n", 3, 100)).contains("--- a/f.txt\n+++ b/f.txt\n@@ -0,0 +1 @@\n+one\n");
+        assertThat(UnifiedDiff.of("f.txt", "one\n", "", 3, 100)).contains("--- a/f.txt\n+++ b/f.txt\n@@ -1 +0,0 @@\n-one\n");
+    }
+
+    @Test
+    void hasNoHunkForIdenticalLines() {
+        assertThat(UnifiedDiff.of("f.txt", LINES, LINES, 3, 100)).contains("--- a/f.txt\n+++ b/f.txt\n");
+    }
+
+    @Test
+    void givesUpAboveTheMaximumNumberOfEdits() {
+        String after = LINES.replace("line", "row");
+
+        assertThat(UnifiedDiff.of("f.txt", LINES, after, 3, 39)).isEmpty();
+        assertThat(UnifiedDiff.of("f.txt", LINES, after, 3, 40)).isPresent();
+    }
+}
@@ -0,0 +1,162 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.replay;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamReplayerTest {
+
+    @Test
+    void recordsChunksWhileForwardingThemAndRoundTripsThroughAFile(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("stream.acpr");
+        CollectingHandler live = new CollectingHandler();
+        var recorder = RecordingStreamingChatResponseHandler.toFile(live, file);
+
+        recorder.onPartialResponse("Hel");
+        recorder.onPartialResponse("lo");
+        recorder.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from("Hello")).build());
+
+        StreamRecording recording = StreamRecording.read(file);
+        assertThat(live.chunks).containsExactly("Hel", "lo");
+        assertThat(recording.chunks()).extracting(StreamRecording.Chunk::text).containsExactly("Hel", "lo");
+        assertThat(recording.responseText()).isEqualTo("Hello");
+        assertThat(recording.error()).isNull();
+    }
+
+    @Test
+    void recordsAndReplaysTheToolCallsFinishReasonAndUsageOfTheFinalResponse(@TempDir Path directory)
+            throws IOException {
+        Path file = directory.resolve("tools.acpr");
+        var recorder = RecordingStreamingChatResponseHandler.toFile(new CollectingHandler(), file);
+        ToolExecutionRequest readFile = ToolExecutionRequest.builder()
+                .id("call-1")
+                .name("read_file")
+                .arguments("{\"path\":\"README.md\"}")
+                .build();
+
+        recorder.onCompleteResponse(ChatResponse.builder()
+                .aiMessage(AiMessage.from(readFile))
+                .finishReason(FinishReason.TOOL_EXECUTION)
+                .tokenUsage(new TokenUsage(120, 15, 135))
+                .build());
+        CollectingHandler replayed = new CollectingHandler();
+        StreamReplayer.replay(StreamRecording.read(file), replayed, ReplaySpeed.MAX);
+
+        ChatResponse response = replayed.response.get();
+        assertThat(response.aiMessage().toolExecutionRequests()).singleElement().satisfies(request -> {
+            assertThat(request.id()).isEqualTo("call-1");
+            assertThat(request.name()).isEqualTo("read_file");
+            assertThat(request.arguments()).isEqualTo("{\"path\":\"README.md\"}");
+        });
+        assertThat(response.finishReason()).isEqualTo(FinishReason.TOOL_EXECUTION);
+        assertThat(response.tokenUsage().inputTokenCount()).isEqualTo(120);
+        assertThat(response.tokenUsage().outputTokenCount()).isEqualTo(15);
+        assertThat(response.tokenUsage().totalTokenCount()).isEqualTo(135);
+    }
+
+    @Test
+    void recordingModelRecordsEveryStreamOfTheWrappedModel(@TempDir Path directory) throws IOException {
+        StreamingChatModel model = new StreamingChatModel() {
+            @Override
+            public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+                handler.onPartialResponse("Hi");
+                handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from("Hi")).build());
+            }
+        };
+        CollectingHandler live = new CollectingHandler();
+
+        new RecordingStreamingChatModel(model, directory).chat("Hello", live);
+
+        assertThat(live.response.get().aiMessage().text()).isEqualTo("Hi");
+        try (var files = Files.list(directory)) {
+            assertThat(files.toList()).singleElement().satisfies(file -> {
+                assertThat(file.getFileName().toString()).startsWith("model-").endsWith(".acpr");
+                assertThat(StreamRecording.read(file).responseText()).isEqualTo("Hi");
+            });
+        }
+    }
+
+    @Test
+    void replaysChunksAndFinalResponseAtMaxSpeed() {
+        StreamRecording recording = new StreamRecording(List.of(
+                new StreamRecording.Chunk(Duration.ofSeconds(5).toNanos(), "a"),
+                new StreamRecording.Chunk(Duration.ofSeconds(5).toNanos(), "b")),
+                Duration.ofSeconds(5).toNanos(), "ab", null);
+        CollectingHandler handler = new CollectingHandler();
+
+        long start = System.nanoTime();
+        StreamReplayer.replay(recording, handler, ReplaySpeed.MAX);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(handler.chunks).containsExactly("a", "b");
+        assertThat(handler.response.get().aiMessage().text()).isEqualTo("ab");
+    }
+
+    @Test
+    void replaysRecordedTimingScaledBySpeed() {
+        StreamRecording recording = new StreamRecording(List.of(
+                new StreamRecording.Chunk(Duration.ofMillis(200).toNanos(), "a"),
+                new StreamRecording.Chunk(Duration.ofMillis(200).toNanos(), "b")),
+                0L, "ab", null);
+
+        long start = System.nanoTime();
+        StreamReplayer.replay(recording, new CollectingHandler(), ReplaySpeed.accelerated(2.0d));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(200));
+    }
+
+    @Test
+    void replaysRecordedErrors() {
+        StreamRecording recording = new StreamRecording(List.of(new StreamRecording.Chunk(0L, "partial")), 0L, null, "boom");
+        CollectingHandler handler = new CollectingHandler();
+
+        StreamReplayer.replay(recording, handler, ReplaySpeed.MAX);
+
+        assertThat(handler.chunks).containsExactly("partial");
+        assertThat(handler.error.get()).isInstanceOf(IOException.class).hasMessage("boom");
+    }
+
+    @Test
+    void rejectsNonPositiveSpeed() {
+        assertThatThrownBy(() -> ReplaySpeed.accelerated(0.0d)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static final class CollectingHandler implements StreamingChatResponseHandler {
+        private final List<String> chunks = new ArrayList<>();
+        private final AtomicReference<ChatResponse> response = new AtomicReference<>();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            chunks.add(partialResponse);
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            response.set(completeResponse);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.serializer;
+
+import com.agentclientprotocol.model.Annotations;
+import dev.langchain4j.data.message.Content;
+import kotlinx.serialization.json.Json;
+import kotlinx.serialization.json.JsonElementKt;
+import kotlinx.serialization.json.JsonObject;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.message.ResourceLinkContent;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs on the JVM and in the native test image ({@code ./gradlew nativeTest -Pnative}).
+ */
+@Tag("native")
+class AcpBridgeContentSerializerTest {
+
+    private final AcpBridgeContentSerializer serializer = new AcpBridgeContentSerializer();
+
+    @Test
+    void roundTripsAResourceLink() throws Exception {
+        ResourceLinkContent link = new ResourceLinkContent("notes.md", URI.create("file:///workspace/notes.md"),
+                "Meeting notes", "text/markdown", 42L, "Notes", null, null);
+
+        assertThat(roundTrip(link)).isEqualTo(link);
+    }
+
+    @Test
+    void roundTripsAResourceLinkWithoutOptionalFields() throws Exception {
+        ResourceLinkContent link = new ResourceLinkContent("notes.md", URI.create("file:///workspace/notes.md"),
+                null, null, null, null, null, null);
+
+        assertThat(roundTrip(link)).isEqualTo(link);
+    }
+
+    @Test
+    void roundTripsAResourceLinkWithAnnotationsAndMeta() throws Exception {
+        Annotations annotations = Json.Default.decodeFromString(Annotations.Companion.serializer(),
+                "{\"audience\":[\"user\"],\"priority\":0.5,\"lastModified\":\"2024-01-02T03:04:05Z\"}");
+        JsonObject meta = new JsonObject(Map.of(
+                "attachmentMode", JsonElementKt.JsonPrimitive("outline"),
+                "origin", new JsonObject(Map.of("line", JsonElementKt.JsonPrimitive(12)))));
+        ResourceLinkContent link = new ResourceLinkContent("notes.md", URI.create("file:///workspace/notes.md"),
+                "Meeting notes", "text/markdown", 42L, "Notes", annotations, meta);
+
+        ResourceLinkContent read = (ResourceLinkContent) roundTrip(link);
+
+        assertThat(read).isEqualTo(link);
+        assertThat(read.annotations()).isEqualTo(annotations);
+        assertThat(read.meta()).isEqualTo(meta);
+    }
+
+    private Content roundTrip(Content content) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            serializer.write(content, out);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return serializer.read(in);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package net.osgiliath.acplanggraphlangchainbridge.langgraph.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class McpServerDefinitionTest {
+
+    @Test
+    void parsesFlattenedDefinitions() {
+        assertThat(McpServerDefinition.parse("npx -y @modelcontextprotocol/server-filesystem /workspace"))
+                .isEqualTo(McpServerDefinition.stdio("npx",
+                        List.of("-y", "@modelcontextprotocol/server-filesystem", "/workspace"), Map.of()));
+        assertThat(McpServerDefinition.parse("https://example.test/mcp"))
+                .isEqualTo(McpServerDefinition.http("https://example.test/mcp", Map.of()));
+        assertThat(McpServerDefinition.parse("https://example.test/sse").transport())
+                .isEqualTo(McpServerDefinition.Transport.SSE);
+    }
+
+    @Test
+    void showsNeitherEnvironmentNorHeaders() {
+        McpServerDefinition stdio = McpServerDefinition.stdio("uvx", List.of("mcp-server-git"), Map.of("GITHUB_TOKEN", "secret"));
+        McpServerDefinition http = McpServerDefinition.http("https://example.test/mcp", Map.of("Authorization", "Bearer secret"));
+
+        assertThat(stdio).hasToString("uvx mcp-server-git");
+        assertThat(http).hasToString("https://example.test/mcp");
+    }
+
+    @Test
+    void sessionContextsKeepFullDefinitionsAndTheirCommands() {
+        McpServerDefinition git = McpServerDefinition.stdio("uvx", List.of("mcp-server-git"), Map.of("GITHUB_TOKEN", "secret"));
+
+        SessionContext context = SessionContext.withServers("s1", "/workspace", Map.of("git", git));
+
+        assertThat(context.mcpServerDefinitions()).containsExactlyEntriesOf(Map.of("git", git));
+        assertThat(context.mcpServers()).containsExactlyEntriesOf(Map.of("git", "uvx"));
+        assertThat(SessionContext.of("s1", "/workspace", Map.of("git", "uvx mcp-server-git")).mcpServerDefinitions())
+                .containsExactlyEntriesOf(Map.of("git", McpServerDefinition.stdio("uvx", List.of("mcp-server-git"), null)));
+    }
+}
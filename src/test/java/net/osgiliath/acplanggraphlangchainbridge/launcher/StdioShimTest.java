@@ -0,0 +1,110 @@
+package net.osgiliath.acplanggraphlangchainbridge.launcher;
+
+import net.osgiliath.acplanggraphlangchainbridge.transport.AcpEndpoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StdioShimTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void pipesStdioToTheRunningDaemon() throws Exception {
+        Path socket = directory.resolve("bridge.sock");
+        StdioShim shim = new StdioShim(Map.of("acp.bridge.transport.socket", socket.toString())::get);
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+        try (ServerSocketChannel server = AcpEndpoint.unix(socket).bind()) {
+            Thread daemon = Thread.ofVirtual().start(() -> answerInUpperCase(server));
+
+            int status = shim.run(new ByteArrayInputStream("{\"method\":\"initialize\"}\n".getBytes(StandardCharsets.UTF_8)), stdout);
+
+            daemon.join();
+            assertThat(status).isZero();
+        }
+        assertThat(stdout.toString(StandardCharsets.UTF_8)).isEqualTo("{\"METHOD\":\"INITIALIZE\"}\n");
+    }
+
+    @Test
+    void failsWhenNoDaemonListensAndNoCommandCanStartOne() {
+        StdioShim shim = new StdioShim(Map.of("acp.bridge.transport.socket", directory.resolve("none.sock").toString())::get);
+
+        assertThatThrownBy(() -> shim.run(InputStream.nullInputStream(), OutputStream.nullOutputStream()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("No bridge daemon");
+    }
+
+    @Test
+    void stopsWaitingForADaemonThatExitedAndRunsTheCommandOverStdio() throws Exception {
+        StdioShim shim = new StdioShim(Map.of(
+                "acp.bridge.transport.socket", directory.resolve("none.sock").toString(),
+                "acp.bridge.shim.startup-timeout", "PT60S")::get, List.of("true"));
+
+        long start = System.nanoTime();
+        int status = shim.run(InputStream.nullInputStream(), OutputStream.nullOutputStream());
+
+        assertThat(status).isZero();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void startsTheDaemonOnTheEndpointTheShimConnectsTo() {
+        StdioShim shim = new StdioShim(Map.of(
+                "acp.bridge.transport.mode", "tcp",
+                "acp.bridge.transport.port", "7400")::get);
+
+        assertThat(StdioShim.transportArguments(shim.endpoint())).containsExactly(
+                "--acp.bridge.transport.mode=tcp",
+                "--acp.bridge.transport.host=127.0.0.1",
+                "--acp.bridge.transport.port=7400",
+                "--acp.bridge.transport.token-file=" + AcpEndpoint.runtimeDirectory().resolve("tcp-7400.token"));
+    }
+
+    @Test
+    void readsTheCommandFromAFileWithOneArgumentPerLine() throws IOException {
+        Path commandFile = Files.writeString(directory.resolve("bridge.args"),
+                "/opt/My Tools/java\n-jar\n/opt/My Tools/bridge.jar\n");
+        StdioShim shim = new StdioShim(Map.of(
+                "acp.bridge.shim.command-file", commandFile.toString(),
+                "acp.bridge.shim.command", "java -jar bridge.jar")::get);
+
+        assertThat(shim.command()).containsExactly("/opt/My Tools/java", "-jar", "/opt/My Tools/bridge.jar");
+    }
+
+    @Test
+    void prefersTheCommandGivenAsShimArguments() throws IOException {
+        StdioShim shim = new StdioShim(Map.of("acp.bridge.shim.command", "java -jar bridge.jar")::get,
+                List.of("/opt/My Tools/bridge"));
+
+        assertThat(shim.command()).containsExactly("/opt/My Tools/bridge");
+    }
+
+    private static void answerInUpperCase(ServerSocketChannel server) {
+        try (SocketChannel client = server.accept()) {
+            String request = new String(Channels.newInputStream(client).readAllBytes(), StandardCharsets.UTF_8);
+            Channels.newOutputStream(client).write(request.toUpperCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
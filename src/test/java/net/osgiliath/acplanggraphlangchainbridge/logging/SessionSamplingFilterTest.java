@@ -0,0 +1,64 @@
+package net.osgiliath.acplanggraphlangchainbridge.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionSamplingFilterTest {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+    private final Logger bridgeLogger = loggerContext.getLogger("net.osgiliath.acplanggraphlangchainbridge.langgraph.LangGraph4jAdapter");
+    private final Logger otherLogger = loggerContext.getLogger("org.bsc.langgraph4j.CompiledGraph");
+
+    @Test
+    void acceptsDebugEventsOfSampledSessionsOfTheBridgeOnly() {
+        SessionSamplingFilter filter = filter(100);
+
+        try (var ignored = SessionMdc.put("session-1")) {
+            assertThat(decide(filter, bridgeLogger, Level.DEBUG)).isEqualTo(FilterReply.ACCEPT);
+            assertThat(decide(filter, bridgeLogger, Level.TRACE)).isEqualTo(FilterReply.NEUTRAL);
+            assertThat(decide(filter, bridgeLogger, Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+            assertThat(decide(filter, otherLogger, Level.DEBUG)).isEqualTo(FilterReply.NEUTRAL);
+        }
+        assertThat(decide(filter, bridgeLogger, Level.DEBUG)).isEqualTo(FilterReply.NEUTRAL);
+    }
+
+    @Test
+    void leavesEveryEventToTheLevelCheckByDefault() {
+        SessionSamplingFilter filter = filter(0);
+
+        try (var ignored = SessionMdc.put("session-1")) {
+            assertThat(decide(filter, bridgeLogger, Level.DEBUG)).isEqualTo(FilterReply.NEUTRAL);
+        }
+    }
+
+    @Test
+    void samplesAStableShareOfSessions() {
+        long sampled = IntStream.range(0, 10_000)
+                .filter(i -> SessionSamplingFilter.sampled("session-" + i, 10))
+                .count();
+
+        assertThat(sampled).isBetween(800L, 1_200L);
+        assertThat(SessionSamplingFilter.sampled("session-42", 10))
+                .isEqualTo(SessionSamplingFilter.sampled("session-42", 10));
+        assertThat(SessionSamplingFilter.sampled("session-42", 100)).isTrue();
+    }
+
+    private SessionSamplingFilter filter(int samplePercent) {
+        SessionSamplingFilter filter = new SessionSamplingFilter();
+        filter.setContext(loggerContext);
+        filter.setSamplePercent(samplePercent);
+        filter.start();
+        return filter;
+    }
+
+    private static FilterReply decide(SessionSamplingFilter filter, Logger logger, Level level) {
+        return filter.decide(null, logger, level, "Streaming {}", new Object[]{"chunk"}, null);
+    }
+}
@@ -0,0 +1,173 @@
+package net.osgiliath.acplanggraphlangchainbridge.mcp;
+
+import dev.langchain4j.mcp.client.McpClient;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.McpServerDefinition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class McpClientPoolTest {
+
+    private final List<McpClient> created = new ArrayList<>();
+    private McpClientPool pool;
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void sharesOneLazilyStartedConnectionPerDefinition() {
+        pool = newPool(Duration.ofMinutes(5), 4, 8);
+        assertThat(created).isEmpty();
+
+        try (McpClientPool.Lease first = pool.lease("cagent serve");
+             McpClientPool.Lease second = pool.lease("cagent serve")) {
+            assertThat(first.client()).isSameAs(second.client());
+        }
+
+        assertThat(created).hasSize(1);
+        assertThat(pool.processCount()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentFirstLeasesStartASingleConnection() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        pool = new McpClientPool(definition -> {
+            awaitQuietly(release);
+            return newClient(definition);
+        }, Duration.ofMinutes(5), Duration.ofMinutes(5), 4, 8);
+
+        CompletableFuture<McpClient> first = CompletableFuture.supplyAsync(() -> leaseAndRelease("cagent"));
+        CompletableFuture<McpClient> second = CompletableFuture.supplyAsync(() -> leaseAndRelease("cagent"));
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(second.get(5, TimeUnit.SECONDS));
+        assertThat(created).hasSize(1);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedIdleProcessAtTheCap() throws Exception {
+        pool = newPool(Duration.ofMinutes(5), 2, 8);
+        pool.lease("first").close();
+        pool.lease("second").close();
+
+        pool.lease("third").close();
+
+        assertThat(pool.processCount()).isEqualTo(2);
+        verify(created.get(0)).close();
+    }
+
+    @Test
+    void failsWhenEveryConnectionIsInUse() {
+        pool = newPool(Duration.ofMinutes(5), 8, 1);
+
+        try (McpClientPool.Lease ignored = pool.lease("https://example.test/mcp")) {
+            assertThatThrownBy(() -> pool.lease("https://other.test/mcp"))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("connection limit");
+        }
+    }
+
+    @Test
+    void closesIdleConnections() throws Exception {
+        pool = newPool(Duration.ZERO, 4, 8);
+        pool.lease("cagent").close();
+
+        pool.evictIdle();
+
+        assertThat(pool.size()).isZero();
+        verify(created.get(0)).close();
+    }
+
+    @Test
+    void replacesConnectionsFailingTheirHealthCheck() throws Exception {
+        pool = new McpClientPool(this::newClient, Duration.ofMinutes(5), Duration.ZERO, 4, 8);
+        McpClient unhealthy;
+        try (McpClientPool.Lease lease = pool.lease("cagent")) {
+            unhealthy = lease.client();
+        }
+        doThrow(new IllegalStateException("process exited")).when(unhealthy).checkHealth();
+
+        try (McpClientPool.Lease lease = pool.lease("cagent")) {
+            assertThat(lease.client()).isNotSameAs(unhealthy);
+        }
+        verify(unhealthy).close();
+    }
+
+    @Test
+    void keepsAFailedClientOpenUntilItsLastLeaseIsClosed() throws Exception {
+        pool = new McpClientPool(this::newClient, Duration.ofMinutes(5), Duration.ZERO, 4, 8);
+        McpClientPool.Lease inFlight = pool.lease("cagent");
+        McpClient unhealthy = inFlight.client();
+        doThrow(new IllegalStateException("process exited")).when(unhealthy).checkHealth();
+
+        try (McpClientPool.Lease lease = pool.lease("cagent")) {
+            assertThat(lease.client()).isNotSameAs(unhealthy);
+            verify(unhealthy, never()).close();
+        }
+        inFlight.close();
+
+        verify(unhealthy).close();
+        verify(created.get(1), never()).close();
+    }
+
+    @Test
+    void keysConnectionsByTheWholeServerDefinition() {
+        pool = newPool(Duration.ofMinutes(5), 4, 8);
+        McpServerDefinition git = McpServerDefinition.stdio("uvx", List.of("mcp-server-git"), Map.of());
+        McpServerDefinition fetch = McpServerDefinition.stdio("uvx", List.of("mcp-server-fetch"), Map.of());
+        McpServerDefinition fetchWithToken = McpServerDefinition.stdio("uvx", List.of("mcp-server-fetch"), Map.of("TOKEN", "t"));
+
+        try (McpClientPool.Lease first = pool.lease(git);
+             McpClientPool.Lease second = pool.lease(fetch);
+             McpClientPool.Lease third = pool.lease(fetchWithToken);
+             McpClientPool.Lease again = pool.lease(McpServerDefinition.stdio("uvx", List.of("mcp-server-fetch"), null))) {
+            assertThat(List.of(first.client(), second.client(), third.client())).doesNotHaveDuplicates();
+            assertThat(again.client()).isSameAs(second.client());
+        }
+        assertThat(created).hasSize(3);
+    }
+
+    private McpClientPool newPool(Duration idleTimeout, int maxProcesses, int maxConnections) {
+        return new McpClientPool(this::newClient, idleTimeout, Duration.ofMinutes(5), maxProcesses, maxConnections);
+    }
+
+    private synchronized McpClient newClient(McpServerDefinition definition) {
+        McpClient client = mock(McpClient.class);
+        when(client.key()).thenReturn(definition.toString());
+        created.add(client);
+        return client;
+    }
+
+    private McpClient leaseAndRelease(String definition) {
+        try (McpClientPool.Lease lease = pool.lease(definition)) {
+            return lease.client();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package net.osgiliath.acplanggraphlangchainbridge.mcp;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.mcp.client.McpClient;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class McpToolCatalogTest {
+
+    private static final ToolSpecification READ_FILE = ToolSpecification.builder()
+            .name("read_file")
+            .description("Reads a file")
+            .build();
+
+    private final McpClient client = mock(McpClient.class);
+    private final McpClientPool pool = new McpClientPool(definition -> client,
+            Duration.ofMinutes(5), Duration.ofMinutes(5), 4, 8);
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void sharesOneToolsListAcrossSessionsDeclaringTheSameServer() {
+        when(client.key()).thenReturn("cagent serve");
+        when(client.listTools()).thenReturn(List.of(READ_FILE));
+        McpToolCatalog catalog = new McpToolCatalog(pool, Duration.ofMinutes(5));
+
+        var first = catalog.tools(SessionContext.of("s1", "/workspace", Map.of("files", "cagent serve")));
+        var second = catalog.tools(SessionContext.of("s2", "/other", Map.of("fs", "cagent serve")));
+
+        assertThat(first.keySet()).extracting(ToolSpecification::name).containsExactly("read_file");
+        assertThat(second.keySet()).extracting(ToolSpecification::name).containsExactly("read_file");
+        verify(client, times(1)).listTools();
+    }
+
+    @Test
+    void refetchesAfterInvalidation() {
+        when(client.key()).thenReturn("cagent serve");
+        when(client.listTools()).thenReturn(List.of(READ_FILE));
+        McpToolCatalog catalog = new McpToolCatalog(pool, Duration.ofMinutes(5));
+
+        catalog.toolSpecifications("cagent serve");
+        catalog.invalidate("cagent serve");
+        catalog.toolSpecifications("cagent serve");
+
+        verify(client, times(2)).listTools();
+    }
+
+    @Test
+    void servesTheStaleCatalogueWhileRefreshingInTheBackground() {
+        when(client.key()).thenReturn("cagent serve");
+        when(client.listTools()).thenReturn(List.of(READ_FILE));
+        McpToolCatalog catalog = new McpToolCatalog(pool, Duration.ZERO);
+
+        catalog.toolSpecifications("cagent serve");
+        assertThat(catalog.toolSpecifications("cagent serve")).containsExactly(READ_FILE);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(client, atLeast(2)).listTools());
+    }
+
+    @Test
+    void prefixesToolsWhoseNameAnEarlierServerOfTheSessionUses() {
+        McpClient other = mock(McpClient.class);
+        when(client.key()).thenReturn("cagent serve");
+        when(client.listTools()).thenReturn(List.of(READ_FILE));
+        when(other.key()).thenReturn("other serve");
+        when(other.listTools()).thenReturn(List.of(READ_FILE));
+        try (McpClientPool twoServers = new McpClientPool(
+                definition -> "other".equals(definition.command()) ? other : client,
+                Duration.ofMinutes(5), Duration.ofMinutes(5), 4, 8)) {
+            McpToolCatalog catalog = new McpToolCatalog(twoServers, Duration.ofMinutes(5));
+            Map<String, String> servers = new LinkedHashMap<>();
+            servers.put("files", "cagent serve");
+            servers.put("remote files", "other serve");
+
+            var tools = catalog.tools(SessionContext.of("s1", "/workspace", servers));
+
+            assertThat(tools.keySet()).extracting(ToolSpecification::name)
+                    .containsExactly("read_file", "remote_files__read_file");
+        }
+    }
+
+    @Test
+    void skipsServersThatCannotBeReached() {
+        try (McpClientPool failingPool = new McpClientPool(definition -> {
+            throw new IllegalStateException("cannot start " + definition);
+        }, Duration.ofMinutes(5), Duration.ofMinutes(5), 4, 8)) {
+            McpToolCatalog catalog = new McpToolCatalog(failingPool, Duration.ofMinutes(5));
+
+            assertThat(catalog.tools(SessionContext.of("s1", "/workspace", Map.of("broken", "missing-binary")))).isEmpty();
+        }
+    }
+}
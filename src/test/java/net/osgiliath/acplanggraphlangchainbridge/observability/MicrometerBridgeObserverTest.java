@@ -0,0 +1,109 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.osgiliath.acplanggraphlangchainbridge.acp.AcpAgentSupportBridge;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.LangGraph4jAdapter;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.graph.PromptGraph;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import org.bsc.langgraph4j.StateGraph;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bsc.langgraph4j.GraphDefinition.END;
+import static org.bsc.langgraph4j.GraphDefinition.START;
+import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
+
+class MicrometerBridgeObserverTest {
+
+    private static final SessionContext CONTEXT = SessionContext.of("session-metrics", "/workspace", Map.of());
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MicrometerBridgeObserver observer = new MicrometerBridgeObserver(registry, false);
+
+    @Test
+    void recordsTheLifecycleOfAStreamedPrompt() {
+        PromptObservation observation = observer.promptStarted(CONTEXT);
+        assertThat(registry.get("acp.bridge.prompts.in-flight").gauge().value()).isEqualTo(1);
+
+        observation.graphCompiled(1_000_000);
+        observation.chunk("Hel");
+        observation.chunk("lo é");
+        observation.attachmentRead(URI.create("file:///workspace/a.txt"), 42, 1_000);
+        observation.completed();
+
+        assertThat(registry.get("acp.bridge.prompts.started").counter().count()).isEqualTo(1);
+        assertThat(registry.get("acp.bridge.prompts").tag("outcome", "completed").timer().count()).isEqualTo(1);
+        assertThat(registry.get("acp.bridge.prompts.time-to-first-token").timer().count()).isEqualTo(1);
+        assertThat(registry.get("acp.bridge.prompts.inter-token-latency").timer().count()).isEqualTo(1);
+        assertThat(registry.get("acp.bridge.tokens.emitted").counter().count()).isEqualTo(2);
+        assertThat(registry.get("acp.bridge.bytes.emitted").counter().count()).isEqualTo(8);
+        assertThat(registry.get("acp.bridge.graph.compile").timer().count()).isEqualTo(1);
+        assertThat(registry.get("acp.bridge.attachments.read").summary().totalAmount()).isEqualTo(42);
+        assertThat(registry.get("acp.bridge.prompts.in-flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void tagsTokensBySessionWhenEnabled() {
+        MicrometerBridgeObserver tagging = new MicrometerBridgeObserver(registry, true);
+
+        PromptObservation observation = tagging.promptStarted(CONTEXT);
+        observation.chunk("token");
+        observation.cancelled();
+
+        assertThat(registry.get("acp.bridge.tokens.emitted").tag("session", "session-metrics").counter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("acp.bridge.prompts").tag("outcome", "cancelled").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void adapterReportsCompletedAndFailedPrompts() {
+        LangGraph4jAdapter answering = new LangGraph4jAdapter(graph(false), Optional.empty(), observer);
+        LangGraph4jAdapter failing = new LangGraph4jAdapter(graph(true), Optional.empty(), observer);
+
+        answering.streamPrompt(CONTEXT, "hello", List.of(), new IgnoringConsumer(), new AtomicBoolean(false));
+        failing.streamPrompt(CONTEXT, "hello", List.of(), new IgnoringConsumer(), new AtomicBoolean(false));
+
+        assertThat(registry.get("acp.bridge.prompts").tag("outcome", "completed").timer().count()).isEqualTo(1);
+        assertThat(registry.get("acp.bridge.prompts").tag("outcome", "failed").timer().count()).isEqualTo(1);
+        assertThat(registry.get("acp.bridge.tokens.emitted").counter().count()).isEqualTo(1);
+        assertThat(ActivePrompts.of(CONTEXT.sessionId())).isSameAs(PromptObservation.NOOP);
+    }
+
+    private static PromptGraph<AcpState<ChatMessage>> graph(boolean fail) {
+        return () -> new StateGraph<AcpState<ChatMessage>>(AcpState.SCHEMA, AcpState.serializer())
+                .addNode("answer", node_async(state -> {
+                    if (fail) {
+                        throw new IllegalStateException("model unavailable");
+                    }
+                    return Map.of("messages", AiMessage.from("answer"));
+                }))
+                .addEdge(START, "answer")
+                .addEdge("answer", END);
+    }
+
+    private static final class IgnoringConsumer implements AcpAgentSupportBridge.TokenConsumer {
+        @Override
+        public void onNext(String token) {
+            // counted by the observer
+        }
+
+        @Override
+        public void onComplete() {
+            // counted by the observer
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            // counted by the observer
+        }
+    }
+}
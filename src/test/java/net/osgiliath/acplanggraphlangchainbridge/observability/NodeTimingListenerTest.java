@@ -0,0 +1,150 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import net.osgiliath.acplanggraphlangchainbridge.acp.AcpAgentSupportBridge;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.LangGraph4jAdapter;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.graph.PromptGraph;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import org.bsc.langgraph4j.StateGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bsc.langgraph4j.GraphDefinition.END;
+import static org.bsc.langgraph4j.GraphDefinition.START;
+import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
+
+class NodeTimingListenerTest {
+
+    private final List<NodeTiming> timings = new CopyOnWriteArrayList<>();
+    private final PromptObservation recording = new PromptObservation() {
+        @Override
+        public void nodeCompleted(NodeTiming timing) {
+            timings.add(timing);
+        }
+    };
+
+    @Test
+    void measuresWallCpuAndAllocationsOnPlatformThreads() {
+        NodeTimingListener listener = new NodeTimingListener(recording);
+
+        listener.before("agent", Map.of(), null, System.currentTimeMillis());
+        byte[][] garbage = new byte[64][];
+        for (int i = 0; i < garbage.length; i++) {
+            garbage[i] = new byte[16 * 1024];
+        }
+        listener.after("agent", Map.of(), null, System.currentTimeMillis());
+
+        assertThat(garbage[63]).hasSize(16 * 1024);
+        assertThat(timings).singleElement().satisfies(timing -> {
+            assertThat(timing.nodeId()).isEqualTo("agent");
+            assertThat(timing.wallNanos()).isPositive();
+            assertThat(timing.cpuNanos()).isGreaterThanOrEqualTo(0);
+            assertThat(timing.allocatedBytes()).isGreaterThanOrEqualTo(64 * 16 * 1024);
+            assertThat(timing.failed()).isFalse();
+        });
+    }
+
+    @Test
+    void reportsFailedNodes() {
+        NodeTimingListener listener = new NodeTimingListener(recording);
+
+        listener.before("tools", Map.of(), null, System.currentTimeMillis());
+        listener.onError("tools", Map.of(), new IllegalStateException("boom"), null);
+
+        assertThat(timings).singleElement().extracting(NodeTiming::failed).isEqualTo(true);
+    }
+
+    @Test
+    void adapterTimesEveryNodeOfThePrompt() {
+        BridgeObserver observer = new BridgeObserver() {
+            @Override
+            public PromptObservation promptStarted(SessionContext sessionContext) {
+                return recording;
+            }
+        };
+        PromptGraph<AcpState<ChatMessage>> graph = () -> new StateGraph<AcpState<ChatMessage>>(AcpState.SCHEMA, AcpState.serializer())
+                .addNode("prepare", node_async(state -> Map.of()))
+                .addNode("answer", node_async(state -> Map.of("messages", AiMessage.from("answer"))))
+                .addEdge(START, "prepare")
+                .addEdge("prepare", "answer")
+                .addEdge("answer", END);
+        LangGraph4jAdapter adapter = new LangGraph4jAdapter(graph, Optional.empty(), observer);
+
+        adapter.streamPrompt(SessionContext.of("session-nodes", "/workspace", Map.of()), "hello", List.of(),
+                new AcpAgentSupportBridge.TokenConsumer() {
+                    @Override
+                    public void onNext(String token) {
+                        // only node timings are asserted
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        // only node timings are asserted
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        throw new AssertionError(error);
+                    }
+                }, new AtomicBoolean(false));
+
+        assertThat(timings).extracting(NodeTiming::nodeId).contains("prepare", "answer");
+    }
+
+    @Test
+    void adapterCompilesTheGraphOnceAndTimesTheNodesOfEveryPrompt() {
+        List<String> sessions = new CopyOnWriteArrayList<>();
+        BridgeObserver observer = new BridgeObserver() {
+            @Override
+            public PromptObservation promptStarted(SessionContext sessionContext) {
+                return new PromptObservation() {
+                    @Override
+                    public void nodeCompleted(NodeTiming timing) {
+                        sessions.add(sessionContext.sessionId());
+                    }
+                };
+            }
+        };
+        AtomicInteger builds = new AtomicInteger();
+        PromptGraph<AcpState<ChatMessage>> graph = () -> {
+            builds.incrementAndGet();
+            return new StateGraph<AcpState<ChatMessage>>(AcpState.SCHEMA, AcpState.serializer())
+                    .addNode("answer", node_async(state -> Map.of("messages", AiMessage.from("answer"))))
+                    .addEdge(START, "answer")
+                    .addEdge("answer", END);
+        };
+        LangGraph4jAdapter adapter = new LangGraph4jAdapter(graph, Optional.empty(), observer);
+
+        for (String session : List.of("session-a", "session-b")) {
+            adapter.streamPrompt(SessionContext.of(session, "/workspace", Map.of()), "hello", List.of(),
+                    new AcpAgentSupportBridge.TokenConsumer() {
+                        @Override
+                        public void onNext(String token) {
+                            // only node timings are asserted
+                        }
+
+                        @Override
+                        public void onComplete() {
+                            // only node timings are asserted
+                        }
+
+                        @Override
+                        public void onError(Throwable error) {
+                            throw new AssertionError(error);
+                        }
+                    }, new AtomicBoolean(false));
+        }
+
+        assertThat(builds).hasValue(1);
+        assertThat(sessions).contains("session-a", "session-b");
+    }
+}
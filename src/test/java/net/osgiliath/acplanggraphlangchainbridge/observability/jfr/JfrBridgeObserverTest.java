@@ -0,0 +1,110 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import net.osgiliath.acplanggraphlangchainbridge.observability.PromptObservation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JfrBridgeObserverTest {
+
+    private static final SessionContext CONTEXT = SessionContext.of("session-jfr", "/workspace", Map.of());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsPromptsChunkBatchesAttachmentsAndCompilations() throws IOException {
+        List<RecordedEvent> events = record(() -> {
+            PromptObservation observation = new JfrBridgeObserver().promptStarted(CONTEXT);
+            observation.graphCompiled(1_500_000);
+            observation.attachmentRead(URI.create("file:///workspace/notes.md"), 128, 2_000);
+            for (int i = 0; i < JfrBridgeObserver.CHUNK_BATCH_SIZE + 8; i++) {
+                observation.chunk("ab");
+            }
+            observation.cancelled();
+        });
+
+        assertThat(named(events, "net.osgiliath.acp.Prompt")).singleElement().satisfies(prompt -> {
+            assertThat(prompt.getString("sessionId")).isEqualTo("session-jfr");
+            assertThat(prompt.getString("stopReason")).isEqualTo("cancelled");
+            assertThat(prompt.getLong("chunks")).isEqualTo(JfrBridgeObserver.CHUNK_BATCH_SIZE + 8);
+            assertThat(prompt.getLong("bytes")).isEqualTo(2L * (JfrBridgeObserver.CHUNK_BATCH_SIZE + 8));
+        });
+        assertThat(named(events, "net.osgiliath.acp.ChunkBatch"))
+                .extracting(batch -> batch.getInt("chunks"))
+                .containsExactly(JfrBridgeObserver.CHUNK_BATCH_SIZE, 8);
+        assertThat(named(events, "net.osgiliath.acp.AttachmentRead")).singleElement()
+                .satisfies(read -> assertThat(read.getLong("bytes")).isEqualTo(128));
+        assertThat(named(events, "net.osgiliath.acp.GraphCompile")).singleElement()
+                .satisfies(compile -> assertThat(compile.getLong("compileTime")).isEqualTo(1_500_000));
+    }
+
+    @Test
+    void countsChunksWithoutBatchingThemWhenOnlyPromptsAreRecorded() throws IOException {
+        List<RecordedEvent> events = record(List.of("Prompt"), () -> {
+            PromptObservation observation = new JfrBridgeObserver().promptStarted(CONTEXT);
+            for (int i = 0; i < JfrBridgeObserver.CHUNK_BATCH_SIZE + 8; i++) {
+                observation.chunk("ab");
+            }
+            observation.completed();
+        });
+
+        assertThat(named(events, "net.osgiliath.acp.Prompt")).singleElement()
+                .satisfies(prompt -> assertThat(prompt.getLong("chunks")).isEqualTo(JfrBridgeObserver.CHUNK_BATCH_SIZE + 8));
+        assertThat(named(events, "net.osgiliath.acp.ChunkBatch")).isEmpty();
+    }
+
+    @Test
+    void recordsSessionsAndCancellations() throws IOException {
+        List<RecordedEvent> events = record(() -> {
+            SessionEvent.start("load").complete("session-jfr", "/workspace", 2);
+            CancellationEvent.emit("session-jfr");
+        });
+
+        assertThat(named(events, "net.osgiliath.acp.Session")).singleElement().satisfies(session -> {
+            assertThat(session.getString("kind")).isEqualTo("load");
+            assertThat(session.getInt("mcpServers")).isEqualTo(2);
+        });
+        assertThat(named(events, "net.osgiliath.acp.Cancellation")).hasSize(1);
+    }
+
+    private static final List<String> EVENTS =
+            List.of("Session", "Cancellation", "Prompt", "ChunkBatch", "AttachmentRead", "GraphCompile");
+
+    private List<RecordedEvent> record(Runnable activity) throws IOException {
+        return record(EVENTS, activity);
+    }
+
+    private List<RecordedEvent> record(List<String> enabled, Runnable activity) throws IOException {
+        Path file = directory.resolve("bridge.jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : EVENTS) {
+                if (enabled.contains(name)) {
+                    recording.enable("net.osgiliath.acp." + name).withoutThreshold();
+                } else {
+                    recording.disable("net.osgiliath.acp." + name);
+                }
+            }
+            recording.start();
+            activity.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).toList();
+    }
+}
@@ -0,0 +1,140 @@
+package net.osgiliath.acplanggraphlangchainbridge.observability.otel;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import net.osgiliath.acplanggraphlangchainbridge.acp.AcpAgentSupportBridge;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.LangGraph4jAdapter;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.graph.PromptGraph;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.AcpState;
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext;
+import net.osgiliath.acplanggraphlangchainbridge.observability.NodeTiming;
+import net.osgiliath.acplanggraphlangchainbridge.observability.PromptObservation;
+import org.bsc.langgraph4j.StateGraph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bsc.langgraph4j.GraphDefinition.END;
+import static org.bsc.langgraph4j.GraphDefinition.START;
+import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OpenTelemetryBridgeObserverTest {
+
+    private static final SessionContext CONTEXT = SessionContext.of("session-otel", "/workspace", Map.of());
+
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+            .build();
+    private final OpenTelemetryBridgeObserver observer =
+            new OpenTelemetryBridgeObserver(tracerProvider.get(TracingConfiguration.INSTRUMENTATION_SCOPE));
+
+    @AfterEach
+    void closeTracerProvider() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void nestsNodesToolsAttachmentsAndModelCallsUnderThePromptSpan() {
+        TracingChatModelListener modelListener =
+                new TracingChatModelListener(tracerProvider.get(TracingConfiguration.INSTRUMENTATION_SCOPE));
+
+        PromptObservation observation = observer.promptStarted(CONTEXT);
+        observation.graphCompiled(2_000_000);
+        observation.attachmentRead(URI.create("file:///workspace/notes.md"), 64, 1_000_000);
+        observation.nodeStarted("agent");
+        callModel(modelListener);
+        observation.nodeCompleted(new NodeTiming("agent", 5_000_000, 1_000_000, 4096, false));
+        observation.toolExecuted("read_file", 3_000_000, true);
+        observation.chunk("Hello");
+        observation.completed();
+
+        SpanData prompt = span("acp.prompt");
+        SpanData agent = span("acp.node.agent");
+        assertThat(prompt.getAttributes().get(AttributeKey.stringKey("acp.session.id"))).isEqualTo("session-otel");
+        assertThat(prompt.getAttributes().get(AttributeKey.longKey("acp.prompt.chunks"))).isEqualTo(1L);
+        assertThat(prompt.getAttributes().get(AttributeKey.stringKey("acp.prompt.stop_reason"))).isEqualTo("end_turn");
+        assertThat(List.of(span("acp.graph.compile"), span("acp.attachment.load"), agent, span("acp.tool.call")))
+                .allSatisfy(child -> assertThat(child.getParentSpanId()).isEqualTo(prompt.getSpanId()));
+        assertThat(agent.getAttributes().get(AttributeKey.longKey("acp.node.allocated_bytes"))).isEqualTo(4096L);
+        assertThat(span("acp.tool.call").getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR);
+
+        SpanData model = span("acp.model.call");
+        assertThat(model.getParentSpanId()).isEqualTo(agent.getSpanId());
+        assertThat(model.getAttributes().get(AttributeKey.longKey("gen_ai.usage.output_tokens"))).isEqualTo(7L);
+    }
+
+    @Test
+    void tracesEveryNodeOfAPromptRunByTheAdapter() {
+        PromptGraph<AcpState<ChatMessage>> graph = () -> new StateGraph<AcpState<ChatMessage>>(AcpState.SCHEMA, AcpState.serializer())
+                .addNode("answer", node_async(state -> Map.of("messages", AiMessage.from("answer"))))
+                .addEdge(START, "answer")
+                .addEdge("answer", END);
+        LangGraph4jAdapter adapter = new LangGraph4jAdapter(graph, Optional.empty(), observer);
+
+        adapter.streamPrompt(CONTEXT, "hello", List.of(), new AcpAgentSupportBridge.TokenConsumer() {
+            @Override
+            public void onNext(String token) {
+                // spans are asserted
+            }
+
+            @Override
+            public void onComplete() {
+                // spans are asserted
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                throw new AssertionError(error);
+            }
+        }, new AtomicBoolean(false));
+
+        assertThat(span("acp.node.answer").getParentSpanId()).isEqualTo(span("acp.prompt").getSpanId());
+        assertThat(span("acp.node.answer").getTraceId()).isEqualTo(span("acp.graph.compile").getTraceId());
+    }
+
+    private static void callModel(TracingChatModelListener listener) {
+        Map<Object, Object> attributes = new HashMap<>();
+        ChatRequest request = ChatRequest.builder().messages(List.of(UserMessage.from("hi"))).modelName("stub-model").build();
+        ChatModelRequestContext requestContext = mock(ChatModelRequestContext.class);
+        when(requestContext.chatRequest()).thenReturn(request);
+        when(requestContext.attributes()).thenReturn(attributes);
+        listener.onRequest(requestContext);
+
+        ChatModelResponseContext responseContext = mock(ChatModelResponseContext.class);
+        when(responseContext.chatResponse()).thenReturn(ChatResponse.builder()
+                .aiMessage(AiMessage.from("hello"))
+                .tokenUsage(new TokenUsage(3, 7))
+                .build());
+        when(responseContext.attributes()).thenReturn(attributes);
+        listener.onResponse(responseContext);
+    }
+
+    private SpanData span(String name) {
+        return exporter.getFinishedSpanItems().stream()
+                .filter(span -> span.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No span " + name));
+    }
+}
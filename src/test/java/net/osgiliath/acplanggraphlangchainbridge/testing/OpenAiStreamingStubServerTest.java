@@ -0,0 +1,103 @@
+package net.osgiliath.acplanggraphlangchainbridge.testing;
+
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OpenAiStreamingStubServerTest {
+
+    @Test
+    void streamsTheConfiguredAnswerThroughTheOpenAiClient() throws Exception {
+        OpenAiStreamingStubServer.Options options = OpenAiStreamingStubServer.Options.defaults()
+                .withResponseText("one two three four five")
+                .withChunkSize(2);
+        try (OpenAiStreamingStubServer server = OpenAiStreamingStubServer.start(options)) {
+            List<String> partials = new CopyOnWriteArrayList<>();
+
+            ChatResponse response = chat(server, partials).get(10, TimeUnit.SECONDS);
+
+            assertThat(partials).containsExactly("one two ", "three four ", "five");
+            assertThat(response.aiMessage().text()).isEqualTo("one two three four five");
+            assertThat(server.requestCount()).isEqualTo(1);
+            assertThat(server.bytesSent()).isPositive();
+        }
+    }
+
+    @Test
+    void pacesTokensAtTheConfiguredRate() throws Exception {
+        OpenAiStreamingStubServer.Options options = OpenAiStreamingStubServer.Options.defaults()
+                .withResponseText("a b c d e")
+                .withTokensPerSecond(25)
+                .withFirstTokenLatency(Duration.ofMillis(100));
+        try (OpenAiStreamingStubServer server = OpenAiStreamingStubServer.start(options)) {
+            long start = System.nanoTime();
+
+            chat(server, new CopyOnWriteArrayList<>()).get(10, TimeUnit.SECONDS);
+
+            // 100 ms first-token latency + 4 gaps of 40 ms between the five single-token chunks
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(260));
+        }
+    }
+
+    @Test
+    void injectsHttpErrorsOnEveryNthRequest() throws Exception {
+        OpenAiStreamingStubServer.Options options = OpenAiStreamingStubServer.Options.defaults().withErrors(2, 503);
+        try (OpenAiStreamingStubServer server = OpenAiStreamingStubServer.start(options)) {
+            chat(server, new CopyOnWriteArrayList<>()).get(10, TimeUnit.SECONDS);
+
+            assertThatThrownBy(() -> chat(server, new CopyOnWriteArrayList<>()).get(10, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class);
+        }
+    }
+
+    @Test
+    void truncatesTheStreamWhenDisconnectIsInjected() throws Exception {
+        OpenAiStreamingStubServer.Options options = OpenAiStreamingStubServer.Options.defaults()
+                .withResponseText("one two three")
+                .withDisconnectAfterChunks(1);
+        try (OpenAiStreamingStubServer server = OpenAiStreamingStubServer.start(options)) {
+            List<String> partials = new CopyOnWriteArrayList<>();
+
+            assertThatThrownBy(() -> chat(server, partials).get(10, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class);
+            assertThat(partials).containsExactly("one ");
+        }
+    }
+
+    private static CompletableFuture<ChatResponse> chat(OpenAiStreamingStubServer server, List<String> partials) {
+        OpenAiStreamingChatModel model = OpenAiStreamingChatModel.builder()
+                .baseUrl(server.baseUrl())
+                .apiKey("stub")
+                .modelName("stub-model")
+                .build();
+        CompletableFuture<ChatResponse> result = new CompletableFuture<>();
+        model.chat("Hello", new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                partials.add(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                result.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                result.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,117 @@
+package net.osgiliath.acplanggraphlangchainbridge.transport;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AcpEndpointTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void connectsClientsToTheDaemonSocket() throws IOException {
+        AcpEndpoint endpoint = AcpEndpoint.unix(directory.resolve("bridge.sock"));
+
+        try (ServerSocketChannel server = endpoint.bind();
+             SocketChannel client = endpoint.connect();
+             SocketChannel accepted = server.accept()) {
+            client.write(ByteBuffer.wrap("ping".getBytes(StandardCharsets.UTF_8)));
+            ByteBuffer received = ByteBuffer.allocate(4);
+            while (received.hasRemaining()) {
+                accepted.read(received);
+            }
+
+            assertThat(new String(received.array(), StandardCharsets.UTF_8)).isEqualTo("ping");
+            assertThat(endpoint.toString()).isEqualTo("unix:" + directory.resolve("bridge.sock"));
+        }
+    }
+
+    @Test
+    void replacesTheSocketFileOfADaemonThatIsGone() throws IOException {
+        Path socket = Files.createFile(directory.resolve("bridge.sock"));
+        AcpEndpoint endpoint = AcpEndpoint.unix(socket);
+
+        assertThat(endpoint.isListening()).isFalse();
+        try (ServerSocketChannel ignored = endpoint.bind()) {
+            assertThat(endpoint.isListening()).isTrue();
+        }
+    }
+
+    @Test
+    void refusesToTakeOverTheSocketOfARunningDaemon() throws IOException {
+        AcpEndpoint endpoint = AcpEndpoint.unix(directory.resolve("bridge.sock"));
+
+        try (ServerSocketChannel ignored = endpoint.bind()) {
+            assertThatThrownBy(endpoint::bind)
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("already listening");
+            assertThat(endpoint.isListening()).isTrue();
+        }
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void bindsTheSocketInADirectoryOnlyItsOwnerCanOpen() throws IOException {
+        Path runtime = directory.resolve("runtime");
+        AcpEndpoint endpoint = AcpEndpoint.unix(runtime.resolve("bridge.sock"));
+
+        try (ServerSocketChannel ignored = endpoint.bind()) {
+            assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(runtime))).isEqualTo("rwx------");
+            assertThat(endpoint.isListening()).isTrue();
+        }
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void refusesToBindInADirectoryOtherUsersCanOpen() throws IOException {
+        Path shared = Files.createDirectory(directory.resolve("shared"));
+        Files.setPosixFilePermissions(shared, PosixFilePermissions.fromString("rwxrwxrwx"));
+
+        assertThatThrownBy(() -> AcpEndpoint.unix(shared.resolve("bridge.sock")).bind())
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("accessible by other users");
+    }
+
+    @Test
+    void acceptsOnlyTcpClientsSendingTheToken() throws IOException {
+        Path tokenFile = directory.resolve("tokens/bridge.token");
+
+        try (ServerSocketChannel server = AcpEndpoint.tcp("127.0.0.1", 0, tokenFile).bind()) {
+            int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+            AcpEndpoint endpoint = AcpEndpoint.tcp("127.0.0.1", port, tokenFile);
+
+            try (SocketChannel client = endpoint.connect();
+                 SocketChannel accepted = server.accept()) {
+                client.write(ByteBuffer.wrap("ping".getBytes(StandardCharsets.UTF_8)));
+
+                assertThat(endpoint.authenticate(accepted)).isTrue();
+                ByteBuffer received = ByteBuffer.allocate(4);
+                while (received.hasRemaining()) {
+                    accepted.read(received);
+                }
+                assertThat(new String(received.array(), StandardCharsets.UTF_8)).isEqualTo("ping");
+            }
+            try (SocketChannel intruder = SocketChannel.open(new InetSocketAddress("127.0.0.1", port));
+                 SocketChannel accepted = server.accept()) {
+                intruder.write(ByteBuffer.wrap("guess\n".getBytes(StandardCharsets.UTF_8)));
+
+                assertThat(endpoint.authenticate(accepted)).isFalse();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package net.osgiliath.acplanggraphlangchainbridge.workspace;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileChangeDetectorTest {
+
+    private static final String BLOB = "ce013625030ba8dba906f756967f9e9ca394464a";
+    private static final Instant STAGED_AT = Instant.parse("2024-01-02T03:04:05.123456789Z");
+
+    @TempDir
+    Path workTree;
+
+    private Path file;
+
+    @BeforeEach
+    void stageAFile() throws IOException {
+        Files.createDirectories(workTree.resolve("src"));
+        file = Files.writeString(workTree.resolve("src/hello.txt"), "hello\n");
+        Files.setLastModifiedTime(file, FileTime.from(STAGED_AT));
+        GitIndexFixture.write(workTree.resolve(".git/index"), 2, List.of(new GitIndexFixture.Staged("src/hello.txt",
+                STAGED_AT.getEpochSecond(), Files.getLastModifiedTime(file).toInstant().getNano(), 6, BLOB)));
+    }
+
+    @Test
+    void fingerprintsUnchangedStagedFilesByTheirBlobId() {
+        FileChangeDetector detector = new FileChangeDetector();
+
+        assertThat(detector.fingerprint(workTree.resolve("src"), file)).contains("git:" + BLOB);
+    }
+
+    @Test
+    void fallsBackToTheStatOfModifiedFiles() throws IOException {
+        FileChangeDetector detector = new FileChangeDetector();
+        Files.writeString(file, "hello, world\n");
+
+        String modified = detector.fingerprint(workTree, file).orElseThrow();
+        assertThat(modified).startsWith("stat:" + file.toAbsolutePath());
+
+        Files.writeString(file, "hello, world!\n");
+        assertThat(detector.fingerprint(workTree, file)).isPresent().doesNotContain(modified);
+    }
+
+    @Test
+    void rereadsTheIndexWhenItChanges() throws IOException {
+        FileChangeDetector detector = new FileChangeDetector();
+        Path other = Files.writeString(workTree.resolve("other.txt"), "other\n");
+        assertThat(detector.fingerprint(workTree, other)).hasValueSatisfying(value -> assertThat(value).startsWith("stat:"));
+
+        Files.setLastModifiedTime(other, FileTime.from(STAGED_AT));
+        GitIndexFixture.write(workTree.resolve(".git/index"), 2, List.of(new GitIndexFixture.Staged("other.txt",
+                STAGED_AT.getEpochSecond(), Files.getLastModifiedTime(other).toInstant().getNano(), 6, BLOB)));
+        Files.setLastModifiedTime(workTree.resolve(".git/index"), FileTime.from(Instant.now().plusSeconds(5)));
+
+        assertThat(detector.fingerprint(workTree, other)).contains("git:" + BLOB);
+    }
+
+    @Test
+    void distrustsFilesStagedAsTheIndexWasWritten() throws IOException {
+        Files.setLastModifiedTime(workTree.resolve(".git/index"), FileTime.from(STAGED_AT));
+
+        assertThat(new FileChangeDetector().fingerprint(workTree, file))
+                .hasValueSatisfying(value -> assertThat(value).startsWith("stat:"));
+    }
+
+    @Test
+    void usesOnlyTheStatWhenGitIndexesAreDisabled() {
+        assertThat(new FileChangeDetector(false).fingerprint(workTree, file))
+                .hasValueSatisfying(value -> assertThat(value).startsWith("stat:"));
+    }
+
+    @Test
+    void hasNoFingerprintForMissingFiles() {
+        assertThat(new FileChangeDetector().fingerprint(workTree, workTree.resolve("missing.txt"))).isEmpty();
+        assertThat(new FileChangeDetector().fingerprint(workTree, workTree.resolve("src"))).isEmpty();
+    }
+}
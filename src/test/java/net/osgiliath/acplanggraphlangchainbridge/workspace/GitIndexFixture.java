@@ -0,0 +1,71 @@
+package net.osgiliath.acplanggraphlangchainbridge.workspace;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Writes git index files, as git does, for the tests that must not depend on a git binary.
+ */
+final class GitIndexFixture {
+
+    /**
+     * A staged file.
+     */
+    record Staged(String path, long mtimeSeconds, int mtimeNanos, long size, String objectId, int flags) {
+
+        Staged(String path, long mtimeSeconds, int mtimeNanos, long size, String objectId) {
+            this(path, mtimeSeconds, mtimeNanos, size, objectId, 0);
+        }
+    }
+
+    private GitIndexFixture() {
+    }
+
+    static void write(Path indexFile, int version, List<Staged> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x44495243);
+        out.writeInt(version);
+        out.writeInt(entries.size());
+        byte[] previous = new byte[0];
+        for (Staged entry : entries) {
+            int start = out.size();
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt((int) entry.mtimeSeconds());
+            out.writeInt(entry.mtimeNanos());
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(0100644);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt((int) entry.size());
+            out.write(HexFormat.of().parseHex(entry.objectId()));
+            byte[] path = entry.path().getBytes(StandardCharsets.UTF_8);
+            out.writeShort(entry.flags() | Math.min(path.length, 0xfff));
+            if (version == 4) {
+                int common = 0;
+                while (common < previous.length && common < path.length && previous[common] == path[common]) {
+                    common++;
+                }
+                out.write(previous.length - common); // small offsets fit in one byte
+                out.write(path, common, path.length - common);
+                out.write(0);
+            } else {
+                out.write(path);
+                int length = out.size() - start;
+                out.write(new byte[((length + 8) & ~7) - length]);
+            }
+            previous = path;
+        }
+        out.write(new byte[20]);
+        Files.createDirectories(indexFile.getParent());
+        Files.write(indexFile, bytes.toByteArray());
+    }
+}
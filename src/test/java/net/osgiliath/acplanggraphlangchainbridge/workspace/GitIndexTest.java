@@ -0,0 +1,64 @@
+package net.osgiliath.acplanggraphlangchainbridge.workspace;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GitIndexTest {
+
+    private static final String BLOB_A = "ce013625030ba8dba906f756967f9e9ca394464a";
+    private static final String BLOB_B = "587be6b4c3f93f93c489c0111bba5596147a26cb";
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3, 4})
+    void readsTheStagedFiles(int version) throws IOException {
+        Path index = directory.resolve("index");
+        GitIndexFixture.write(index, version, List.of(
+                new GitIndexFixture.Staged("src/main/App.java", 1_700_000_000L, 123, 42, BLOB_A),
+                new GitIndexFixture.Staged("src/main/Service.java", 1_700_000_001L, 0, 7, BLOB_B)));
+
+        GitIndex read = GitIndex.read(index, 20);
+
+        assertThat(read.size()).isEqualTo(2);
+        assertThat(read.entry("src/main/App.java"))
+                .contains(new GitIndex.Entry(1_700_000_000L, 123, 42, BLOB_A));
+        assertThat(read.entry("src/main/Service.java")).hasValueSatisfying(entry -> {
+            assertThat(entry.objectId()).isEqualTo(BLOB_B);
+            assertThat(entry.size()).isEqualTo(7);
+        });
+        assertThat(read.entry("src/main")).isEmpty();
+    }
+
+    @Test
+    void skipsConflictedFiles() throws IOException {
+        Path index = directory.resolve("index");
+        GitIndexFixture.write(index, 2, List.of(
+                new GitIndexFixture.Staged("merged.txt", 1L, 0, 1, BLOB_A, 0x1000),
+                new GitIndexFixture.Staged("merged.txt", 1L, 0, 1, BLOB_B, 0x2000),
+                new GitIndexFixture.Staged("clean.txt", 1L, 0, 1, BLOB_A)));
+
+        GitIndex read = GitIndex.read(index, 20);
+
+        assertThat(read.entry("merged.txt")).isEmpty();
+        assertThat(read.entry("clean.txt")).isPresent();
+    }
+
+    @Test
+    void rejectsFilesThatAreNotIndexes() throws IOException {
+        Path notAnIndex = Files.writeString(directory.resolve("index"), "ref: refs/heads/main\n");
+
+        assertThatThrownBy(() -> GitIndex.read(notAnIndex, 20)).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,71 @@
+package net.osgiliath.acplanggraphlangchainbridge.workspace;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class WorkspaceWatcherTest {
+
+    @TempDir
+    Path workspace;
+
+    @Test
+    void skipsTheDirectoriesTheIndexSkips() throws IOException {
+        Files.createDirectories(workspace.resolve("src/main"));
+        Files.createDirectories(workspace.resolve("node_modules/left-pad/lib"));
+        Files.createDirectories(workspace.resolve("build/classes"));
+        Files.createDirectories(workspace.resolve(".git/objects"));
+
+        try (WorkspaceWatcher watcher = new WorkspaceWatcher()) {
+            watcher.watch(workspace, changed -> {
+            });
+
+            assertThat(watcher.watchedDirectories()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void skipsTheDirectoriesTheIndexSkipsWhenTheyAreCreated() throws IOException {
+        try (WorkspaceWatcher watcher = new WorkspaceWatcher()) {
+            watcher.watch(workspace, changed -> {
+            });
+
+            Files.createDirectories(workspace.resolve("node_modules/left-pad/lib"));
+            Files.createDirectories(workspace.resolve("target/classes"));
+            Files.createDirectories(workspace.resolve("src"));
+
+            await().atMost(Duration.ofSeconds(30)).until(() -> watcher.watchedDirectories() == 2);
+            assertThat(watcher.watchedDirectories()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void releasesEveryDirectoryOfAWorkspaceAboveTheLimit() throws IOException {
+        Path small = Files.createDirectories(workspace.resolve("small"));
+        Path large = Files.createDirectories(workspace.resolve("large"));
+        for (int i = 0; i < 5; i++) {
+            Files.createDirectories(large.resolve("dir" + i));
+        }
+
+        try (WorkspaceWatcher watcher = new WorkspaceWatcher(4)) {
+            watcher.watch(small, changed -> {
+            });
+
+            assertThatThrownBy(() -> watcher.watch(large, changed -> {
+            })).isInstanceOf(IOException.class);
+            assertThat(watcher.watchedDirectories()).isEqualTo(1);
+
+            watcher.watch(large.resolve("dir0"), changed -> {
+            });
+            assertThat(watcher.watchedDirectories()).isEqualTo(2);
+        }
+    }
+}
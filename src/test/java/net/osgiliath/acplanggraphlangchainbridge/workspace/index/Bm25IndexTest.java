@@ -0,0 +1,85 @@
+package net.osgiliath.acplanggraphlangchainbridge.workspace.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Bm25IndexTest {
+
+    @Test
+    void ranksTheChunksWithTheRarestQueryTerms() {
+        Bm25Index index = new Bm25Index();
+        index.put("Order.java", List.of(chunk("Order.java", 0, "order order order total")));
+        index.put("Refund.java", List.of(chunk("Refund.java", 0, "order refund amount")));
+        index.put("Readme.md", List.of(chunk("Readme.md", 0, "order documentation")));
+
+        List<Bm25Index.Hit> hits = index.search("refund of an order", 3);
+
+        assertThat(hits).extracting(hit -> hit.chunk().path()).first().isEqualTo("Refund.java");
+        assertThat(hits).hasSize(3);
+    }
+
+    @Test
+    void splitsCompoundIdentifiers() {
+        assertThat(Bm25Index.termFrequencies("processRefund HTTPServer parse_header"))
+                .containsKeys("processrefund", "process", "refund", "httpserver", "http", "server",
+                        "parse_header", "parse", "header");
+    }
+
+    @Test
+    void forgetsRemovedFiles() {
+        Bm25Index index = new Bm25Index();
+        index.put("a.txt", List.of(chunk("a.txt", 0, "alpha beta"), chunk("a.txt", 1, "gamma")));
+        index.put("b.txt", List.of(chunk("b.txt", 0, "alpha")));
+
+        index.remove("a.txt");
+
+        assertThat(index.chunkCount()).isEqualTo(1);
+        assertThat(index.paths()).containsExactly("b.txt");
+        assertThat(index.search("gamma", 5)).isEmpty();
+        assertThat(index.search("alpha", 5)).extracting(hit -> hit.chunk().path()).containsExactly("b.txt");
+    }
+
+    @Test
+    void compactsWhenMostSlotsAreEmpty() {
+        Bm25Index index = new Bm25Index();
+        for (int i = 0; i < 2000; i++) {
+            index.put("file" + i, List.of(chunk("file" + i, 0, "common word" + i)));
+        }
+        for (int i = 0; i < 1500; i++) {
+            index.remove("file" + i);
+        }
+
+        assertThat(index.chunkCount()).isEqualTo(500);
+        assertThat(index.search("word1999", 1)).extracting(hit -> hit.chunk().path()).containsExactly("file1999");
+        assertThat(index.search("common", 1000)).hasSize(500);
+    }
+
+    @Test
+    void readsWhatItWrites() throws Exception {
+        Bm25Index index = new Bm25Index();
+        index.put("a.txt", List.of(chunk("a.txt", 0, "alpha beta"), chunk("a.txt", 1, "beta gamma")));
+        index.put("b.txt", List.of(chunk("b.txt", 0, "delta")));
+        index.remove("b.txt");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.write(new DataOutputStream(bytes));
+
+        Bm25Index read = Bm25Index.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(read.chunkCount()).isEqualTo(2);
+        assertThat(read.search("gamma", 5)).singleElement().satisfies(hit -> {
+            assertThat(hit.chunk().key()).isEqualTo("a.txt#1");
+            assertThat(hit.score()).isEqualTo(index.search("gamma", 5).getFirst().score());
+        });
+    }
+
+    private static Bm25Index.Chunk chunk(String path, int index, String text) {
+        return Bm25Index.Chunk.of(path, index, index + 1, index + 1, text);
+    }
+}
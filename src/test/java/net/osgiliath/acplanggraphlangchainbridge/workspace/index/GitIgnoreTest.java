@@ -0,0 +1,55 @@
+package net.osgiliath.acplanggraphlangchainbridge.workspace.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GitIgnoreTest {
+
+    @TempDir
+    Path workspace;
+
+    @Test
+    void matchesNamesAtAnyDepthAndAnchoredPathsFromTheirDirectory() throws Exception {
+        Files.writeString(workspace.resolve(".gitignore"), """
+                # objects
+                *.[oa]
+                **/tmp/**
+                docs/*.md
+                !docs/README.md
+                build?/
+                """);
+        GitIgnore gitIgnore = new GitIgnore(workspace);
+
+        assertThat(gitIgnore.isIgnored("lib.o", false)).isTrue();
+        assertThat(gitIgnore.isIgnored("src/lib.a", false)).isTrue();
+        assertThat(gitIgnore.isIgnored("lib.c", false)).isFalse();
+        assertThat(gitIgnore.isIgnored("a/tmp/cache", false)).isTrue();
+        assertThat(gitIgnore.isIgnored("docs/guide.md", false)).isTrue();
+        assertThat(gitIgnore.isIgnored("docs/README.md", false)).isFalse();
+        assertThat(gitIgnore.isIgnored("docs/api/guide.md", false)).isFalse();
+        assertThat(gitIgnore.isIgnored("build1", true)).isTrue();
+        assertThat(gitIgnore.isIgnored("build1", false)).isFalse();
+        assertThat(gitIgnore.isIgnored("build1/Main.java", false)).isTrue();
+    }
+
+    @Test
+    void appliesNestedFilesBelowTheirDirectoryAndRereadsThemWhenForgotten() throws Exception {
+        Files.createDirectories(workspace.resolve("src"));
+        Files.writeString(workspace.resolve("src/.gitignore"), "/Generated*.java\n");
+        GitIgnore gitIgnore = new GitIgnore(workspace);
+
+        assertThat(gitIgnore.isIgnored("src/GeneratedParser.java", false)).isTrue();
+        assertThat(gitIgnore.isIgnored("src/main/GeneratedParser.java", false)).isFalse();
+        assertThat(gitIgnore.isIgnored("GeneratedParser.java", false)).isFalse();
+
+        Files.writeString(workspace.resolve("src/.gitignore"), "");
+        gitIgnore.forget("src");
+
+        assertThat(gitIgnore.isIgnored("src/GeneratedParser.java", false)).isFalse();
+    }
+}
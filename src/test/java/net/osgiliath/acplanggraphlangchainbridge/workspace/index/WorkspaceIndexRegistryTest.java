@@ -0,0 +1,52 @@
+package net.osgiliath.acplanggraphlangchainbridge.workspace.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class WorkspaceIndexRegistryTest {
+
+    @TempDir
+    Path workspace;
+
+    @TempDir
+    Path storeDirectory;
+
+    @Test
+    void keepsTheIndexOfAWorkspaceInUse() {
+        try (WorkspaceIndexRegistry registry = registry(Duration.ofMinutes(30))) {
+            WorkspaceIndex index = registry.forWorkspace(workspace);
+
+            registry.evictIdle();
+
+            assertThat(registry.forWorkspace(workspace)).isSameAs(index);
+        }
+    }
+
+    @Test
+    void savesAndClosesTheIndexOfAnIdleWorkspace() throws Exception {
+        Files.writeString(workspace.resolve("Payment.java"), "class Payment {\n    void processRefund() {}\n}\n");
+        try (WorkspaceIndexRegistry registry = registry(Duration.ofMillis(500))) {
+            WorkspaceIndex index = registry.forWorkspace(workspace);
+            assertThat(index.awaitInitialScan(Duration.ofSeconds(30))).isTrue();
+
+            await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> assertThat(registry.size()).isZero());
+
+            try (Stream<Path> stored = Files.list(storeDirectory)) {
+                assertThat(stored).anySatisfy(file -> assertThat(file.toString()).endsWith(".index"));
+            }
+            assertThat(registry.forWorkspace(workspace)).isNotSameAs(index);
+        }
+    }
+
+    private WorkspaceIndexRegistry registry(Duration idleTimeout) {
+        return new WorkspaceIndexRegistry(storeDirectory, 64, 8, 1 << 20, Duration.ZERO, idleTimeout, null, null);
+    }
+}
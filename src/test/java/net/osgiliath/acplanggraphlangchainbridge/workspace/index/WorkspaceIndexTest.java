@@ -0,0 +1,177 @@
+package net.osgiliath.acplanggraphlangchainbridge.workspace.index;
+
+import net.osgiliath.acplanggraphlangchainbridge.workspace.WorkspaceWatcher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class WorkspaceIndexTest {
+
+    @TempDir
+    Path workspace;
+
+    @TempDir
+    Path storeDirectory;
+
+    @Test
+    void findsTheRelevantLinesOfTheWorkspace() throws Exception {
+        writeSources();
+
+        try (WorkspaceIndex index = newIndex(null, null)) {
+            index.start();
+            assertThat(index.awaitInitialScan(Duration.ofSeconds(30))).isTrue();
+
+            assertThat(index.fileCount()).isEqualTo(2);
+            assertThat(index.search("how is a refund processed?", 1)).singleElement().satisfies(snippet -> {
+                assertThat(snippet.path()).isEqualTo(workspace.resolve("src/Payment.java").toAbsolutePath());
+                assertThat(snippet.firstLine()).isEqualTo(1);
+                assertThat(snippet.text()).contains("void processRefund(int amount)");
+            });
+        }
+    }
+
+    @Test
+    void skipsBuildDirectoriesAndBinaryFiles() throws Exception {
+        writeSources();
+        Files.createDirectories(workspace.resolve("node_modules/lib"));
+        Files.writeString(workspace.resolve("node_modules/lib/refund.js"), "function processRefund() {}\n");
+        Files.write(workspace.resolve("refund.bin"), new byte[]{'r', 'e', 'f', 0, 1});
+
+        try (WorkspaceIndex index = newIndex(null, null)) {
+            index.start();
+            index.awaitInitialScan(Duration.ofSeconds(30));
+
+            assertThat(index.fileCount()).isEqualTo(2);
+            assertThat(index.search("processRefund", 5)).extracting(WorkspaceIndex.Snippet::path)
+                    .containsExactly(workspace.resolve("src/Payment.java").toAbsolutePath());
+        }
+    }
+
+    @Test
+    void skipsIgnoredFilesDotfilesAndKeys() throws Exception {
+        writeSources();
+        Files.writeString(workspace.resolve(".gitignore"), "generated/\n*.log\n!keep.log\n");
+        Files.createDirectories(workspace.resolve("generated"));
+        Files.writeString(workspace.resolve("generated/Refund.java"), "class Refund { void processRefund() {} }\n");
+        Files.writeString(workspace.resolve("debug.log"), "processRefund failed\n");
+        Files.writeString(workspace.resolve("keep.log"), "processRefund succeeded\n");
+        Files.writeString(workspace.resolve("src/.gitignore"), "/Secret*.java\n");
+        Files.writeString(workspace.resolve("src/SecretRefund.java"), "class SecretRefund { void processRefund() {} }\n");
+        Files.writeString(workspace.resolve(".env"), "REFUND_TOKEN=processRefund\n");
+        Files.writeString(workspace.resolve("refund.pem"), "processRefund\n");
+
+        try (WorkspaceIndex index = newIndex(null, null)) {
+            index.start();
+            index.awaitInitialScan(Duration.ofSeconds(30));
+
+            assertThat(index.search("processRefund", 10)).extracting(WorkspaceIndex.Snippet::path)
+                    .containsExactlyInAnyOrder(workspace.resolve("src/Payment.java").toAbsolutePath(),
+                            workspace.resolve("keep.log").toAbsolutePath());
+        }
+    }
+
+    @Test
+    void readsTheLinesOfASnippetFromItsPositionInTheFile() throws Exception {
+        String menu = IntStream.range(0, 80).mapToObj(i -> "// café crème brûlée € " + i + "\n").collect(Collectors.joining())
+                + "void orderDessert() {}\n"
+                + IntStream.range(0, 40).mapToObj(i -> "// ñandú " + i + "\n").collect(Collectors.joining());
+        Files.writeString(workspace.resolve("Menu.java"), menu);
+        ByteArrayOutputStream utf16 = new ByteArrayOutputStream();
+        utf16.write(new byte[]{(byte) 0xFF, (byte) 0xFE});
+        utf16.write(menu.replace("orderDessert", "orderCoffee").getBytes(StandardCharsets.UTF_16LE));
+        Files.write(workspace.resolve("Cafe.java"), utf16.toByteArray());
+
+        try (WorkspaceIndex index = newIndex(null, null)) {
+            index.start();
+            index.awaitInitialScan(Duration.ofSeconds(30));
+
+            for (String method : List.of("orderDessert", "orderCoffee")) {
+                List<String> lines = menu.replace("orderDessert", method).lines().toList();
+                assertThat(index.search(method, 1)).singleElement().satisfies(snippet -> {
+                    assertThat(snippet.firstLine()).isGreaterThan(1);
+                    assertThat(snippet.text())
+                            .isEqualTo(String.join("\n", lines.subList(snippet.firstLine() - 1, snippet.lastLine())))
+                            .contains("void " + method + "()");
+                });
+            }
+        }
+    }
+
+    @Test
+    void reloadsThePersistedIndexAndCatchesUpWithChanges() throws Exception {
+        writeSources();
+        Path store = storeDirectory.resolve("workspace.index");
+        try (WorkspaceIndex index = newIndex(store, null)) {
+            index.start();
+            index.awaitInitialScan(Duration.ofSeconds(30));
+        }
+        assertThat(store).exists();
+        Files.writeString(workspace.resolve("src/Order.java"), "class Order {\n    void cancelShipment() {}\n}\n");
+        Files.delete(workspace.resolve("src/Payment.java"));
+
+        try (WorkspaceIndex index = newIndex(store, null)) {
+            index.start();
+            index.awaitInitialScan(Duration.ofSeconds(30));
+
+            assertThat(index.fileCount()).isEqualTo(1);
+            assertThat(index.search("refund", 5)).isEmpty();
+            assertThat(index.search("cancel the shipment", 5)).singleElement()
+                    .satisfies(snippet -> assertThat(snippet.text()).contains("cancelShipment"));
+        }
+    }
+
+    @Test
+    void followsTheChangesReportedByTheWatcher() throws Exception {
+        writeSources();
+        try (WorkspaceWatcher watcher = new WorkspaceWatcher();
+             WorkspaceIndex index = newIndex(null, watcher)) {
+            index.start();
+            index.awaitInitialScan(Duration.ofSeconds(30));
+
+            Files.writeString(workspace.resolve("src/Invoice.java"), "class Invoice {\n    void sendReminder() {}\n}\n");
+
+            await().atMost(Duration.ofSeconds(30)).until(() -> !index.search("send a reminder", 1).isEmpty());
+            assertThat(index.fileCount()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void indexesOnceAWorkspaceTheWatcherRefuses() throws Exception {
+        writeSources();
+        try (WorkspaceWatcher watcher = new WorkspaceWatcher(1);
+             WorkspaceIndex index = newIndex(null, watcher)) {
+            index.start();
+
+            assertThat(index.awaitInitialScan(Duration.ofSeconds(30))).isTrue();
+            assertThat(index.fileCount()).isEqualTo(2);
+            assertThat(index.search("processRefund", 1)).isNotEmpty();
+        }
+    }
+
+    private WorkspaceIndex newIndex(Path store, WorkspaceWatcher watcher) {
+        return new WorkspaceIndex(workspace, store, 64, 8, 1 << 20, Duration.ZERO, null, watcher);
+    }
+
+    private void writeSources() throws Exception {
+        Files.createDirectories(workspace.resolve("src"));
+        Files.writeString(workspace.resolve("src/Payment.java"), """
+                class Payment {
+                    void processRefund(int amount) {
+                        ledger.credit(amount);
+                    }
+                }
+                """);
+        Files.writeString(workspace.resolve("src/Order.java"), "class Order {\n    void ship() {}\n}\n");
+    }
+}
@@ -0,0 +1,85 @@
+package net.osgiliath.acplanggraphlangchainbridge
+
+import com.agentclientprotocol.model.ContentBlock
+import net.osgiliath.acplanggraphlangchainbridge.acp.AcpAgentSupportBridge
+import net.osgiliath.acplanggraphlangchainbridge.acp.InAcpAdapter
+import net.osgiliath.acplanggraphlangchainbridge.transport.AcpEndpoint
+import org.awaitility.Awaitility.await
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.nio.channels.Channels
+import java.nio.file.Path
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+class AcpAgentRunnerDaemonTest {
+
+    @TempDir
+    lateinit var directory: Path
+
+    @Test
+    fun `daemon mode serves several ACP clients from one bridge`() {
+        val endpoint = AcpEndpoint.unix(directory.resolve("bridge.sock"))
+        val bridge = CountingBridge()
+        val daemon = Thread.ofPlatform().daemon(true).name("acp-daemon-test").start { AcpAgentRunner(bridge, endpoint).run() }
+        try {
+            await().atMost(Duration.ofSeconds(10)).until { endpoint.isListening }
+
+            repeat(2) { id ->
+                endpoint.connect().use { channel ->
+                    val output = Channels.newOutputStream(channel)
+                    val request = """{"jsonrpc":"2.0","id":$id,"method":"initialize","params":{"protocolVersion":1,"clientCapabilities":{}}}"""
+                    output.write((request + "\n").toByteArray())
+                    output.flush()
+
+                    val response = Channels.newInputStream(channel).bufferedReader().readLine()
+
+                    assertTrue(response.contains("DaemonAgent"), response)
+                }
+            }
+            assertEquals(2, bridge.initializations.get())
+        } finally {
+            daemon.interrupt()
+        }
+    }
+
+    private class CountingBridge : InAcpAdapter {
+        val initializations = AtomicInteger()
+
+        override fun getAgentInfo(): AcpAgentSupportBridge.AgentInfoBridge {
+            initializations.incrementAndGet()
+            return AcpAgentSupportBridge.AgentInfoBridge("DaemonAgent", "1.0.0")
+        }
+
+        override fun createSession(
+            sessionId: String,
+            cwd: String,
+            mcpServers: Map<String, String>
+        ): AcpAgentSupportBridge.AcpSessionBridge = IdleSession(sessionId)
+    }
+
+    private class IdleSession(private val id: String) : AcpAgentSupportBridge.AcpSessionBridge {
+        private val cancelled = AtomicBoolean(false)
+
+        override fun getSessionId(): String = id
+
+        override fun cancelledFlag(): AtomicBoolean = cancelled
+
+        override fun processPrompt(
+            promptText: String,
+            resourceLinks: List<ContentBlock.ResourceLink>
+        ): CompletableFuture<String> = CompletableFuture.completedFuture(promptText)
+
+        override fun streamPrompt(
+            promptText: String,
+            promtResourceLinks: List<ContentBlock.ResourceLink>,
+            consumer: AcpAgentSupportBridge.TokenConsumer
+        ) {
+            consumer.onComplete()
+        }
+    }
+}
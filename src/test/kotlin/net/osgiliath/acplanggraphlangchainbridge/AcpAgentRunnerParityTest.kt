@@ -4,6 +4,8 @@ import com.agentclientprotocol.client.ClientInfo
 import com.agentclientprotocol.common.Event
 import com.agentclientprotocol.common.SessionCreationParameters
 import com.agentclientprotocol.model.ContentBlock
+import com.agentclientprotocol.model.EnvVariable
+import com.agentclientprotocol.model.HttpHeader
 import com.agentclientprotocol.model.LATEST_PROTOCOL_VERSION
 import com.agentclientprotocol.model.McpServer
 import com.agentclientprotocol.model.SessionId
@@ -14,6 +16,8 @@ import kotlinx.coroutines.flow.toList
 import kotlinx.coroutines.runBlocking
 import net.osgiliath.acplanggraphlangchainbridge.acp.AcpAgentSupportBridge
 import net.osgiliath.acplanggraphlangchainbridge.acp.InAcpAdapter
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.McpServerDefinition
+import net.osgiliath.acplanggraphlangchainbridge.langgraph.state.SessionContext
 import org.junit.jupiter.api.Assertions.assertEquals
 import org.junit.jupiter.api.Assertions.assertNotEquals
 import org.junit.jupiter.api.Assertions.assertTrue
@@ -66,6 +70,38 @@ class AcpAgentRunnerParityTest {
         )
     }
 
+    @Test
+    fun `createSession forwards the full MCP server definitions`() = runBlocking {
+        val bridge = RecordingBridge()
+        val runner = AcpAgentRunner(bridge)
+        val sessionParameters = SessionCreationParameters(
+            cwd = "/workspace/project",
+            mcpServers = listOf(
+                McpServer.Stdio(
+                    name = "git",
+                    command = "uvx",
+                    args = listOf("mcp-server-git"),
+                    env = listOf(EnvVariable(name = "GIT_DIR", value = "/workspace/project/.git"))
+                ),
+                McpServer.Http(
+                    name = "http",
+                    url = "https://example.test/mcp",
+                    headers = listOf(HttpHeader(name = "Authorization", value = "Bearer token"))
+                )
+            )
+        )
+
+        runner.createAgentSupport().createSession(sessionParameters)
+
+        assertEquals(
+            mapOf(
+                "git" to McpServerDefinition.stdio("uvx", listOf("mcp-server-git"), mapOf("GIT_DIR" to "/workspace/project/.git")),
+                "http" to McpServerDefinition.http("https://example.test/mcp", mapOf("Authorization" to "Bearer token"))
+            ),
+            bridge.createdContexts.single().mcpServerDefinitions()
+        )
+    }
+
     @Test
     fun `loadSession reuses the requested session id and forwards session context`() = runBlocking {
         val bridge = RecordingBridge()
@@ -133,6 +169,7 @@ class AcpAgentRunnerParityTest {
         private val fixedSession: RecordingSession? = null
     ) : InAcpAdapter {
         val createdSessions = mutableListOf<CreatedSession>()
+        val createdContexts = mutableListOf<SessionContext>()
 
         override fun getAgentInfo(): AcpAgentSupportBridge.AgentInfoBridge =
             AcpAgentSupportBridge.AgentInfoBridge("BridgeAgent", "9.9.9")
@@ -145,6 +182,11 @@ class AcpAgentRunnerParityTest {
             createdSessions += CreatedSession(sessionId, cwd, mcpServers)
             return fixedSession ?: RecordingSession(sessionId)
         }
+
+        override fun createSession(sessionContext: SessionContext): AcpAgentSupportBridge.AcpSessionBridge {
+            createdContexts += sessionContext
+            return super.createSession(sessionContext)
+        }
     }
 
     private class RecordingSession(
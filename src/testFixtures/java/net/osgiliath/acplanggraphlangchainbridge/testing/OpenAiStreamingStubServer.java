@@ -0,0 +1,331 @@
+package net.osgiliath.acplanggraphlangchainbridge.testing;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Embedded OpenAI-compatible chat-completions server streaming a canned answer over SSE.
+ *
+ * <p>Point the LangChain4j OpenAI starter at {@link #baseUrl()} (for instance with
+ * {@code langchain4j.open-ai.streaming-chat-model.base-url}) to load-test the real client
+ * path: HTTP, SSE parsing, the streaming generator and the bridge, without the real API.</p>
+ *
+ * <p>Every {@code POST /v1/chat/completions} request is answered with the configured
+ * {@link Options#responseText()} split on whitespace into tokens, {@link Options#chunkSize()}
+ * tokens per SSE event, paced at {@link Options#tokensPerSecond()} after an initial
+ * {@link Options#firstTokenLatency()}. Requests are served on virtual threads so many
+ * concurrent streams can be driven from a single test.</p>
+ */
+public final class OpenAiStreamingStubServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenAiStreamingStubServer.class);
+
+    private static final String COMPLETIONS_PATH = "/v1/chat/completions";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Options options;
+    private final List<String> chunks;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    /**
+     * Stub server behaviour.
+     *
+     * @param responseText          the streamed answer, split on whitespace into tokens
+     * @param chunkSize             the number of tokens per SSE event
+     * @param tokensPerSecond       the streaming rate, {@link Double#POSITIVE_INFINITY} for no pacing
+     * @param firstTokenLatency     the delay before the first SSE event
+     * @param errorEveryNthRequest  answer every n-th request with {@code errorStatus}, {@code 0} to disable
+     * @param errorStatus           the HTTP status of injected errors
+     * @param disconnectAfterChunks abort the connection after that many events, negative to disable
+     */
+    public record Options(String responseText,
+                          int chunkSize,
+                          double tokensPerSecond,
+                          Duration firstTokenLatency,
+                          int errorEveryNthRequest,
+                          int errorStatus,
+                          int disconnectAfterChunks) {
+
+        /**
+         * Validates the options.
+         *
+         * @param responseText          the streamed answer
+         * @param chunkSize             the number of tokens per SSE event
+         * @param tokensPerSecond       the streaming rate
+         * @param firstTokenLatency     the delay before the first SSE event
+         * @param errorEveryNthRequest  the error injection period
+         * @param errorStatus           the HTTP status of injected errors
+         * @param disconnectAfterChunks the number of events after which the connection is aborted
+         */
+        public Options {
+            if (chunkSize < 1) {
+                throw new IllegalArgumentException("chunkSize must be at least 1: " + chunkSize);
+            }
+            if (!(tokensPerSecond > 0.0d)) {
+                throw new IllegalArgumentException("tokensPerSecond must be positive: " + tokensPerSecond);
+            }
+        }
+
+        /**
+         * @return a fast, error-free stream of a short answer
+         */
+        public static Options defaults() {
+            return new Options("Hello from the streaming stub server.", 1, Double.POSITIVE_INFINITY,
+                    Duration.ZERO, 0, 500, -1);
+        }
+
+        /**
+         * @param text the streamed answer
+         * @return a copy with the given answer
+         */
+        public Options withResponseText(String text) {
+            return new Options(text, chunkSize, tokensPerSecond, firstTokenLatency,
+                    errorEveryNthRequest, errorStatus, disconnectAfterChunks);
+        }
+
+        /**
+         * @param tokens the number of tokens per SSE event
+         * @return a copy with the given chunk size
+         */
+        public Options withChunkSize(int tokens) {
+            return new Options(responseText, tokens, tokensPerSecond, firstTokenLatency,
+                    errorEveryNthRequest, errorStatus, disconnectAfterChunks);
+        }
+
+        /**
+         * @param rate the streaming rate in tokens per second
+         * @return a copy with the given rate
+         */
+        public Options withTokensPerSecond(double rate) {
+            return new Options(responseText, chunkSize, rate, firstTokenLatency,
+                    errorEveryNthRequest, errorStatus, disconnectAfterChunks);
+        }
+
+        /**
+         * @param latency the delay before the first SSE event
+         * @return a copy with the given latency
+         */
+        public Options withFirstTokenLatency(Duration latency) {
+            return new Options(responseText, chunkSize, tokensPerSecond, latency,
+                    errorEveryNthRequest, errorStatus, disconnectAfterChunks);
+        }
+
+        /**
+         * @param everyNthRequest answer every n-th request with {@code status}
+         * @param status          the HTTP status of injected errors
+         * @return a copy with error injection enabled
+         */
+        public Options withErrors(int everyNthRequest, int status) {
+            return new Options(responseText, chunkSize, tokensPerSecond, firstTokenLatency,
+                    everyNthRequest, status, disconnectAfterChunks);
+        }
+
+        /**
+         * @param events the number of events after which the connection is aborted
+         * @return a copy with mid-stream disconnection enabled
+         */
+        public Options withDisconnectAfterChunks(int events) {
+            return new Options(responseText, chunkSize, tokensPerSecond, firstTokenLatency,
+                    errorEveryNthRequest, errorStatus, events);
+        }
+    }
+
+    private OpenAiStreamingStubServer(HttpServer server, ExecutorService executor, Options options) {
+        this.server = server;
+        this.executor = executor;
+        this.options = options;
+        this.chunks = split(options.responseText(), options.chunkSize());
+    }
+
+    /**
+     * Starts a stub server on an ephemeral loopback port.
+     *
+     * @param options the server behaviour
+     * @return the running server
+     * @throws IOException if the server socket cannot be bound
+     */
+    public static OpenAiStreamingStubServer start(Options options) throws IOException {
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        httpServer.setExecutor(executor);
+        OpenAiStreamingStubServer stub = new OpenAiStreamingStubServer(httpServer, executor, options);
+        httpServer.createContext(COMPLETIONS_PATH, stub::handle);
+        httpServer.start();
+        log.debug("OpenAI streaming stub listening on {}", stub.baseUrl());
+        return stub;
+    }
+
+    /**
+     * @return the OpenAI base URL of this server, including the {@code /v1} suffix
+     */
+    public String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/v1";
+    }
+
+    /**
+     * @return the number of chat-completions requests received so far
+     */
+    public long requestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of response body bytes written so far
+     */
+    public long bytesSent() {
+        return bytesSent.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long requestNumber = requests.incrementAndGet();
+        try (InputStream body = exchange.getRequestBody()) {
+            body.transferTo(OutputStream.nullOutputStream());
+        }
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+        if (options.errorEveryNthRequest() > 0 && requestNumber % options.errorEveryNthRequest() == 0) {
+            sendError(exchange);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        try {
+            stream(exchange.getResponseBody(), "chatcmpl-stub-" + requestNumber);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.close();
+    }
+
+    private void stream(OutputStream out, String id) throws IOException, InterruptedException {
+        long created = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        long deadline = System.nanoTime() + options.firstTokenLatency().toNanos();
+        long chunkIntervalNanos = Double.isInfinite(options.tokensPerSecond())
+                ? 0L
+                : (long) (options.chunkSize() * 1_000_000_000d / options.tokensPerSecond());
+        for (int i = 0; i < chunks.size(); i++) {
+            if (options.disconnectAfterChunks() >= 0 && i >= options.disconnectAfterChunks()) {
+                // Escaping the handler without closing the exchange makes the server drop the
+                // connection before the terminating chunk, so the client sees a truncated stream.
+                throw new IOException("Injected disconnect after " + i + " chunks");
+            }
+            awaitDeadline(deadline);
+            String delta = i == 0
+                    ? "{\"role\":\"assistant\",\"content\":" + quote(chunks.get(i)) + "}"
+                    : "{\"content\":" + quote(chunks.get(i)) + "}";
+            writeEvent(out, chunk(id, created, delta, "null"));
+            deadline += chunkIntervalNanos;
+        }
+        writeEvent(out, chunk(id, created, "{}", "\"stop\""));
+        int completionTokens = options.responseText().isBlank() ? 0 : options.responseText().strip().split("\\s+").length;
+        writeEvent(out, "{\"id\":\"" + id + "\",\"object\":\"chat.completion.chunk\",\"created\":" + created
+                + ",\"model\":\"stub-model\",\"choices\":[],\"usage\":{\"prompt_tokens\":0,\"completion_tokens\":"
+                + completionTokens + ",\"total_tokens\":" + completionTokens + "}}");
+        writeEvent(out, "[DONE]");
+    }
+
+    private void sendError(HttpExchange exchange) throws IOException {
+        byte[] body = ("{\"error\":{\"message\":\"Injected stub error\",\"type\":\"server_error\",\"code\":"
+                + options.errorStatus() + "}}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(options.errorStatus(), body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        bytesSent.addAndGet(body.length);
+    }
+
+    private void writeEvent(OutputStream out, String data) throws IOException {
+        byte[] bytes = ("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        out.flush();
+        bytesSent.addAndGet(bytes.length);
+    }
+
+    private static String chunk(String id, long created, String delta, String finishReason) {
+        return "{\"id\":\"" + id + "\",\"object\":\"chat.completion.chunk\",\"created\":" + created
+                + ",\"model\":\"stub-model\",\"choices\":[{\"index\":0,\"delta\":" + delta
+                + ",\"finish_reason\":" + finishReason + "}]}";
+    }
+
+    private static List<String> split(String text, int tokensPerChunk) {
+        List<String> result = new ArrayList<>();
+        // Keep the whitespace attached to each token so the concatenated chunks equal the text.
+        String[] tokens = text.split("(?<=\\s)(?=\\S)");
+        StringBuilder current = new StringBuilder();
+        int count = 0;
+        for (String token : tokens) {
+            current.append(token);
+            if (++count == tokensPerChunk) {
+                result.add(current.toString());
+                current.setLength(0);
+                count = 0;
+            }
+        }
+        if (!current.isEmpty()) {
+            result.add(current.toString());
+        }
+        return result;
+    }
+
+    private static void awaitDeadline(long deadline) throws InterruptedException {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0L) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Stub stream interrupted");
+            }
+        }
+    }
+
+    private static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,231 @@
+package net.osgiliath.acplanggraphlangchainbridge.testing;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the startup of the bridge as an IDE sees it: the time from launching the process to
+ * the response of the ACP {@code initialize} request, and to the first streamed token of a first
+ * prompt.
+ *
+ * <p>Each variant is a full command line (for instance the JVM with or without Spring AOT and a
+ * class-data-sharing archive, or a native image). Every run is a cold start: the command is
+ * launched and sent {@code initialize}, then {@code session/new} and a {@code session/prompt},
+ * each timed from launch until the matching line on stdout; the process is then stopped by
+ * closing stdin. Lines that are not awaited (banner, JVM warnings, later updates) are skipped.</p>
+ *
+ * <pre>
+ * StartupBenchmark --runs 5 --report build/startup.txt --logs build/startup-logs \
+ *     --variant jvm java -cp app.jar com.example.App --end \
+ *     --variant native build/native/app --end
+ * </pre>
+ */
+public final class StartupBenchmark {
+
+    static final String INITIALIZE_REQUEST =
+            "{\"jsonrpc\":\"2.0\",\"id\":0,\"method\":\"initialize\",\"params\":{\"protocolVersion\":1,\"clientCapabilities\":{}}}";
+
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(120);
+    private static final Pattern SESSION_ID = Pattern.compile("\"sessionId\":\"([^\"]+)\"");
+    private static final String END_OF_OUTPUT = "\u0000";
+
+    /**
+     * The timings of one cold start.
+     *
+     * @param initialize the time from launch to the {@code initialize} response
+     * @param firstToken the time from launch to the first chunk of the first prompt
+     */
+    public record Measurement(Duration initialize, Duration firstToken) {
+    }
+
+    private StartupBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args {@code --runs n}, {@code --timeout duration}, {@code --report file},
+     *             {@code --logs directory} and one or more {@code --variant name command... --end}
+     * @throws Exception if a variant fails to start or to answer in time
+     */
+    public static void main(String[] args) throws Exception {
+        int runs = 5;
+        Duration timeout = DEFAULT_TIMEOUT;
+        Path report = null;
+        Path logs = null;
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--runs" -> runs = Integer.parseInt(args[++i]);
+                case "--timeout" -> timeout = Duration.parse(args[++i]);
+                case "--report" -> report = Path.of(args[++i]);
+                case "--logs" -> logs = Path.of(args[++i]);
+                case "--variant" -> {
+                    String name = args[++i];
+                    List<String> command = new ArrayList<>();
+                    while (!args[++i].equals("--end")) {
+                        command.add(args[i]);
+                    }
+                    variants.put(name, command);
+                }
+                default -> throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        Map<String, List<Measurement>> results = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+            List<Measurement> measurements = new ArrayList<>();
+            for (int run = 0; run < runs; run++) {
+                Path log = logs == null ? null : logs.resolve(variant.getKey() + ".log");
+                measurements.add(measure(variant.getValue(), timeout, log));
+            }
+            results.put(variant.getKey(), measurements);
+        }
+
+        print(results, System.out);
+        if (report != null) {
+            Files.createDirectories(report.toAbsolutePath().getParent());
+            try (PrintStream out = new PrintStream(Files.newOutputStream(report), true, StandardCharsets.UTF_8)) {
+                print(results, out);
+            }
+        }
+    }
+
+    /**
+     * Launches a command and measures the time until it answers the ACP {@code initialize}
+     * request, then until it streams the first token of a prompt in a new session.
+     *
+     * @param command the command line starting the bridge on stdio
+     * @param timeout how long to wait for each response, and then for the process to exit
+     * @param log     the file the process stderr is appended to, {@code null} to discard it
+     * @return the timings, from launch
+     * @throws IOException          if the command cannot be started
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static Measurement measure(List<String> command, Duration timeout, Path log)
+            throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        if (log != null) {
+            Files.createDirectories(log.toAbsolutePath().getParent());
+            builder.redirectError(ProcessBuilder.Redirect.appendTo(log.toFile()));
+        } else {
+            builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        }
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            BlockingQueue<TimedLine> stdout = new LinkedBlockingQueue<>();
+            Thread.ofVirtual().name("startup-benchmark-stdout").start(() -> readLines(process, stdout));
+            OutputStream stdin = process.getOutputStream();
+
+            send(stdin, INITIALIZE_REQUEST);
+            TimedLine initialized = await(stdout, line -> line.contains("\"id\":0") && line.contains("\"result\""),
+                    timeout, command, "initialize");
+
+            send(stdin, "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"session/new\",\"params\":{\"cwd\":\""
+                    + escape(Path.of("").toAbsolutePath().toString()) + "\",\"mcpServers\":[]}}");
+            TimedLine created = await(stdout, line -> line.contains("\"id\":1") && line.contains("\"result\""),
+                    timeout, command, "session/new");
+            String sessionId = match(SESSION_ID, created.line(), matcher -> matcher.group(1));
+
+            send(stdin, "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"session/prompt\",\"params\":{\"sessionId\":\""
+                    + sessionId + "\",\"prompt\":[{\"type\":\"text\",\"text\":\"Hello\"}]}}");
+            TimedLine firstToken = await(stdout, line -> line.contains("agent_message_chunk"),
+                    timeout, command, "the first token");
+
+            stdin.close();
+            if (!process.waitFor(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                process.destroy();
+            }
+            return new Measurement(Duration.ofNanos(initialized.nanos() - start),
+                    Duration.ofNanos(firstToken.nanos() - start));
+        } finally {
+            if (process.isAlive() && !process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static void send(OutputStream stdin, String message) throws IOException {
+        stdin.write((message + "\n").getBytes(StandardCharsets.UTF_8));
+        stdin.flush();
+    }
+
+    private static TimedLine await(BlockingQueue<TimedLine> stdout, Predicate<String> expected, Duration timeout,
+                                   List<String> command, String what) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            TimedLine line = stdout.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (line == null) {
+                throw new IllegalStateException(command.getFirst() + " did not answer " + what + " within " + timeout);
+            }
+            if (line.line() == END_OF_OUTPUT) {
+                throw new IllegalStateException(command.getFirst() + " exited before answering " + what);
+            }
+            if (expected.test(line.line())) {
+                return line;
+            }
+        }
+    }
+
+    /**
+     * Timestamps every stdout line as soon as it is read; stdout is drained until the process
+     * closes it, so the process never blocks on a full pipe.
+     */
+    private static void readLines(Process process, BlockingQueue<TimedLine> lines) {
+        try (BufferedReader stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = stdout.readLine()) != null) {
+                lines.add(new TimedLine(line, System.nanoTime()));
+            }
+        } catch (IOException e) {
+            // the process is gone, reported below
+        }
+        lines.add(new TimedLine(END_OF_OUTPUT, System.nanoTime()));
+    }
+
+    private static <T> T match(Pattern pattern, String line, Function<Matcher, T> extractor) {
+        Matcher matcher = pattern.matcher(line);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Unexpected response " + line);
+        }
+        return extractor.apply(matcher);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static void print(Map<String, List<Measurement>> results, PrintStream out) {
+        out.printf("%-12s %27s %27s%n", "", "initialize (ms)", "first token (ms)");
+        out.printf("%-12s %8s %8s %8s  %8s %8s %8s%n", "variant", "min", "median", "max", "min", "median", "max");
+        results.forEach((name, measurements) -> {
+            List<Long> initialize = measurements.stream().map(m -> m.initialize().toMillis()).sorted().toList();
+            List<Long> firstToken = measurements.stream().map(m -> m.firstToken().toMillis()).sorted().toList();
+            out.printf("%-12s %8d %8d %8d  %8d %8d %8d%n", name,
+                    initialize.getFirst(), initialize.get(initialize.size() / 2), initialize.getLast(),
+                    firstToken.getFirst(), firstToken.get(firstToken.size() / 2), firstToken.getLast());
+        });
+    }
+
+    private record TimedLine(String line, long nanos) {
+    }
+}